@@ -17,10 +17,9 @@ package org.candlepin.common.jackson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 
 
@@ -29,31 +28,53 @@ import java.util.Map;
  *
  * Class to hold filtering data to be passed from DynamicJsonFilter
  * to DynamicPropertyFilter
+ *
+ * The include and exclude paths are compiled into a trie of FilterNodes. An attribute path is
+ * matched by following the nodes one path element at a time from the root node, so paths never
+ * have to be materialized to be checked.
  */
 public class DynamicFilterData {
     private static Logger log = LoggerFactory.getLogger(DynamicFilterData.class);
 
-    private static class Match {
-        private final int level;
-        private final boolean exact;
-
-        public Match(int level, boolean exact) {
-            this.level = level;
-            this.exact = exact;
-        }
-
-        public int getLevel() {
-            return this.level;
-        }
-
-        public boolean isExact() {
-            return this.exact;
+    /**
+     * A node of the compiled filter trie, representing a path prefix shared by one or more
+     * filters. Paths which leave the trie end up at a node without children, carrying the matches
+     * of the last prefix they shared with a filter.
+     */
+    public static final class FilterNode {
+        // Path elements are matched case-insensitively
+        private final Map<String, FilterNode> children = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private FilterNode unmatched;
+
+        private int depth;
+
+        // Whether an include or exclude filter ends at this node, or continues past it
+        private boolean include;
+        private boolean exclude;
+        private boolean includeBelow;
+        private boolean excludeBelow;
+
+        // The depth of the deepest include and exclude filters ending at this node or above it
+        private int includeDepth;
+        private int excludeDepth;
+
+        /**
+         * Fetches the node for the path of this node followed by the given element
+         *
+         * @param name
+         *  the name of the path element to append
+         *
+         * @return
+         *  the node for the extended path
+         */
+        public FilterNode child(String name) {
+            FilterNode child = this.children.isEmpty() ? null : this.children.get(name);
+            return child != null ? child : this.unmatched;
         }
     }
 
-
-    private Map<String, List<String>> includeFilters;
-    private Map<String, List<String>> excludeFilters;
+    private final FilterNode root;
+    private volatile boolean compiled;
     private boolean whitelist;
 
     public DynamicFilterData() {
@@ -61,8 +82,7 @@ public class DynamicFilterData {
     }
 
     public DynamicFilterData(boolean whitelist) {
-        this.includeFilters = new HashMap<>();
-        this.excludeFilters = new HashMap<>();
+        this.root = new FilterNode();
         this.whitelist = whitelist;
     }
 
@@ -75,7 +95,7 @@ public class DynamicFilterData {
             throw new IllegalArgumentException("path is null");
         }
 
-        this.addAttributeFilter(this.includeFilters, path);
+        this.addAttributeFilter(path, true);
     }
 
     public void excludeAttribute(String path) {
@@ -83,60 +103,133 @@ public class DynamicFilterData {
             throw new IllegalArgumentException("path is null");
         }
 
-        this.addAttributeFilter(this.excludeFilters, path);
+        this.addAttributeFilter(path, false);
     }
 
-    private void addAttributeFilter(Map<String, List<String>> filters, String path) {
-        String[] chunklets = path.split("\\.");
-        filters.put(path.toLowerCase(), Arrays.asList(chunklets));
-    }
+    private synchronized void addAttributeFilter(String path, boolean include) {
+        FilterNode node = this.root;
 
-    public boolean isAttributeExcluded(String path) {
-        String[] chunklets = path.split("\\.");
-        return this.isAttributeExcluded(Arrays.asList(chunklets));
+        for (String chunklet : path.split("\\.")) {
+            if (include) {
+                node.includeBelow = true;
+            }
+            else {
+                node.excludeBelow = true;
+            }
+
+            node = node.children.computeIfAbsent(chunklet, key -> new FilterNode());
+        }
+
+        if (include) {
+            node.include = true;
+        }
+        else {
+            node.exclude = true;
+        }
+
+        this.compiled = false;
     }
 
-    public boolean isAttributeExcluded(List<String> path) {
-        Match iLevel = this.getFilterLevel(this.includeFilters, path);
-        Match eLevel = this.getFilterLevel(this.excludeFilters, path);
+    /**
+     * Fills in the depths of the given node and its children, and the nodes for paths leaving the
+     * trie below them.
+     */
+    private void compile(FilterNode node, int depth, int includeDepth, int excludeDepth) {
+        node.depth = depth;
+        node.includeDepth = node.include ? depth : includeDepth;
+        node.excludeDepth = node.exclude ? depth : excludeDepth;
+
+        FilterNode unmatched = new FilterNode();
+        unmatched.depth = depth + 1;
+        unmatched.includeDepth = node.includeDepth;
+        unmatched.excludeDepth = node.excludeDepth;
+        unmatched.unmatched = unmatched;
+        node.unmatched = unmatched;
+
+        for (FilterNode child : node.children.values()) {
+            this.compile(child, depth + 1, node.includeDepth, node.excludeDepth);
+        }
+    }
 
-        if (iLevel.isExact() && iLevel.getLevel() > eLevel.getLevel()) {
-            return false;
+    /**
+     * Fetches the root node of the compiled filters, representing the serialized object itself.
+     * The node for an attribute path is found by following the child nodes for each element of
+     * the path, and can then be checked with the isAttributeExcluded method.
+     *
+     * @return
+     *  the root node of the compiled filters
+     */
+    public FilterNode root() {
+        if (!this.compiled) {
+            synchronized (this) {
+                if (!this.compiled) {
+                    this.compile(this.root, 0, 0, 0);
+                    this.compiled = true;
+                }
+            }
         }
 
-        if (eLevel.isExact() && eLevel.getLevel() > iLevel.getLevel()) {
-            return true;
+        return this.root;
+    }
+
+    public boolean isAttributeExcluded(String path) {
+        FilterNode node = this.root();
+
+        for (String chunklet : path.split("\\.")) {
+            node = node.child(chunklet);
         }
 
-        return this.whitelist && (iLevel.getLevel() < 1 || iLevel.getLevel() < eLevel.getLevel());
+        return this.isAttributeExcluded(node);
     }
 
-    private Match getFilterLevel(Map<String, List<String>> filters, List<String> path) {
-        int level = 0;
-        boolean exact = false;
+    public boolean isAttributeExcluded(List<String> path) {
+        FilterNode node = this.root();
 
-        for (List<String> fpath : filters.values()) {
-            boolean match = false;
-            int i = 0;
+        for (String chunklet : path) {
+            node = node.child(chunklet);
+        }
 
-            do {
-                String fchunk = fpath.get(i);
-                String pchunk = path.get(i);
+        return this.isAttributeExcluded(node);
+    }
 
-                match = fchunk != null && fchunk.equalsIgnoreCase(pchunk);
-                ++i;
-            } while (match && i < path.size() && i < fpath.size());
+    /**
+     * Checks whether or not the attribute at the path represented by the given node is excluded
+     * by the filters
+     *
+     * @param node
+     *  the node for the path of the attribute to check, reached from the root node of these
+     *  filters
+     *
+     * @return
+     *  true if the attribute should be excluded; false otherwise
+     */
+    public boolean isAttributeExcluded(FilterNode node) {
+        // A filter matching the path exactly, or one of its parents, is an exact match at the
+        // filter's depth. A filter on one of the path's children is an inexact match at the
+        // path's depth, as the path must be present to reach the child.
+        int iLevel = node.includeDepth > 0 ? node.includeDepth + 1 : 0;
+        int eLevel = node.excludeDepth > 0 ? node.excludeDepth + 1 : 0;
+        boolean iExact = iLevel > 0;
+        boolean eExact = eLevel > 0;
+
+        if (!node.include && node.includeBelow) {
+            iLevel = node.depth + 1;
+            iExact = false;
+        }
 
-            if (match && i > level) {
-                level = i + 1;
-                exact = i >= fpath.size();
+        if (!node.exclude && node.excludeBelow) {
+            eLevel = node.depth + 1;
+            eExact = false;
+        }
 
-                if (exact) {
-                    break;
-                }
-            }
+        if (iExact && iLevel > eLevel) {
+            return false;
+        }
+
+        if (eExact && eLevel > iLevel) {
+            return true;
         }
 
-        return new Match(level, exact);
+        return this.whitelist && (iLevel < 1 || iLevel < eLevel);
     }
 }
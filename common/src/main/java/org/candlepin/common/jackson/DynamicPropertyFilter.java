@@ -21,9 +21,6 @@ import com.fasterxml.jackson.databind.ser.PropertyWriter;
 
 import org.jboss.resteasy.core.ResteasyContext;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * DynamicPropertyFilter
  *
@@ -38,23 +35,31 @@ public class DynamicPropertyFilter extends CheckableBeanPropertyFilter {
         DynamicFilterData filterData = ResteasyContext.getContextData(DynamicFilterData.class);
 
         if (filterData != null) {
-            List<String> path = new ArrayList<>(10);
-            path.clear();
-            path.add(0, writer.getName());
-
-            // Build full path from the context...
-            JsonStreamContext context = jsonGenerator.getOutputContext();
-            while ((context = context.getParent()) != null) {
-                String cname = context.getCurrentName();
-                if (cname != null) {
-                    path.add(0, cname);
-                }
-            }
-
-            return !filterData.isAttributeExcluded(path);
+            // Follow the full path from the context, starting at the root, and then the property
+            DynamicFilterData.FilterNode node = this.descend(filterData.root(),
+                jsonGenerator.getOutputContext().getParent());
+
+            return !filterData.isAttributeExcluded(node.child(writer.getName()));
         }
 
         // Allow serialization by default
         return true;
     }
+
+    /**
+     * Follows the filter nodes for the names of the given context and its parents, outermost
+     * first. Array contexts have no name and are skipped.
+     */
+    private DynamicFilterData.FilterNode descend(DynamicFilterData.FilterNode root,
+        JsonStreamContext context) {
+
+        if (context == null) {
+            return root;
+        }
+
+        DynamicFilterData.FilterNode node = this.descend(root, context.getParent());
+
+        String cname = context.getCurrentName();
+        return cname != null ? node.child(cname) : node;
+    }
 }
@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.common.paging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Objects;
+
+
+
+/**
+ * Represents a position in a sorted result set, used to fetch the page of results following it
+ * without having to skip over every result before it. A cursor holds the sort key of the last
+ * result of the previous page -- the value of the sort field, and the ID of the result to break
+ * ties -- along with the sort field and order it applies to.
+ *
+ * Cursors are handed to clients as opaque strings; see the encode and decode methods.
+ */
+public class PageCursor {
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_DATE = 5;
+    private static final byte TYPE_TIMESTAMP = 6;
+
+    private final String sortBy;
+    private final PageRequest.Order order;
+    private final Object lastValue;
+    private final Object lastId;
+
+    /**
+     * Creates a new cursor positioned after the result with the given sort key.
+     *
+     * @param sortBy
+     *  the field the results are sorted by
+     *
+     * @param order
+     *  the order the results are sorted in
+     *
+     * @param lastValue
+     *  the value of the sort field of the last result of the previous page; may be null
+     *
+     * @param lastId
+     *  the ID of the last result of the previous page
+     *
+     * @throws IllegalArgumentException
+     *  if sortBy, order or lastId are null, or if lastValue or lastId are of an unsupported type
+     */
+    public PageCursor(String sortBy, PageRequest.Order order, Object lastValue, Object lastId) {
+        if (sortBy == null) {
+            throw new IllegalArgumentException("sortBy is null");
+        }
+
+        if (order == null) {
+            throw new IllegalArgumentException("order is null");
+        }
+
+        if (lastId == null) {
+            throw new IllegalArgumentException("lastId is null");
+        }
+
+        if (!isSupportedType(lastValue) || !isSupportedType(lastId)) {
+            throw new IllegalArgumentException("unsupported sort key type");
+        }
+
+        this.sortBy = sortBy;
+        this.order = order;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Checks whether or not the given value can be stored in a cursor
+     *
+     * @param value
+     *  the value to check
+     *
+     * @return
+     *  true if the value can be stored in a cursor; false otherwise
+     */
+    public static boolean isSupportedType(Object value) {
+        return value == null || value instanceof String || value instanceof Integer ||
+            value instanceof Long || value instanceof Boolean || value instanceof Date;
+    }
+
+    public String getSortBy() {
+        return this.sortBy;
+    }
+
+    public PageRequest.Order getOrder() {
+        return this.order;
+    }
+
+    public Object getLastValue() {
+        return this.lastValue;
+    }
+
+    public Object getLastId() {
+        return this.lastId;
+    }
+
+    /**
+     * Encodes this cursor as an opaque, URL-safe string
+     *
+     * @return
+     *  the encoded cursor
+     */
+    public String encode() {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+
+            out.writeByte(VERSION);
+            out.writeUTF(this.sortBy);
+            out.writeBoolean(this.order == PageRequest.Order.DESCENDING);
+            writeValue(out, this.lastValue);
+            writeValue(out, this.lastId);
+            out.flush();
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.toByteArray());
+        }
+        catch (IOException e) {
+            // This shouldn't happen, as we're writing to memory
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes a cursor previously encoded with the encode method
+     *
+     * @param encoded
+     *  the encoded cursor
+     *
+     * @throws IllegalArgumentException
+     *  if the given string is not a valid encoded cursor
+     *
+     * @return
+     *  the decoded cursor
+     */
+    public static PageCursor decode(String encoded) {
+        if (encoded == null) {
+            throw new IllegalArgumentException("encoded cursor is null");
+        }
+
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(encoded);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("unsupported cursor version");
+            }
+
+            String sortBy = in.readUTF();
+            PageRequest.Order order = in.readBoolean() ?
+                PageRequest.Order.DESCENDING :
+                PageRequest.Order.ASCENDING;
+
+            Object lastValue = readValue(in);
+            Object lastId = readValue(in);
+
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("malformed cursor");
+            }
+
+            return new PageCursor(sortBy, order, lastValue, lastId);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("malformed cursor", e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        }
+        else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String) value);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Timestamp) {
+            // Timestamps may be more precise than milliseconds; we need to keep all of it to avoid
+            // repeating or skipping results on the next page.
+            out.writeByte(TYPE_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        }
+        else {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+
+            case TYPE_STRING:
+                return in.readUTF();
+
+            case TYPE_INTEGER:
+                return in.readInt();
+
+            case TYPE_LONG:
+                return in.readLong();
+
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+
+            case TYPE_DATE:
+                return new Date(in.readLong());
+
+            case TYPE_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+
+            default:
+                throw new IllegalArgumentException("unsupported value type: " + type);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof PageCursor)) {
+            return false;
+        }
+
+        PageCursor that = (PageCursor) obj;
+
+        return this.sortBy.equals(that.sortBy) && this.order == that.order &&
+            Objects.equals(this.lastValue, that.lastValue) && this.lastId.equals(that.lastId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.sortBy, this.order, this.lastValue, this.lastId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PageCursor [sortBy: %s, order: %s, lastValue: %s, lastId: %s]",
+            this.sortBy, this.order, this.lastValue, this.lastId);
+    }
+}
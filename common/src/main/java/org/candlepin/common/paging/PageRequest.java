@@ -30,6 +30,8 @@ public class PageRequest {
     public static final String SORT_BY_PARAM = "sort_by";
     public static final String PAGE_PARAM = "page";
     public static final String PER_PAGE_PARAM = "per_page";
+    public static final String CURSOR_PARAM = "cursor";
+    public static final String INCLUDE_TOTAL_PARAM = "include_total";
 
     public static final Integer DEFAULT_PAGE = Integer.valueOf(1);
     public static final Integer DEFAULT_PER_PAGE = Integer.valueOf(10);
@@ -39,6 +41,9 @@ public class PageRequest {
     private Integer perPage;
     private String sortBy;
     private Order order;
+    private boolean cursorPaging;
+    private PageCursor cursor;
+    private boolean includeTotal;
 
     public Integer getPage() {
         return page;
@@ -75,4 +80,44 @@ public class PageRequest {
     public boolean isPaging() {
         return perPage != null && page != null;
     }
+
+    /**
+     * Checks whether or not this request pages by cursor rather than by page number. Cursor paging
+     * seeks directly to the results following the cursor, so fetching a page does not get slower
+     * the further along the client is, and the total number of results is only counted on
+     * request.
+     *
+     * @return
+     *  true if this request pages by cursor; false otherwise
+     */
+    public boolean isCursorPaging() {
+        return cursorPaging && perPage != null;
+    }
+
+    public void setCursorPaging(boolean cursorPaging) {
+        this.cursorPaging = cursorPaging;
+    }
+
+    /**
+     * Fetches the cursor positioned after the last result of the previous page. If this request
+     * pages by cursor and the cursor is null, the first page is requested.
+     *
+     * @return
+     *  the cursor of this request, or null if the first page is requested
+     */
+    public PageCursor getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(PageCursor cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isIncludeTotal() {
+        return includeTotal;
+    }
+
+    public void setIncludeTotal(boolean includeTotal) {
+        this.includeTotal = includeTotal;
+    }
 }
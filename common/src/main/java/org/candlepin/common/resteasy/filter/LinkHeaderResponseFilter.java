@@ -83,7 +83,7 @@ public class LinkHeaderResponseFilter implements ContainerResponseFilter {
         }
 
         // If we aren't paging, then no need for Link headers.
-        if (page.getPageRequest() == null || !page.getPageRequest().isPaging()) {
+        if (page.getPageRequest() == null || !isPaging(page.getPageRequest())) {
             return;
         }
 
@@ -99,6 +99,11 @@ public class LinkHeaderResponseFilter implements ContainerResponseFilter {
         builder = addUnchangingQueryParams(builder, params);
         //TODO add missing parameters like the default limit if no limit is given.
 
+        if (page.getPageRequest().isCursorPaging()) {
+            this.addCursorLinks(page, builder, respContext);
+            return;
+        }
+
         try {
             LinkHeader header = new LinkHeader();
 
@@ -126,10 +131,49 @@ public class LinkHeaderResponseFilter implements ContainerResponseFilter {
         respContext.getHeaders().add(TOTAL_RECORDS_COUNT, page.getMaxRecords());
     }
 
+    private static boolean isPaging(PageRequest pageRequest) {
+        return pageRequest.isPaging() || pageRequest.isCursorPaging();
+    }
+
+    /**
+     * Adds the links for a page fetched by cursor. As there is no page number to jump to, only the
+     * first and next pages are linked, and the total count is only included if it was requested.
+     */
+    protected void addCursorLinks(Page<?> page, UriBuilder builder, ContainerResponseContext respContext) {
+        try {
+            LinkHeader header = new LinkHeader();
+
+            if (page.getNextCursor() != null) {
+                header.addLink("next", "next", buildCursorLink(builder, page.getNextCursor()), LINK_TYPE);
+            }
+
+            header.addLink("first", "first", buildCursorLink(builder, ""), LINK_TYPE);
+
+            respContext.getHeaders().add(LINK_HEADER, header.toString());
+        }
+        catch (LinkTooLongException e) {
+            log.warn("Link length exceeded maximum length ({}). " +
+                "Link headers will be omitted from this response.",
+                MAX_LINK_LENGTH, e);
+        }
+
+        if (page.getMaxRecords() != null) {
+            respContext.getHeaders().add(TOTAL_RECORDS_COUNT, page.getMaxRecords());
+        }
+    }
+
     protected String buildPageLink(UriBuilder b, int value) {
+        return this.buildLink(b, PageRequest.PAGE_PARAM, String.valueOf(value));
+    }
+
+    protected String buildCursorLink(UriBuilder b, String cursor) {
+        return this.buildLink(b, PageRequest.CURSOR_PARAM, cursor);
+    }
+
+    private String buildLink(UriBuilder b, String param, String value) {
         // Copy so we can use the same builder for building each link.
         UriBuilder builder = b.clone();
-        builder.queryParam(PageRequest.PAGE_PARAM, String.valueOf(value));
+        builder.queryParam(param, value);
 
         String link = builder.build().toString();
 
@@ -207,7 +251,9 @@ public class LinkHeaderResponseFilter implements ContainerResponseFilter {
         // parameters provided too.
         if (params != null) {
             for (Entry<String, List<String>> e : params.entrySet()) {
-                if (!e.getKey().equals(PageRequest.PAGE_PARAM)) {
+                if (!e.getKey().equals(PageRequest.PAGE_PARAM) &&
+                    !e.getKey().equals(PageRequest.CURSOR_PARAM)) {
+
                     for (String v : e.getValue()) {
                         builder = builder.queryParam(e.getKey(), v);
                     }
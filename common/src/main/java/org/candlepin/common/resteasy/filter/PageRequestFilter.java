@@ -15,6 +15,7 @@
 package org.candlepin.common.resteasy.filter;
 
 import org.candlepin.common.exceptions.BadRequestException;
+import org.candlepin.common.paging.PageCursor;
 import org.candlepin.common.paging.PageRequest;
 import org.candlepin.common.paging.PageRequest.Order;
 
@@ -55,8 +56,13 @@ public class PageRequestFilter implements ContainerRequestFilter {
         String perPage = params.getFirst(PageRequest.PER_PAGE_PARAM);
         String order = params.getFirst(PageRequest.ORDER_PARAM);
         String sortBy = params.getFirst(PageRequest.SORT_BY_PARAM);
+        String cursor = params.getFirst(PageRequest.CURSOR_PARAM);
+        String includeTotal = params.getFirst(PageRequest.INCLUDE_TOTAL_PARAM);
 
-        if (page != null || perPage != null || order != null || sortBy != null) {
+        if (cursor != null) {
+            p = this.readCursorPageRequest(cursor, page, perPage, order, sortBy, includeTotal);
+        }
+        else if (page != null || perPage != null || order != null || sortBy != null) {
             p = new PageRequest();
 
             if (order == null) {
@@ -94,6 +100,56 @@ public class PageRequestFilter implements ContainerRequestFilter {
         ResteasyContext.pushContext(PageRequest.class, p);
     }
 
+    /**
+     * Builds a page request for paging by cursor. An empty cursor requests the first page; any
+     * other cursor must be one handed out for the same sort field and order.
+     */
+    private PageRequest readCursorPageRequest(String cursor, String page, String perPage, String order,
+        String sortBy, String includeTotal) {
+
+        I18n i18n = this.i18nProvider.get();
+
+        if (page != null) {
+            throw new BadRequestException(i18n.tr("the page and cursor parameters cannot be used together"));
+        }
+
+        PageRequest p = new PageRequest();
+        p.setCursorPaging(true);
+        p.setOrder(order != null ? readOrder(order) : PageRequest.DEFAULT_ORDER);
+        p.setSortBy(sortBy);
+        p.setIncludeTotal(Boolean.parseBoolean(includeTotal));
+
+        try {
+            p.setPerPage(perPage != null ? readInteger(perPage) : PageRequest.DEFAULT_PER_PAGE);
+        }
+        catch (NumberFormatException nfe) {
+            throw new BadRequestException(i18n.tr("offset and limit parameters" +
+                " must be positive integers"), nfe);
+        }
+
+        if (!cursor.isEmpty()) {
+            try {
+                p.setCursor(PageCursor.decode(cursor));
+            }
+            catch (IllegalArgumentException e) {
+                throw new BadRequestException(i18n.tr("the cursor parameter is not valid"), e);
+            }
+
+            // The cursor's sort key is meaningless for any other sort field or order
+            PageCursor decoded = p.getCursor();
+            if (!decoded.getOrder().equals(p.getOrder()) ||
+                (sortBy != null && !sortBy.equals(decoded.getSortBy()))) {
+
+                throw new BadRequestException(i18n.tr("the cursor parameter does not match the " +
+                    "requested sort order"));
+            }
+
+            p.setSortBy(decoded.getSortBy());
+        }
+
+        return p;
+    }
+
     private Order readOrder(String order) {
         if ("ascending".equalsIgnoreCase(order) || "asc".equalsIgnoreCase(order)) {
             return Order.ASCENDING;
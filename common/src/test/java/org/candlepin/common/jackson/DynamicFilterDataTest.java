@@ -130,4 +130,61 @@ public class DynamicFilterDataTest {
         assertTrue(filterData.isAttributeExcluded(Arrays.asList("a", "b2", "d3")));
     }
 
+    @Test
+    public void testFilteringIsCaseInsensitive() {
+        DynamicFilterData filterData = new DynamicFilterData(false);
+        filterData.excludeAttribute("Bacon.EGG");
+
+        assertTrue(filterData.isAttributeExcluded("bacon.egg"));
+        assertTrue(filterData.isAttributeExcluded(Arrays.asList("BACON", "Egg", "cheese")));
+        assertFalse(filterData.isAttributeExcluded(Arrays.asList("bacon", "spinach")));
+    }
+
+    @Test
+    public void testWhitelistIncludesParentsOfIncludedAttributes() {
+        DynamicFilterData filterData = new DynamicFilterData(true);
+        filterData.includeAttribute("a.b.c");
+        filterData.includeAttribute("a.d");
+
+        assertFalse(filterData.isAttributeExcluded("a"));
+        assertFalse(filterData.isAttributeExcluded("a.b"));
+        assertFalse(filterData.isAttributeExcluded("a.b.c"));
+        assertFalse(filterData.isAttributeExcluded("a.b.c.e"));
+        assertFalse(filterData.isAttributeExcluded("a.d.e"));
+        assertTrue(filterData.isAttributeExcluded("a.b.d"));
+        assertTrue(filterData.isAttributeExcluded("a.e"));
+    }
+
+    @Test
+    public void testFilterNodesMatchIncrementally() {
+        DynamicFilterData filterData = new DynamicFilterData(false);
+        filterData.includeAttribute("a.b1");
+        filterData.excludeAttribute("a.b1.c2");
+        filterData.excludeAttribute("a.b2");
+
+        DynamicFilterData.FilterNode node = filterData.root().child("a");
+        assertFalse(filterData.isAttributeExcluded(node));
+
+        node = node.child("b1");
+        assertFalse(filterData.isAttributeExcluded(node));
+
+        node = node.child("c2");
+        assertTrue(filterData.isAttributeExcluded(node));
+
+        node = node.child("d1");
+        assertTrue(filterData.isAttributeExcluded(node));
+
+        assertTrue(filterData.isAttributeExcluded(filterData.root().child("a").child("b2")));
+        assertFalse(filterData.isAttributeExcluded(filterData.root().child("x").child("b2")));
+    }
+
+    @Test
+    public void testFiltersAddedAfterMatchingAreApplied() {
+        DynamicFilterData filterData = new DynamicFilterData(false);
+        filterData.excludeAttribute("a.b.c");
+        assertFalse(filterData.isAttributeExcluded("a.b.d"));
+
+        filterData.excludeAttribute("a");
+        assertTrue(filterData.isAttributeExcluded("a.b.d"));
+    }
 }
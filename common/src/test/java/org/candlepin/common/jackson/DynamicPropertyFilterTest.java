@@ -16,7 +16,7 @@ package org.candlepin.common.jackson;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.anyList;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -33,8 +33,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Arrays;
-
 @ExtendWith(MockitoExtension.class)
 public class DynamicPropertyFilterTest {
 
@@ -64,18 +62,15 @@ public class DynamicPropertyFilterTest {
     }
 
     @Test
-    @SuppressWarnings("unchecked")
     public void nonEmptyIsSerializable() {
-        //Implicitly return true
-        when(dynamicFilterData.isAttributeExcluded(anyList()))
-            .thenReturn(true);
-        when(dynamicFilterData.isAttributeExcluded(Arrays.asList("CONTEXT_NAME_1", "WRITER_NAME")))
-            .thenReturn(false);
+        DynamicFilterData filterData = new DynamicFilterData();
+        filterData.excludeAttribute("CONTEXT_NAME_1.OTHER_NAME");
+
         when(jsonGenerator.getOutputContext()).thenReturn(context);
         when(context.getParent()).thenReturn(context).thenReturn(null);
         when(context.getCurrentName()).thenReturn("CONTEXT_NAME_1");
         when(writer.getName()).thenReturn("WRITER_NAME");
-        ResteasyContext.pushContext(DynamicFilterData.class, dynamicFilterData);
+        ResteasyContext.pushContext(DynamicFilterData.class, filterData);
         DynamicPropertyFilter propertyFilter = new DynamicPropertyFilter();
         assertTrue(propertyFilter.isSerializable(null, jsonGenerator, null, writer));
         verify(jsonGenerator).getOutputContext();
@@ -85,13 +80,14 @@ public class DynamicPropertyFilterTest {
 
     @Test
     public void nonEmptyIsNotSerializable() {
-        when(dynamicFilterData.isAttributeExcluded(Arrays.asList("CONTEXT_NAME_1", "WRITER_NAME")))
-            .thenReturn(true);
+        DynamicFilterData filterData = new DynamicFilterData();
+        filterData.excludeAttribute("context_name_1.writer_name");
+
         when(jsonGenerator.getOutputContext()).thenReturn(context);
         when(context.getParent()).thenReturn(context).thenReturn(null);
         when(context.getCurrentName()).thenReturn("CONTEXT_NAME_1");
         when(writer.getName()).thenReturn("WRITER_NAME");
-        ResteasyContext.pushContext(DynamicFilterData.class, dynamicFilterData);
+        ResteasyContext.pushContext(DynamicFilterData.class, filterData);
         DynamicPropertyFilter propertyFilter = new DynamicPropertyFilter();
         assertFalse(propertyFilter.isSerializable(null, jsonGenerator, null, writer));
         verify(jsonGenerator).getOutputContext();
@@ -99,4 +95,28 @@ public class DynamicPropertyFilterTest {
         verify(context).getCurrentName();
     }
 
+    @Test
+    public void unnamedContextsAreSkipped() {
+        DynamicFilterData filterData = new DynamicFilterData(true);
+        filterData.includeAttribute("pools.id");
+
+        JsonStreamContext arrayContext = mock(JsonStreamContext.class);
+        JsonStreamContext rootContext = mock(JsonStreamContext.class);
+
+        // { "pools": [ { "id": ... } ] }
+        when(jsonGenerator.getOutputContext()).thenReturn(context);
+        when(context.getParent()).thenReturn(arrayContext);
+        when(arrayContext.getParent()).thenReturn(rootContext);
+        when(arrayContext.getCurrentName()).thenReturn(null);
+        when(rootContext.getCurrentName()).thenReturn("pools");
+        ResteasyContext.pushContext(DynamicFilterData.class, filterData);
+        DynamicPropertyFilter propertyFilter = new DynamicPropertyFilter();
+
+        when(writer.getName()).thenReturn("id");
+        assertTrue(propertyFilter.isSerializable(null, jsonGenerator, null, writer));
+
+        when(writer.getName()).thenReturn("name");
+        assertFalse(propertyFilter.isSerializable(null, jsonGenerator, null, writer));
+    }
+
 }
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.common.paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.stream.Stream;
+
+
+
+/**
+ * Test suite for the PageCursor class
+ */
+public class PageCursorTest {
+
+    private static Stream<Object> sortValues() {
+        Timestamp timestamp = new Timestamp(1234567890123L);
+        timestamp.setNanos(123456789);
+
+        return Stream.of("some value", "", 42, 42L, true, new Date(1234567890123L), timestamp);
+    }
+
+    @ParameterizedTest
+    @MethodSource("sortValues")
+    public void testRoundTrip(Object value) {
+        PageCursor cursor = new PageCursor("field", PageRequest.Order.DESCENDING, value, "some-id");
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertEquals(value.getClass(), decoded.getLastValue().getClass());
+    }
+
+    @Test
+    public void testRoundTripWithNullValue() {
+        PageCursor cursor = new PageCursor("field", PageRequest.Order.ASCENDING, null, 17L);
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertNull(decoded.getLastValue());
+        assertEquals(17L, decoded.getLastId());
+    }
+
+    @Test
+    public void testEncodedCursorIsUrlSafe() {
+        PageCursor cursor = new PageCursor("field", PageRequest.Order.ASCENDING, "?&=/+ é", "id");
+        assertTrue(cursor.encode().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    public void testUnsupportedValueType() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new PageCursor("field", PageRequest.Order.ASCENDING, new Object(), "id"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "not a cursor", "bm90IGEgY3Vyc29y", "AQ" })
+    public void testDecodeMalformedCursor(String encoded) {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encoded));
+    }
+
+    @Test
+    public void testDecodeRejectsTrailingData() {
+        String encoded = new PageCursor("field", PageRequest.Order.ASCENDING, "value", "id").encode();
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(encoded + "AAAA"));
+    }
+}
@@ -15,6 +15,7 @@
 package org.candlepin.common.resteasy.filter;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.eq;
@@ -400,4 +401,87 @@ public class LinkHeaderResponseFilterTest {
         // Make sure that the page variable is only contained 4 times (once for each URI)
         assertEquals(4, StringUtils.countMatches(header, "&page="));
     }
+
+    @Test
+    public void testBuildCursorLink() {
+        UriBuilder bu = UriBuilder.fromUri("https://localhost:8443/candlepin/resource");
+        assertEquals("https://localhost:8443/candlepin/resource?cursor=abc",
+            interceptor.buildCursorLink(bu, "abc"));
+    }
+
+    @Test
+    public void testDoesNotAddCursorQueryParameter() {
+        MultivaluedMap<String, String> map = new MultivaluedMapImpl<>();
+        map.add("cursor", "abc");
+        UriBuilder bu = UriBuilder.fromUri("https://localhost:8443/candlepin/resource");
+        URI returned = interceptor.addUnchangingQueryParams(bu, map).build();
+        assertEquals(URI.create("https://localhost:8443/candlepin/resource"), returned);
+    }
+
+    @Test
+    public void testPostProcessWithCursorPaging() throws Exception {
+        when(page.getPageRequest()).thenReturn(pageRequest);
+        when(page.getNextCursor()).thenReturn("next-cursor");
+        when(page.getMaxRecords()).thenReturn(null);
+        when(pageRequest.isPaging()).thenReturn(false);
+        when(pageRequest.isCursorPaging()).thenReturn(true);
+
+        when(config.containsKey(eq(this.apiUrlPrefixKey))).thenReturn(false);
+
+        MultivaluedMap<String, Object> map = new MultivaluedMapImpl<>();
+
+        ResteasyContext.pushContext(Page.class, page);
+
+        mockReq = MockHttpRequest.create("GET",
+                new URI("/candlepin/resource?order=asc&cursor=current-cursor&per_page=10"),
+                new URI("https://example.com"));
+        when(mockRequestContext.getUriInfo()).thenReturn(mockReq.getUri());
+
+        when(mockResponseContext.getHeaders()).thenReturn(map);
+
+        interceptor.filter(mockRequestContext, mockResponseContext);
+        String header = (String) map.getFirst(LinkHeaderResponseFilter.LINK_HEADER);
+
+        // Without a page number or total, there are no previous or last pages to link to
+        assertTrue(header.contains("rel=\"first\""));
+        assertTrue(header.contains("rel=\"next\""));
+        assertFalse(header.contains("rel=\"last\""));
+        assertFalse(header.contains("rel=\"prev\""));
+
+        assertTrue(header.contains("&cursor=next-cursor"));
+        assertFalse(header.contains("current-cursor"));
+        assertEquals(2, StringUtils.countMatches(header, "&cursor="));
+
+        // The total was not requested
+        assertNull(map.getFirst(LinkHeaderResponseFilter.TOTAL_RECORDS_COUNT));
+    }
+
+    @Test
+    public void testPostProcessWithCursorPagingOnLastPage() throws Exception {
+        when(page.getPageRequest()).thenReturn(pageRequest);
+        when(page.getNextCursor()).thenReturn(null);
+        when(page.getMaxRecords()).thenReturn(15);
+        when(pageRequest.isPaging()).thenReturn(false);
+        when(pageRequest.isCursorPaging()).thenReturn(true);
+
+        when(config.containsKey(eq(this.apiUrlPrefixKey))).thenReturn(false);
+
+        MultivaluedMap<String, Object> map = new MultivaluedMapImpl<>();
+
+        ResteasyContext.pushContext(Page.class, page);
+
+        mockReq = MockHttpRequest.create("GET",
+                new URI("/candlepin/resource?cursor=current-cursor&include_total=true"),
+                new URI("https://example.com"));
+        when(mockRequestContext.getUriInfo()).thenReturn(mockReq.getUri());
+
+        when(mockResponseContext.getHeaders()).thenReturn(map);
+
+        interceptor.filter(mockRequestContext, mockResponseContext);
+        String header = (String) map.getFirst(LinkHeaderResponseFilter.LINK_HEADER);
+
+        assertTrue(header.contains("rel=\"first\""));
+        assertFalse(header.contains("rel=\"next\""));
+        assertEquals(15, map.getFirst(LinkHeaderResponseFilter.TOTAL_RECORDS_COUNT));
+    }
 }
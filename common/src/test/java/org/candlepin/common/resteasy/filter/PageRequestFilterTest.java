@@ -18,10 +18,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 import org.candlepin.common.exceptions.BadRequestException;
 import org.candlepin.common.guice.CommonI18nProvider;
+import org.candlepin.common.paging.PageCursor;
 import org.candlepin.common.paging.PageRequest;
 
 import org.jboss.resteasy.core.ResteasyContext;
@@ -174,4 +176,69 @@ public class PageRequestFilterTest {
         assertEquals(PageRequest.Order.DESCENDING, p.getOrder());
         assertEquals("id", p.getSortBy());
     }
+
+    @Test
+    public void testEmptyCursorRequestsFirstPage() throws Exception {
+        mockReq = MockHttpRequest.create("GET",
+            "http://localhost/candlepin/status?cursor=&per_page=50");
+        when(mockRequestContext.getUriInfo()).thenReturn(mockReq.getUri());
+
+        interceptor.filter(mockRequestContext);
+
+        PageRequest p = ResteasyContext.getContextData(PageRequest.class);
+        assertTrue(p.isCursorPaging());
+        assertFalse(p.isPaging());
+        assertFalse(p.isIncludeTotal());
+        assertNull(p.getCursor());
+        assertNull(p.getPage());
+        assertEquals(Integer.valueOf(50), p.getPerPage());
+        assertEquals(PageRequest.DEFAULT_ORDER, p.getOrder());
+    }
+
+    @Test
+    public void testCursor() throws Exception {
+        PageCursor cursor = new PageCursor("name", PageRequest.Order.ASCENDING, "some-name", "some-id");
+
+        mockReq = MockHttpRequest.create("GET",
+            "http://localhost/candlepin/status?order=asc&include_total=true&cursor=" + cursor.encode());
+        when(mockRequestContext.getUriInfo()).thenReturn(mockReq.getUri());
+
+        interceptor.filter(mockRequestContext);
+
+        PageRequest p = ResteasyContext.getContextData(PageRequest.class);
+        assertTrue(p.isCursorPaging());
+        assertTrue(p.isIncludeTotal());
+        assertEquals(cursor, p.getCursor());
+        assertEquals("name", p.getSortBy());
+        assertEquals(PageRequest.DEFAULT_PER_PAGE, p.getPerPage());
+    }
+
+    @Test
+    public void testCursorWithPage() throws Exception {
+        mockReq = MockHttpRequest.create("GET",
+            "http://localhost/candlepin/status?cursor=&page=2");
+        when(mockRequestContext.getUriInfo()).thenReturn(mockReq.getUri());
+
+        assertThrows(BadRequestException.class, () -> interceptor.filter(mockRequestContext));
+    }
+
+    @Test
+    public void testMalformedCursor() throws Exception {
+        mockReq = MockHttpRequest.create("GET",
+            "http://localhost/candlepin/status?cursor=not-a-cursor");
+        when(mockRequestContext.getUriInfo()).thenReturn(mockReq.getUri());
+
+        assertThrows(BadRequestException.class, () -> interceptor.filter(mockRequestContext));
+    }
+
+    @Test
+    public void testCursorForDifferentSortOrder() throws Exception {
+        PageCursor cursor = new PageCursor("name", PageRequest.Order.ASCENDING, "some-name", "some-id");
+
+        mockReq = MockHttpRequest.create("GET",
+            "http://localhost/candlepin/status?order=desc&cursor=" + cursor.encode());
+        when(mockRequestContext.getUriInfo()).thenReturn(mockReq.getUri());
+
+        assertThrows(BadRequestException.class, () -> interceptor.filter(mockRequestContext));
+    }
 }
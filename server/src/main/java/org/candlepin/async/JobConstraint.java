@@ -18,6 +18,7 @@ import org.candlepin.model.AsyncJobStatus;
 import org.candlepin.model.AsyncJobStatusCurator;
 
 import java.util.Collection;
+import java.util.Collections;
 
 
 
@@ -46,4 +47,18 @@ public interface JobConstraint {
      */
     Collection<String> test(AsyncJobStatusCurator jobCurator, AsyncJobStatus inbound);
 
+    /**
+     * Fetches the names of the job arguments targeted by this constraint. Jobs are given a
+     * constraint key built from the values of every argument targeted by their constraints, which
+     * allows constraints targeting exactly those arguments to find colliding jobs with a keyed
+     * lookup.
+     *
+     * @return
+     *  a collection of targeted argument names, or an empty collection if this constraint does not
+     *  target any arguments
+     */
+    default Collection<String> getTargetedArguments() {
+        return Collections.emptyList();
+    }
+
 }
@@ -15,6 +15,7 @@
 package org.candlepin.async;
 
 import org.candlepin.model.AsyncJobStatus;
+import org.candlepin.model.AsyncJobStatusCurator;
 
 
 
@@ -24,9 +25,11 @@ import org.candlepin.model.AsyncJobStatus;
  */
 public class JobExecutionContext {
     private final AsyncJobStatus job;
+    private final AsyncJobStatusCurator jobCurator;
 
     /**
-     * Creates a new job execution context for the given job
+     * Creates a new job execution context for the given job. Checkpoints set through this context
+     * are not persisted.
      *
      * @param job
      *  the job for this execution context
@@ -35,11 +38,29 @@ public class JobExecutionContext {
      *  if job is null
      */
     public JobExecutionContext(AsyncJobStatus job) {
+        this(job, null);
+    }
+
+    /**
+     * Creates a new job execution context for the given job, persisting checkpoints set through
+     * this context with the given curator.
+     *
+     * @param job
+     *  the job for this execution context
+     *
+     * @param jobCurator
+     *  the curator to use to persist checkpoints, or null if checkpoints should not be persisted
+     *
+     * @throws IllegalArgumentException
+     *  if job is null
+     */
+    public JobExecutionContext(AsyncJobStatus job, AsyncJobStatusCurator jobCurator) {
         if (job == null) {
             throw new IllegalArgumentException("job is null");
         }
 
         this.job = job;
+        this.jobCurator = jobCurator;
     }
 
     /**
@@ -63,6 +84,33 @@ public class JobExecutionContext {
         return this.job.getPrincipalName();
     }
 
+    /**
+     * Fetches the last checkpoint recorded by the job, either during this execution or a previous,
+     * failed execution of the job.
+     *
+     * @return
+     *  the last checkpoint recorded by the job, or null if the job has not recorded a checkpoint
+     */
+    public String getCheckpoint() {
+        return this.job.getCheckpoint();
+    }
+
+    /**
+     * Records a checkpoint for the job, which is kept if the job fails and is retried. The
+     * checkpoint is persisted immediately, in a transaction of its own if no transaction is active,
+     * and should therefore only be set once the work it covers has been committed.
+     *
+     * @param checkpoint
+     *  the checkpoint to record, or null to clear the checkpoint
+     */
+    public void setCheckpoint(String checkpoint) {
+        this.job.setCheckpoint(checkpoint);
+
+        if (this.jobCurator != null) {
+            this.jobCurator.updateJobCheckpoint(this.job.getId(), checkpoint);
+        }
+    }
+
     /**
      * Sets the result of the job's execution. If the result is not a string, it will be serialized
      * to JSON and stored without any class or other such deserialization information.
@@ -1005,6 +1005,23 @@ public class JobManager implements ModeChangeListener {
         job.setMaxAttempts(builder.getRetryCount() + 1);
         job.setJobArguments(builder.getJobArguments());
 
+        // Index the job by the arguments targeted by its constraints
+        Collection<JobConstraint> constraints = builder.getConstraints();
+        Set<String> targeted = new HashSet<>();
+        if (constraints != null) {
+            for (JobConstraint constraint : constraints) {
+                targeted.addAll(constraint.getTargetedArguments());
+            }
+        }
+
+        JobArguments arguments = job.getJobArguments();
+        Map<String, String> targetedValues = new HashMap<>();
+        for (String name : targeted) {
+            targetedValues.put(name, arguments.getSerializedValue(name));
+        }
+
+        job.setConstraintKey(AsyncJobStatus.buildConstraintKey(job.getJobKey(), targetedValues));
+
         return job;
     }
 
@@ -1330,7 +1347,7 @@ public class JobManager implements ModeChangeListener {
             }
 
             try {
-                job.execute(new JobExecutionContext(status));
+                job.execute(new JobExecutionContext(status, this.jobCurator));
 
                 // If a transaction was left open, we should scream about it. Note that this will
                 // cause the job to fail if the session cannot be terminated cleanly.
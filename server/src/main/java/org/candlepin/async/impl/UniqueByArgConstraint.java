@@ -24,8 +24,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -99,6 +101,33 @@ public class UniqueByArgConstraint implements JobConstraint {
             argMap.put(param, jobArgs.getSerializedValue(param));
         }
 
+        // If the inbound job was keyed on exactly the arguments targeted here, colliding jobs share
+        // its constraint key. Missing arguments never match, so those are left to the full lookup.
+        // Jobs queued before constraint keys were introduced have none, and still have to be
+        // matched on their arguments, but only for as long as any of them remains active.
+        String constraintKey = inbound.getConstraintKey();
+        if (constraintKey != null && !argMap.containsValue(null) &&
+            constraintKey.equals(AsyncJobStatus.buildConstraintKey(jobKey, argMap))) {
+
+            List<String> keyed = jobCurator.fetchJobIdsByConstraintKey(jobKey, constraintKey);
+            if (!jobCurator.hasUnkeyedActiveJobs(jobKey)) {
+                return keyed;
+            }
+
+            Set<String> jobIds = new HashSet<>(keyed);
+            jobIds.addAll(jobCurator.fetchUnkeyedJobIdsByArguments(jobKey, argMap));
+
+            return jobIds;
+        }
+
         return jobCurator.fetchJobIdsByArguments(jobKey, argMap);
     }
+
+    /**
+     * @{inheritDoc}
+     */
+    @Override
+    public Collection<String> getTargetedArguments() {
+        return this.params;
+    }
 }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.async.tasks;
+
+import org.candlepin.async.AsyncJob;
+import org.candlepin.async.JobExecutionContext;
+import org.candlepin.async.JobExecutionException;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.Owner;
+import org.candlepin.model.OwnerCurator;
+import org.candlepin.model.OwnerInfoCurator;
+
+import com.google.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Recalculates the owner info snapshots flagged as dirty since the last run, along with any
+ * snapshot older than the configured maximum age, defined by the max_age/DEFAULT_MAX_AGE variable
+ * in minutes. The periodic full recalculation reconciles any changes which were not announced by
+ * an event.
+ */
+public class OwnerInfoRefreshJob implements AsyncJob {
+    private static Logger log = LoggerFactory.getLogger(OwnerInfoRefreshJob.class);
+
+    public static final String JOB_KEY = "OwnerInfoRefreshJob";
+    public static final String JOB_NAME = "Owner Info Refresh";
+
+    public static final String DEFAULT_SCHEDULE = "0 0/5 * * * ?"; // Every five minutes
+
+    public static final String CFG_MAX_AGE = "max_age";
+    public static final int DEFAULT_MAX_AGE = 60 * 24;
+
+    private OwnerCurator ownerCurator;
+    private OwnerInfoCurator ownerInfoCurator;
+    private Configuration config;
+
+    @Inject
+    public OwnerInfoRefreshJob(OwnerCurator ownerCurator, OwnerInfoCurator ownerInfoCurator,
+        Configuration config) {
+        this.ownerCurator = ownerCurator;
+        this.ownerInfoCurator = ownerInfoCurator;
+        this.config = config;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        int maxAge = this.config.getInt(ConfigProperties.jobConfig(JOB_KEY, CFG_MAX_AGE), DEFAULT_MAX_AGE);
+
+        if (maxAge < 0) {
+            String errmsg = String.format(
+                "Invalid value for maximum snapshot age, must be 0 or a positive integer: %s", maxAge);
+
+            log.error(errmsg);
+            throw new JobExecutionException(errmsg, true);
+        }
+
+        Date staleBefore = maxAge > 0 ?
+            new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(maxAge)) :
+            null;
+
+        List<String> ownerIds = this.ownerInfoCurator.getOwnerIdsToRefresh(staleBefore);
+
+        int refreshed = 0;
+        int failed = 0;
+
+        for (String ownerId : ownerIds) {
+            Owner owner = this.ownerCurator.get(ownerId);
+            if (owner == null) {
+                // Deleted since the snapshots were listed
+                continue;
+            }
+
+            try {
+                this.ownerInfoCurator.refresh(owner);
+                ++refreshed;
+            }
+            catch (Exception e) {
+                log.error("Unable to refresh owner info snapshot of owner {}", owner.getKey(), e);
+                ++failed;
+            }
+        }
+
+        String outcome = String.format("Refreshed %d owner info snapshots", refreshed);
+        if (failed > 0) {
+            outcome += String.format("; %d snapshots could not be refreshed", failed);
+            log.warn(outcome);
+        }
+        else {
+            log.debug(outcome);
+        }
+
+        context.setJobResult(outcome);
+    }
+}
@@ -23,6 +23,7 @@ import org.candlepin.async.JobConstraints;
 import org.candlepin.async.JobExecutionContext;
 import org.candlepin.async.JobExecutionException;
 import org.candlepin.controller.PoolManager;
+import org.candlepin.controller.RefreshStatistics;
 import org.candlepin.controller.Refresher;
 import org.candlepin.model.Owner;
 import org.candlepin.model.OwnerCurator;
@@ -31,6 +32,8 @@ import org.candlepin.service.SubscriptionServiceAdapter;
 
 import com.google.inject.Inject;
 
+import java.util.Objects;
+
 
 
 /**
@@ -44,6 +47,10 @@ public class RefreshPoolsJob implements AsyncJob {
     protected static final String OWNER_KEY = "org";
     protected static final String LAZY_REGEN = "lazy_regen";
 
+    // The number of times a chunked refresh which failed after committing some of its chunks is
+    // resumed. Refreshes which fail before committing anything are not retried.
+    protected static final int RETRY_COUNT = 3;
+
     protected OwnerCurator ownerCurator;
     protected PoolManager poolManager;
     protected SubscriptionServiceAdapter subAdapter;
@@ -57,6 +64,7 @@ public class RefreshPoolsJob implements AsyncJob {
         public RefreshPoolsJobConfig() {
             this.setJobKey(JOB_KEY)
                 .setJobName(JOB_NAME)
+                .setRetryCount(RETRY_COUNT)
                 .addConstraint(JobConstraints.uniqueByArguments(OWNER_KEY));
         }
 
@@ -152,17 +160,27 @@ public class RefreshPoolsJob implements AsyncJob {
             throw new JobExecutionException("Nothing to do; owner no longer exists: " + ownerKey, true);
         }
 
+        // If a previous attempt committed part of a chunked refresh, resume from where it failed
+        String checkpoint = context.getCheckpoint();
+        RefreshStatistics statistics;
+
         try {
             // Assume that we verified the request in the resource layer:
-            poolManager.getRefresher(this.subAdapter, this.prodAdapter, lazy)
+            Refresher refresher = poolManager.getRefresher(this.subAdapter, this.prodAdapter, lazy)
                 .add(owner)
-                .run();
+                .setCheckpoint(checkpoint, context::setCheckpoint);
+
+            refresher.run();
+            statistics = refresher.getStatistics();
         }
         catch (Exception e) {
-            throw new JobExecutionException(e.getMessage(), e, false);
+            // Only retry refreshes which made progress before failing; others would fail the same way
+            boolean resumable = !Objects.equals(checkpoint, context.getCheckpoint());
+            throw new JobExecutionException(e.getMessage(), e, !resumable);
         }
 
-        context.setJobResult("Pools refreshed for owner: %s", owner.getDisplayName());
+        context.setJobResult("Pools refreshed for owner: %s; %d subscription(s) updated, %d unchanged",
+            owner.getDisplayName(), statistics.getUpdatedCount(), statistics.getSkippedCount());
     }
 
     /**
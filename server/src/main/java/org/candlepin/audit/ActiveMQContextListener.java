@@ -43,6 +43,9 @@ public class ActiveMQContextListener {
         if (this.messageSource != null) {
             this.messageSource.shutDown();
         }
+
+        injector.getInstance(EventProducerPool.class).shutDown();
+
         try {
             injector.getInstance(ActiveMQStatusMonitor.class).close();
         }
@@ -65,6 +68,9 @@ public class ActiveMQContextListener {
         // ArtemisMessageSource must listen for ActiveMQ status changes so that connections can be rebuilt.
         activeMQStatusMonitor.registerListener(messageSource);
 
+        // Pooled event producer sessions must be discarded when the connection drops.
+        activeMQStatusMonitor.registerListener(injector.getInstance(EventProducerPool.class));
+
         // Initialize the ActiveMQ status monitor so that client sessions can be established
         // if the broker is active.
         activeMQStatusMonitor.initialize();
@@ -0,0 +1,355 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.audit;
+
+import org.candlepin.async.impl.ActiveMQSessionFactory;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.controller.ActiveMQStatusListener;
+
+import com.google.inject.Inject;
+
+import org.apache.activemq.artemis.api.core.client.ClientProducer;
+import org.apache.activemq.artemis.api.core.client.ClientSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Singleton;
+
+
+
+/**
+ * The EventProducerPool keeps a bounded number of transacted egress sessions, each with a producer
+ * for the event address, open between requests. Event sinks buffer their events until the request
+ * or job completes, and only then borrow a producer to send and commit them, returning it right
+ * away instead of opening and closing a session of their own every time.
+ *
+ * Idle sessions are checked before being handed out, and any session found closed is discarded.
+ * When the ActiveMQStatusMonitor reports the broker as down, every idle session is closed, and
+ * sessions borrowed before the outage are closed rather than pooled when they are returned.
+ *
+ * When every pooled session is borrowed and none is returned within the configured timeout, the
+ * borrower is given a session of its own, which is closed when it is returned.
+ */
+@Singleton
+public class EventProducerPool implements ActiveMQStatusListener {
+    private static Logger log = LoggerFactory.getLogger(EventProducerPool.class);
+
+    /**
+     * A transacted egress session and its event producer, borrowed from the pool
+     */
+    public static class PooledProducer {
+        private final ClientSession session;
+        private final ClientProducer producer;
+        private final int generation;
+        private final boolean pooled;
+
+        private PooledProducer(ClientSession session, ClientProducer producer, int generation,
+            boolean pooled) {
+
+            this.session = session;
+            this.producer = producer;
+            this.generation = generation;
+            this.pooled = pooled;
+        }
+
+        public ClientSession getSession() {
+            return this.session;
+        }
+
+        public ClientProducer getProducer() {
+            return this.producer;
+        }
+
+        /**
+         * @return
+         *  true if this producer is returned to the pool once released; false if it was created
+         *  because the pool was disabled or exhausted, and is closed once released
+         */
+        public boolean isPooled() {
+            return this.pooled;
+        }
+    }
+
+    private final ActiveMQSessionFactory sessionFactory;
+    private final int size;
+    private final long borrowTimeout;
+
+    private final ConcurrentLinkedDeque<PooledProducer> idle;
+    private final Semaphore permits;
+
+    // Incremented whenever the broker goes down, to retire the sessions opened before the outage
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+
+    @Inject
+    public EventProducerPool(Configuration config, ActiveMQSessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.size = Math.max(0, config.getInt(ConfigProperties.ACTIVEMQ_PRODUCER_POOL_SIZE));
+        this.borrowTimeout = Math.max(0, config.getLong(ConfigProperties.ACTIVEMQ_PRODUCER_POOL_TIMEOUT));
+
+        this.idle = new ConcurrentLinkedDeque<>();
+        this.permits = this.size > 0 ? new Semaphore(this.size, true) : null;
+    }
+
+    /**
+     * Checks whether or not producer sessions are kept open between requests
+     *
+     * @return
+     *  true if the pool is enabled; false otherwise
+     */
+    public boolean isEnabled() {
+        return this.permits != null;
+    }
+
+    /**
+     * Borrows a producer from the pool, opening a new session if no healthy idle session is
+     * available. The producer must be handed back to the release method once its transaction has
+     * been committed or rolled back.
+     *
+     * @throws Exception
+     *  if a new session is required and cannot be opened
+     *
+     * @return
+     *  a producer backed by a transacted egress session with no pending messages
+     */
+    public PooledProducer borrow() throws Exception {
+        if (!this.isEnabled()) {
+            return this.createProducer(false);
+        }
+
+        long start = System.nanoTime();
+        boolean acquired = this.permits.tryAcquire(this.borrowTimeout, TimeUnit.MILLISECONDS);
+
+        this.borrowWaitNanos.add(System.nanoTime() - start);
+        this.borrowCount.increment();
+
+        if (!acquired) {
+            log.warn("No pooled event producer became available within {}ms; opening a dedicated session",
+                this.borrowTimeout);
+
+            this.timeoutCount.increment();
+            return this.createProducer(false);
+        }
+
+        try {
+            PooledProducer producer;
+            while ((producer = this.idle.pollFirst()) != null) {
+                if (this.isHealthy(producer)) {
+                    return producer;
+                }
+
+                this.discard(producer);
+            }
+
+            return this.createProducer(true);
+        }
+        catch (Exception e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed producer. Producers which are healthy, and were borrowed from the pool
+     * since the broker last went down, are kept open for the next borrower; all others are closed.
+     *
+     * @param producer
+     *  the producer to release
+     *
+     * @param healthy
+     *  whether or not the borrower left the session in a usable state; false if committing or
+     *  rolling back its transaction failed
+     */
+    public void release(PooledProducer producer, boolean healthy) {
+        if (producer == null) {
+            return;
+        }
+
+        if (!producer.isPooled()) {
+            this.close(producer);
+            return;
+        }
+
+        try {
+            if (healthy && this.isHealthy(producer)) {
+                this.idle.offerFirst(producer);
+            }
+            else {
+                this.discard(producer);
+            }
+        }
+        finally {
+            this.permits.release();
+        }
+
+        // The broker may have gone down between the health check and the session being pooled
+        if (producer.generation != this.generation.get()) {
+            this.drain();
+        }
+    }
+
+    private boolean isHealthy(PooledProducer producer) {
+        return producer.generation == this.generation.get() && !producer.getSession().isClosed() &&
+            !producer.getProducer().isClosed();
+    }
+
+    private PooledProducer createProducer(boolean pooled) throws Exception {
+        int current = this.generation.get();
+
+        ClientSession session = this.sessionFactory.getEgressSession(true);
+        try {
+            ClientProducer producer = session.createProducer(MessageAddress.DEFAULT_EVENT_MESSAGE_ADDRESS);
+
+            this.createdCount.increment();
+            log.debug("Opened new event producer session: {}", session);
+
+            return new PooledProducer(session, producer, current, pooled);
+        }
+        catch (Exception e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    private void discard(PooledProducer producer) {
+        log.debug("Discarding event producer session: {}", producer.getSession());
+
+        this.discardedCount.increment();
+        this.close(producer);
+    }
+
+    private void close(PooledProducer producer) {
+        try {
+            producer.getSession().close();
+        }
+        catch (Exception e) {
+            log.debug("Unable to close event producer session", e);
+        }
+    }
+
+    /**
+     * Closes every idle session in the pool.
+     */
+    private void drain() {
+        PooledProducer producer;
+        while ((producer = this.idle.pollFirst()) != null) {
+            this.discard(producer);
+        }
+    }
+
+    @Override
+    public void onStatusUpdate(ActiveMQStatus oldStatus, ActiveMQStatus newStatus) {
+        if (ActiveMQStatus.DOWN.equals(newStatus) && !ActiveMQStatus.DOWN.equals(oldStatus)) {
+            log.info("Closing pooled event producer sessions because the broker went down.");
+
+            this.generation.incrementAndGet();
+            this.drain();
+        }
+    }
+
+    /**
+     * Closes every idle session in the pool. Sessions borrowed at the time are closed as they are
+     * returned.
+     */
+    public void shutDown() {
+        this.generation.incrementAndGet();
+        this.drain();
+    }
+
+    /**
+     * @return
+     *  the number of sessions currently idle in the pool
+     */
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    /**
+     * @return
+     *  the maximum number of sessions kept open by the pool
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return
+     *  the number of producers borrowed from the pool
+     */
+    public long getBorrowCount() {
+        return this.borrowCount.sum();
+    }
+
+    /**
+     * @return
+     *  the total time, in milliseconds, spent by borrowers waiting for a pooled session to become
+     *  available
+     */
+    public long getTotalBorrowWait() {
+        return TimeUnit.NANOSECONDS.toMillis(this.borrowWaitNanos.sum());
+    }
+
+    /**
+     * @return
+     *  the average time, in milliseconds, borrowers have waited for a pooled session to become
+     *  available, or zero if no producer has been borrowed from the pool yet
+     */
+    public double getAverageBorrowWait() {
+        long count = this.borrowCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+
+        return this.borrowWaitNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1) / count;
+    }
+
+    /**
+     * @return
+     *  the number of borrowers given a dedicated session because no pooled session became
+     *  available in time
+     */
+    public long getTimeoutCount() {
+        return this.timeoutCount.sum();
+    }
+
+    /**
+     * @return
+     *  the number of sessions opened, pooled or otherwise
+     */
+    public long getCreatedCount() {
+        return this.createdCount.sum();
+    }
+
+    /**
+     * @return
+     *  the number of pooled sessions closed because they were found broken, or were opened before
+     *  the broker last went down
+     */
+    public long getDiscardedCount() {
+        return this.discardedCount.sum();
+    }
+}
@@ -33,11 +33,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.activemq.artemis.api.core.ActiveMQException;
 import org.apache.activemq.artemis.api.core.SimpleString;
 import org.apache.activemq.artemis.api.core.client.ClientMessage;
-import org.apache.activemq.artemis.api.core.client.ClientProducer;
 import org.apache.activemq.artemis.api.core.client.ClientSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -63,12 +63,13 @@ public class EventSinkImpl implements EventSink {
     private Configuration config;
 
     private ActiveMQSessionFactory sessionFactory;
-    private EventMessageSender messageSender;
+    private EventProducerPool producerPool;
+    private List<QueuedEvent> queuedEvents;
 
     @Inject
     public EventSinkImpl(EventFilter eventFilter, EventFactory eventFactory,
         ObjectMapper mapper, Configuration config, ActiveMQSessionFactory sessionFactory,
-        CandlepinModeManager modeManager) throws ActiveMQException {
+        EventProducerPool producerPool, CandlepinModeManager modeManager) throws ActiveMQException {
 
         this.eventFactory = eventFactory;
         this.mapper = mapper;
@@ -76,6 +77,8 @@ public class EventSinkImpl implements EventSink {
         this.modeManager = modeManager;
         this.config = config;
         this.sessionFactory = sessionFactory;
+        this.producerPool = producerPool;
+        this.queuedEvents = new ArrayList<>();
     }
 
     // FIXME This method really does not belong here. It should probably be moved
@@ -108,7 +111,8 @@ public class EventSinkImpl implements EventSink {
      * Events are filtered, meaning that some of them might not even get into ActiveMQ.
      * Details about the filtering are documented in EventFilter class
      *
-     * ActiveMQ transaction actually manages the queue of events to be sent.
+     * Queued events are serialized and held by the sink itself; no ActiveMQ session is used until
+     * they are sent.
      */
     @Override
     public void queueEvent(Event event) {
@@ -124,13 +128,8 @@ public class EventSinkImpl implements EventSink {
         log.debug("Queuing event: {}", event);
 
         try {
-            // Lazily initialize the message sender when the first
-            // message gets queued.
-            if (messageSender == null) {
-                messageSender = new EventMessageSender(this.sessionFactory);
-            }
-
-            messageSender.queueMessage(mapper.writeValueAsString(event), event.getType(), event.getTarget());
+            this.queuedEvents.add(new QueuedEvent(mapper.writeValueAsString(event), event.getType(),
+                event.getTarget()));
         }
         catch (Exception e) {
             log.error("Error while trying to send event", e);
@@ -140,7 +139,9 @@ public class EventSinkImpl implements EventSink {
     /**
      * Dispatch queued events. (if there are any)
      *
-     * Typically only called after a successful request or job execution.
+     * Typically only called after a successful request or job execution. A producer session is
+     * borrowed from the EventProducerPool only for as long as it takes to send and commit the
+     * queued events.
      */
     @Override
     public void sendEvents() {
@@ -148,20 +149,63 @@ public class EventSinkImpl implements EventSink {
             log.debug("No events to send.");
             return;
         }
-        messageSender.sendMessages();
+
+        List<QueuedEvent> events = this.queuedEvents;
+        this.queuedEvents = new ArrayList<>();
+
+        EventProducerPool.PooledProducer producer;
+        try {
+            producer = this.producerPool.borrow();
+        }
+        catch (Exception e) {
+            log.error("Unable to open session to send {} queued events; the events have been lost",
+                events.size(), e);
+
+            return;
+        }
+
+        log.debug("Committing ActiveMQ transaction.");
+        boolean healthy = false;
+
+        try {
+            ClientSession session = producer.getSession();
+
+            for (QueuedEvent event : events) {
+                // NOTE: not actually sent until we commit the session.
+                producer.getProducer().send(event.toMessage(session));
+            }
+
+            session.commit();
+            healthy = true;
+        }
+        catch (Exception e) {
+            // This would be pretty bad, but we always try not to let event errors
+            // interfere with the operation of the overall application. The session is discarded
+            // by the pool, which drops any messages left uncommitted in it.
+            log.error("Error committing ActiveMQ transaction", e);
+        }
+        finally {
+            this.producerPool.release(producer, healthy);
+        }
     }
 
+    /**
+     * Discards the queued events. As events are only handed to ActiveMQ once they are sent, this
+     * never requires a session.
+     */
     @Override
     public void rollback() {
         if (!hasQueuedMessages()) {
             log.debug("No events to roll back.");
             return;
         }
-        messageSender.cancelMessages();
+
+        log.warn("Rolling back {} queued events.", this.queuedEvents.size());
+        this.queuedEvents = new ArrayList<>();
     }
 
     private boolean hasQueuedMessages() {
-        return messageSender != null;
+        return !this.queuedEvents.isEmpty();
     }
 
     public void emitConsumerCreated(Consumer newConsumer) {
@@ -230,87 +274,33 @@ public class EventSinkImpl implements EventSink {
     }
 
     /**
-     * An internal class responsible for encapsulating a single session to the
-     * event message broker.
+     * A serialized event waiting to be sent, along with the type and target to set on its message
      */
-    private class EventMessageSender {
-
-        private ActiveMQSessionFactory sessionFactory;
-        private ClientSession session;
-        private ClientProducer producer;
-
-        public EventMessageSender(ActiveMQSessionFactory sessionFactory) {
-            try {
-                /*
-                 * Uses a transacted ActiveMQ session, events will not be dispatched until
-                 * commit() is called on it, and a call to rollback() will revert any queued
-                 * messages safely and the session is then ready to start over the next time
-                 * the thread is used.
-                 */
-                this.sessionFactory = sessionFactory;
-                session = sessionFactory.getEgressSession(true);
-                producer = session.createProducer(MessageAddress.DEFAULT_EVENT_MESSAGE_ADDRESS);
-            }
-            catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-            log.debug("Created new message sender.");
+    private static class QueuedEvent {
+        private final String body;
+        private final Event.Type type;
+        private final Event.Target target;
+
+        public QueuedEvent(String body, Event.Type type, Event.Target target) {
+            this.body = body;
+            this.type = type;
+            this.target = target;
         }
 
-        public void queueMessage(String eventString, Event.Type type, Event.Target target)
-            throws ActiveMQException {
-            if (session.isClosed()) {
-                try {
-                    session = sessionFactory.getEgressSession(true);
-                    producer = session.createProducer(MessageAddress.DEFAULT_EVENT_MESSAGE_ADDRESS);
-                }
-                catch (Exception e) {
-                    log.error("Unable to open session while queuing messages", e);
-                    throw new RuntimeException(e);
-                }
-            }
-
+        public ClientMessage toMessage(ClientSession session) {
             ClientMessage message = session.createMessage(ClientMessage.TEXT_TYPE, true);
-            message.getBodyBuffer().writeNullableSimpleString(SimpleString.toSimpleString(eventString));
+            message.getBodyBuffer().writeNullableSimpleString(SimpleString.toSimpleString(this.body));
 
             // Set the event type and target if provided
-            if (type != null) {
-                message.putStringProperty(EVENT_TYPE_KEY, type.name());
-            }
-
-            if (target != null) {
-                message.putStringProperty(EVENT_TARGET_KEY, target.name());
+            if (this.type != null) {
+                message.putStringProperty(EVENT_TYPE_KEY, this.type.name());
             }
 
-            // NOTE: not actually sent until we commit the session.
-            producer.send(message);
-        }
-
-        public void sendMessages() {
-            log.debug("Committing ActiveMQ transaction.");
-            if (!session.isClosed()) {
-                try (ClientSession toClose = session) {
-                    toClose.commit();
-                }
-                catch (Exception e) {
-                    // This would be pretty bad, but we always try not to let event errors
-                    // interfere with the operation of the overall application.
-                    log.error("Error committing ActiveMQ transaction", e);
-                }
+            if (this.target != null) {
+                message.putStringProperty(EVENT_TARGET_KEY, this.target.name());
             }
-        }
 
-        public void cancelMessages() {
-            log.warn("Rolling back ActiveMQ transaction.");
-            if (!session.isClosed()) {
-                try (ClientSession toClose = session) {
-                    toClose.rollback();
-                }
-                catch (ActiveMQException e) {
-                    log.error("Error rolling back ActiveMQ transaction", e);
-                }
-            }
+            return message;
         }
-
     }
 }
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.audit;
+
+import org.candlepin.model.OwnerInfoCurator;
+
+import com.google.inject.Inject;
+import com.google.inject.persist.UnitOfWork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+
+
+/**
+ * The OwnerInfoListener flags the owner info snapshot of an owner as dirty whenever an event which
+ * may change its statistics is received, so that the snapshot is recalculated on the next run of
+ * the OwnerInfoRefreshJob.
+ */
+public class OwnerInfoListener implements EventListener {
+    private static Logger log = LoggerFactory.getLogger(OwnerInfoListener.class);
+
+    private static final Set<Event.Target> TARGETS = EnumSet.of(Event.Target.CONSUMER,
+        Event.Target.ENTITLEMENT, Event.Target.POOL, Event.Target.COMPLIANCE, Event.Target.GUESTID);
+
+    private final OwnerInfoCurator ownerInfoCurator;
+    private final UnitOfWork unitOfWork;
+
+    @Inject
+    public OwnerInfoListener(OwnerInfoCurator ownerInfoCurator, UnitOfWork unitOfWork) {
+        this.ownerInfoCurator = ownerInfoCurator;
+        this.unitOfWork = unitOfWork;
+    }
+
+    @Override
+    public void onEvent(Event e) {
+        if (e.getOwnerId() == null || !TARGETS.contains(e.getTarget())) {
+            return;
+        }
+
+        this.unitOfWork.begin();
+
+        try {
+            if (this.ownerInfoCurator.markDirty(e.getOwnerId())) {
+                log.debug("Owner info snapshot of owner {} flagged as dirty by {} {} event",
+                    e.getOwnerId(), e.getTarget(), e.getType());
+            }
+        }
+        finally {
+            this.unitOfWork.end();
+        }
+    }
+}
@@ -46,6 +46,7 @@ public class BindChain {
         BindContextFactory bindContextFactory,
         PreEntitlementRulesCheckOpFactory rulesCheckOpFactory,
         HandleEntitlementsOp handleEntitlementsOp,
+        ReservePoolQuantitiesOp reservePoolQuantitiesOp,
         PostBindBonusPoolsOp postBindBonusPoolsOp,
         CheckBonusPoolQuantitiesOp checkBonusPoolQuantitiesOp,
         HandleCertificatesOp handleCertificatesOp,
@@ -57,6 +58,7 @@ public class BindChain {
         context = bindContextFactory.create(consumer, poolQuantityMap);
         operations.add(rulesCheckOpFactory.create(caller));
         operations.add(handleEntitlementsOp);
+        operations.add(reservePoolQuantitiesOp);
         operations.add(postBindBonusPoolsOp);
         operations.add(checkBonusPoolQuantitiesOp);
         operations.add(handleCertificatesOp);
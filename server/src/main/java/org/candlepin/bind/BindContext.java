@@ -14,6 +14,8 @@
  */
 package org.candlepin.bind;
 
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.model.Consumer;
 import org.candlepin.model.ConsumerCurator;
 import org.candlepin.model.ConsumerType;
@@ -36,6 +38,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * - Container class for holding bind information.
@@ -61,6 +64,7 @@ public class BindContext {
     private ConsumerTypeCurator consumerTypeCurator;
     private OwnerCurator ownerCurator;
     private I18n i18n;
+    private boolean optimisticReservation;
 
     @Inject
     public BindContext(PoolCurator poolCurator,
@@ -68,6 +72,7 @@ public class BindContext {
         ConsumerTypeCurator consumerTypeCurator,
         OwnerCurator ownerCurator,
         I18n i18n,
+        Configuration config,
         @Assisted Consumer consumer,
         @Assisted Map<String, Integer> quantities) {
 
@@ -78,6 +83,19 @@ public class BindContext {
         this.i18n = i18n;
         this.consumer = consumer;
         this.quantities = quantities;
+        this.optimisticReservation = config.getBoolean(ConfigProperties.BIND_OPTIMISTIC_POOL_RESERVATION);
+    }
+
+    /**
+     * Checks whether the quantities of the pools being bound are reserved optimistically by
+     * ReservePoolQuantitiesOp, rather than by locking the pools and updating their consumed counts
+     * directly.
+     *
+     * @return
+     *  true if pool quantities are reserved optimistically; false otherwise
+     */
+    public boolean isOptimisticReservation() {
+        return this.optimisticReservation;
     }
 
     public boolean isQuantityRequested() {
@@ -122,10 +140,22 @@ public class BindContext {
     }
 
     /**
-     * locks the pools and replaces the existing entities in poolQuantities.
+     * locks the pools and replaces the existing entities in poolQuantities. When pool quantities are
+     * reserved optimistically, the pools are only refreshed, so that the final validation is done
+     * against their latest quantities without blocking concurrent binds.
      */
     public void lockPools() {
-        Collection<Pool> pools = poolCurator.lockAndLoad(poolQuantities.keySet());
+        Collection<Pool> pools;
+
+        if (this.optimisticReservation) {
+            pools = poolQuantities.values().stream()
+                .map(PoolQuantity::getPool)
+                .collect(Collectors.toList());
+        }
+        else {
+            pools = poolCurator.lockAndLoad(poolQuantities.keySet());
+        }
+
         this.poolCurator.refresh(pools);
         for (Pool pool: pools) {
             poolQuantities.get(pool.getId()).setPool(pool);
@@ -82,15 +82,20 @@ public class HandleEntitlementsOp implements BindOperation {
             ent.setConsumer(consumer);
             ent.setOwner(pool.getOwner());
 
-            pool.setConsumed(pool.getConsumed() + quantity);
+            // Optimistic reservations are applied to the pools by ReservePoolQuantitiesOp; updating
+            // the counts here would overwrite those of concurrent binds when the pools are flushed
+            if (!context.isOptimisticReservation()) {
+                pool.setConsumed(pool.getConsumed() + quantity);
 
-            if (ctype.isManifest()) {
-                pool.setExported(pool.getExported() + quantity);
+                if (ctype.isManifest()) {
+                    pool.setExported(pool.getExported() + quantity);
+                }
+
+                poolsToSave.add(pool);
             }
 
             consumer.addEntitlement(ent);
             consumer.setEntitlementCount(consumer.getEntitlementCount() + quantity);
-            poolsToSave.add(pool);
         }
 
         entitlementCurator.saveAll(entitlementMap.values(), false, false);
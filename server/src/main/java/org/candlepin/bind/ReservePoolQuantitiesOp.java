@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.bind;
+
+import org.candlepin.common.exceptions.ForbiddenException;
+import org.candlepin.model.ConsumerType;
+import org.candlepin.model.Pool;
+import org.candlepin.model.PoolCurator;
+import org.candlepin.model.PoolQuantity;
+
+import com.google.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnap.commons.i18n.I18n;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.EntityTransaction;
+
+
+
+/**
+ * This bind operation reserves the quantities of the pools being bound when they are reserved
+ * optimistically, rather than by locking the pools up front. It runs right after the entitlements
+ * are created, so a bind refused for lack of quantity stops before any bonus pool, certificate or
+ * compliance work is done, and the following operations see the pools' reserved counts.
+ *
+ * If a pool no longer has enough quantity left, the bind is refused and its transaction marked for
+ * rollback, as the entitlements it created have already been flushed.
+ */
+public class ReservePoolQuantitiesOp implements BindOperation {
+    private static Logger log = LoggerFactory.getLogger(ReservePoolQuantitiesOp.class);
+
+    private PoolCurator poolCurator;
+    private I18n i18n;
+
+    @Inject
+    public ReservePoolQuantitiesOp(PoolCurator poolCurator, I18n i18n) {
+        this.poolCurator = poolCurator;
+        this.i18n = i18n;
+    }
+
+    @Override
+    public boolean preProcess(BindContext context) {
+        return true;
+    }
+
+    /**
+     * reserves the bound quantities with conditional updates, and refreshes the pools to pick them
+     * up along with those of concurrent binds.
+     * @param context
+     */
+    @Override
+    public boolean execute(BindContext context) {
+        if (!context.isOptimisticReservation()) {
+            return true;
+        }
+
+        this.poolCurator.flush();
+
+        ConsumerType ctype = context.getConsumerType();
+        List<Pool> pools = new ArrayList<>();
+
+        // Reserve in a consistent order, so binds spanning the same pools cannot deadlock
+        Map<String, PoolQuantity> poolQuantities = new TreeMap<>(context.getPoolQuantities());
+
+        for (PoolQuantity poolQuantity : poolQuantities.values()) {
+            Pool pool = poolQuantity.getPool();
+            int quantity = poolQuantity.getQuantity();
+
+            if (quantity > 0 && !this.poolCurator.reservePoolQuantity(pool.getId(), quantity,
+                ctype.isManifest())) {
+
+                log.warn("Unable to reserve quantity {} of pool: {}", quantity, pool.getId());
+
+                EntityTransaction transaction = this.poolCurator.getTransaction();
+                if (transaction != null && transaction.isActive()) {
+                    transaction.setRollbackOnly();
+                }
+
+                throw new ForbiddenException(i18n.tr(
+                    "No subscriptions are available from the pool with ID \"{0}\".", pool.getId()));
+            }
+
+            pools.add(pool);
+        }
+
+        this.poolCurator.refresh(pools);
+
+        return true;
+    }
+}
@@ -24,6 +24,7 @@ import org.candlepin.async.tasks.ImportRecordCleanerJob;
 import org.candlepin.async.tasks.JobCleaner;
 import org.candlepin.async.tasks.ManifestCleanerJob;
 import org.candlepin.async.tasks.OrphanCleanupJob;
+import org.candlepin.async.tasks.OwnerInfoRefreshJob;
 import org.candlepin.async.tasks.UnmappedGuestEntitlementCleanerJob;
 import org.candlepin.common.config.Configuration;
 
@@ -60,6 +61,29 @@ public class ConfigProperties {
     public static final String CA_CERT_UPSTREAM = "candlepin.upstream_ca_cert";
     public static final String CA_KEY_PASSWORD = "candlepin.ca_key_password";
 
+    /**
+     * The number of threads used to sign certificates generated in batches, such as the entitlement
+     * certificates of a consumer. Setting this to one or less signs every certificate on the thread
+     * requesting it.
+     */
+    public static final String CERT_SIGNING_THREADS = "candlepin.pki.signing_threads";
+
+    /**
+     * The number of RSA key pairs generated ahead of time for consumers which do not yet have one.
+     * Setting this to zero generates every key pair on demand.
+     */
+    public static final String KEY_PAIR_POOL_SIZE = "candlepin.pki.keypair_pool.size";
+
+    /**
+     * The number of pre-generated key pairs at or below which the pool is refilled
+     */
+    public static final String KEY_PAIR_POOL_LOW_WATER_MARK = "candlepin.pki.keypair_pool.low_water_mark";
+
+    /**
+     * The number of background threads generating key pairs while the pool is being refilled
+     */
+    public static final String KEY_PAIR_POOL_REFILL_THREADS = "candlepin.pki.keypair_pool.refill_threads";
+
     /*
      * XXX The actual property key refers to HornetQ which was ActiveMQ's ancestor.  We have to keep the
      * key unchanged for compatibility reasons. These are deprecated, however, and should be replaced by
@@ -99,6 +123,19 @@ public class ConfigProperties {
     public static final String ACTIVEMQ_CONNECTION_MONITOR_INTERVAL =
         "candlepin.audit.hornetq.monitor.interval";
 
+    /**
+     * The number of transacted event producer sessions kept open between requests. Sessions are
+     * only borrowed while a request's events are being sent. Setting this to zero opens a new
+     * session for every request which emits events.
+     */
+    public static final String ACTIVEMQ_PRODUCER_POOL_SIZE = "candlepin.audit.producer_pool.size";
+
+    /**
+     * The time (in milliseconds) to wait for a pooled event producer session to become available
+     * before opening a dedicated session for the request
+     */
+    public static final String ACTIVEMQ_PRODUCER_POOL_TIMEOUT = "candlepin.audit.producer_pool.timeout";
+
     public static final String AUDIT_LISTENERS = "candlepin.audit.listeners";
     /**
      * Enables audit event filtering. See documentation of EventFilter
@@ -176,12 +213,48 @@ public class ConfigProperties {
 
     public static final String SYNC_WORK_DIR = "candlepin.sync.work_dir";
 
+    /**
+     * Whether or not manifests are exported by streaming their contents straight into the signed
+     * archive, rather than writing every file to the sync work directory and archiving it afterwards.
+     */
+    public static final String SYNC_EXPORT_STREAMING = "candlepin.sync.export.streaming";
+
+    /**
+     * The number of threads serializing the contents of streamed manifest exports. The threads are
+     * shared by all exports in progress.
+     */
+    public static final String SYNC_EXPORT_THREADS = "candlepin.sync.export.threads";
+
     /**
      *  Controls which facts will be stored by Candlepin -- facts with keys that do not match this
      *  value will be discarded.
      */
     public static final String CONSUMER_FACTS_MATCHER = "candlepin.consumer.facts.match_regex";
 
+    /**
+     * Whether or not consumer check-in times are buffered in memory and written to the database
+     * periodically, rather than on each request which updates them.
+     */
+    public static final String CONSUMER_CHECKIN_WRITE_BEHIND = "candlepin.consumer.checkin.write_behind";
+
+    /**
+     * The interval, in seconds, at which buffered consumer check-in times are written
+     */
+    public static final String CONSUMER_CHECKIN_FLUSH_INTERVAL = "candlepin.consumer.checkin.flush_interval";
+
+    /**
+     * The number of buffered consumer check-in times which triggers a write before the next
+     * interval is up
+     */
+    public static final String CONSUMER_CHECKIN_FLUSH_THRESHOLD =
+        "candlepin.consumer.checkin.flush_threshold";
+
+    /**
+     * Whether or not owner info statistics are read from the per-owner snapshots maintained by the
+     * OwnerInfoRefreshJob, rather than calculated on each request
+     */
+    public static final String OWNER_INFO_MATERIALIZED = "candlepin.owner_info.materialized";
+
     public static final String SHARD_USERNAME = "candlepin.shard.username";
     public static final String SHARD_PASSWORD = "candlepin.shard.password";
     public static final String SHARD_WEBAPP = "candlepin.shard.webapp";
@@ -190,6 +263,13 @@ public class ConfigProperties {
     public static final String ENV_CONTENT_FILTERING = "candlepin.environment_content_filtering";
     public static final String USE_SYSTEM_UUID_FOR_MATCHING = "candlepin.use_system_uuid_for_matching";
 
+    /**
+     * The number of hypervisors reconciled together, in a single transaction, when processing a
+     * hypervisor report. Setting this to one or less reconciles each hypervisor in its own
+     * transaction.
+     */
+    public static final String HYPERVISOR_UPDATE_BATCH_SIZE = "candlepin.hypervisor_update.batch_size";
+
     public static final String CONSUMER_SYSTEM_NAME_PATTERN = "candlepin.consumer_system_name_pattern";
     public static final String CONSUMER_PERSON_NAME_PATTERN = "candlepin.consumer_person_name_pattern";
 
@@ -199,6 +279,76 @@ public class ConfigProperties {
 
     public static final String PRODUCT_CACHE_MAX = "candlepin.cache.product_cache_max";
 
+    /**
+     * The engine used to calculate consumer compliance. One of "javascript" (the rules file),
+     * "native" (the compiled Java implementation) or "shadow", which runs both engines, uses the
+     * result of the rules file and logs any differences between the two.
+     */
+    public static final String COMPLIANCE_ENGINE = "candlepin.compliance.engine";
+
+    /**
+     * The maximum number of calculated compliance statuses kept for reuse. Setting this to zero
+     * disables the compliance status cache.
+     */
+    public static final String COMPLIANCE_CACHE_MAX_ENTRIES = "candlepin.compliance.cache.max_entries";
+
+    /**
+     * The granularity, in seconds, of the dates compliance statuses are cached for. A cached status
+     * is reused for any date within the same bucket, so this bounds how stale a status can get.
+     */
+    public static final String COMPLIANCE_CACHE_DATE_BUCKET = "candlepin.compliance.cache.date_bucket";
+
+    /**
+     * The maximum total size, in kilobytes, of the encoded content payloads kept for reuse between
+     * v3 certificates listing the same content. Setting this to zero disables the content payload
+     * cache.
+     */
+    public static final String CONTENT_PAYLOAD_CACHE_MAX_SIZE = "candlepin.cache.content_payload_max_size";
+
+    /**
+     * The number of subscriptions refreshed in each transaction when refreshing the pools of an
+     * owner. Refreshes committed in chunks can be resumed from the last committed chunk when the
+     * refresh pools job is retried. Setting this to zero refreshes the pools of an owner in a single
+     * transaction.
+     */
+    public static final String REFRESH_POOLS_CHUNK_SIZE = "candlepin.refresh.subscription_chunk_size";
+
+    /**
+     * Whether binds reserve pool quantities with conditional updates issued once the entitlements
+     * have been created, instead of locking the pools being bound for the whole bind. Reserving
+     * optimistically allows concurrent binds against the same pool to proceed in parallel, while a
+     * bind which would over-consume a pool is still refused. This should only be enabled on
+     * PostgreSQL; on MySQL and MariaDB, creating an entitlement holds a shared lock on its pool
+     * which concurrent reservations against the pool would deadlock on.
+     */
+    public static final String BIND_OPTIMISTIC_POOL_RESERVATION =
+        "candlepin.bind.optimistic_pool_reservation";
+
+    /**
+     * The number of consumers whose compliance statuses are calculated together, in a single
+     * session, when streaming the statuses of a list of consumers.
+     */
+    public static final String COMPLIANCE_STREAM_CHUNK_SIZE = "candlepin.compliance.stream.chunk_size";
+
+    /**
+     * The number of threads calculating compliance statuses for streaming requests. The threads are
+     * shared by all such requests.
+     */
+    public static final String COMPLIANCE_STREAM_THREADS = "candlepin.compliance.stream.threads";
+
+    /**
+     * A comma-separated list of rules namespaces (such as "compliance_name_space") which receive
+     * their call contexts as native javascript objects instead of JSON strings that the rules
+     * must parse. Namespaces not listed, or rules files which do not support it, use JSON.
+     */
+    public static final String RULES_OBJECT_CONTEXT_NAMESPACES = "candlepin.rules.object_context_namespaces";
+
+    /**
+     * The number of rules namespace scopes each thread keeps initialized for reuse across
+     * requests. Setting this to zero creates a new scope for every rules runner instead.
+     */
+    public static final String RULES_SCOPE_POOL_SIZE = "candlepin.rules.scope_pool_size";
+
     public static final String INTEGER_FACTS = "candlepin.integer_facts";
     private static final String INTEGER_FACT_LIST = "";
 
@@ -249,6 +399,23 @@ public class ConfigProperties {
      */
     public static final String CRL_SERIAL_BATCH_SIZE = "candlepin.crl.update_serial_batch_size";
 
+    /**
+     * The number of hours between rebuilds of the full CRL file. When greater than zero, changes made
+     * between rebuilds are published in an RFC 5280 delta CRL, written next to the CRL file with the
+     * ".delta" suffix, and the full CRL is only rewritten once it is older than this. When zero, the
+     * full CRL is rewritten on every update and no delta CRL is published. The delta CRL is served
+     * at /crl/delta.
+     */
+    public static final String CRL_BASE_REBUILD_INTERVAL = "candlepin.crl.base_rebuild_interval_hours";
+
+    /**
+     * The URL at which clients can fetch the delta CRL, usually the /crl/delta resource of this
+     * server. When set, and delta CRLs are published, full CRLs point to it with an RFC 5280
+     * FreshestCRL extension, so clients know to check it for revocations made since the full CRL
+     * was issued.
+     */
+    public static final String CRL_DELTA_URL = "candlepin.crl.delta_url";
+
     public static final String IDENTITY_CERT_YEAR_ADDENDUM = "candlepin.identityCert.yr.addendum";
     /**
      * Identity certificate expiry threshold in days
@@ -290,6 +457,7 @@ public class ConfigProperties {
         JobCleaner.JOB_KEY,
         ManifestCleanerJob.JOB_KEY,
         OrphanCleanupJob.JOB_KEY,
+        OwnerInfoRefreshJob.JOB_KEY,
         UnmappedGuestEntitlementCleanerJob.JOB_KEY
     };
 
@@ -347,6 +515,10 @@ public class ConfigProperties {
             this.put(CA_KEY, "/etc/candlepin/certs/candlepin-ca.key");
             this.put(CA_CERT, "/etc/candlepin/certs/candlepin-ca.crt");
             this.put(CA_CERT_UPSTREAM, "/etc/candlepin/certs/upstream");
+            this.put(CERT_SIGNING_THREADS, "4");
+            this.put(KEY_PAIR_POOL_SIZE, "20");
+            this.put(KEY_PAIR_POOL_LOW_WATER_MARK, "10");
+            this.put(KEY_PAIR_POOL_REFILL_THREADS, "2");
 
             this.put(ACTIVATION_DEBUG_PREFIX, "");
 
@@ -369,10 +541,13 @@ public class ConfigProperties {
             this.put(ACTIVEMQ_SERVER_CONFIG_PATH, "");
             this.put(ACTIVEMQ_LARGE_MSG_SIZE, Integer.toString(100 * 1024));
             this.put(ACTIVEMQ_CONNECTION_MONITOR_INTERVAL, "5000"); // milliseconds
+            this.put(ACTIVEMQ_PRODUCER_POOL_SIZE, "20");
+            this.put(ACTIVEMQ_PRODUCER_POOL_TIMEOUT, "1000"); // milliseconds
 
             this.put(AUDIT_LISTENERS,
                 "org.candlepin.audit.LoggingListener," +
-                "org.candlepin.audit.ActivationListener");
+                "org.candlepin.audit.ActivationListener," +
+                "org.candlepin.audit.OwnerInfoListener");
             this.put(AUDIT_FILTER_ENABLED, "false");
 
             this.put(ENTITLER_BULK_SIZE, "1000");
@@ -398,9 +573,17 @@ public class ConfigProperties {
             this.put(CRL_FILE_PATH, "/var/lib/candlepin/candlepin-crl.crl");
             this.put(CRL_NEXT_UPDATE_DELTA, "1");
             this.put(CRL_SERIAL_BATCH_SIZE, "1000000");
+            this.put(CRL_BASE_REBUILD_INTERVAL, "0");
+            this.put(CRL_DELTA_URL, "");
 
             this.put(SYNC_WORK_DIR, "/var/cache/candlepin/sync");
+            this.put(SYNC_EXPORT_STREAMING, "true");
+            this.put(SYNC_EXPORT_THREADS, "4");
             this.put(CONSUMER_FACTS_MATCHER, ".*");
+            this.put(CONSUMER_CHECKIN_WRITE_BEHIND, "true");
+            this.put(CONSUMER_CHECKIN_FLUSH_INTERVAL, "5");
+            this.put(CONSUMER_CHECKIN_FLUSH_THRESHOLD, "1000");
+            this.put(OWNER_INFO_MATERIALIZED, "true");
             this.put(TRUSTED_AUTHENTICATION, "false");
             this.put(SSL_AUTHENTICATION, "true");
             this.put(OAUTH_AUTHENTICATION, "false");
@@ -432,6 +615,7 @@ public class ConfigProperties {
 
             this.put(ENV_CONTENT_FILTERING, "true");
             this.put(USE_SYSTEM_UUID_FOR_MATCHING, "true");
+            this.put(HYPERVISOR_UPDATE_BATCH_SIZE, "100");
 
             // what constitutes a valid consumer name
             this.put(CONSUMER_SYSTEM_NAME_PATTERN, "[\\#\\?\\'\\`\\!@{}()\\[\\]\\?&\\w-\\.]+");
@@ -450,6 +634,17 @@ public class ConfigProperties {
              */
             this.put(PRODUCT_CACHE_MAX, "100");
 
+            this.put(COMPLIANCE_ENGINE, "javascript");
+            this.put(COMPLIANCE_CACHE_MAX_ENTRIES, "10000");
+            this.put(COMPLIANCE_CACHE_DATE_BUCKET, "60");
+            this.put(CONTENT_PAYLOAD_CACHE_MAX_SIZE, "32768");
+            this.put(REFRESH_POOLS_CHUNK_SIZE, "0");
+            this.put(BIND_OPTIMISTIC_POOL_RESERVATION, "false");
+            this.put(COMPLIANCE_STREAM_CHUNK_SIZE, "100");
+            this.put(COMPLIANCE_STREAM_THREADS, "4");
+            this.put(RULES_OBJECT_CONTEXT_NAMESPACES, "");
+            this.put(RULES_SCOPE_POOL_SIZE, "8");
+
             /** As we do math on some facts and attributes, we need to constrain some values */
             this.put(INTEGER_FACTS, INTEGER_FACT_LIST);
             this.put(NON_NEG_INTEGER_FACTS, NON_NEG_INTEGER_FACT_LIST);
@@ -488,6 +683,8 @@ public class ConfigProperties {
                 ManifestCleanerJob.DEFAULT_SCHEDULE);
             this.put(jobConfig(OrphanCleanupJob.JOB_KEY, ASYNC_JOBS_JOB_SCHEDULE),
                 OrphanCleanupJob.DEFAULT_SCHEDULE);
+            this.put(jobConfig(OwnerInfoRefreshJob.JOB_KEY, ASYNC_JOBS_JOB_SCHEDULE),
+                OwnerInfoRefreshJob.DEFAULT_SCHEDULE);
             this.put(jobConfig(UnmappedGuestEntitlementCleanerJob.JOB_KEY, ASYNC_JOBS_JOB_SCHEDULE),
                 UnmappedGuestEntitlementCleanerJob.DEFAULT_SCHEDULE);
 
@@ -85,6 +85,8 @@ import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
@@ -92,6 +94,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xnap.commons.i18n.I18n;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -99,13 +103,14 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -121,6 +126,9 @@ public class CandlepinPoolManager implements PoolManager {
 
     private static final Logger log = LoggerFactory.getLogger(CandlepinPoolManager.class);
     private static final int MAX_ENTITLE_RETRIES = 3;
+
+    private static final List<EntityState> MUTATED_STATES = Arrays.asList(
+        EntityState.CREATED, EntityState.UPDATED, EntityState.DELETED);
     private static final Pattern ATTRIBUTE_VALUE_DELIMITER = Pattern.compile("\\s*,\\s*");
 
     private final I18n i18n;
@@ -213,21 +221,146 @@ public class CandlepinPoolManager implements PoolManager {
         this.refreshWorkerProvider = Objects.requireNonNull(refreshWorkerProvider);
     }
 
+    /**
+     * The state of a refresh of an owner's pools, carried between the phases of the refresh
+     */
+    static class OwnerRefresh {
+        private final Owner owner;
+        private final boolean lazy;
+        private final boolean chunked;
+        private final Date now;
+
+        private RefreshResult refreshResult;
+        private Map<String, Product> existingProducts;
+        private Map<String, Product> updatedProducts;
+
+        // The active subscriptions, sorted by ID so the refresh can be resumed past a given one
+        private final NavigableMap<String, SubscriptionInfo> subscriptions;
+        private final Map<String, Integer> productVersions;
+        private final RefreshStatistics statistics;
+        private boolean poolsModified;
+
+        private OwnerRefresh(Owner owner, boolean lazy, boolean chunked) {
+            this.owner = owner;
+            this.lazy = lazy;
+            this.chunked = chunked;
+            this.now = new Date();
+
+            this.subscriptions = new TreeMap<>();
+            this.productVersions = new HashMap<>();
+            this.statistics = new RefreshStatistics();
+            this.poolsModified = false;
+        }
+    }
+
     /*
      * We need to update/regen entitlements in the same transaction we update pools
      * so we don't miss anything
      */
     @Transactional
-    @SuppressWarnings("checkstyle:methodlength")
     @Traceable
-    void refreshPoolsWithRegeneration(SubscriptionServiceAdapter subAdapter,
+    RefreshStatistics refreshPoolsWithRegeneration(SubscriptionServiceAdapter subAdapter,
         ProductServiceAdapter prodAdapter,
         @TraceableParam("owner") Owner owner, boolean lazy) {
 
-        Date now = new Date();
+        OwnerRefresh refresh = this.beginOwnerRefresh(subAdapter, prodAdapter, owner, lazy, false);
+        this.refreshSubscriptions(refresh, refresh.subscriptions.values());
+        this.finishOwnerRefresh(refresh);
+
+        return refresh.statistics;
+    }
+
+    /**
+     * Refreshes the pools of the given owner like refreshPoolsWithRegeneration, but commits the
+     * refresh in several transactions rather than a single one: one for the product and content
+     * refresh, one for every chunk of subscriptions, and a last one for the removal of pools of
+     * absent subscriptions and the update of floating pools. Subscriptions are refreshed in order of
+     * their IDs, and the ID of the last subscription of every committed chunk is passed to the
+     * given listener as a checkpoint.
+     * <p></p>
+     * When a checkpoint is provided, only the subscriptions past the checkpoint are refreshed. The
+     * product and content refresh, as well as the last transaction, are always performed, as they
+     * are idempotent.
+     * <p></p>
+     * This method must not be called within a transaction, as every chunk would otherwise be
+     * committed with it.
+     *
+     * @param subAdapter
+     *  the subscription service adapter to use to fetch the owner's subscriptions
+     *
+     * @param prodAdapter
+     *  the product service adapter to use to fetch the owner's development products
+     *
+     * @param owner
+     *  the owner for which to refresh pools
+     *
+     * @param lazy
+     *  whether or not to mark the certificates of affected entitlements dirty, rather than
+     *  regenerating them immediately
+     *
+     * @param chunkSize
+     *  the maximum number of subscriptions to refresh in a single transaction
+     *
+     * @param checkpoint
+     *  the last checkpoint reported by a previous refresh of the owner which did not complete, or
+     *  null to refresh every subscription
+     *
+     * @param listener
+     *  the listener to notify of checkpoints, or null if checkpoints need not be reported
+     *
+     * @throws IllegalArgumentException
+     *  if chunkSize is less than one
+     *
+     * @return
+     *  the statistics of the subscriptions refreshed by this call
+     */
+    @Traceable
+    RefreshStatistics refreshPoolsInChunks(SubscriptionServiceAdapter subAdapter,
+        ProductServiceAdapter prodAdapter, @TraceableParam("owner") Owner owner, boolean lazy,
+        int chunkSize, String checkpoint, Refresher.CheckpointListener listener) {
+
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize is less than one");
+        }
+
+        OwnerRefresh refresh = this.beginOwnerRefresh(subAdapter, prodAdapter, owner, lazy, true);
+
+        Collection<SubscriptionInfo> pending = refresh.subscriptions.values();
+        if (checkpoint != null) {
+            pending = refresh.subscriptions.tailMap(checkpoint, false).values();
+
+            log.info("Resuming refresh of owner {} after subscription {}; {} of {} subscription(s) remaining",
+                refresh.owner.getKey(), checkpoint, pending.size(), refresh.subscriptions.size());
+        }
+
+        for (List<SubscriptionInfo> chunk : Iterables.partition(pending, chunkSize)) {
+            this.refreshSubscriptions(refresh, chunk);
+
+            if (listener != null) {
+                listener.onCheckpoint(chunk.get(chunk.size() - 1).getId());
+            }
+        }
+
+        this.finishOwnerRefresh(refresh);
+
+        return refresh.statistics;
+    }
+
+    /**
+     * Fetches the subscriptions of the given owner and refreshes the products and content they
+     * reference. This is the first phase of an owner refresh.
+     *
+     * @return
+     *  the state of the owner refresh
+     */
+    @Transactional
+    OwnerRefresh beginOwnerRefresh(SubscriptionServiceAdapter subAdapter, ProductServiceAdapter prodAdapter,
+        Owner owner, boolean lazy, boolean chunked) {
+
         owner = this.resolveOwner(owner);
         log.info("Refreshing pools for owner: {}", owner);
 
+        OwnerRefresh refresh = new OwnerRefresh(owner, lazy, chunked);
         RefreshWorker refresher = this.refreshWorkerProvider.get();
 
         log.debug("Fetching subscriptions from adapter...");
@@ -277,46 +410,100 @@ public class CandlepinPoolManager implements PoolManager {
         }
 
         // Execute refresh!
-        RefreshResult refreshResult = refresher.execute(owner);
+        refresh.refreshResult = refresher.execute(owner);
 
         List<EntityState> existingStates = Arrays.asList(
             EntityState.CREATED, EntityState.UPDATED, EntityState.UNCHANGED);
 
-        List<EntityState> mutatedStates = Arrays.asList(
-            EntityState.CREATED, EntityState.UPDATED, EntityState.DELETED);
+        refresh.existingProducts = refresh.refreshResult.getEntities(Product.class, existingStates);
+        refresh.updatedProducts = refresh.refreshResult.getEntities(Product.class, EntityState.UPDATED);
 
-        Map<String, Product> existingProducts = refreshResult.getEntities(Product.class, existingStates);
-        Map<String, Product> updatedProducts = refreshResult.getEntities(Product.class, EntityState.UPDATED);
+        for (SubscriptionInfo sub : subscriptionMap.values()) {
+            if (refresh.now.after(sub.getEndDate())) {
+                log.info("Skipping expired subscription: {}", sub);
+                continue;
+            }
 
-        // TODO: Move everything below this line to the refresher
-        boolean poolsModified = false;
+            refresh.subscriptions.put(sub.getId(), sub);
+        }
 
-        log.debug("Refreshing {} pool(s)...", subscriptionMap.size());
-        for (Iterator<? extends SubscriptionInfo> si = subscriptionMap.values().iterator(); si.hasNext();) {
-            SubscriptionInfo sub = si.next();
+        // A chunked refresh resumed after a failure does not see the product and content changes
+        // committed by the failed attempt, so it can't tell whether pools referencing them were
+        // modified. Err on the side of caution and assume the content view changed.
+        if (chunked && refresh.refreshResult.hasEntity(Product.class, MUTATED_STATES)) {
+            owner.setLastContentUpdate(refresh.now);
+            this.ownerCurator.merge(owner);
+        }
 
-            if (now.after(sub.getEndDate())) {
-                log.info("Skipping expired subscription: {}", sub);
+        return refresh;
+    }
 
-                si.remove();
-                continue;
+    /**
+     * Refreshes the pools of the given subscriptions, skipping those which have not changed since
+     * their pools were last refreshed. This is the second phase of an owner refresh, and may be
+     * performed for several chunks of the owner's subscriptions.
+     */
+    @Transactional
+    void refreshSubscriptions(OwnerRefresh refresh, Collection<SubscriptionInfo> subscriptions) {
+        Set<String> subIds = subscriptions.stream()
+            .map(SubscriptionInfo::getId)
+            .collect(Collectors.toSet());
+
+        // Fetch the fingerprints of the subscriptions as of their last refresh, and the number of
+        // pools currently created from each, so we can skip the subscriptions that have not changed
+        Map<String, Pool> masterPools = this.poolCurator
+            .getMasterPoolsBySubscriptionIdForOwner(refresh.owner, subIds);
+        Map<String, Long> poolCounts = this.poolCurator.getPoolCountsBySubscriptionIds(subIds);
+
+        log.debug("Refreshing {} pool(s)...", subscriptions.size());
+        for (SubscriptionInfo sub : subscriptions) {
+            Pool existing = masterPools.get(sub.getId());
+            if (existing != null && existing.getSubscriptionFingerprint() != null) {
+                String fingerprint = this.buildSubscriptionFingerprint(sub, refresh.existingProducts,
+                    refresh.productVersions, poolCounts.getOrDefault(sub.getId(), 0L));
+
+                if (existing.getSubscriptionFingerprint().equals(fingerprint)) {
+                    log.debug("Skipping unchanged subscription: {}", sub);
+
+                    refresh.statistics.subscriptionSkipped();
+                    continue;
+                }
             }
 
             log.debug("Processing subscription: {}", sub);
-            Pool pool = this.convertToMasterPoolImpl(sub, owner, existingProducts);
+            Pool pool = this.convertToMasterPoolImpl(sub, refresh.owner, refresh.existingProducts);
             pool.setLocked(true);
-            this.refreshPoolsForMasterPool(pool, false, lazy, updatedProducts);
-            poolsModified = true;
+            this.refreshPoolsForMasterPool(pool, false, refresh.lazy, refresh.updatedProducts);
+            refresh.poolsModified = true;
+
+            // Fingerprint the subscription along with the pools it has after the refresh, so it is
+            // refreshed again if any of them is removed
+            long count = this.poolCurator.getPoolCountsBySubscriptionIds(Collections.singleton(sub.getId()))
+                .getOrDefault(sub.getId(), 0L);
+
+            (existing != null ? existing : pool).setSubscriptionFingerprint(this.buildSubscriptionFingerprint(
+                sub, refresh.existingProducts, refresh.productVersions, count));
+
+            refresh.statistics.subscriptionUpdated();
         }
+    }
+
+    /**
+     * Deletes the pools of subscriptions which are no longer active, and updates floating pools.
+     * This is the last phase of an owner refresh.
+     */
+    @Transactional
+    void finishOwnerRefresh(OwnerRefresh refresh) {
+        Owner owner = refresh.owner;
 
         // delete pools whose subscription disappeared:
         log.debug("Deleting pools for absent subscriptions...");
         List<Pool> poolsToDelete = new ArrayList<>();
 
-        for (Pool pool : poolCurator.getPoolsFromBadSubs(owner, subscriptionMap.keySet())) {
+        for (Pool pool : poolCurator.getPoolsFromBadSubs(owner, refresh.subscriptions.keySet())) {
             if (this.isManaged(pool)) {
                 poolsToDelete.add(pool);
-                poolsModified = true;
+                refresh.poolsModified = true;
             }
         }
 
@@ -325,7 +512,7 @@ public class CandlepinPoolManager implements PoolManager {
         // TODO: break this call into smaller pieces. There may be lots of floating pools
         log.debug("Updating floating pools...");
         List<Pool> floatingPools = poolCurator.getOwnersFloatingPools(owner);
-        updateFloatingPools(floatingPools, lazy, updatedProducts);
+        updateFloatingPools(floatingPools, refresh.lazy, refresh.updatedProducts);
 
         // Check if we've put any pools into a state in which they're referencing a product which no
         // longer belongs to the organization
@@ -352,15 +539,84 @@ public class CandlepinPoolManager implements PoolManager {
         // does fall apart in a handful of cases (deletion of an expired pool + modification of that
         // pool's product/content), but barring a major refactor of this code to make the evaluation
         // on a per-pool basis, there's not a whole lot more we can do here.
-        if (poolsModified && refreshResult.hasEntity(Product.class, mutatedStates)) {
+        //
+        // Chunked refreshes have already updated the owner's content timestamp, if necessary.
+        if (!refresh.chunked && refresh.poolsModified &&
+            refresh.refreshResult.hasEntity(Product.class, MUTATED_STATES)) {
             // TODO: Should we also mark any existing SCA certs as dirty/revoked here?
 
-            owner.setLastContentUpdate(now);
+            owner.setLastContentUpdate(refresh.now);
             this.ownerCurator.merge(owner);
         }
 
-        log.info("Refresh pools for owner: {} completed in: {}ms", owner.getKey(),
-            System.currentTimeMillis() - now.getTime());
+        log.info("Refresh pools for owner: {} completed in: {}ms; {} subscription(s) updated, {} unchanged",
+            owner.getKey(), System.currentTimeMillis() - refresh.now.getTime(),
+            refresh.statistics.getUpdatedCount(), refresh.statistics.getSkippedCount());
+    }
+
+    /**
+     * Builds a fingerprint of the given subscription, covering the subscription fields copied to its
+     * master pool, the UUIDs and entity versions of its product graph, and the number of pools
+     * created from it. A master pool whose fingerprint matches that of its subscription needs not be
+     * refreshed.
+     *
+     * @param sub
+     *  the subscription to fingerprint
+     *
+     * @param productMap
+     *  a map of product IDs to the products resolved for the subscriptions being refreshed
+     *
+     * @param productVersions
+     *  a map of product IDs to the entity versions of the products, populated as needed, so
+     *  products shared by several subscriptions are only versioned once
+     *
+     * @param poolCount
+     *  the number of pools created from the subscription
+     *
+     * @return
+     *  the fingerprint of the subscription, as a hex-encoded SHA-256 hash
+     */
+    private String buildSubscriptionFingerprint(SubscriptionInfo sub, Map<String, Product> productMap,
+        Map<String, Integer> productVersions, long poolCount) {
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+
+        Product product = sub.getProduct() != null ? productMap.get(sub.getProduct().getId()) : null;
+        Integer productVersion = product != null ?
+            productVersions.computeIfAbsent(product.getId(), id -> product.getEntityVersion()) :
+            null;
+
+        CdnInfo cdn = sub.getCdn();
+        CertificateInfo cert = sub.getCertificate();
+
+        List<Object> elements = Arrays.asList(
+            sub.getId(),
+            sub.getOwner() != null ? sub.getOwner().getKey() : null,
+            sub.getQuantity(),
+            sub.getStartDate() != null ? sub.getStartDate().getTime() : null,
+            sub.getEndDate() != null ? sub.getEndDate().getTime() : null,
+            sub.getContractNumber(),
+            sub.getAccountNumber(),
+            sub.getOrderNumber(),
+            sub.getUpstreamPoolId(),
+            sub.getUpstreamEntitlementId(),
+            sub.getUpstreamConsumerId(),
+            cdn != null ? cdn.getLabel() : null,
+            cert != null ? cert.getKey() : null,
+            cert != null ? cert.getCertificate() : null,
+            product != null ? product.getUuid() : null,
+            productVersion,
+            poolCount);
+
+        for (Object element : elements) {
+            // Length-prefix each element so that no two distinct subscriptions produce the same input
+            String value = element != null ? element.toString() : null;
+            String encoded = value != null ? value.length() + ":" + value : "-1:";
+
+            digest.update(encoded.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return Hex.encodeHexString(digest.digest());
     }
 
     private Owner resolveOwner(Owner owner) {
@@ -1265,6 +1521,7 @@ public class CandlepinPoolManager implements PoolManager {
             log.debug("Removing pool host is already entitled to: {}", ent.getPool());
             allOwnerPools.remove(ent.getPool());
         }
+        List<Pool> candidatePools = new ArrayList<>();
         List<Pool> filteredPools = new LinkedList<>();
 
         ComplianceStatus guestCompliance = complianceRules.getStatus(guest, entitleDate, false);
@@ -1350,23 +1607,12 @@ public class CandlepinPoolManager implements PoolManager {
             }
 
             if (providesProduct || matchesAddOns || matchesRole) {
-                ValidationResult result = enforcer.preEntitlement(host, pool, 1, CallerType.BEST_POOLS);
-
-                if (result.hasErrors() || result.hasWarnings()) {
-                    // Just keep the last one around, if we need it
-                    failedResults.put(pool.getId(), result);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Pool filtered from candidates due to failed rule(s): {}", pool);
-                        log.debug("  warnings: {}", Util.collectionToString(result.getWarnings()));
-                        log.debug("  errors: {}", Util.collectionToString(result.getErrors()));
-                    }
-                }
-                else {
-                    filteredPools.add(pool);
-                }
+                candidatePools.add(pool);
             }
         }
 
+        this.validateCandidatePools(host, candidatePools, filteredPools, failedResults);
+
         // Only throw refused exception if we actually hit the rules:
         if (filteredPools.size() == 0 && !failedResults.isEmpty()) {
             throw new EntitlementRefusedException(failedResults);
@@ -1527,6 +1773,7 @@ public class CandlepinPoolManager implements PoolManager {
         List<Pool> allOwnerPools = this.listAvailableEntitlementPools(
             consumer, null, ownerId, null, null, activePoolDate, false,
             poolFilter, null, false, false, null).getPageData();
+        List<Pool> candidatePools = new ArrayList<>();
         List<Pool> filteredPools = new LinkedList<>();
 
         // We have to check compliance status here so we can replace an empty
@@ -1595,18 +1842,12 @@ public class CandlepinPoolManager implements PoolManager {
             }
 
             if (providesProduct || matchesAddOns || matchesRole) {
-                ValidationResult result = enforcer.preEntitlement(consumer, pool, 1, CallerType.BEST_POOLS);
-
-                if (result.hasErrors() || result.hasWarnings()) {
-                    failedResults.put(pool.getId(), result);
-                    log.debug("Pool filtered from candidates due to rules failure: {}", pool.getId());
-                }
-                else {
-                    filteredPools.add(pool);
-                }
+                candidatePools.add(pool);
             }
         }
 
+        this.validateCandidatePools(consumer, candidatePools, filteredPools, failedResults);
+
         // Only throw refused exception if we actually hit the rules:
         if (filteredPools.size() == 0 && !failedResults.isEmpty()) {
             throw new EntitlementRefusedException(failedResults);
@@ -1620,6 +1861,55 @@ public class CandlepinPoolManager implements PoolManager {
         return enforced;
     }
 
+    /**
+     * Runs the pre-entitlement rules against the given candidate pools in a single batch, rather
+     * than once per pool. Pools which pass validation are added to the filtered pools, while the
+     * results of those which fail are added to the failed results.
+     *
+     * @param consumer
+     *  the consumer for which the pools are being validated
+     *
+     * @param candidatePools
+     *  the pools to validate
+     *
+     * @param filteredPools
+     *  the list to receive the pools which pass validation
+     *
+     * @param failedResults
+     *  the map to receive the validation results of the pools which fail validation, keyed by pool ID
+     */
+    private void validateCandidatePools(Consumer consumer, List<Pool> candidatePools,
+        List<Pool> filteredPools, Map<String, ValidationResult> failedResults) {
+
+        if (candidatePools.isEmpty()) {
+            return;
+        }
+
+        List<PoolQuantity> poolQuantities = new ArrayList<>(candidatePools.size());
+        for (Pool pool : candidatePools) {
+            poolQuantities.add(new PoolQuantity(pool, 1));
+        }
+
+        Map<String, ValidationResult> results = enforcer.preEntitlement(consumer, poolQuantities,
+            CallerType.BEST_POOLS);
+
+        for (Pool pool : candidatePools) {
+            ValidationResult result = results != null ? results.get(pool.getId()) : null;
+
+            if (result != null && (result.hasErrors() || result.hasWarnings())) {
+                failedResults.put(pool.getId(), result);
+                if (log.isDebugEnabled()) {
+                    log.debug("Pool filtered from candidates due to failed rule(s): {}", pool);
+                    log.debug("  warnings: {}", Util.collectionToString(result.getWarnings()));
+                    log.debug("  errors: {}", Util.collectionToString(result.getErrors()));
+                }
+            }
+            else {
+                filteredPools.add(pool);
+            }
+        }
+    }
+
     private Map<String, Integer> convertToMap(List<PoolQuantity> poolQuantities) {
         Map<String, Integer> result = new HashMap<>();
         for (PoolQuantity poolQuantity : poolQuantities) {
@@ -2483,7 +2773,8 @@ public class CandlepinPoolManager implements PoolManager {
     public Refresher getRefresher(SubscriptionServiceAdapter subAdapter, ProductServiceAdapter prodAdapter,
         boolean lazy) {
 
-        return new Refresher(this, subAdapter, prodAdapter, ownerManager, lazy);
+        return new Refresher(this, subAdapter, prodAdapter, ownerManager, lazy)
+            .setChunkSize(Math.max(0, this.config.getInt(ConfigProperties.REFRESH_POOLS_CHUNK_SIZE)));
     }
 
     @Override
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.controller;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+
+import com.google.inject.Inject;
+import com.google.inject.persist.UnitOfWork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Singleton;
+
+
+
+/**
+ * The ConsumerCheckInAggregator records consumer check-ins. By default, check-in times are buffered
+ * in memory, keeping only the latest time for each consumer, and written to the database in bulk
+ * by a background thread. The buffer is written at a fixed interval, whenever it grows past a
+ * configured threshold, and once more when Candlepin shuts down.
+ *
+ * When write-behind is disabled, each check-in is written to the database immediately, on the
+ * requesting thread.
+ */
+@Singleton
+public class ConsumerCheckInAggregator {
+    private static Logger log = LoggerFactory.getLogger(ConsumerCheckInAggregator.class);
+
+    private final ConsumerCurator consumerCurator;
+    private final UnitOfWork unitOfWork;
+    private final int flushThreshold;
+
+    private final ConcurrentMap<String, Date> pending;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushQueued;
+
+    private volatile boolean shutdown;
+
+    @Inject
+    public ConsumerCheckInAggregator(Configuration config, ConsumerCurator consumerCurator,
+        UnitOfWork unitOfWork) {
+
+        this.consumerCurator = consumerCurator;
+        this.unitOfWork = unitOfWork;
+        this.flushThreshold = Math.max(1, config.getInt(ConfigProperties.CONSUMER_CHECKIN_FLUSH_THRESHOLD));
+
+        this.pending = new ConcurrentHashMap<>();
+        this.flushQueued = new AtomicBoolean();
+
+        if (config.getBoolean(ConfigProperties.CONSUMER_CHECKIN_WRITE_BEHIND)) {
+            long interval = Math.max(1, config.getLong(ConfigProperties.CONSUMER_CHECKIN_FLUSH_INTERVAL));
+
+            this.executor = this.createExecutor();
+            this.executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.SECONDS);
+        }
+        else {
+            this.executor = null;
+        }
+    }
+
+    private ScheduledExecutorService createExecutor() {
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "consumer-checkin-flusher");
+            thread.setDaemon(true);
+
+            return thread;
+        };
+
+        return new ScheduledThreadPoolExecutor(1, factory);
+    }
+
+    /**
+     * Checks whether or not check-ins are buffered and written in the background
+     *
+     * @return
+     *  true if write-behind is enabled; false otherwise
+     */
+    public boolean isWriteBehindEnabled() {
+        return this.executor != null;
+    }
+
+    /**
+     * Records a check-in of the given consumer at the current time
+     *
+     * @param consumer
+     *  the consumer checking in
+     */
+    public void checkIn(Consumer consumer) {
+        this.checkIn(consumer, new Date());
+    }
+
+    /**
+     * Records a check-in of the given consumer at the given time. If write-behind is enabled, the
+     * check-in is buffered, and is overridden by any later check-in of the same consumer made
+     * before the buffer is written.
+     *
+     * @param consumer
+     *  the consumer checking in
+     *
+     * @param checkinDate
+     *  the time of the check-in
+     */
+    public void checkIn(Consumer consumer, Date checkinDate) {
+        if (consumer == null || checkinDate == null) {
+            return;
+        }
+
+        if (!this.isWriteBehindEnabled() || this.shutdown) {
+            this.consumerCurator.updateLastCheckin(consumer, checkinDate);
+            return;
+        }
+
+        this.pending.merge(consumer.getId(), checkinDate, (current, update) ->
+            update.after(current) ? update : current);
+
+        if (this.pending.size() >= this.flushThreshold && this.flushQueued.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::flush);
+            }
+            catch (RejectedExecutionException e) {
+                // Shutting down; the final flush will pick up the buffered check-ins
+                this.flushQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * @return
+     *  the number of consumers with buffered check-ins waiting to be written
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * Writes all buffered check-ins to the database. Check-ins recorded while the buffer is being
+     * written are kept for the next flush. If the write fails, the check-ins are returned to the
+     * buffer, unless a later check-in of the same consumer has been recorded in the meantime.
+     *
+     * @return
+     *  the number of check-ins written
+     */
+    public synchronized int flush() {
+        this.flushQueued.set(false);
+
+        Map<String, Date> checkins = new HashMap<>();
+        for (String consumerId : this.pending.keySet()) {
+            Date checkinDate = this.pending.remove(consumerId);
+
+            if (checkinDate != null) {
+                checkins.put(consumerId, checkinDate);
+            }
+        }
+
+        if (checkins.isEmpty()) {
+            return 0;
+        }
+
+        this.unitOfWork.begin();
+
+        try {
+            this.consumerCurator.updateLastCheckins(checkins);
+            log.debug("Wrote {} buffered consumer check-ins", checkins.size());
+
+            return checkins.size();
+        }
+        catch (Exception e) {
+            log.error("Unable to write {} buffered consumer check-ins", checkins.size(), e);
+
+            checkins.forEach((consumerId, checkinDate) -> this.pending.merge(consumerId, checkinDate,
+                (current, previous) -> current.after(previous) ? current : previous));
+
+            return 0;
+        }
+        finally {
+            this.unitOfWork.end();
+        }
+    }
+
+    /**
+     * Stops the background flushes and writes any remaining buffered check-ins. Check-ins recorded
+     * after this point are written immediately.
+     */
+    public void shutdown() {
+        if (!this.isWriteBehindEnabled() || this.shutdown) {
+            return;
+        }
+
+        this.shutdown = true;
+
+        // Run the final flush on the flusher thread, as it must not share a unit of work with the
+        // caller
+        this.executor.execute(this::flush);
+        this.executor.shutdown();
+
+        try {
+            if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Timed out writing buffered consumer check-ins; {} check-ins were not written",
+                    this.pending.size());
+
+                this.executor.shutdownNow();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.executor.shutdownNow();
+        }
+    }
+}
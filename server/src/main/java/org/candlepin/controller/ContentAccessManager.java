@@ -257,14 +257,14 @@ public class ContentAccessManager {
 
         // TODO: FIXME: Redesign all of this.
 
-        Owner owner = consumer.getOwner();
-
         // Ensure the org is in SCA mode and the consumer is able to process the cert we'll be
         // generating for them.
-        if (owner == null || !owner.isUsingSimpleContentAccess() || !this.consumerIsCertV3Capable(consumer)) {
+        if (!this.isCertificateRequired(consumer)) {
             return null;
         }
 
+        Owner owner = consumer.getOwner();
+
         Environment env = this.environmentCurator.getConsumerEnvironment(consumer);
 
         ContentAccessCertificate existing = consumer.getContentAccessCert();
@@ -278,13 +278,7 @@ public class ContentAccessManager {
         // or the payload has changed, regenerate the header.
         // TODO: we should probably just store this all in one thing rather than two things.
         if (existing != null) {
-            Date now = new Date();
-            Date expiration = existing.getSerial().getExpiration();
-            Date contentUpdate = owner.getLastContentUpdate();
-
-            if (expiration.before(now) || !contentUpdate.before(existing.getUpdated()) ||
-                oeca == null || !contentUpdate.before(oeca.getUpdated())) {
-
+            if (this.isCertificateStale(owner, existing, oeca)) {
                 consumer.setContentAccessCert(null);
                 this.contentAccessCertificateCurator.delete(existing);
 
@@ -402,6 +396,65 @@ public class ContentAccessManager {
         return x509Cert;
     }
 
+    /**
+     * Checks whether or not the given consumer receives a content access certificate; that is, its
+     * org is in simple content access mode and the consumer is able to process V3 certificates.
+     *
+     * @param consumer
+     *  the consumer to check
+     *
+     * @return
+     *  true if the consumer receives a content access certificate; false otherwise
+     */
+    public boolean isCertificateRequired(Consumer consumer) {
+        Owner owner = consumer.getOwner();
+        return owner != null && owner.isUsingSimpleContentAccess() && this.consumerIsCertV3Capable(consumer);
+    }
+
+    /**
+     * Checks whether or not the given consumer's content access certificate and payload are up to
+     * date, such that fetching the certificate with getCertificate would not regenerate either of
+     * them. Consumers which do not receive a content access certificate are always considered up to
+     * date.
+     *
+     * @param consumer
+     *  the consumer whose content access certificate should be checked
+     *
+     * @return
+     *  true if the consumer's content access certificate is current or not needed; false otherwise
+     */
+    public boolean isCertificateCurrent(Consumer consumer) {
+        if (!this.isCertificateRequired(consumer)) {
+            return true;
+        }
+
+        Owner owner = consumer.getOwner();
+        ContentAccessCertificate existing = consumer.getContentAccessCert();
+        if (existing == null) {
+            return false;
+        }
+
+        Environment env = this.environmentCurator.getConsumerEnvironment(consumer);
+        OwnerEnvContentAccess oeca = this.ownerEnvContentAccessCurator
+            .getContentAccess(owner.getId(), env == null ? null : env.getId());
+
+        return !this.isCertificateStale(owner, existing, oeca);
+    }
+
+    /**
+     * Checks if the given certificate or payload need to be regenerated; that is, the certificate
+     * has expired, or either of them was last updated before the org's last content update.
+     */
+    private boolean isCertificateStale(Owner owner, ContentAccessCertificate cert,
+        OwnerEnvContentAccess oeca) {
+
+        Date expiration = cert.getSerial().getExpiration();
+        Date contentUpdate = owner.getLastContentUpdate();
+
+        return expiration.before(new Date()) || !contentUpdate.before(cert.getUpdated()) ||
+            oeca == null || !contentUpdate.before(oeca.getUpdated());
+    }
+
     /**
      * Checks if the specified consumer is capable of using v3 certificates
      *
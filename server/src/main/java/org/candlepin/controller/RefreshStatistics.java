@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.controller;
+
+
+
+/**
+ * The RefreshStatistics class counts the subscriptions processed by one or more pool refreshes.
+ */
+public class RefreshStatistics {
+
+    private int updated;
+    private int skipped;
+
+    /**
+     * Records a subscription whose pools were refreshed.
+     *
+     * @return
+     *  a reference to this RefreshStatistics instance
+     */
+    public RefreshStatistics subscriptionUpdated() {
+        ++this.updated;
+        return this;
+    }
+
+    /**
+     * Records a subscription which was skipped because it had not changed since its pools were
+     * last refreshed.
+     *
+     * @return
+     *  a reference to this RefreshStatistics instance
+     */
+    public RefreshStatistics subscriptionSkipped() {
+        ++this.skipped;
+        return this;
+    }
+
+    /**
+     * Adds the counts of the given statistics to this instance.
+     *
+     * @param statistics
+     *  the statistics to add; may be null
+     *
+     * @return
+     *  a reference to this RefreshStatistics instance
+     */
+    public RefreshStatistics add(RefreshStatistics statistics) {
+        if (statistics != null) {
+            this.updated += statistics.updated;
+            this.skipped += statistics.skipped;
+        }
+
+        return this;
+    }
+
+    /**
+     * @return
+     *  the number of subscriptions whose pools were refreshed
+     */
+    public int getUpdatedCount() {
+        return this.updated;
+    }
+
+    /**
+     * @return
+     *  the number of subscriptions skipped because they had not changed
+     */
+    public int getSkippedCount() {
+        return this.skipped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RefreshStatistics [updated: %d, skipped: %d]", this.updated, this.skipped);
+    }
+}
@@ -39,6 +39,20 @@ import java.util.Set;
  */
 public class Refresher {
 
+    /**
+     * A listener notified of the progress of chunked owner refreshes
+     */
+    public interface CheckpointListener {
+
+        /**
+         * Called once a chunk of the owner's subscriptions has been refreshed and committed.
+         *
+         * @param checkpoint
+         *  the checkpoint from which the refresh of the owner can be resumed
+         */
+        void onCheckpoint(String checkpoint);
+    }
+
     private CandlepinPoolManager poolManager;
     private SubscriptionServiceAdapter subAdapter;
     private ProductServiceAdapter prodAdapter;
@@ -48,6 +62,11 @@ public class Refresher {
 
     private Map<String, Owner> owners = new HashMap<>();
     private Set<Product> products = new HashSet<>();
+    private RefreshStatistics statistics = new RefreshStatistics();
+
+    private int chunkSize;
+    private String checkpoint;
+    private CheckpointListener checkpointListener;
 
     Refresher(CandlepinPoolManager poolManager, SubscriptionServiceAdapter subAdapter,
         ProductServiceAdapter prodAdapter, OwnerManager ownerManager, boolean lazy) {
@@ -86,7 +105,52 @@ public class Refresher {
         return this;
     }
 
+    /**
+     * Sets the number of subscriptions refreshed in each transaction when refreshing owners. If the
+     * chunk size is zero, the pools of each owner are refreshed in a single transaction.
+     *
+     * @param chunkSize
+     *  the maximum number of subscriptions to refresh in a single transaction, or zero to refresh
+     *  each owner in a single transaction
+     *
+     * @return
+     *  this Refresher instance
+     */
+    public Refresher setChunkSize(int chunkSize) {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("chunkSize is negative");
+        }
+
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Resumes a chunked refresh which did not complete from the given checkpoint, and sets the
+     * listener to notify as chunks of subscriptions are committed. Checkpoints are only supported
+     * when refreshing a single owner, and have no effect unless a chunk size has been set.
+     *
+     * @param checkpoint
+     *  the last checkpoint reported by the previous refresh of the owner, or null to refresh the
+     *  owner from the start
+     *
+     * @param listener
+     *  the listener to notify of checkpoints, or null if checkpoints need not be reported
+     *
+     * @return
+     *  this Refresher instance
+     */
+    public Refresher setCheckpoint(String checkpoint, CheckpointListener listener) {
+        this.checkpoint = checkpoint;
+        this.checkpointListener = listener;
+        return this;
+    }
+
     public void run() {
+        if ((this.checkpoint != null || this.checkpointListener != null) && this.owners.size() > 1) {
+            throw new IllegalStateException("Checkpoints cannot be used when refreshing several owners");
+        }
+
 
         // If products were specified on the refresher, lookup any subscriptions
         // using them, regardless of organization, and trigger a refresh for those
@@ -151,10 +215,32 @@ public class Refresher {
         }
 
         for (Owner owner : this.owners.values()) {
-            poolManager.refreshPoolsWithRegeneration(this.subAdapter, this.prodAdapter, owner, this.lazy);
+            RefreshStatistics ownerStatistics;
+
+            if (this.chunkSize > 0) {
+                ownerStatistics = poolManager.refreshPoolsInChunks(this.subAdapter, this.prodAdapter, owner,
+                    this.lazy, this.chunkSize, this.checkpoint, this.checkpointListener);
+            }
+            else {
+                ownerStatistics = poolManager.refreshPoolsWithRegeneration(this.subAdapter, this.prodAdapter,
+                    owner, this.lazy);
+            }
+
+            this.statistics.add(ownerStatistics);
             poolManager.recalculatePoolQuantitiesForOwner(owner);
             ownerManager.updateRefreshDate(owner);
         }
     }
 
+    /**
+     * Fetches the number of subscriptions updated or skipped by the owner refreshes performed by this
+     * refresher. Subscriptions of other owners, refreshed because they use the products added to this
+     * refresher, are not counted.
+     *
+     * @return
+     *  the statistics of the owner refreshes performed by this refresher
+     */
+    public RefreshStatistics getStatistics() {
+        return this.statistics;
+    }
 }
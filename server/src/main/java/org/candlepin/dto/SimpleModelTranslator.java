@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 
@@ -39,12 +40,26 @@ public class SimpleModelTranslator implements ModelTranslator {
     // output => input => translator
     protected Map<Class, Map<Class, ObjectTranslator>> translators;
 
+    // output => runtime input => resolved translator. Replaced rather than cleared whenever the
+    // registered translators change, so a lookup racing with the change cannot repopulate it with
+    // a stale resolution.
+    private volatile Map<Class, Map<Class, ObjectTranslator>> resolved;
+
 
     /**
      * Initializes a new ModelTranslator instance.
      */
     public SimpleModelTranslator() {
         this.translators = new HashMap<>();
+        this.resolved = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Discards the translators resolved for runtime classes. Must be called after the registered
+     * translators have changed.
+     */
+    private void invalidateResolvedTranslators() {
+        this.resolved = new ConcurrentHashMap<>();
     }
 
     /**
@@ -74,6 +89,7 @@ public class SimpleModelTranslator implements ModelTranslator {
 
         ObjectTranslator<I, O> existing = (ObjectTranslator<I, O>) inputMappings.get(inputClass);
         inputMappings.put(inputClass, translator);
+        this.invalidateResolvedTranslators();
 
         return existing;
     }
@@ -92,7 +108,15 @@ public class SimpleModelTranslator implements ModelTranslator {
         }
 
         Map<Class, ObjectTranslator> inputMappings = this.translators.get(outputClass);
-        return inputMappings != null ? (ObjectTranslator<I, O>) inputMappings.remove(inputClass) : null;
+        ObjectTranslator<I, O> existing = inputMappings != null ?
+            (ObjectTranslator<I, O>) inputMappings.remove(inputClass) :
+            null;
+
+        if (existing != null) {
+            this.invalidateResolvedTranslators();
+        }
+
+        return existing;
     }
 
     /**
@@ -118,6 +142,10 @@ public class SimpleModelTranslator implements ModelTranslator {
             }
         }
 
+        if (mappings > 0) {
+            this.invalidateResolvedTranslators();
+        }
+
         return mappings;
     }
 
@@ -240,8 +268,36 @@ public class SimpleModelTranslator implements ModelTranslator {
             throw new IllegalArgumentException("outputClass is null");
         }
 
-        ObjectTranslator<I, O> translator = null;
+        // Runtime classes are usually Hibernate proxies, which are never registered directly, so
+        // the hierarchy walk is only done once per runtime class.
+        Map<Class, ObjectTranslator> cache = this.resolved
+            .computeIfAbsent(outputClass, key -> new ConcurrentHashMap<>());
+
+        ObjectTranslator<I, O> translator = (ObjectTranslator<I, O>) cache.get(inputClass);
+        if (translator == null) {
+            translator = this.resolveTranslator(inputClass, outputClass);
+
+            if (translator == null) {
+                String msg = String.format("Unable to find translator for translation: %s => %s",
+                    inputClass.getSimpleName(), outputClass.getSimpleName());
+
+                throw new TranslationException(msg);
+            }
 
+            cache.put(inputClass, translator);
+        }
+
+        return translator;
+    }
+
+    /**
+     * Walks the class hierarchies of the given input and output classes to find the nearest
+     * registered translator.
+     *
+     * @return
+     *  the nearest registered translator, or null if a translator could not be found
+     */
+    private <I, O> ObjectTranslator<I, O> resolveTranslator(Class<I> inputClass, Class<O> outputClass) {
         // TODO: This is broken for finding nearest output. Output cannot be less specific than
         // specified; it can only get more specific.
         Class outputKey = this.findNearestMappedClass(outputClass, this.translators.keySet());
@@ -250,18 +306,11 @@ public class SimpleModelTranslator implements ModelTranslator {
 
             Class inputKey = this.findNearestMappedClass(inputClass, inputMappings.keySet());
             if (inputKey != null) {
-                translator = (ObjectTranslator<I, O>) inputMappings.get(inputKey);
+                return (ObjectTranslator<I, O>) inputMappings.get(inputKey);
             }
         }
 
-        if (translator == null) {
-            String msg = String.format("Unable to find translator for translation: %s => %s",
-                inputClass.getSimpleName(), outputClass.getSimpleName());
-
-            throw new TranslationException(msg);
-        }
-
-        return translator;
+        return null;
     }
 
     /**
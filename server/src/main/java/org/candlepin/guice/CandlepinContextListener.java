@@ -25,6 +25,7 @@ import org.candlepin.common.config.MapConfiguration;
 import org.candlepin.common.logging.LoggingConfigurator;
 import org.candlepin.config.ConfigProperties;
 import org.candlepin.config.DatabaseConfigFactory;
+import org.candlepin.controller.ConsumerCheckInAggregator;
 import org.candlepin.logging.LoggerContextListener;
 import org.candlepin.messaging.CPMContextListener;
 import org.candlepin.pki.impl.JSSProviderLoader;
@@ -88,6 +89,7 @@ public class CandlepinContextListener extends GuiceResteasyBootstrapServletConte
 
     private ActiveMQContextListener activeMQContextListener;
     private JobManager jobManager;
+    private ConsumerCheckInAggregator checkInAggregator;
     private LoggerContextListener loggerListener;
     private CrlFileUtil crlFileUtil;
 
@@ -184,6 +186,9 @@ public class CandlepinContextListener extends GuiceResteasyBootstrapServletConte
         this.jobManager.initialize();
         this.jobManager.start();
 
+        // Start buffering consumer check-ins
+        this.checkInAggregator = injector.getInstance(ConsumerCheckInAggregator.class);
+
         loggerListener = injector.getInstance(LoggerContextListener.class);
 
         // Custom ModelConverter to handle our specific serialization requirements
@@ -235,6 +240,11 @@ public class CandlepinContextListener extends GuiceResteasyBootstrapServletConte
         // Perform graceful shutdown operations before the job system's final destruction
         this.cpmContextListener.shutdown();
 
+        // Write out any buffered consumer check-ins while the database is still available
+        if (this.checkInAggregator != null) {
+            this.checkInAggregator.shutdown();
+        }
+
         // Tear down the job system
         this.jobManager.shutdown();
 
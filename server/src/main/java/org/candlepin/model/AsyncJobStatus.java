@@ -20,6 +20,7 @@ import org.candlepin.util.ObjectMapperFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.hibernate.annotations.GenericGenerator;
 import org.slf4j.event.Level;
 
@@ -27,6 +28,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
@@ -165,6 +167,14 @@ public class AsyncJobStatus extends AbstractHibernateObject {
     @Column(name = "job_result")
     private String result;
 
+    @Column(name = "constraint_key")
+    private String constraintKey;
+
+    // The checkpoint is only ever written by AsyncJobStatusCurator.updateJobCheckpoint, so that
+    // recording one does not dirty, or race with, the job status entity itself
+    @Column(name = "job_checkpoint", updatable = false)
+    private String checkpoint;
+
 
 
     /**
@@ -594,6 +604,11 @@ public class AsyncJobStatus extends AbstractHibernateObject {
             this.previousState = this.state;
         }
 
+        // Terminal jobs can no longer collide with inbound jobs, and are dropped from the index
+        if (state.isTerminal()) {
+            this.constraintKey = null;
+        }
+
         this.state = state;
         return this;
     }
@@ -738,6 +753,98 @@ public class AsyncJobStatus extends AbstractHibernateObject {
         return this;
     }
 
+    /**
+     * Fetches the constraint key of this job. The constraint key identifies the job by its key and
+     * the values of the arguments targeted by its constraints, allowing colliding jobs to be found
+     * without inspecting their arguments. Jobs which have reached a terminal state do not have a
+     * constraint key.
+     *
+     * @return
+     *  the constraint key of this job, or null if the job does not have a constraint key
+     */
+    public String getConstraintKey() {
+        return this.constraintKey;
+    }
+
+    /**
+     * Sets the constraint key of this job. The key should be built using the buildConstraintKey
+     * method.
+     *
+     * @param constraintKey
+     *  the constraint key to set for this job, or null to clear the constraint key
+     *
+     * @return
+     *  this job status instance
+     */
+    public AsyncJobStatus setConstraintKey(String constraintKey) {
+        this.constraintKey = constraintKey;
+        return this;
+    }
+
+    /**
+     * Builds a constraint key from the given job key and serialized argument values. The key does
+     * not depend on the order of the arguments.
+     *
+     * @param jobKey
+     *  the job key
+     *
+     * @param arguments
+     *  a map of argument names to serialized values
+     *
+     * @return
+     *  the constraint key for the given job key and arguments
+     */
+    public static String buildConstraintKey(String jobKey, Map<String, String> arguments) {
+        StringBuilder builder = new StringBuilder();
+        appendConstraintKeyElement(builder, jobKey);
+
+        if (arguments != null) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(arguments).entrySet()) {
+                appendConstraintKeyElement(builder, entry.getKey());
+                appendConstraintKeyElement(builder, entry.getValue());
+            }
+        }
+
+        return DigestUtils.sha256Hex(builder.toString());
+    }
+
+    private static void appendConstraintKeyElement(StringBuilder builder, String element) {
+        // Length-prefix each element so that no two distinct argument sets produce the same input
+        if (element != null) {
+            builder.append(element.length()).append(':').append(element);
+        }
+        else {
+            builder.append("-1:");
+        }
+    }
+
+    /**
+     * Fetches the last checkpoint recorded by the job while executing. Jobs which support being
+     * resumed use the checkpoint to skip the work already committed by a previous, failed attempt.
+     *
+     * @return
+     *  the last checkpoint recorded by the job, or null if the job has not recorded a checkpoint
+     */
+    public String getCheckpoint() {
+        return this.checkpoint;
+    }
+
+    /**
+     * Sets the checkpoint of this job. Changes to the checkpoint are not persisted when the job
+     * status is updated; the checkpoint must be persisted separately using the
+     * AsyncJobStatusCurator.updateJobCheckpoint method.
+     *
+     * @param checkpoint
+     *  the checkpoint to set for this job, or null to clear the checkpoint
+     *
+     * @return
+     *  this job status instance
+     */
+    public AsyncJobStatus setCheckpoint(String checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
     /**
      * Fetches the result from the job's most recent execution. If the job has not yet been run,
      * or the job does not produce any output, this method returns null.
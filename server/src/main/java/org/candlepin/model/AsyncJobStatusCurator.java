@@ -16,6 +16,8 @@ package org.candlepin.model;
 
 import org.candlepin.model.AsyncJobStatus.JobState;
 
+import com.google.inject.persist.Transactional;
+
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
@@ -25,6 +27,8 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.inject.Singleton;
@@ -277,11 +281,19 @@ public class AsyncJobStatusCurator extends AbstractHibernateCurator<AsyncJobStat
         }
     }
 
+    /**
+     * Job keys known to have no non-terminal jobs without a constraint key. Every job queued since
+     * constraint keys were introduced has one, so once a job key is found here it stays here.
+     */
+    private final Set<String> fullyKeyedJobKeys;
+
     /**
      * Creates a new AsyncJobStatusCurator instance
      */
     public AsyncJobStatusCurator() {
         super(AsyncJobStatus.class);
+
+        this.fullyKeyedJobKeys = ConcurrentHashMap.newKeySet();
     }
 
     /**
@@ -470,6 +482,11 @@ public class AsyncJobStatusCurator extends AbstractHibernateCurator<AsyncJobStat
         update.<Integer>set(job.get("previousState"), job.get("state"))
             .set(job.get("state"), state);
 
+        // Keep the constraint key index limited to non-terminal jobs
+        if (state.isTerminal()) {
+            update.set(job.<String>get("constraintKey"), criteriaBuilder.nullLiteral(String.class));
+        }
+
         // Sanity check: Don't execute a state change if we haven't provided at least *some* restrictions.
         List<Predicate> predicates = this.buildJobQueryPredicates(criteriaBuilder, job, queryBuilder);
         if (predicates.size() > 0) {
@@ -483,6 +500,41 @@ public class AsyncJobStatusCurator extends AbstractHibernateCurator<AsyncJobStat
         return 0;
     }
 
+    /**
+     * Persists the checkpoint of the specified job in a transaction of its own, if no transaction
+     * is active. The job status entity is neither updated nor versioned by this method, so it can be
+     * called while the job is executing.
+     *
+     * @param jobId
+     *  the ID of the job for which to record the checkpoint
+     *
+     * @param checkpoint
+     *  the checkpoint to record, or null to clear the checkpoint of the job
+     *
+     * @throws IllegalArgumentException
+     *  if jobId is null or empty
+     *
+     * @return
+     *  the number of jobs updated as a result of a call to this method
+     */
+    @Transactional
+    public int updateJobCheckpoint(String jobId, String checkpoint) {
+        if (jobId == null || jobId.isEmpty()) {
+            throw new IllegalArgumentException("jobId is null or empty");
+        }
+
+        // Impl note: the checkpoint column is not updatable through the entity, so this is done
+        // in native SQL rather than JPQL
+        String sql = "UPDATE " + AsyncJobStatus.DB_TABLE + " SET job_checkpoint = :checkpoint " +
+            "WHERE id = :job_id";
+
+        return this.currentSession()
+            .createSQLQuery(sql)
+            .setParameter("checkpoint", checkpoint)
+            .setParameter("job_id", jobId)
+            .executeUpdate();
+    }
+
     /**
      * Builds a collection of order instances to be used for querying jobs using the JPA criteria
      * query API.
@@ -625,6 +677,84 @@ public class AsyncJobStatusCurator extends AbstractHibernateCurator<AsyncJobStat
      *  arguments
      */
     public List<String> fetchJobIdsByArguments(String jobKey, Map<String, String> arguments) {
+        return this.fetchJobIdsByArguments(jobKey, arguments, false);
+    }
+
+    /**
+     * Fetches a collection of job IDs for jobs in non-terminal states matching the given job key,
+     * having all of the provided job arguments with the specified values, and having no constraint
+     * key. Jobs queued before constraint keys were introduced have none, and can only be found by
+     * their arguments.
+     * <p></p>
+     * This method is designed specifically for the unique-by-argument constraint family.
+     *
+     * @param jobKey
+     *  the job key to restrict
+     *
+     * @param arguments
+     *  a map containing the arguments to use for filtering jobs; cannot contain more than
+     *  10 entries
+     *
+     * @throws IllegalArgumentException
+     *  if jobKey is null or empty, or the arguments map is too large
+     *
+     * @return
+     *  A collection of IDs of non-terminal jobs without a constraint key, matching the given job
+     *  key and using the specified arguments
+     */
+    public List<String> fetchUnkeyedJobIdsByArguments(String jobKey, Map<String, String> arguments) {
+        return this.fetchJobIdsByArguments(jobKey, arguments, true);
+    }
+
+    /**
+     * Checks whether or not any job in a non-terminal state with the given job key lacks a
+     * constraint key. Only jobs queued before constraint keys were introduced lack one, so once
+     * none remain for a job key, the result is cached and no further lookups are performed for it.
+     *
+     * @param jobKey
+     *  the job key to check
+     *
+     * @throws IllegalArgumentException
+     *  if jobKey is null or empty
+     *
+     * @return
+     *  true if non-terminal jobs without a constraint key may exist for the given job key; false
+     *  otherwise
+     */
+    public boolean hasUnkeyedActiveJobs(String jobKey) {
+        if (jobKey == null || jobKey.isEmpty()) {
+            throw new IllegalArgumentException("jobKey is null or empty");
+        }
+
+        if (this.fullyKeyedJobKeys.contains(jobKey)) {
+            return false;
+        }
+
+        Collection<JobState> states = Arrays.stream(JobState.values())
+            .filter(s -> !s.isTerminal())
+            .collect(Collectors.toSet());
+
+        String jpql = "SELECT job.id FROM AsyncJobStatus job " +
+            "WHERE job.jobKey = :job_key AND job.state IN (:states) AND job.constraintKey IS NULL";
+
+        List<String> unkeyed = this.getEntityManager()
+            .createQuery(jpql, String.class)
+            .setParameter("job_key", jobKey)
+            .setParameter("states", states)
+            .setMaxResults(1)
+            .getResultList();
+
+        if (unkeyed.isEmpty()) {
+            this.fullyKeyedJobKeys.add(jobKey);
+            return false;
+        }
+
+        return true;
+    }
+
+    private List<String> fetchJobIdsByArguments(String jobKey, Map<String, String> arguments,
+        boolean unkeyedOnly) {
+
         if (jobKey == null || jobKey.isEmpty()) {
             throw new IllegalArgumentException("jobKey is null or empty");
         }
@@ -646,6 +776,10 @@ public class AsyncJobStatusCurator extends AbstractHibernateCurator<AsyncJobStat
 
         predicates.add(job.get("state").in(states));
 
+        if (unkeyedOnly) {
+            predicates.add(criteriaBuilder.isNull(job.get("constraintKey")));
+        }
+
         // Add the argument restrictions if necessary
         if (arguments != null) {
             // Sanity check: make sure we don't have too many arguments for the backend to handle
@@ -675,4 +809,50 @@ public class AsyncJobStatusCurator extends AbstractHibernateCurator<AsyncJobStat
             .getResultList();
     }
 
+    /**
+     * Fetches a collection of job IDs for jobs in non-terminal states matching the given job key
+     * and constraint key. Unlike fetchJobIdsByArguments, this lookup does not need to inspect the
+     * arguments of each job, but only finds jobs whose constraint key was built from the same set
+     * of arguments.
+     * <p></p>
+     * This method is designed specifically for the unique-by-argument constraint family.
+     *
+     * @param jobKey
+     *  the job key to restrict
+     *
+     * @param constraintKey
+     *  the constraint key to restrict
+     *
+     * @throws IllegalArgumentException
+     *  if jobKey or constraintKey is null or empty
+     *
+     * @return
+     *  A collection of IDs of non-terminal jobs matching the given job key and constraint key
+     */
+    public List<String> fetchJobIdsByConstraintKey(String jobKey, String constraintKey) {
+        if (jobKey == null || jobKey.isEmpty()) {
+            throw new IllegalArgumentException("jobKey is null or empty");
+        }
+
+        if (constraintKey == null || constraintKey.isEmpty()) {
+            throw new IllegalArgumentException("constraintKey is null or empty");
+        }
+
+        // Terminal jobs have their constraint key cleared; the state restriction is only here as a
+        // safeguard.
+        Collection<JobState> states = Arrays.stream(JobState.values())
+            .filter(s -> !s.isTerminal())
+            .collect(Collectors.toSet());
+
+        String jpql = "SELECT job.id FROM AsyncJobStatus job " +
+            "WHERE job.constraintKey = :constraint_key AND job.jobKey = :job_key AND job.state IN (:states)";
+
+        return this.getEntityManager()
+            .createQuery(jpql, String.class)
+            .setParameter("constraint_key", constraintKey)
+            .setParameter("job_key", jobKey)
+            .setParameter("states", states)
+            .getResultList();
+    }
+
 }
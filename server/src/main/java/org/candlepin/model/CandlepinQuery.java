@@ -17,7 +17,9 @@ package org.candlepin.model;
 import org.candlepin.util.ElementTransformer;
 
 import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projection;
 
 import java.util.Iterator;
 import java.util.List;
@@ -88,6 +90,17 @@ public interface CandlepinQuery<T> extends Iterable<T> {
      */
     CandlepinQuery<T> addOrder(Order order);
 
+    /**
+     * Adds the specified restriction to the results returned when executing this query.
+     *
+     * @param criterion
+     *  The restriction to apply when executing this query
+     *
+     * @return
+     *  this query instance
+     */
+    CandlepinQuery<T> addRestriction(Criterion criterion);
+
     /**
      * Sets the locking mode for the query. The lock mode will be applied to the database rows
      * representing the entities returned by this query.
@@ -274,6 +287,19 @@ public interface CandlepinQuery<T> extends Iterable<T> {
      */
     T uniqueResult();
 
+    /**
+     * Executes this query with the given projection applied in place of its normal output, and
+     * returns the projected values as a list. Any offset, limit and ordering applied to this query
+     * also apply to the projected results. Projections of multiple values are returned as arrays.
+     *
+     * @param projection
+     *  The projection to apply when executing this query
+     *
+     * @return
+     *  a list containing the projected values of the results of executing this query
+     */
+    List<?> listProjection(Projection projection);
+
     /**
      * Executes this query and fetches the number of results.
      *
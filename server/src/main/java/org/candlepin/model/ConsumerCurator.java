@@ -577,6 +577,71 @@ public class ConsumerCurator extends AbstractHibernateCurator<Consumer> {
             .executeUpdate();
     }
 
+    /**
+     * Updates the last check-in times of many consumers at once, using one update statement per
+     * block of consumers rather than one per consumer. Like the single-consumer variant, the
+     * updated time of each consumer is set to its check-in time. As the check-ins may be flushed
+     * some time after they were received, neither time is ever moved backwards: a consumer which
+     * already holds a later value, such as one set by a concurrent update, keeps it.
+     *
+     * @param checkins
+     *  a mapping of consumer IDs to the check-in times to set for them
+     *
+     * @return
+     *  the number of consumers updated
+     */
+    @Transactional
+    public int updateLastCheckins(Map<String, Date> checkins) {
+        if (checkins == null || checkins.isEmpty()) {
+            return 0;
+        }
+
+        int count = 0;
+
+        for (List<Map.Entry<String, Date>> block : Iterables.partition(checkins.entrySet(),
+            this.getCaseBlockSize())) {
+
+            String sql = "UPDATE " + Consumer.DB_TABLE +
+                " SET lastcheckin = " + this.buildAdvancingCase("lastcheckin", block.size()) + "," +
+                " updated = " + this.buildAdvancingCase("updated", block.size()) +
+                " WHERE id IN (:ids)";
+
+            Query query = this.currentSession().createSQLQuery(sql);
+            List<String> ids = new ArrayList<>(block.size());
+
+            for (int i = 0; i < block.size(); ++i) {
+                Map.Entry<String, Date> entry = block.get(i);
+
+                query.setParameter("id" + i, entry.getKey())
+                    .setTimestamp("date" + i, entry.getValue());
+
+                ids.add(entry.getKey());
+            }
+
+            count += query.setParameterList("ids", ids)
+                .executeUpdate();
+        }
+
+        return count;
+    }
+
+    /**
+     * Builds a CASE expression setting the given column of each consumer in a block to its
+     * check-in time, unless the column already holds a later time. Check-ins may be written
+     * behind, so the stored value may have been set by a later update in the meantime.
+     */
+    private String buildAdvancingCase(String column, int count) {
+        StringBuilder builder = new StringBuilder("CASE");
+
+        for (int i = 0; i < count; ++i) {
+            builder.append(" WHEN id = :id").append(i)
+                .append(" AND (").append(column).append(" IS NULL OR ").append(column)
+                .append(" < :date").append(i).append(") THEN :date").append(i);
+        }
+
+        return builder.append(" ELSE ").append(column).append(" END").toString();
+    }
+
     @Transactional
     public void heartbeatUpdate(final String reporterId, final Date checkIn, final String ownerKey)
         throws PersistenceException {
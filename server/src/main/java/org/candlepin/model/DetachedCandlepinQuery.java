@@ -24,6 +24,7 @@ import org.hibernate.LockMode;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
@@ -42,6 +43,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.persistence.LockModeType;
 
@@ -142,6 +144,23 @@ public class DetachedCandlepinQuery<T> implements CandlepinQuery<T> {
         }
     }
 
+    /**
+     * Applies a change to the criteria backing this query, and records it in the initial state
+     * restored by each execution. Once this query has been executed, the criteria no longer shares
+     * its collections with the initial state, so changes made to the criteria alone would be
+     * discarded by the following execution.
+     *
+     * @param change
+     *  The change to apply to the criteria
+     */
+    private void updateInitialState(Consumer<DetachedCriteria> change) {
+        CriteriaImpl executable = (CriteriaImpl) this.criteria.getExecutableCriteria(this.session);
+
+        this.copyFields(this.initialState, executable, true);
+        change.accept(this.criteria);
+        this.copyFields(executable, this.initialState, true);
+    }
+
     /**
      * Retreives an executable criteria and configures it to be ready to run the criteria with the
      * configuration set by this criteria instance.
@@ -219,7 +238,20 @@ public class DetachedCandlepinQuery<T> implements CandlepinQuery<T> {
             throw new IllegalArgumentException("order is null");
         }
 
-        this.criteria.addOrder(order);
+        this.updateInitialState(criteria -> criteria.addOrder(order));
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CandlepinQuery<T> addRestriction(Criterion criterion) {
+        if (criterion == null) {
+            throw new IllegalArgumentException("criterion is null");
+        }
+
+        this.updateInitialState(criteria -> criteria.add(criterion));
         return this;
     }
 
@@ -415,6 +447,22 @@ public class DetachedCandlepinQuery<T> implements CandlepinQuery<T> {
         return (T) executable.uniqueResult();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<?> listProjection(Projection projection) {
+        if (projection == null) {
+            throw new IllegalArgumentException("projection is null");
+        }
+
+        Criteria executable = this.getExecutableCriteria();
+        executable.setProjection(projection);
+
+        List<?> list = executable.list();
+        return list != null ? list : Collections.emptyList();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -17,7 +17,9 @@ package org.candlepin.model;
 import org.candlepin.util.ElementTransformer;
 
 import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projection;
 
 import java.util.Collections;
 import java.util.List;
@@ -121,6 +123,19 @@ public class EmptyCandlepinQuery<T> implements CandlepinQuery<T> {
         return this;
     }
 
+    /**
+     * Returns a reference to this CandlepinQuery instance.
+     *
+     * @param criterion
+     *
+     * @return
+     *  this query instance
+     */
+    @Override
+    public CandlepinQuery<T> addRestriction(Criterion criterion) {
+        return this;
+    }
+
     /**
      * Returns a reference to this CandlepinQuery instance.
      *
@@ -158,6 +173,19 @@ public class EmptyCandlepinQuery<T> implements CandlepinQuery<T> {
         return Collections.<T>emptyList();
     }
 
+    /**
+     * Returns an empty list.
+     *
+     * @param projection
+     *
+     * @return
+     *  an empty list
+     */
+    @Override
+    public List<?> listProjection(Projection projection) {
+        return Collections.emptyList();
+    }
+
     /**
      * Immediately returns zero without invoking any of the given processor's methods.
      *
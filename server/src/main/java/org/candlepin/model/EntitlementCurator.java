@@ -612,6 +612,31 @@ public class EntitlementCurator extends AbstractHibernateCurator<Entitlement> {
         return Collections.emptyList();
     }
 
+    /**
+     * Checks whether or not the given consumer has any dirty entitlements, without loading them.
+     *
+     * @param consumer
+     *  The consumer for which to check for dirty entitlements
+     *
+     * @return
+     *  true if the consumer has at least one dirty entitlement; false otherwise
+     */
+    public boolean hasDirtyEntitlements(Consumer consumer) {
+        String jpql = "SELECT e.id FROM Entitlement e " +
+            "WHERE e.consumer.id = :consumer_id AND e.dirty = true";
+
+        if (consumer != null) {
+            return !this.getEntityManager()
+                .createQuery(jpql, String.class)
+                .setParameter("consumer_id", consumer.getId())
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+        }
+
+        return false;
+    }
+
     /**
      * List all entitled product IDs from entitlements which overlap the given date range.
      *
@@ -14,8 +14,15 @@
  */
 package org.candlepin.model;
 
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
@@ -43,9 +50,15 @@ import java.util.Set;
 
 import javax.inject.Singleton;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
 
 /**
  * OwnerInfoCurator
+ *
+ * Calculating the owner info statistics requires a number of count queries per consumer type and
+ * product family. Unless disabled, the statistics are instead read from a per-owner snapshot,
+ * which is flagged as dirty by the OwnerInfoListener and recalculated by the OwnerInfoRefreshJob.
  */
 @Singleton
 public class OwnerInfoCurator {
@@ -55,18 +68,185 @@ public class OwnerInfoCurator {
     private ConsumerTypeCurator consumerTypeCurator;
     private ConsumerCurator consumerCurator;
     private PoolCurator poolCurator;
+    private Configuration config;
+    private ObjectMapper mapper;
 
     @Inject
     public OwnerInfoCurator(Provider<EntityManager> entityManager,
         ConsumerCurator consumerCurator, ConsumerTypeCurator consumerTypeCurator,
-        PoolCurator poolCurator) {
+        PoolCurator poolCurator, Configuration config) {
         this.entityManager = entityManager;
         this.consumerCurator = consumerCurator;
         this.consumerTypeCurator = consumerTypeCurator;
         this.poolCurator = poolCurator;
+        this.config = config;
+
+        this.mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
+    /**
+     * Fetches the owner info statistics of the given owner. If materialized owner info is enabled,
+     * the statistics are read from the owner's snapshot, which may lag behind the latest changes
+     * until the next run of the OwnerInfoRefreshJob. If the owner does not have a snapshot yet,
+     * the statistics are calculated and stored as a new snapshot.
+     *
+     * @param owner
+     *  the owner for which to fetch the statistics
+     *
+     * @return
+     *  the owner info statistics of the given owner
+     */
     public OwnerInfo getByOwner(Owner owner) {
+        if (!this.config.getBoolean(ConfigProperties.OWNER_INFO_MATERIALIZED)) {
+            return this.calculateOwnerInfo(owner);
+        }
+
+        OwnerInfoSnapshot snapshot = this.getEntityManager().find(OwnerInfoSnapshot.class, owner.getId());
+        if (snapshot != null) {
+            try {
+                return this.mapper.readValue(snapshot.getInfo(), OwnerInfo.class);
+            }
+            catch (JsonProcessingException e) {
+                log.warn("Unable to read owner info snapshot of owner {}; recalculating", owner.getKey(), e);
+            }
+        }
+
+        return this.refresh(owner);
+    }
+
+    /**
+     * Flags the owner info snapshot of the given owner as dirty, to be recalculated on the next run
+     * of the OwnerInfoRefreshJob.
+     *
+     * @param ownerId
+     *  the ID of the owner whose snapshot should be flagged
+     *
+     * @return
+     *  true if a clean snapshot was flagged; false if the owner does not have a snapshot, or it
+     *  was already flagged
+     */
+    @Transactional
+    public boolean markDirty(String ownerId) {
+        if (ownerId == null) {
+            return false;
+        }
+
+        String jpql = "UPDATE OwnerInfoSnapshot s SET s.dirty = true " +
+            "WHERE s.ownerId = :owner_id AND s.dirty = false";
+
+        return this.getEntityManager()
+            .createQuery(jpql)
+            .setParameter("owner_id", ownerId)
+            .executeUpdate() > 0;
+    }
+
+    /**
+     * Fetches the IDs of the owners whose owner info snapshots are flagged as dirty, or were last
+     * calculated before the given date.
+     *
+     * @param staleBefore
+     *  the date before which snapshots are considered stale, or null to only fetch dirty snapshots
+     *
+     * @return
+     *  a list of IDs of the owners whose snapshots should be recalculated
+     */
+    public List<String> getOwnerIdsToRefresh(Date staleBefore) {
+        String jpql = "SELECT s.ownerId FROM OwnerInfoSnapshot s WHERE s.dirty = true";
+        if (staleBefore != null) {
+            jpql += " OR s.updated < :stale_before";
+        }
+
+        TypedQuery<String> query = this.getEntityManager().createQuery(jpql, String.class);
+        if (staleBefore != null) {
+            query.setParameter("stale_before", staleBefore);
+        }
+
+        return query.getResultList();
+    }
+
+    /**
+     * Calculates the owner info statistics of the given owner and stores them as the owner's
+     * snapshot, clearing its dirty flag.
+     *
+     * @param owner
+     *  the owner for which to recalculate the statistics
+     *
+     * @return
+     *  the recalculated owner info statistics
+     */
+    @Transactional
+    public OwnerInfo refresh(Owner owner) {
+        EntityManager em = this.getEntityManager();
+        OwnerInfoSnapshot snapshot = this.lockSnapshot(owner);
+
+        // Clear the flag before calculating, so that events for changes which the calculation
+        // may not see flag the snapshot again. The snapshot stays locked until the transaction is
+        // committed.
+        if (snapshot != null) {
+            snapshot.setDirty(false);
+            em.flush();
+        }
+
+        OwnerInfo info = this.calculateOwnerInfo(owner);
+        String json;
+
+        try {
+            json = this.mapper.writeValueAsString(info);
+        }
+        catch (JsonProcessingException e) {
+            log.error("Unable to write owner info snapshot of owner {}", owner.getKey(), e);
+            return info;
+        }
+
+        if (snapshot != null) {
+            snapshot.setInfo(json);
+            snapshot.setUpdated(new Date());
+        }
+        else {
+            em.persist(new OwnerInfoSnapshot(owner.getId(), json));
+        }
+
+        return info;
+    }
+
+    /**
+     * Fetches and locks the owner info snapshot of the given owner. If the owner does not have a
+     * snapshot yet, the owner itself is locked instead, so that concurrent requests cannot both
+     * create one; the snapshot is then looked up again, as a concurrent transaction may have
+     * created it while this one was waiting on the lock. Either lock is held until the
+     * transaction completes.
+     *
+     * @param owner
+     *  the owner whose snapshot should be locked
+     *
+     * @return
+     *  the locked snapshot of the given owner, or null if the owner does not have a snapshot
+     */
+    private OwnerInfoSnapshot lockSnapshot(Owner owner) {
+        EntityManager em = this.getEntityManager();
+        OwnerInfoSnapshot snapshot = em.find(OwnerInfoSnapshot.class, owner.getId());
+
+        if (snapshot != null) {
+            em.refresh(snapshot, LockModeType.PESSIMISTIC_WRITE);
+            return snapshot;
+        }
+
+        em.find(Owner.class, owner.getId(), LockModeType.PESSIMISTIC_WRITE);
+        return em.find(OwnerInfoSnapshot.class, owner.getId(), LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * Calculates the owner info statistics of the given owner from the current state of the
+     * database.
+     *
+     * @param owner
+     *  the owner for which to calculate the statistics
+     *
+     * @return
+     *  the owner info statistics of the given owner
+     */
+    public OwnerInfo calculateOwnerInfo(Owner owner) {
         OwnerInfo info = new OwnerInfo();
         Date now = new Date();
 
@@ -377,6 +557,10 @@ public class OwnerInfoCurator {
         return res != null ? res.intValue() : 0;
     }
 
+    protected EntityManager getEntityManager() {
+        return this.entityManager.get();
+    }
+
     protected Session currentSession() {
         Session sess = (Session) entityManager.get().getDelegate();
         return sess;
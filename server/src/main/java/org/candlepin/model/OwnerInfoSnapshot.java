@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+
+
+/**
+ * Entity holding the last calculated OwnerInfo statistics of an owner, serialized as JSON. The
+ * snapshot is flagged as dirty whenever an event which may affect the statistics is received for
+ * the owner, and is recalculated by the OwnerInfoRefreshJob.
+ */
+@Entity
+@Table(name = OwnerInfoSnapshot.DB_TABLE)
+public class OwnerInfoSnapshot extends AbstractHibernateObject<OwnerInfoSnapshot> {
+
+    /** Name of the table backing this object in the database */
+    public static final String DB_TABLE = "cp_owner_info";
+
+    @Id
+    @Column(name = "owner_id", length = 32)
+    @NotNull
+    private String ownerId;
+
+    @Column(name = "info")
+    @NotNull
+    private String info;
+
+    @Column(name = "dirty")
+    private boolean dirty;
+
+    public OwnerInfoSnapshot() {
+        // Intentionally left empty
+    }
+
+    public OwnerInfoSnapshot(String ownerId, String info) {
+        this.ownerId = ownerId;
+        this.info = info;
+    }
+
+    @Override
+    public String getId() {
+        return this.ownerId;
+    }
+
+    public String getOwnerId() {
+        return this.ownerId;
+    }
+
+    public void setOwnerId(String ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public String getInfo() {
+        return this.info;
+    }
+
+    public void setInfo(String info) {
+        this.info = info;
+    }
+
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+}
@@ -315,6 +315,14 @@ public class Pool extends AbstractHibernateObject<Pool> implements Owned, Named,
     @Type(type = "org.hibernate.type.NumericBooleanType")
     private Boolean locked;
 
+    /**
+     * A hash of the subscription and product graph this master pool was last refreshed from, used
+     * to skip refreshing subscriptions which have not changed since.
+     */
+    @Column(name = "subscription_fingerprint")
+    @Size(max = 64)
+    private String subscriptionFingerprint;
+
     public Pool() {
         this.activeSubscription = Boolean.TRUE;
         this.attributes = new HashMap<>();
@@ -1248,6 +1256,15 @@ public class Pool extends AbstractHibernateObject<Pool> implements Owned, Named,
         return this;
     }
 
+    public String getSubscriptionFingerprint() {
+        return subscriptionFingerprint;
+    }
+
+    public Pool setSubscriptionFingerprint(String subscriptionFingerprint) {
+        this.subscriptionFingerprint = subscriptionFingerprint;
+        return this;
+    }
+
     public Cdn getCdn() {
         return cdn;
     }
@@ -1400,6 +1400,37 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
         return this.cpQueryFactory.buildQuery();
     }
 
+    /**
+     * Fetches the number of pools created from each of the given subscriptions, regardless of the
+     * owner of the pools. Subscriptions which have no pools are not included in the returned map.
+     *
+     * @param subIds
+     *  A collection of subscription IDs for which to count pools
+     *
+     * @return
+     *  a map of subscription IDs to the number of pools created from the subscription
+     */
+    public Map<String, Long> getPoolCountsBySubscriptionIds(Collection<String> subIds) {
+        Map<String, Long> counts = new HashMap<>();
+
+        if (subIds != null && !subIds.isEmpty()) {
+            String jpql = "SELECT ss.subscriptionId, COUNT(ss.id) FROM SourceSubscription ss " +
+                "WHERE ss.subscriptionId IN (:sids) GROUP BY ss.subscriptionId";
+
+            TypedQuery<Object[]> query = this.getEntityManager().createQuery(jpql, Object[].class);
+
+            for (List<String> block : this.partition(subIds)) {
+                query.setParameter("sids", block);
+
+                for (Object[] row : query.getResultList()) {
+                    counts.put((String) row[0], (Long) row[1]);
+                }
+            }
+        }
+
+        return counts;
+    }
+
     @SuppressWarnings("unchecked")
     public List<Pool> getOwnersFloatingPools(Owner owner) {
         return currentSession().createCriteria(Pool.class)
@@ -1442,6 +1473,40 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
         return this.cpQueryFactory.buildQuery(this.currentSession(), criteria);
     }
 
+    /**
+     * Retrieves the master pools of the given owner for the specified subscriptions, mapped by the
+     * IDs of their subscriptions. Subscriptions which have no master pool for the owner are not
+     * included in the returned map.
+     *
+     * @param owner
+     *  The owner for which to fetch master pools
+     *
+     * @param subIds
+     *  A collection of subscription IDs for which to fetch master pools
+     *
+     * @return
+     *  a map of subscription IDs to the master pools of the given owner
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Pool> getMasterPoolsBySubscriptionIdForOwner(Owner owner, Collection<String> subIds) {
+        Map<String, Pool> pools = new HashMap<>();
+
+        if (subIds != null && !subIds.isEmpty()) {
+            List<Pool> result = this.currentSession().createCriteria(Pool.class)
+                .createAlias("sourceSubscription", "srcsub")
+                .add(Restrictions.eq("owner", owner))
+                .add(Restrictions.eq("srcsub.subscriptionSubKey", "master"))
+                .add(CPRestrictions.in("srcsub.subscriptionId", subIds))
+                .list();
+
+            for (Pool pool : result) {
+                pools.put(pool.getSubscriptionId(), pool);
+            }
+        }
+
+        return pools;
+    }
+
     /**
      * Retrieves all known master pools (subscriptions) for the given owner that have subscription
      * IDs not present in the provided collection.
@@ -1546,6 +1611,55 @@ public class PoolCurator extends AbstractHibernateCurator<Pool> {
         q.executeUpdate();
     }
 
+    /**
+     * Reserves the given quantity of a pool by adding it to the pool's consumed count, and to its
+     * exported count if the quantity is being exported to a manifest consumer. The quantity is only
+     * reserved if the pool has enough quantity left for it, which is checked by the same conditional
+     * update that reserves it; concurrent reservations against the same pool can therefore never
+     * over-consume it. Note that this operation does not update any fetched or cached Pool objects,
+     * which should be refreshed once the reservation has been made.
+     *
+     * @param poolId
+     *  the ID of the pool to reserve quantity from
+     *
+     * @param quantity
+     *  the quantity to reserve
+     *
+     * @param exported
+     *  whether or not the quantity is being exported to a manifest consumer
+     *
+     * @throws IllegalArgumentException
+     *  if poolId is null or quantity is negative
+     *
+     * @return
+     *  true if the quantity was reserved; false if the pool does not exist or does not have enough
+     *  quantity left
+     */
+    public boolean reservePoolQuantity(String poolId, long quantity, boolean exported) {
+        if (poolId == null) {
+            throw new IllegalArgumentException("poolId is null");
+        }
+
+        if (quantity < 0) {
+            throw new IllegalArgumentException("quantity is negative: " + quantity);
+        }
+
+        String hql = "UPDATE Pool p " +
+            "SET p.consumed = p.consumed + :quantity, p.exported = p.exported + :exported, " +
+            "    p.updated = :updated " +
+            "WHERE p.id = :pool_id AND (p.quantity < 0 OR p.consumed + :quantity <= p.quantity)";
+
+        int updated = this.currentSession()
+            .createQuery(hql)
+            .setParameter("quantity", quantity)
+            .setParameter("exported", exported ? quantity : 0L)
+            .setParameter("updated", new Date())
+            .setParameter("pool_id", poolId)
+            .executeUpdate();
+
+        return updated > 0;
+    }
+
     public void markCertificatesDirtyForPoolsWithProducts(Owner owner, Collection<String> productIds) {
         for (List<String> batch : Iterables.partition(productIds, getInBlockSize())) {
             markCertificatesDirtyForPoolsWithNormalProducts(owner, batch);
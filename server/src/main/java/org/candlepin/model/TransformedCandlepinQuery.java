@@ -17,7 +17,9 @@ package org.candlepin.model;
 import org.candlepin.util.ElementTransformer;
 
 import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projection;
 
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -155,6 +157,15 @@ public class TransformedCandlepinQuery<I, O> implements CandlepinQuery<O> {
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CandlepinQuery<O> addRestriction(Criterion criterion) {
+        this.query.addRestriction(criterion);
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -285,6 +296,14 @@ public class TransformedCandlepinQuery<I, O> implements CandlepinQuery<O> {
         return this.transformer.transform(this.query.uniqueResult());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<?> listProjection(Projection projection) {
+        return this.query.listProjection(projection);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.util.ExecutorUtil;
+
+import com.google.inject.Inject;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.inject.Singleton;
+
+
+
+/**
+ * The CertificateSigningExecutor runs batches of certificate signing tasks on a bounded pool of
+ * threads shared by the whole application.
+ *
+ * Signing tasks must be self-contained: they are run outside of the requesting thread, so they
+ * must not touch the database session or any lazily loaded entity state. Everything a task needs
+ * should be gathered up front, leaving only the encoding and cryptographic work to the pool.
+ */
+@Singleton
+public class CertificateSigningExecutor {
+
+    /**
+     * A signing task which may fail with the checked exceptions thrown by certificate generation
+     *
+     * @param <T>
+     *  the type of the result of the task
+     */
+    @FunctionalInterface
+    public interface SigningTask<T> {
+        T sign() throws GeneralSecurityException, IOException;
+    }
+
+    private final ExecutorService executor;
+
+    @Inject
+    public CertificateSigningExecutor(Configuration config) {
+        int threads = config.getInt(ConfigProperties.CERT_SIGNING_THREADS);
+        this.executor = threads > 1 ? ExecutorUtil.newBoundedExecutor("cert-signing", threads) : null;
+    }
+
+    /**
+     * Runs the given signing tasks and waits for all of them to complete. Batches of a single task,
+     * or any batch when signing in parallel is disabled, are run on the calling thread.
+     *
+     * @param tasks
+     *  the signing tasks to run
+     *
+     * @throws GeneralSecurityException
+     *  if any of the tasks fails with a GeneralSecurityException
+     *
+     * @throws IOException
+     *  if any of the tasks fails with an IOException
+     *
+     * @return
+     *  the results of the tasks, in the order the tasks were given
+     */
+    public <T> List<T> signAll(List<SigningTask<T>> tasks) throws GeneralSecurityException, IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+
+        if (this.executor == null || tasks.size() < 2) {
+            for (SigningTask<T> task : tasks) {
+                results.add(task.sign());
+            }
+
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+
+        try {
+            for (SigningTask<T> task : tasks) {
+                futures.add(this.executor.submit(task::sign));
+            }
+
+            for (Future<T> future : futures) {
+                results.add(this.await(future));
+            }
+        }
+        finally {
+            // Don't leave the remainder of a failed batch tying up the pool
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return results;
+    }
+
+    private <T> T await(Future<T> future) throws GeneralSecurityException, IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for certificates to be signed", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) cause;
+            }
+            else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.util.ExecutorUtil;
+
+import com.google.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Singleton;
+
+
+
+/**
+ * The KeyPairPool hands out RSA key pairs generated ahead of time by a few low-priority background
+ * threads, so that registering a consumer or issuing its first certificate does not have to wait
+ * on key generation.
+ *
+ * Whenever the number of pooled key pairs drops to the configured low-water mark, the pool is
+ * topped back up to its full size. When the pool runs dry, key pairs are generated on the
+ * requesting thread instead.
+ */
+@Singleton
+public class KeyPairPool {
+    private static Logger log = LoggerFactory.getLogger(KeyPairPool.class);
+
+    private final PKIUtility pki;
+    private final int size;
+    private final int lowWaterMark;
+    private final int refillThreads;
+
+    private final BlockingQueue<KeyPair> pool;
+    private final ExecutorService refillExecutor;
+
+    // The number of refill workers running, and the number of key pairs they are generating
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder pooledCount = new LongAdder();
+    private final LongAdder generatedCount = new LongAdder();
+    private final LongAdder generationNanos = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
+
+    @Inject
+    public KeyPairPool(Configuration config, PKIUtility pki) {
+        this.pki = pki;
+        this.size = Math.max(0, config.getInt(ConfigProperties.KEY_PAIR_POOL_SIZE));
+        this.lowWaterMark = Math.min(this.size - 1,
+            Math.max(0, config.getInt(ConfigProperties.KEY_PAIR_POOL_LOW_WATER_MARK)));
+        this.refillThreads = Math.max(1, config.getInt(ConfigProperties.KEY_PAIR_POOL_REFILL_THREADS));
+
+        if (this.size > 0) {
+            this.pool = new ArrayBlockingQueue<>(this.size);
+            // Requests waiting on a key pair generate their own; the refill can wait its turn
+            this.refillExecutor = ExecutorUtil.newBoundedExecutor("keypair-pool", this.refillThreads,
+                Thread.MIN_PRIORITY);
+
+            this.refill();
+        }
+        else {
+            this.pool = null;
+            this.refillExecutor = null;
+        }
+    }
+
+    /**
+     * Checks whether or not key pairs are generated ahead of time
+     *
+     * @return
+     *  true if the pool is enabled; false otherwise
+     */
+    public boolean isEnabled() {
+        return this.pool != null;
+    }
+
+    /**
+     * Takes a key pair from the pool, or generates a new one if the pool is empty or disabled.
+     * Every key pair is handed out only once.
+     *
+     * @throws NoSuchAlgorithmException
+     *  if a key pair has to be generated and RSA is not supported
+     *
+     * @return
+     *  a new RSA key pair
+     */
+    public KeyPair take() throws NoSuchAlgorithmException {
+        if (!this.isEnabled()) {
+            return this.pki.generateNewKeyPair();
+        }
+
+        KeyPair keyPair = this.pool.poll();
+        this.refill();
+
+        if (keyPair == null) {
+            log.debug("Key pair pool exhausted; generating a key pair on demand");
+
+            this.fallbackCount.increment();
+            keyPair = this.pki.generateNewKeyPair();
+        }
+
+        return keyPair;
+    }
+
+    /**
+     * Starts refilling the pool if it has dropped to its low-water mark and is not already being
+     * refilled.
+     */
+    private void refill() {
+        if (this.pool.size() + this.pending.get() > this.lowWaterMark) {
+            return;
+        }
+
+        for (int i = 0; i < this.refillThreads; ++i) {
+            int workers = this.activeWorkers.get();
+            if (workers >= this.refillThreads) {
+                break;
+            }
+
+            if (this.activeWorkers.compareAndSet(workers, workers + 1)) {
+                this.refillExecutor.execute(this::runRefillWorker);
+            }
+        }
+    }
+
+    /**
+     * Claims a free slot in the pool for a key pair about to be generated.
+     *
+     * @return
+     *  true if a slot was claimed; false if the pool is full, or will be once the key pairs being
+     *  generated are added
+     */
+    private synchronized boolean claimSlot() {
+        if (this.pool.size() + this.pending.get() >= this.size) {
+            return false;
+        }
+
+        this.pending.incrementAndGet();
+        return true;
+    }
+
+    private void runRefillWorker() {
+        boolean completed = false;
+
+        try {
+            while (this.claimSlot()) {
+                try {
+                    long start = System.nanoTime();
+                    KeyPair keyPair = this.pki.generateNewKeyPair();
+
+                    this.generationNanos.add(System.nanoTime() - start);
+                    this.generatedCount.increment();
+
+                    if (this.pool.offer(keyPair)) {
+                        this.pooledCount.increment();
+                    }
+                }
+                finally {
+                    this.pending.decrementAndGet();
+                }
+            }
+
+            log.debug("Key pair pool refilled: {} of {} key pairs available", this.getDepth(), this.size);
+            completed = true;
+        }
+        catch (Exception e) {
+            log.error("Unable to refill the key pair pool", e);
+        }
+        finally {
+            this.activeWorkers.decrementAndGet();
+        }
+
+        // Key pairs taken after the pool was found to be full, but before this worker was done,
+        // would not have started another refill.
+        if (completed) {
+            this.refill();
+        }
+    }
+
+    /**
+     * @return
+     *  the number of key pairs currently available in the pool
+     */
+    public int getDepth() {
+        return this.isEnabled() ? this.pool.size() : 0;
+    }
+
+    /**
+     * @return
+     *  the maximum number of key pairs kept in the pool
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return
+     *  the number of key pairs generated by the refill threads and added to the pool
+     */
+    public long getRefillCount() {
+        return this.pooledCount.sum();
+    }
+
+    /**
+     * @return
+     *  the number of key pairs generated on demand because the pool was empty
+     */
+    public long getFallbackCount() {
+        return this.fallbackCount.sum();
+    }
+
+    /**
+     * Calculates the rate at which the pool is refilled while the refill threads are running,
+     * based on the time it has taken them to generate key pairs so far.
+     *
+     * @return
+     *  the number of key pairs added to the pool per second of refilling, or zero if no key pair
+     *  has been generated in the background yet
+     */
+    public double getRefillRate() {
+        long nanos = this.generationNanos.sum();
+        if (nanos == 0) {
+            return 0;
+        }
+
+        return this.generatedCount.sum() * this.refillThreads * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
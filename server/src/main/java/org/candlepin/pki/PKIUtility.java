@@ -51,6 +51,19 @@ public interface PKIUtility {
      */
     X509CRL createX509CRL(List<X509CRLEntryWrapper> entries, BigInteger crlNumber);
 
+    /**
+     * Generate a delta CRL containing the provided entries, listing the changes made since the
+     * given base CRL was issued.  The CRL will be signed with the key retrieved from
+     * CertificateReader.
+     *
+     * @param entries the entries
+     * @param crlNumber the CRL number to use
+     * @param baseCrlNumber the CRL number of the base CRL
+     * @return the x509 delta CRL
+     */
+    X509CRL createX509DeltaCRL(List<X509CRLEntryWrapper> entries, BigInteger crlNumber,
+        BigInteger baseCrlNumber);
+
     /**
      * Take an X509Certificate object and return a byte[] of the certificate,
      * PEM encoded
@@ -114,6 +127,36 @@ public interface PKIUtility {
     boolean verifySHA256WithRSAHashAgainstCACerts(File input, byte[] signedHash)
         throws CertificateException, IOException;
 
+    /**
+     * Creates a verifier for SHA256withRSA signatures made with the key of the CA certificate or of
+     * any of the upstream CA certificates, to which the signed data can be fed as it is read.
+     *
+     * @throws CertificateException
+     *  if the CA certificates cannot be used to verify signatures
+     *
+     * @throws IOException
+     *  if the CA certificates cannot be read
+     *
+     * @return
+     *  a new SignatureVerifier for the CA certificates
+     */
+    SignatureVerifier createCACertSignatureVerifier() throws CertificateException, IOException;
+
+    /**
+     * Creates a generator for SHA256withRSA signatures made with the CA key, to which the data to
+     * sign can be fed as it is written.
+     *
+     * @throws GeneralSecurityException
+     *  if the CA key cannot be used to sign data
+     *
+     * @throws IOException
+     *  if the CA key cannot be read
+     *
+     * @return
+     *  a new SignatureGenerator for the CA key
+     */
+    SignatureGenerator createCAKeySignatureGenerator() throws GeneralSecurityException, IOException;
+
     KeyPair generateNewKeyPair() throws NoSuchAlgorithmException;
 
     byte[] getSHA256WithRSAHash(InputStream input);
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
+
+
+
+/**
+ * The SignatureGenerator computes a SHA256withRSA signature over data fed to it as it is written,
+ * so the signed data need not be kept around, or read back, once it is complete.
+ *
+ * Instances are not thread-safe, and can generate a single signature.
+ */
+public class SignatureGenerator {
+
+    private final Signature signature;
+
+    /**
+     * Creates a new generator for signatures made with the given key.
+     *
+     * @param key
+     *  the private key with which to sign the data
+     *
+     * @throws GeneralSecurityException
+     *  if SHA256withRSA is not supported, or the key cannot be used to sign data
+     */
+    public SignatureGenerator(PrivateKey key) throws GeneralSecurityException {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null");
+        }
+
+        this.signature = Signature.getInstance(PKIUtility.SIGNATURE_ALGO);
+        this.signature.initSign(key);
+    }
+
+    /**
+     * Feeds the next chunk of data to be signed to the generator.
+     *
+     * @param data
+     *  the buffer containing the data
+     *
+     * @param offset
+     *  the offset of the data in the buffer
+     *
+     * @param length
+     *  the number of bytes of data
+     */
+    public void update(byte[] data, int offset, int length) {
+        try {
+            this.signature.update(data, offset, length);
+        }
+        catch (SignatureException e) {
+            // Only thrown when the signature has not been initialized, which the constructor rules out
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Signs the data fed to this generator.
+     *
+     * @return
+     *  the signature of the data
+     */
+    public byte[] sign() {
+        try {
+            return this.signature.sign();
+        }
+        catch (SignatureException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+
+/**
+ * The SignatureVerifier checks a SHA256withRSA signature against several certificates at once. The
+ * signed data is fed to the verifier as it is read, so it only has to be read once regardless of
+ * the number of certificates, and need not be kept around until the signature is known.
+ *
+ * Instances are not thread-safe, and can verify a single signature.
+ */
+public class SignatureVerifier {
+    private static Logger log = LoggerFactory.getLogger(SignatureVerifier.class);
+
+    private final List<Signature> signatures;
+
+    /**
+     * Creates a new verifier for signatures made with the key of any of the given certificates.
+     *
+     * @param certificates
+     *  the certificates against which the signature is verified
+     *
+     * @throws GeneralSecurityException
+     *  if SHA256withRSA is not supported, or the key of a certificate cannot be used to verify
+     *  signatures
+     */
+    public SignatureVerifier(Collection<? extends Certificate> certificates) throws GeneralSecurityException {
+        if (certificates == null) {
+            throw new IllegalArgumentException("certificates is null");
+        }
+
+        this.signatures = new ArrayList<>(certificates.size());
+
+        for (Certificate certificate : certificates) {
+            Signature signature = Signature.getInstance(PKIUtility.SIGNATURE_ALGO);
+            signature.initVerify(certificate);
+
+            this.signatures.add(signature);
+        }
+    }
+
+    /**
+     * Feeds the next chunk of signed data to the verifier.
+     *
+     * @param data
+     *  the buffer containing the data
+     *
+     * @param offset
+     *  the offset of the data in the buffer
+     *
+     * @param length
+     *  the number of bytes of data
+     */
+    public void update(byte[] data, int offset, int length) {
+        try {
+            for (Signature signature : this.signatures) {
+                signature.update(data, offset, length);
+            }
+        }
+        catch (SignatureException e) {
+            // Only thrown when a signature has not been initialized, which the constructor rules out
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks whether the data fed to this verifier was signed with the key of any of its
+     * certificates.
+     *
+     * @param signedHash
+     *  the signature to verify
+     *
+     * @return
+     *  true if the signature matches any of the certificates; false otherwise
+     */
+    public boolean verify(byte[] signedHash) {
+        for (Signature signature : this.signatures) {
+            try {
+                if (signature.verify(signedHash)) {
+                    return true;
+                }
+            }
+            catch (SignatureException e) {
+                log.debug("Signature could not be verified against certificate", e);
+            }
+        }
+
+        return false;
+    }
+}
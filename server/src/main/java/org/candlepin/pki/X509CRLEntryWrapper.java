@@ -23,6 +23,7 @@ import java.util.Date;
 public class X509CRLEntryWrapper {
     private BigInteger serialNumber;
     private Date revocationDate;
+    private boolean removeFromCRL;
 
     /**
      * Instantiates a new simple CRL entry.
@@ -31,8 +32,21 @@ public class X509CRLEntryWrapper {
      * @param revocationDate the revocation date
      */
     public X509CRLEntryWrapper(BigInteger serialNumber, Date revocationDate) {
+        this(serialNumber, revocationDate, false);
+    }
+
+    /**
+     * Instantiates a new CRL entry, which may be a delta CRL entry removing the serial from the
+     * base CRL.
+     *
+     * @param serialNumber the serial number
+     * @param revocationDate the revocation date
+     * @param removeFromCRL whether the entry removes the serial from the base CRL
+     */
+    public X509CRLEntryWrapper(BigInteger serialNumber, Date revocationDate, boolean removeFromCRL) {
         this.serialNumber = serialNumber;
         this.revocationDate = revocationDate;
+        this.removeFromCRL = removeFromCRL;
     }
 
     public BigInteger getSerialNumber() {
@@ -42,4 +56,8 @@ public class X509CRLEntryWrapper {
     public Date getRevocationDate() {
         return this.revocationDate;
     }
+
+    public boolean isRemoveFromCRL() {
+        return this.removeFromCRL;
+    }
 }
@@ -42,6 +42,7 @@ import org.mozilla.jss.netscape.security.util.ObjectIdentifier;
 import org.mozilla.jss.netscape.security.x509.AlgorithmId;
 import org.mozilla.jss.netscape.security.x509.AuthorityKeyIdentifierExtension;
 import org.mozilla.jss.netscape.security.x509.BasicConstraintsExtension;
+import org.mozilla.jss.netscape.security.x509.CRLDistributionPoint;
 import org.mozilla.jss.netscape.security.x509.CRLExtensions;
 import org.mozilla.jss.netscape.security.x509.CRLNumberExtension;
 import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
@@ -53,6 +54,7 @@ import org.mozilla.jss.netscape.security.x509.CertificateSubjectName;
 import org.mozilla.jss.netscape.security.x509.CertificateValidity;
 import org.mozilla.jss.netscape.security.x509.CertificateVersion;
 import org.mozilla.jss.netscape.security.x509.CertificateX509Key;
+import org.mozilla.jss.netscape.security.x509.DeltaCRLIndicatorExtension;
 import org.mozilla.jss.netscape.security.x509.Extension;
 import org.mozilla.jss.netscape.security.x509.GeneralName;
 import org.mozilla.jss.netscape.security.x509.GeneralNames;
@@ -60,10 +62,12 @@ import org.mozilla.jss.netscape.security.x509.GeneralNamesException;
 import org.mozilla.jss.netscape.security.x509.KeyIdentifier;
 import org.mozilla.jss.netscape.security.x509.KeyUsageExtension;
 import org.mozilla.jss.netscape.security.x509.PKIXExtensions;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
 import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
 import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
 import org.mozilla.jss.netscape.security.x509.SubjectAlternativeNameExtension;
 import org.mozilla.jss.netscape.security.x509.SubjectKeyIdentifierExtension;
+import org.mozilla.jss.netscape.security.x509.URIName;
 import org.mozilla.jss.netscape.security.x509.X500Name;
 import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
@@ -94,7 +98,6 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -280,20 +283,54 @@ public class JSSPKIUtility extends ProviderBasedPKIUtility {
 
     @Override
     public X509CRL createX509CRL(List<X509CRLEntryWrapper> entries, BigInteger crlNumber) {
+        return this.buildX509CRL(entries, crlNumber, null);
+    }
+
+    @Override
+    public X509CRL createX509DeltaCRL(List<X509CRLEntryWrapper> entries, BigInteger crlNumber,
+        BigInteger baseCrlNumber) {
+
+        if (baseCrlNumber == null) {
+            throw new IllegalArgumentException("baseCrlNumber is null");
+        }
+
+        return this.buildX509CRL(entries, crlNumber, baseCrlNumber);
+    }
+
+    private X509CRL buildX509CRL(List<X509CRLEntryWrapper> entries, BigInteger crlNumber,
+        BigInteger baseCrlNumber) {
+
         try {
             X509Certificate caCert = reader.getCACert();
 
             CRLExtensions entryExtensions = new CRLExtensions();
             entryExtensions.add(CRLReasonExtension.PRIVILEGE_WITHDRAWN);
 
-            List<RevokedCertificate> revokedCerts = entries.stream()
-                .map(e -> new RevokedCertImpl(e.getSerialNumber(), e.getRevocationDate(), entryExtensions))
-                .collect(Collectors.toCollection(ArrayList::new));
+            // Delta CRL entries for serials which are no longer revoked carry the removeFromCRL reason
+            CRLExtensions removalExtensions = new CRLExtensions();
+            removalExtensions.add(new CRLReasonExtension(RevocationReason.REMOVE_FROM_CRL));
+
+            List<RevokedCertificate> revokedCerts = new ArrayList<>(entries.size());
+            for (X509CRLEntryWrapper entry : entries) {
+                CRLExtensions extensions = entry.isRemoveFromCRL() ? removalExtensions : entryExtensions;
+                revokedCerts.add(new RevokedCertImpl(entry.getSerialNumber(), entry.getRevocationDate(),
+                    extensions));
+            }
 
             CRLExtensions crlExtensions = new CRLExtensions();
             crlExtensions.add(new CRLNumberExtension(crlNumber));
             crlExtensions.add(buildAuthorityKeyIdentifier(caCert));
 
+            // Base CRLs point to the delta CRL issued against them, if there is one to fetch
+            String deltaLocation = this.getDeltaCRLLocation();
+
+            if (baseCrlNumber != null) {
+                crlExtensions.add(new DeltaCRLIndicatorExtension(baseCrlNumber));
+            }
+            else if (deltaLocation != null) {
+                crlExtensions.add(buildFreshestCRLExtension(deltaLocation));
+            }
+
             X500Name issuer = new X500Name(caCert.getIssuerX500Principal().getEncoded());
             Date until = Util.addDaysToDt(config.getInt(ConfigProperties.CRL_NEXT_UPDATE_DELTA));
             X509CRLImpl crlImpl = new X509CRLImpl(
@@ -314,6 +351,49 @@ public class JSSPKIUtility extends ProviderBasedPKIUtility {
         }
     }
 
+    /**
+     * Returns the location of the delta CRL to point to from base CRLs, or null if delta CRLs are
+     * not published or their location is not configured.
+     */
+    private String getDeltaCRLLocation() {
+        String location = config.getString(ConfigProperties.CRL_DELTA_URL);
+
+        if (location == null || location.isEmpty() ||
+            config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL) <= 0) {
+            return null;
+        }
+
+        return location;
+    }
+
+    /**
+     * Build a FreshestCRL extension telling clients where to fetch the delta CRL issued against a
+     * base CRL.  See RFC 5280 section 5.2.6.  The extension must not be marked critical.
+     *
+     * @param location the URI of the delta CRL
+     * @return a FreshestCRL extension pointing to the given location
+     * @throws IOException if the extension cannot be encoded
+     */
+    public static Extension buildFreshestCRLExtension(String location) throws IOException {
+        try {
+            GeneralNames names = new GeneralNames();
+            names.addElement(new URIName(location));
+
+            CRLDistributionPoint point = new CRLDistributionPoint();
+            point.setFullName(names);
+
+            // The FreshestCRL extension has the same syntax as the CRL distribution points extension
+            SEQUENCE points = new SEQUENCE();
+            points.addElement(point);
+
+            byte[] extnValue = ASN1Util.encode(new OCTET_STRING(ASN1Util.encode(points)));
+            return new Extension(PKIXExtensions.FreshestCRL_Id, false, extnValue);
+        }
+        catch (GeneralNamesException e) {
+            throw new IOException("Could not construct FreshestCRL extension", e);
+        }
+    }
+
     /**
      * Calculate the KeyIdentifier for an RSAPublicKey and place it in an AuthorityKeyIdentifier extension.
      *
@@ -17,6 +17,8 @@ package org.candlepin.pki.impl;
 import org.candlepin.common.config.Configuration;
 import org.candlepin.pki.CertificateReader;
 import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.SignatureGenerator;
+import org.candlepin.pki.SignatureVerifier;
 import org.candlepin.pki.SubjectKeyIdentifierWriter;
 import org.candlepin.pki.X509ByteExtensionWrapper;
 import org.candlepin.pki.X509CRLEntryWrapper;
@@ -50,6 +52,7 @@ import java.security.interfaces.RSAPrivateKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -66,6 +69,19 @@ public abstract class ProviderBasedPKIUtility implements PKIUtility {
 
     public static final int RSA_KEY_SIZE = 4096;
 
+    /**
+     * Signature instances are costly to look up and not thread-safe, so each thread keeps one for
+     * the signatures computed against the CA key.
+     */
+    private static final ThreadLocal<Signature> SHA256_RSA_SIGNATURE = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     protected CertificateReader reader;
     protected SubjectKeyIdentifierWriter subjectKeyWriter;
     protected Configuration config;
@@ -94,6 +110,10 @@ public abstract class ProviderBasedPKIUtility implements PKIUtility {
     @Override
     public abstract X509CRL createX509CRL(List<X509CRLEntryWrapper> entries, BigInteger crlNumber);
 
+    @Override
+    public abstract X509CRL createX509DeltaCRL(List<X509CRLEntryWrapper> entries, BigInteger crlNumber,
+        BigInteger baseCrlNumber);
+
     public KeyPair decodeKeys(byte[] privKeyBits, byte[] pubKeyBits)
         throws InvalidKeySpecException, NoSuchAlgorithmException {
 
@@ -207,7 +227,8 @@ public abstract class ProviderBasedPKIUtility implements PKIUtility {
     @Override
     public byte[] getSHA256WithRSAHash(InputStream input) {
         try {
-            Signature signature = Signature.getInstance("SHA256withRSA");
+            // Initializing the signature also resets any state left over from a failed signing
+            Signature signature = SHA256_RSA_SIGNATURE.get();
             signature.initSign(reader.getCaKey());
 
             updateSignature(input, signature);
@@ -218,28 +239,50 @@ public abstract class ProviderBasedPKIUtility implements PKIUtility {
         }
     }
 
+    @Override
+    public SignatureGenerator createCAKeySignatureGenerator() throws GeneralSecurityException, IOException {
+        return new SignatureGenerator(reader.getCaKey());
+    }
+
     @Override
     public boolean verifySHA256WithRSAHashAgainstCACerts(File input, byte[] signedHash)
         throws CertificateException, IOException {
 
-        log.debug("Verify against: {}", reader.getCACert().getSerialNumber());
+        SignatureVerifier verifier = this.createCACertSignatureVerifier();
+
+        try (InputStream istream = new FileInputStream(input)) {
+            byte[] dataBytes = new byte[4096];
+            int nread = 0;
 
-        if (verifySHA256WithRSAHash(new FileInputStream(input), signedHash,
-            reader.getCACert())) {
-            return true;
+            while ((nread = istream.read(dataBytes)) != -1) {
+                verifier.update(dataBytes, 0, nread);
+            }
         }
 
+        return verifier.verify(signedHash);
+    }
+
+    @Override
+    public SignatureVerifier createCACertSignatureVerifier() throws CertificateException, IOException {
+        List<X509Certificate> certs = new ArrayList<>();
+
+        log.debug("Verify against: {}", reader.getCACert().getSerialNumber());
+        certs.add(reader.getCACert());
+
         for (X509Certificate cert : reader.getUpstreamCACerts()) {
             log.debug("Verify against: {}", cert.getSerialNumber());
-
-            try (InputStream istream = new FileInputStream(input)) {
-                if (verifySHA256WithRSAHash(istream, signedHash, cert)) {
-                    return true;
-                }
-            }
+            certs.add(cert);
         }
 
-        return false;
+        try {
+            return new SignatureVerifier(certs);
+        }
+        catch (CertificateException e) {
+            throw e;
+        }
+        catch (GeneralSecurityException e) {
+            throw new CertificateException(e);
+        }
     }
 
     /**
@@ -28,6 +28,17 @@ import java.util.Map;
  */
 public abstract class JsContext {
 
+    /**
+     * The form in which a context hands its arguments over to the rules.
+     */
+    public enum ContextMode {
+        /** Arguments are serialized into a single JSON string to be parsed by the rules */
+        JSON,
+
+        /** Arguments are exposed to the rules directly as native javascript objects */
+        OBJECT
+    }
+
     protected Map<String, Object> contextArgs;
 
     public JsContext() {
@@ -44,4 +55,15 @@ public abstract class JsContext {
      * @param scope the {@link Scriptable} to inject the arguments into.
      */
     public abstract void applyTo(Scriptable scope);
+
+    /**
+     * Apply this context's arguments to the specified {@link Scriptable}, using the given
+     * context mode. Contexts which only support a single form of argument ignore the mode.
+     *
+     * @param scope the {@link Scriptable} to inject the arguments into.
+     * @param mode the form in which the arguments should be exposed to the rules.
+     */
+    public void applyTo(Scriptable scope, ContextMode mode) {
+        this.applyTo(scope);
+    }
 }
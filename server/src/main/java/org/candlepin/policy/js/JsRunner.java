@@ -14,6 +14,8 @@
  */
 package org.candlepin.policy.js;
 
+import org.candlepin.policy.js.JsContext.ContextMode;
+
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.RhinoException;
@@ -24,6 +26,11 @@ import org.mozilla.javascript.Wrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * JsRunner - Responsible for running the javascript rules methods in all
  * namespaces.
@@ -33,14 +40,168 @@ public class JsRunner {
 
     private static Logger log = LoggerFactory.getLogger(JsRunner.class);
 
-    private Object rulesNameSpace;
+    /**
+     * The rules function which returns the context of the current call, whichever form it was
+     * provided in. Rules which do not define it can only be given JSON contexts.
+     */
+    private static final String CONTEXT_FUNCTION = "get_rules_context";
+
+    /**
+     * A request scope which has been initialized to a rules namespace, along with the namespace
+     * object the rules methods are invoked on.
+     */
+    static class NamespaceScope {
+        private final Scriptable scope;
+        private final Object rulesNameSpace;
+        private final ContextMode contextMode;
+
+        // The properties of the scope once initialized to its namespace
+        private final Map<Object, Object> initialState;
+
+        NamespaceScope(Scriptable scope, Object rulesNameSpace, ContextMode contextMode) {
+            this.scope = scope;
+            this.rulesNameSpace = rulesNameSpace;
+            this.contextMode = contextMode;
+
+            this.initialState = new HashMap<>();
+            for (Object id : getIds(scope)) {
+                this.initialState.put(id, getProperty(scope, id));
+            }
+        }
+
+        Scriptable getScope() {
+            return this.scope;
+        }
+
+        /**
+         * Restores the scope to the state its namespace function left it in, removing the context
+         * of the last call, and any global the rules defined or replaced while running it.
+         */
+        void reset() {
+            for (Object id : getIds(this.scope)) {
+                if (!this.initialState.containsKey(id)) {
+                    if (id instanceof String) {
+                        this.scope.delete((String) id);
+                    }
+                    else {
+                        this.scope.delete(((Number) id).intValue());
+                    }
+                }
+            }
+
+            for (Map.Entry<Object, Object> entry : this.initialState.entrySet()) {
+                Object id = entry.getKey();
+
+                if (getProperty(this.scope, id) != entry.getValue()) {
+                    if (id instanceof String) {
+                        this.scope.put((String) id, this.scope, entry.getValue());
+                    }
+                    else {
+                        this.scope.put(((Number) id).intValue(), this.scope, entry.getValue());
+                    }
+                }
+            }
+        }
+
+        private static Object[] getIds(Scriptable scope) {
+            return scope instanceof ScriptableObject ?
+                ((ScriptableObject) scope).getAllIds() :
+                scope.getIds();
+        }
+
+        private static Object getProperty(Scriptable scope, Object id) {
+            return id instanceof String ?
+                scope.get((String) id, scope) :
+                scope.get(((Number) id).intValue(), scope);
+        }
+    }
+
     private String namespace;
     private Scriptable scope;
+    private Set<String> objectContextNamespaces;
+    private JsRunnerProvider scopeProvider;
+
+    // The namespace the runner was initialized to, and its scope when not pooled
+    private String scopeNamespace;
+    private NamespaceScope namespaceScope;
 
     private boolean initialized = false;
 
     public JsRunner(Scriptable scope) {
+        this(scope, Collections.emptySet());
+    }
+
+    /**
+     * Creates a new runner for the given scope.
+     *
+     * @param scope
+     *  the request scope in which the rules are run
+     *
+     * @param objectContextNamespaces
+     *  the rules namespaces which should receive their contexts as native javascript objects
+     *  rather than as JSON strings
+     */
+    public JsRunner(Scriptable scope, Set<String> objectContextNamespaces) {
         this.scope = scope;
+        this.objectContextNamespaces = objectContextNamespaces != null ?
+            objectContextNamespaces :
+            Collections.emptySet();
+    }
+
+    /**
+     * Creates a new runner which runs its rules in the pre-initialized scopes pooled by the
+     * given provider, rather than in a scope of its own. The scope is looked up for the calling
+     * thread on every invocation, so the runner may be shared between threads.
+     *
+     * @param scopeProvider
+     *  the provider pooling the namespace scopes
+     */
+    JsRunner(JsRunnerProvider scopeProvider) {
+        this.scopeProvider = scopeProvider;
+        this.objectContextNamespaces = Collections.emptySet();
+    }
+
+    /**
+     * Initializes the given request scope to a rules namespace by running the namespace
+     * function of the rules.
+     *
+     * @param scope
+     *  the request scope to initialize
+     *
+     * @param namespace
+     *  the rules namespace to initialize the scope to
+     *
+     * @param objectContextNamespaces
+     *  the rules namespaces which should receive their contexts as native javascript objects
+     *
+     * @throws RuleParseException
+     *  if the namespace function could not be run
+     *
+     * @return
+     *  the initialized namespace scope
+     */
+    static NamespaceScope initScope(Scriptable scope, String namespace,
+        Set<String> objectContextNamespaces) {
+
+        ContextMode mode = objectContextNamespaces.contains(namespace) &&
+            ScriptableObject.getProperty(scope, CONTEXT_FUNCTION) instanceof Function ?
+            ContextMode.OBJECT :
+            ContextMode.JSON;
+
+        Context context = Context.enter();
+        try {
+            Object func = ScriptableObject.getProperty(scope, namespace);
+            Object rulesNameSpace = unwrapReturnValue(((Function) func)
+                .call(context, scope, scope, Context.emptyArgs));
+
+            return new NamespaceScope(scope, rulesNameSpace, mode);
+        }
+        catch (RhinoException ex) {
+            throw new RuleParseException(ex);
+        }
+        finally {
+            Context.exit();
+        }
     }
 
     /**
@@ -55,31 +216,31 @@ public class JsRunner {
         this.namespace = namespace;
 
         if (!initialized) {
+            this.namespaceScope = this.scopeProvider != null ?
+                this.scopeProvider.getNamespaceScope(namespace) :
+                initScope(this.scope, namespace, this.objectContextNamespaces);
 
-            Context context = Context.enter();
-            try {
-                Object func = ScriptableObject.getProperty(scope, namespace);
-                this.rulesNameSpace = unwrapReturnValue(((Function) func)
-                    .call(context, scope, scope, Context.emptyArgs));
-
-                this.initialized = true;
-            }
-            catch (RhinoException ex) {
-                this.initialized = false;
-                throw new RuleParseException(ex);
-            }
-            finally {
-                Context.exit();
-            }
+            this.scopeNamespace = namespace;
+            this.initialized = true;
         }
     }
 
+    /**
+     * Fetches the form in which contexts are provided to the currently initialized namespace.
+     *
+     * @return
+     *  the context mode of the current namespace
+     */
+    public ContextMode getContextMode() {
+        return this.namespaceScope != null ? this.namespaceScope.contextMode : ContextMode.JSON;
+    }
+
     public void reinitTo(String namespace) {
         initialized = false;
         init(namespace);
     }
 
-    Object unwrapReturnValue(Object result) {
+    static Object unwrapReturnValue(Object result) {
         if (result instanceof Wrapper) {
             result = ((Wrapper) result).unwrap();
         }
@@ -87,17 +248,29 @@ public class JsRunner {
         return result instanceof Undefined ? null : result;
     }
 
+    /**
+     * Fetches the scope to run the next invocation in. Pooled runners use the scope of the
+     * calling thread, which is replaced whenever the rules are recompiled.
+     */
+    private NamespaceScope currentScope() {
+        if (this.scopeProvider != null && this.initialized) {
+            return this.scopeProvider.getNamespaceScope(this.scopeNamespace);
+        }
+
+        return this.namespaceScope;
+    }
+
     @SuppressWarnings("unchecked")
-    public <T> T invokeMethod(String method)
+    private <T> T invokeMethod(NamespaceScope nsScope, String method)
         throws NoSuchMethodException, RhinoException {
-        Scriptable localScope = Context.toObject(this.rulesNameSpace, scope);
+        Scriptable localScope = Context.toObject(nsScope.rulesNameSpace, nsScope.scope);
         Object func = ScriptableObject.getProperty(localScope, method);
         if (!(func instanceof Function)) {
             throw new NoSuchMethodException("no such javascript method: " + method);
         }
         Context context = Context.enter();
         try {
-            return (T) unwrapReturnValue(((Function) func).call(context, scope,
+            return (T) unwrapReturnValue(((Function) func).call(context, nsScope.scope,
                 localScope, Context.emptyArgs));
         }
         finally {
@@ -105,19 +278,47 @@ public class JsRunner {
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Resets a pooled scope once an invocation is done with it, so the next call run in it, which
+     * may come from another runner, cannot see the context or globals left by this one.
+     */
+    private void releaseScope(NamespaceScope nsScope) {
+        if (this.scopeProvider != null) {
+            nsScope.reset();
+        }
+    }
+
+    public <T> T invokeMethod(String method)
+        throws NoSuchMethodException, RhinoException {
+        NamespaceScope nsScope = this.currentScope();
+
+        try {
+            return this.invokeMethod(nsScope, method);
+        }
+        finally {
+            this.releaseScope(nsScope);
+        }
+    }
+
     public <T> T invokeMethod(String method, JsContext context)
         throws NoSuchMethodException, RhinoException {
-        context.applyTo(scope);
-        return (T) invokeMethod(method);
+        NamespaceScope nsScope = this.currentScope();
+
+        try {
+            context.applyTo(nsScope.scope, nsScope.contextMode);
+            return this.invokeMethod(nsScope, method);
+        }
+        finally {
+            this.releaseScope(nsScope);
+        }
     }
 
-    public <T> T invokeRule(String ruleName) {
+    private <T> T invokeRule(NamespaceScope nsScope, String ruleName) {
         log.debug("Running rule: {} in namespace: {}", ruleName, namespace);
 
         T returner = null;
         try {
-            returner = this.invokeMethod(ruleName);
+            returner = this.invokeMethod(nsScope, ruleName);
         }
         catch (NoSuchMethodException ex) {
             log.info("No rule found: {} in namespace: {}", ruleName, namespace);
@@ -128,9 +329,27 @@ public class JsRunner {
         return returner;
     }
 
+    public <T> T invokeRule(String ruleName) {
+        NamespaceScope nsScope = this.currentScope();
+
+        try {
+            return this.invokeRule(nsScope, ruleName);
+        }
+        finally {
+            this.releaseScope(nsScope);
+        }
+    }
+
     public <T> T invokeRule(String ruleName, JsContext context) {
-        context.applyTo(scope);
-        return invokeRule(ruleName);
+        NamespaceScope nsScope = this.currentScope();
+
+        try {
+            context.applyTo(nsScope.scope, nsScope.contextMode);
+            return this.invokeRule(nsScope, ruleName);
+        }
+        finally {
+            this.releaseScope(nsScope);
+        }
     }
 
     public <T extends Object> T runJsFunction(Class<T> clazz, String function,
@@ -14,9 +14,12 @@
  */
 package org.candlepin.policy.js;
 
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.model.Rules;
 import org.candlepin.model.Rules.RulesSourceEnum;
 import org.candlepin.model.RulesCurator;
+import org.candlepin.policy.js.JsRunner.NamespaceScope;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -29,7 +32,11 @@ import org.mozilla.javascript.ScriptableObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -37,14 +44,20 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * Reads/compiles our javascript rules and the standard js objects only
  * once across the JVM lifetime (and whenever the rules require a recompile), and creates
  * lightweight execution scopes per thread/request.
+ *
+ * Unless disabled, execution scopes which have already been initialized to a rules namespace
+ * are pooled per thread, so runners handed out by this provider do not need to create and
+ * initialize a new scope on every request.
  */
 public class JsRunnerProvider implements Provider<JsRunner> {
     private static Logger log = LoggerFactory.getLogger(JsRunnerProvider.class);
 
     private RulesCurator rulesCurator;
     private Provider<JsRunnerRequestCache> cacheProvider;
+    private Set<String> objectContextNamespaces;
+    private int scopePoolSize;
     private Script script;
-    private Scriptable scope;
+    private volatile Scriptable scope;
     /**
      * This date is basically a version of the rules that this
      * JSRunnerProvider compiled. Note that in clustered environment,
@@ -61,6 +74,30 @@ public class JsRunnerProvider implements Provider<JsRunner> {
     // Use this lock to access script, scope and updated
     private ReadWriteLock scriptLock = new ReentrantReadWriteLock();
 
+    // The namespace scopes pooled for each thread
+    private ThreadLocal<ThreadScopes> threadScopes = new ThreadLocal<>();
+
+    /**
+     * The namespace scopes initialized by a single thread for one compilation of the rules. The
+     * least recently used scope is dropped whenever the pool grows past its size.
+     */
+    private static class ThreadScopes extends LinkedHashMap<String, NamespaceScope> {
+        private final Scriptable rulesScope;
+        private final int maxSize;
+
+        public ThreadScopes(Scriptable rulesScope, int maxSize) {
+            super(16, 0.75f, true);
+
+            this.rulesScope = rulesScope;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, NamespaceScope> eldest) {
+            return this.size() > this.maxSize;
+        }
+    }
+
     /**
      * DynamicScopeContextFactory - replace the standard rhino context factory with one that
      * enables dynamic scopes. Dynamic scopes allow us to define a global var (ie pools) in
@@ -82,10 +119,16 @@ public class JsRunnerProvider implements Provider<JsRunner> {
     }
 
     @Inject
-    public JsRunnerProvider(RulesCurator rulesCurator, Provider<JsRunnerRequestCache> cacheProvider) {
+    public JsRunnerProvider(RulesCurator rulesCurator, Provider<JsRunnerRequestCache> cacheProvider,
+        Configuration config) {
+
         this.rulesCurator = rulesCurator;
         this.cacheProvider = cacheProvider;
 
+        Set<String> namespaces = config.getSet(ConfigProperties.RULES_OBJECT_CONTEXT_NAMESPACES, null);
+        this.objectContextNamespaces = namespaces != null ? namespaces : Collections.emptySet();
+        this.scopePoolSize = config.getInt(ConfigProperties.RULES_SCOPE_POOL_SIZE);
+
         log.debug("Compiling rules for initial load");
         this.rulesCurator.updateDbRules();
         this.compileRules();
@@ -115,15 +158,19 @@ public class JsRunnerProvider implements Provider<JsRunner> {
 
             Context context = Context.enter();
             context.setOptimizationLevel(9);
-            scope = context.initStandardObjects(null, true);
+            ScriptableObject newScope = context.initStandardObjects(null, true);
             try {
                 Rules rules = rulesCurator.getRules();
                 rulesVersion = rules.getVersion();
                 rulesSource = rules.getRulesSource();
                 script = context.compileString(
                     rules.getRules(), "rules", 1, null);
-                script.exec(context, scope);
-                ((ScriptableObject) scope).sealObject();
+                script.exec(context, newScope);
+                newScope.sealObject();
+
+                // Publishing the new scope invalidates every pooled scope at once; threads
+                // notice the change and drop their pools the next time they fetch a scope.
+                scope = newScope;
                 this.currentRulesUpdated = newUpdated;
             }
             finally {
@@ -155,20 +202,65 @@ public class JsRunnerProvider implements Provider<JsRunner> {
         if (!updated.equals(this.currentRulesUpdated)) {
             compileRules();
         }
+
+        if (this.scopePoolSize > 0) {
+            return new JsRunner(this);
+        }
+
         Scriptable rulesScope;
         scriptLock.readLock().lock();
         try {
-            Context context = Context.enter();
-            rulesScope = context.newObject(scope);
-            rulesScope.setPrototype(scope);
-            rulesScope.setParentScope(null);
-            Context.exit();
+            rulesScope = this.createRequestScope(scope);
         }
         finally {
             scriptLock.readLock().unlock();
         }
 
-        return new JsRunner(rulesScope);
+        return new JsRunner(rulesScope, this.objectContextNamespaces);
+    }
+
+    private Scriptable createRequestScope(Scriptable globalScope) {
+        Context context = Context.enter();
+        try {
+            Scriptable rulesScope = context.newObject(globalScope);
+            rulesScope.setPrototype(globalScope);
+            rulesScope.setParentScope(null);
+
+            return rulesScope;
+        }
+        finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Fetches the calling thread's scope for the given rules namespace, creating and initializing
+     * it if the thread does not have one for the currently compiled rules.
+     *
+     * @param namespace
+     *  the rules namespace to fetch a scope for
+     *
+     * @return
+     *  a scope initialized to the given namespace
+     */
+    NamespaceScope getNamespaceScope(String namespace) {
+        Scriptable rulesScope = this.scope;
+
+        ThreadScopes pool = this.threadScopes.get();
+        if (pool == null || pool.rulesScope != rulesScope) {
+            pool = new ThreadScopes(rulesScope, this.scopePoolSize);
+            this.threadScopes.set(pool);
+        }
+
+        NamespaceScope nsScope = pool.get(namespace);
+        if (nsScope == null) {
+            nsScope = JsRunner.initScope(this.createRequestScope(rulesScope), namespace,
+                this.objectContextNamespaces);
+
+            pool.put(namespace, nsScope);
+        }
+
+        return nsScope;
     }
 
     public String getRulesVersion() {
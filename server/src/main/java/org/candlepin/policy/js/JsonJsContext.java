@@ -23,6 +23,10 @@ import org.mozilla.javascript.Scriptable;
  * a single JSON string. It also provides the ability to specify
  * non-serializable objects which are passed directly to the called
  * JS function.
+ *
+ * When applied in {@link ContextMode#OBJECT} mode, the serializable args
+ * are instead converted straight into native javascript objects and
+ * provided as "rules_context", skipping the JSON string round trip.
  */
 public class JsonJsContext extends JsContext {
 
@@ -36,7 +40,20 @@ public class JsonJsContext extends JsContext {
 
     @Override
     public void applyTo(Scriptable scope) {
-        scope.put("json_context", scope, this.rulesObjectMapper.toJsonString(contextArgs));
+        this.applyTo(scope, ContextMode.JSON);
+    }
+
+    @Override
+    public void applyTo(Scriptable scope, ContextMode mode) {
+        if (mode == ContextMode.OBJECT) {
+            scope.put("rules_context", scope, this.rulesObjectMapper.toScriptable(contextArgs, scope));
+            scope.delete("json_context");
+        }
+        else {
+            scope.put("json_context", scope, this.rulesObjectMapper.toJsonString(contextArgs));
+            scope.delete("rules_context");
+        }
+
         nonSerializableContext.applyTo(scope);
     }
 
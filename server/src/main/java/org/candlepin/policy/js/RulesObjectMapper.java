@@ -16,7 +16,10 @@ package org.candlepin.policy.js;
 
 import org.candlepin.common.exceptions.IseException;
 
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.AnnotationIntrospector;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -26,14 +29,21 @@ import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
 import com.google.inject.Inject;
 
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -113,6 +123,106 @@ public class RulesObjectMapper {
         }
     }
 
+    /**
+     * Converts the given objects directly into a native javascript object in the given scope,
+     * without going through an intermediate JSON string. The objects are serialized exactly as
+     * they would be by {@link #toJsonString(Map)}, and the resulting object is identical to the
+     * one JSON.parse would produce from that string.
+     *
+     * @param toSerialize
+     *  the objects to expose to the rules, keyed by their property name
+     *
+     * @param scope
+     *  the scope in which to create the javascript objects
+     *
+     * @return
+     *  a native javascript object containing the serialized objects
+     */
+    public Scriptable toScriptable(Map<String, Object> toSerialize, Scriptable scope) {
+        ObjectNode mainNode = this.mapper.createObjectNode();
+        for (Entry<String, Object> entry : toSerialize.entrySet()) {
+            mainNode.putPOJO(entry.getKey(), entry.getValue());
+        }
+
+        Context context = Context.enter();
+        try (TokenBuffer buffer = new TokenBuffer(this.mapper, false)) {
+            this.mapper.writeValue(buffer, mainNode);
+
+            try (JsonParser parser = buffer.asParser()) {
+                parser.nextToken();
+                return (Scriptable) this.readScriptableValue(context, scope, parser);
+            }
+        }
+        catch (Exception e) {
+            log.error("Unable to serialize objects to javascript.", e);
+            throw new IseException("Unable to serialize objects to javascript.", e);
+        }
+        finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Reads the value at the parser's current token, following the conversions done by Rhino's
+     * JSON.parse: index-like keys become array indexes and integral numbers become Integers.
+     */
+    private Object readScriptableValue(Context context, Scriptable scope, JsonParser parser)
+        throws IOException {
+
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                Scriptable object = context.newObject(scope);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.getCurrentName();
+                    parser.nextToken();
+
+                    Object value = this.readScriptableValue(context, scope, parser);
+                    long index = ScriptRuntime.indexFromString(key);
+                    if (index < 0) {
+                        object.put(key, object, value);
+                    }
+                    else {
+                        object.put((int) index, object, value);
+                    }
+                }
+                return object;
+
+            case START_ARRAY:
+                List<Object> elements = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    elements.add(this.readScriptableValue(context, scope, parser));
+                }
+                return context.newArray(scope, elements.toArray());
+
+            case VALUE_STRING:
+                return parser.getText();
+
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                double number = parser.getDoubleValue();
+                if ((int) number == number) {
+                    return Integer.valueOf((int) number);
+                }
+                return Double.valueOf(number);
+
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+
+            case VALUE_EMBEDDED_OBJECT:
+                Object embedded = parser.getEmbeddedObject();
+                if (embedded instanceof byte[]) {
+                    return Base64Variants.getDefaultVariant().encode((byte[]) embedded);
+                }
+                return embedded != null ? embedded.toString() : null;
+
+            default:
+                return null;
+        }
+    }
+
     public <T extends Object> T toObject(String json, Class<T> clazz) {
         try {
             return mapper.readValue(json, clazz);
@@ -15,6 +15,8 @@
 package org.candlepin.policy.js.compliance;
 
 import org.candlepin.audit.EventSink;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.dto.ModelTranslator;
 import org.candlepin.dto.rules.v1.ComplianceReasonDTO;
 import org.candlepin.dto.rules.v1.ComplianceStatusDTO;
@@ -36,18 +38,21 @@ import org.candlepin.policy.js.JsonJsContext;
 import org.candlepin.policy.js.RuleExecutionException;
 import org.candlepin.policy.js.RulesObjectMapper;
 import org.candlepin.policy.js.compliance.hash.ComplianceStatusHasher;
+import org.candlepin.util.DateRange;
 
 import com.google.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -64,6 +69,21 @@ import java.util.stream.Stream;
 public class ComplianceRules {
     private static Logger log = LoggerFactory.getLogger(ComplianceRules.class);
 
+    /**
+     * The engines available for calculating compliance, selected via the
+     * candlepin.compliance.engine configuration
+     */
+    public enum Engine {
+        /** The compliance namespace of the rules file */
+        JAVASCRIPT,
+
+        /** The compiled Java implementation of the rules */
+        NATIVE,
+
+        /** Both engines; the rules file is authoritative and differences are logged */
+        SHADOW
+    }
+
     private JsRunner jsRules;
     private EntitlementCurator entCurator;
     private StatusReasonMessageGenerator generator;
@@ -72,11 +92,15 @@ public class ComplianceRules {
     private ConsumerTypeCurator consumerTypeCurator;
     private RulesObjectMapper mapper;
     private ModelTranslator translator;
+    private Engine engine;
+    private NativeComplianceCalculator nativeCalculator;
+    private ComplianceStatusCache statusCache;
 
     @Inject
     public ComplianceRules(JsRunner jsRules, EntitlementCurator entCurator,
         StatusReasonMessageGenerator generator, EventSink eventSink, ConsumerCurator consumerCurator,
-        ConsumerTypeCurator consumerTypeCurator, RulesObjectMapper mapper, ModelTranslator translator) {
+        ConsumerTypeCurator consumerTypeCurator, RulesObjectMapper mapper, ModelTranslator translator,
+        Configuration config, ComplianceStatusCache statusCache) {
 
         this.jsRules = jsRules;
         this.entCurator = entCurator;
@@ -86,8 +110,25 @@ public class ComplianceRules {
         this.consumerTypeCurator = consumerTypeCurator;
         this.mapper = mapper;
         this.translator = translator;
+        this.engine = getEngine(config);
+        this.nativeCalculator = new NativeComplianceCalculator();
+        this.statusCache = statusCache;
 
-        jsRules.init("compliance_name_space");
+        if (this.engine != Engine.NATIVE) {
+            jsRules.init("compliance_name_space");
+        }
+    }
+
+    private static Engine getEngine(Configuration config) {
+        String value = config.getString(ConfigProperties.COMPLIANCE_ENGINE, Engine.JAVASCRIPT.name());
+
+        try {
+            return Engine.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            log.warn("Unknown compliance engine \"{}\"; using the rules file", value);
+            return Engine.JAVASCRIPT;
+        }
     }
 
     /**
@@ -167,16 +208,6 @@ public class ComplianceRules {
             updateEntsOnStart(consumer);
         }
 
-        Stream<EntitlementDTO> entStream = Stream.concat(
-            newEntitlements != null ? newEntitlements.stream() : Stream.empty(),
-            consumer.getEntitlements() != null ? consumer.getEntitlements().stream() : Stream.empty())
-                .map(this.translator.getStreamMapper(Entitlement.class, EntitlementDTO.class));
-
-        Stream<GuestIdDTO> guestIdStream = consumer.getGuestIds() == null ? Stream.empty() :
-            consumer.getGuestIds().stream()
-                .map(this.translator.getStreamMapper(GuestId.class, GuestIdDTO.class));
-
-
         // Status can only be 'disabled' when in golden ticket mode
         if (consumer.getOwner() != null && consumer.getOwner().isUsingSimpleContentAccess()) {
             ComplianceStatus cs = new ComplianceStatus(new Date());
@@ -192,19 +223,24 @@ public class ComplianceRules {
             return new ComplianceStatus(new Date());
         }
 
-        JsonJsContext args = new JsonJsContext(mapper);
-        args.put("consumer", this.translator.translate(consumer, ConsumerDTO.class));
-        args.put("entitlements", entStream);
-        args.put("ondate", date);
-        args.put("calculateCompliantUntil", calculateCompliantUntil);
-        args.put("calculateProductComplianceDateRanges", calculateProductComplianceDateRanges);
-        args.put("log", log, false);
-        args.put("guestIds", guestIdStream);
+        String cacheKey = null;
+        ComplianceStatusDTO statusDTO = null;
+
+        if (this.statusCache.isEnabled()) {
+            cacheKey = this.statusCache.getKey(consumer, newEntitlements, date, calculateCompliantUntil,
+                calculateProductComplianceDateRanges);
+            statusDTO = this.statusCache.get(cacheKey);
+        }
+
+        boolean cached = statusDTO != null;
+        if (!cached) {
+            statusDTO = this.calculateStatus(consumer, newEntitlements, date, calculateCompliantUntil,
+                calculateProductComplianceDateRanges);
+
+            this.statusCache.put(cacheKey, statusDTO);
+        }
 
-        // Convert the JSON returned into a ComplianceStatus object:
-        String json = jsRules.runJsFunction(String.class, "get_status", args);
         try {
-            ComplianceStatusDTO statusDTO = mapper.toObject(json, ComplianceStatusDTO.class);
             ComplianceStatus status = new ComplianceStatus();
             Set<Entitlement> allEntitlements = Stream.concat(
                 newEntitlements != null ? newEntitlements.stream() : Stream.empty(),
@@ -212,6 +248,11 @@ public class ComplianceRules {
                 .collect(Collectors.toSet());
             populateEntity(status, statusDTO, allEntitlements);
 
+            // A cached status may have been calculated for an earlier date in the same bucket
+            if (cached) {
+                status.setDate(date);
+            }
+
             for (ComplianceReason reason : status.getReasons()) {
                 generator.setMessage(consumer, reason, status.getDate());
             }
@@ -227,6 +268,159 @@ public class ComplianceRules {
         }
     }
 
+    /**
+     * Calculates the status of a consumer with the configured compliance engine.
+     */
+    private ComplianceStatusDTO calculateStatus(Consumer consumer, Collection<Entitlement> newEntitlements,
+        Date date, boolean calculateCompliantUntil, boolean calculateProductComplianceDateRanges) {
+
+        if (this.engine == Engine.NATIVE) {
+            return this.nativeCalculator.getStatus(
+                this.translator.translate(consumer, ConsumerDTO.class),
+                this.translateConsumerEntitlements(consumer, newEntitlements),
+                this.translateGuestIds(consumer), date, calculateCompliantUntil,
+                calculateProductComplianceDateRanges);
+        }
+
+        ComplianceStatusDTO statusDTO = this.runGetStatus(consumer, newEntitlements, date,
+            calculateCompliantUntil, calculateProductComplianceDateRanges);
+
+        if (this.engine == Engine.SHADOW) {
+            this.shadowGetStatus(consumer, newEntitlements, date, calculateCompliantUntil,
+                calculateProductComplianceDateRanges, statusDTO);
+        }
+
+        return statusDTO;
+    }
+
+    /**
+     * Runs the get_status function of the rules file and converts the result to a status DTO.
+     */
+    private ComplianceStatusDTO runGetStatus(Consumer consumer, Collection<Entitlement> newEntitlements,
+        Date date, boolean calculateCompliantUntil, boolean calculateProductComplianceDateRanges) {
+
+        JsonJsContext args = new JsonJsContext(mapper);
+        args.put("consumer", this.translator.translate(consumer, ConsumerDTO.class));
+        args.put("entitlements", this.translateConsumerEntitlements(consumer, newEntitlements));
+        args.put("ondate", date);
+        args.put("calculateCompliantUntil", calculateCompliantUntil);
+        args.put("calculateProductComplianceDateRanges", calculateProductComplianceDateRanges);
+        args.put("log", log, false);
+        args.put("guestIds", this.translateGuestIds(consumer));
+
+        // Convert the JSON returned into a ComplianceStatus object:
+        String json = jsRules.runJsFunction(String.class, "get_status", args);
+        try {
+            return mapper.toObject(json, ComplianceStatusDTO.class);
+        }
+        catch (Exception e) {
+            throw new RuleExecutionException(e);
+        }
+    }
+
+    /**
+     * Calculates the status with the native engine and logs any differences from the status
+     * calculated by the rules file. Failures of the native engine are logged, never propagated.
+     */
+    private void shadowGetStatus(Consumer consumer, Collection<Entitlement> newEntitlements, Date date,
+        boolean calculateCompliantUntil, boolean calculateProductComplianceDateRanges,
+        ComplianceStatusDTO expected) {
+
+        try {
+            ComplianceStatusDTO actual = this.nativeCalculator.getStatus(
+                this.translator.translate(consumer, ConsumerDTO.class),
+                this.translateConsumerEntitlements(consumer, newEntitlements),
+                this.translateGuestIds(consumer), date, calculateCompliantUntil,
+                calculateProductComplianceDateRanges);
+
+            List<String> differences = diffStatus(expected, actual);
+            if (!differences.isEmpty()) {
+                log.warn("Native compliance status for consumer {} differs from the rules: {}",
+                    consumer.getUuid(), differences);
+            }
+        }
+        catch (Exception e) {
+            log.warn("Native compliance engine failed for consumer {}", consumer.getUuid(), e);
+        }
+    }
+
+    private List<EntitlementDTO> translateConsumerEntitlements(Consumer consumer,
+        Collection<Entitlement> newEntitlements) {
+
+        return Stream.concat(
+            newEntitlements != null ? newEntitlements.stream() : Stream.empty(),
+            consumer.getEntitlements() != null ? consumer.getEntitlements().stream() : Stream.empty())
+            .map(this.translator.getStreamMapper(Entitlement.class, EntitlementDTO.class))
+            .collect(Collectors.toList());
+    }
+
+    private List<EntitlementDTO> translateEntitlements(Collection<Entitlement> entitlements) {
+        return entitlements == null ? Collections.emptyList() : entitlements.stream()
+            .map(this.translator.getStreamMapper(Entitlement.class, EntitlementDTO.class))
+            .collect(Collectors.toList());
+    }
+
+    private List<GuestIdDTO> translateGuestIds(Consumer consumer) {
+        return consumer.getGuestIds() == null ? Collections.emptyList() : consumer.getGuestIds().stream()
+            .map(this.translator.getStreamMapper(GuestId.class, GuestIdDTO.class))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds a list describing the facets in which the two status DTOs differ. Entitlements are
+     * compared by ID, as the engines return distinct copies of the same entitlements.
+     */
+    private static List<String> diffStatus(ComplianceStatusDTO expected, ComplianceStatusDTO actual) {
+        List<String> differences = new ArrayList<>();
+
+        diff(differences, "date", expected.getDate(), actual.getDate());
+        diff(differences, "compliantUntil", expected.getCompliantUntil(), actual.getCompliantUntil());
+        diff(differences, "nonCompliantProducts", expected.getNonCompliantProducts(),
+            actual.getNonCompliantProducts());
+        diff(differences, "compliantProducts", toIdMap(expected.getCompliantProducts()),
+            toIdMap(actual.getCompliantProducts()));
+        diff(differences, "partiallyCompliantProducts", toIdMap(expected.getPartiallyCompliantProducts()),
+            toIdMap(actual.getPartiallyCompliantProducts()));
+        diff(differences, "partialStacks", toIdMap(expected.getPartialStacks()),
+            toIdMap(actual.getPartialStacks()));
+        diff(differences, "reasons", expected.getReasons(), actual.getReasons());
+        diff(differences, "productComplianceDateRanges", toDateMap(expected.getProductComplianceDateRanges()),
+            toDateMap(actual.getProductComplianceDateRanges()));
+
+        return differences;
+    }
+
+    private static void diff(List<String> differences, String facet, Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)) {
+            differences.add(String.format("%s: expected %s, found %s", facet, expected, actual));
+        }
+    }
+
+    private static Map<String, Set<String>> toIdMap(Map<String, Set<EntitlementDTO>> entMap) {
+        if (entMap == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Set<String>> output = new HashMap<>();
+        entMap.forEach((key, ents) -> output.put(key, ents.stream()
+            .map(EntitlementDTO::getId)
+            .collect(Collectors.toSet())));
+
+        return output;
+    }
+
+    private static Map<String, List<Date>> toDateMap(Map<String, DateRange> ranges) {
+        if (ranges == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, List<Date>> output = new HashMap<>();
+        ranges.forEach((key, range) -> output.put(key, range == null ? null :
+            List.of(range.getStartDate(), range.getEndDate())));
+
+        return output;
+    }
+
     public void updateEntsOnStart(Consumer c) {
         for (Entitlement ent : c.getEntitlements()) {
             if (!ent.isUpdatedOnStart() && ent.isValid()) {
@@ -256,45 +450,79 @@ public class ComplianceRules {
         }
     }
 
-    @SuppressWarnings("checkstyle:indentation")
     public boolean isStackCompliant(Consumer consumer, String stackId, List<Entitlement> entsToConsider) {
-        Stream<EntitlementDTO> entStream = entsToConsider == null ? Stream.empty() :
-            entsToConsider.stream()
-                .map(this.translator.getStreamMapper(Entitlement.class, EntitlementDTO.class));
-
-        Stream<GuestIdDTO> guestIdStream = consumer.getGuestIds() == null ? Stream.empty() :
-            consumer.getGuestIds().stream()
-                .map(this.translator.getStreamMapper(GuestId.class, GuestIdDTO.class));
+        if (this.engine == Engine.NATIVE) {
+            return this.nativeCalculator.isStackCompliant(
+                this.translator.translate(consumer, ConsumerDTO.class), stackId,
+                this.translateEntitlements(entsToConsider), this.translateGuestIds(consumer));
+        }
 
         JsonJsContext args = new JsonJsContext(mapper);
         args.put("stack_id", stackId);
         args.put("consumer", this.translator.translate(consumer, ConsumerDTO.class));
-        args.put("entitlements", entStream);
+        args.put("entitlements", this.translateEntitlements(entsToConsider));
         args.put("log", log, false);
-        args.put("guestIds", guestIdStream);
+        args.put("guestIds", this.translateGuestIds(consumer));
 
-        return jsRules.runJsFunction(Boolean.class, "is_stack_compliant", args);
+        boolean compliant = jsRules.runJsFunction(Boolean.class, "is_stack_compliant", args);
+
+        if (this.engine == Engine.SHADOW) {
+            try {
+                boolean actual = this.nativeCalculator.isStackCompliant(
+                    this.translator.translate(consumer, ConsumerDTO.class), stackId,
+                    this.translateEntitlements(entsToConsider), this.translateGuestIds(consumer));
+
+                if (actual != compliant) {
+                    log.warn("Native stack compliance for consumer {} and stack {} differs from the " +
+                        "rules: expected {}, found {}", consumer.getUuid(), stackId, compliant, actual);
+                }
+            }
+            catch (Exception e) {
+                log.warn("Native compliance engine failed for consumer {}", consumer.getUuid(), e);
+            }
+        }
+
+        return compliant;
     }
 
-    @SuppressWarnings("checkstyle:indentation")
     public boolean isEntitlementCompliant(Consumer consumer, Entitlement ent, Date onDate) {
         List<Entitlement> ents = entCurator.listByConsumerAndDate(consumer, onDate).list();
 
-        Stream<EntitlementDTO> entStream = ents == null ? Stream.empty() :
-            ents.stream().map(this.translator.getStreamMapper(Entitlement.class, EntitlementDTO.class));
-
-        Stream<GuestIdDTO> guestIdStream = consumer.getGuestIds() == null ? Stream.empty() :
-            consumer.getGuestIds().stream()
-                .map(this.translator.getStreamMapper(GuestId.class, GuestIdDTO.class));
+        if (this.engine == Engine.NATIVE) {
+            return this.nativeCalculator.isEntitlementCompliant(
+                this.translator.translate(consumer, ConsumerDTO.class),
+                this.translator.translate(ent, EntitlementDTO.class), this.translateEntitlements(ents),
+                this.translateGuestIds(consumer));
+        }
 
         JsonJsContext args = new JsonJsContext(mapper);
         args.put("consumer", this.translator.translate(consumer, ConsumerDTO.class));
         args.put("entitlement", this.translator.translate(ent, EntitlementDTO.class));
-        args.put("entitlements", entStream);
+        args.put("entitlements", this.translateEntitlements(ents));
         args.put("log", log, false);
-        args.put("guestIds", guestIdStream);
+        args.put("guestIds", this.translateGuestIds(consumer));
+
+        boolean compliant = jsRules.runJsFunction(Boolean.class, "is_ent_compliant", args);
+
+        if (this.engine == Engine.SHADOW) {
+            try {
+                boolean actual = this.nativeCalculator.isEntitlementCompliant(
+                    this.translator.translate(consumer, ConsumerDTO.class),
+                    this.translator.translate(ent, EntitlementDTO.class), this.translateEntitlements(ents),
+                    this.translateGuestIds(consumer));
+
+                if (actual != compliant) {
+                    log.warn("Native entitlement compliance for consumer {} and entitlement {} differs " +
+                        "from the rules: expected {}, found {}", consumer.getUuid(), ent.getId(), compliant,
+                        actual);
+                }
+            }
+            catch (Exception e) {
+                log.warn("Native compliance engine failed for consumer {}", consumer.getUuid(), e);
+            }
+        }
 
-        return jsRules.runJsFunction(Boolean.class, "is_ent_compliant", args);
+        return compliant;
     }
 
     private String getComplianceStatusHash(ComplianceStatus status, Consumer consumer) {
@@ -354,7 +582,10 @@ public class ComplianceRules {
                         ComplianceReason reason = new ComplianceReason();
                         reason.setKey(reasonDTO.getKey());
                         reason.setMessage(reasonDTO.getMessage());
-                        reason.setAttributes(reasonDTO.getAttributes());
+                        // Copied, as messages are added to the attributes of the entity
+                        reason.setAttributes(reasonDTO.getAttributes() != null ?
+                            new HashMap<>(reasonDTO.getAttributes()) :
+                            null);
                         reasons.add(reason);
                     }
                 }
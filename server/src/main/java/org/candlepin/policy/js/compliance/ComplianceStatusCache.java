@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.policy.js.compliance;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.dto.rules.v1.ComplianceStatusDTO;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.Entitlement;
+import org.candlepin.policy.js.JsRunnerProvider;
+import org.candlepin.policy.js.compliance.hash.ComplianceInputHasher;
+import org.candlepin.util.LruCache;
+
+import com.google.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Objects;
+
+import javax.inject.Singleton;
+
+
+
+/**
+ * A bounded cache of calculated compliance statuses, keyed by a fingerprint of the inputs of the
+ * calculation (see {@link ComplianceInputHasher}). The date of a calculation is truncated to a
+ * configurable bucket, so a status is reused for at most that long before the date alone forces a
+ * recalculation.
+ *
+ * The cached statuses are the raw results of the compliance engine, which must be treated as
+ * read-only. The whole cache is dropped whenever the version of the rules changes.
+ */
+@Singleton
+public class ComplianceStatusCache {
+    private static Logger log = LoggerFactory.getLogger(ComplianceStatusCache.class);
+
+    private final JsRunnerProvider rulesProvider;
+    private final long dateBucketMillis;
+    private final LruCache<String, ComplianceStatusDTO> cache;
+
+    // Guarded by the cache's own monitor
+    private String rulesVersion;
+
+    @Inject
+    public ComplianceStatusCache(Configuration config, JsRunnerProvider rulesProvider) {
+        this.rulesProvider = rulesProvider;
+        this.dateBucketMillis = Math.max(1, config.getLong(ConfigProperties.COMPLIANCE_CACHE_DATE_BUCKET)) *
+            1000;
+
+        this.cache = new LruCache<>("Compliance status cache",
+            config.getInt(ConfigProperties.COMPLIANCE_CACHE_MAX_ENTRIES));
+    }
+
+    /**
+     * Checks whether or not statuses are cached at all. The cache is disabled by setting its
+     * maximum size to zero.
+     *
+     * @return
+     *  true if statuses are cached; false otherwise
+     */
+    public boolean isEnabled() {
+        return this.cache.isEnabled();
+    }
+
+    /**
+     * Builds the key of the status calculated from the given inputs.
+     *
+     * @param consumer
+     *  the consumer for which the status is calculated
+     *
+     * @param newEntitlements
+     *  any entitlements to consider in addition to those of the consumer; may be null
+     *
+     * @param date
+     *  the date the status is calculated for
+     *
+     * @param calculateCompliantUntil
+     *  whether or not the status includes the date the consumer remains compliant until
+     *
+     * @param calculateProductComplianceDateRanges
+     *  whether or not the status includes the compliance date ranges of each product
+     *
+     * @return
+     *  the cache key of the status
+     */
+    public String getKey(Consumer consumer, Collection<Entitlement> newEntitlements, Date date,
+        boolean calculateCompliantUntil, boolean calculateProductComplianceDateRanges) {
+
+        return new ComplianceInputHasher(consumer, newEntitlements, date.getTime() / this.dateBucketMillis,
+            calculateCompliantUntil, calculateProductComplianceDateRanges).hash();
+    }
+
+    /**
+     * Fetches the status cached under the given key.
+     *
+     * @param key
+     *  the key of the status, as built by {@link #getKey}
+     *
+     * @return
+     *  the cached status, or null if no status is cached under the key
+     */
+    public ComplianceStatusDTO get(String key) {
+        synchronized (this.cache) {
+            this.checkRulesVersion();
+            return this.cache.get(key);
+        }
+    }
+
+    /**
+     * Caches a calculated status under the given key.
+     *
+     * @param key
+     *  the key of the status, as built by {@link #getKey}
+     *
+     * @param status
+     *  the calculated status
+     */
+    public void put(String key, ComplianceStatusDTO status) {
+        synchronized (this.cache) {
+            this.checkRulesVersion();
+            this.cache.put(key, status);
+        }
+    }
+
+    /**
+     * Removes every status from the cache.
+     */
+    public void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * Drops the cached statuses if they were calculated with a different version of the rules.
+     * Must be called while holding the cache's monitor.
+     */
+    private void checkRulesVersion() {
+        String version = this.rulesProvider.getRulesVersion();
+
+        if (!Objects.equals(version, this.rulesVersion)) {
+            if (this.cache.size() > 0) {
+                log.info("Rules version changed from {} to {}; dropping {} cached compliance statuses",
+                    this.rulesVersion, version, this.cache.size());
+            }
+
+            this.cache.clear();
+            this.rulesVersion = version;
+        }
+    }
+
+    /**
+     * @return
+     *  the number of lookups which found a cached status
+     */
+    public long getHitCount() {
+        return this.cache.getHitCount();
+    }
+
+    /**
+     * @return
+     *  the number of lookups which did not find a cached status
+     */
+    public long getMissCount() {
+        return this.cache.getMissCount();
+    }
+
+    /**
+     * @return
+     *  the number of statuses currently cached
+     */
+    public int size() {
+        return this.cache.size();
+    }
+}
@@ -0,0 +1,1228 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.policy.js.compliance;
+
+import org.candlepin.dto.rules.v1.ComplianceReasonDTO;
+import org.candlepin.dto.rules.v1.ComplianceStatusDTO;
+import org.candlepin.dto.rules.v1.ConsumerDTO;
+import org.candlepin.dto.rules.v1.EntitlementDTO;
+import org.candlepin.dto.rules.v1.GuestIdDTO;
+import org.candlepin.dto.rules.v1.PoolDTO;
+import org.candlepin.util.DateRange;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+
+/**
+ * The NativeComplianceCalculator is a compiled Java implementation of the compliance namespace
+ * of the default rules file (get_status, is_stack_compliant and is_ent_compliant). It operates
+ * directly on the rules DTOs, avoiding the JSON serialization and Rhino round trip performed by
+ * the JavaScript rules.
+ * <p></p>
+ * The implementation intentionally mirrors the semantics of the JavaScript rules, including
+ * their loose numeric conversions, so that both engines produce the same status for the same
+ * input. Any change to the compliance namespace of rules.js must be reflected here.
+ */
+public class NativeComplianceCalculator {
+    private static Logger log = LoggerFactory.getLogger(NativeComplianceCalculator.class);
+
+    // Consumer fact names
+    private static final String SOCKET_FACT = "cpu.cpu_socket(s)";
+    private static final String RAM_FACT = "memory.memtotal";
+    private static final String CORES_FACT = "cpu.core(s)_per_socket";
+    private static final String ARCH_FACT = "uname.machine";
+    private static final String IS_VIRT_GUEST_FACT = "virt.is_guest";
+    private static final String STORAGE_BAND_USAGE = "band.storage.usage";
+
+    // Product attribute names
+    private static final String SOCKETS_ATTRIBUTE = "sockets";
+    private static final String CORES_ATTRIBUTE = "cores";
+    private static final String ARCH_ATTRIBUTE = "arch";
+    private static final String RAM_ATTRIBUTE = "ram";
+    private static final String INSTANCE_ATTRIBUTE = "instance_multiplier";
+    private static final String REQUIRES_HOST_ATTRIBUTE = "requires_host";
+    private static final String UNMAPPED_GUESTS_ONLY = "unmapped_guests_only";
+    private static final String GUEST_LIMIT_ATTRIBUTE = "guest_limit";
+    private static final String VCPU_ATTRIBUTE = "vcpu";
+    private static final String STACKING_ID_ATTRIBUTE = "stacking_id";
+    private static final String STORAGE_BAND_ATTRIBUTE = "storage_band";
+
+    private static final String TRACKER_TYPE_ENTITLEMENT = "ENTITLEMENT";
+    private static final String TRACKER_TYPE_STACK = "STACK";
+
+    private static final Map<String, String> ATTRIBUTES_TO_CONSUMER_FACTS = new HashMap<>();
+    static {
+        ATTRIBUTES_TO_CONSUMER_FACTS.put(SOCKETS_ATTRIBUTE, SOCKET_FACT);
+        ATTRIBUTES_TO_CONSUMER_FACTS.put(CORES_ATTRIBUTE, CORES_FACT);
+        ATTRIBUTES_TO_CONSUMER_FACTS.put(ARCH_ATTRIBUTE, ARCH_FACT);
+        ATTRIBUTES_TO_CONSUMER_FACTS.put(RAM_ATTRIBUTE, RAM_FACT);
+        ATTRIBUTES_TO_CONSUMER_FACTS.put(VCPU_ATTRIBUTE, CORES_FACT);
+        ATTRIBUTES_TO_CONSUMER_FACTS.put(STORAGE_BAND_ATTRIBUTE, STORAGE_BAND_USAGE);
+    }
+
+    /** Attributes considered when determining the coverage of a physical consumer */
+    private static final List<String> PHYSICAL_ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(
+        SOCKETS_ATTRIBUTE, CORES_ATTRIBUTE, RAM_ATTRIBUTE, ARCH_ATTRIBUTE, GUEST_LIMIT_ATTRIBUTE,
+        STORAGE_BAND_ATTRIBUTE));
+
+    /** Attributes considered when determining the coverage of a virtual guest */
+    private static final List<String> VIRT_ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(
+        VCPU_ATTRIBUTE, RAM_ATTRIBUTE, ARCH_ATTRIBUTE, GUEST_LIMIT_ATTRIBUTE, STORAGE_BAND_ATTRIBUTE));
+
+    /** Attributes which are not checked for guests on host restricted pools */
+    private static final List<String> UNCHECKED_WHEN_HOST_RESTRICTED = Collections.unmodifiableList(
+        Arrays.asList(RAM_ATTRIBUTE, VCPU_ATTRIBUTE));
+
+    private static final Pattern DECIMAL_LITERAL =
+        Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+    private static final Pattern HEX_LITERAL = Pattern.compile("0[xX][0-9a-fA-F]+");
+
+
+    /**
+     * Calculates the compliance status of the given consumer on the specified date. This is the
+     * equivalent of the get_status rules function.
+     *
+     * @param consumer
+     *  the consumer for which to calculate the compliance status
+     *
+     * @param entitlements
+     *  the entitlements to consider
+     *
+     * @param guestIds
+     *  the guest IDs reported by the consumer; used to evaluate the guest_limit attribute
+     *
+     * @param ondate
+     *  the date on which to check compliance
+     *
+     * @param calculateCompliantUntil
+     *  whether or not to calculate how long the consumer will remain compliant
+     *
+     * @param calculateProductComplianceDateRanges
+     *  whether or not to calculate the compliance date ranges for each installed product
+     *
+     * @return
+     *  the calculated compliance status
+     */
+    public ComplianceStatusDTO getStatus(ConsumerDTO consumer, Collection<EntitlementDTO> entitlements,
+        Collection<GuestIdDTO> guestIds, Date ondate, boolean calculateCompliantUntil,
+        boolean calculateProductComplianceDateRanges) {
+
+        EvaluationContext context = new EvaluationContext(consumer, guestIds);
+        List<Ent> ents = context.wrap(entitlements);
+
+        StatusBuilder status = this.getComplianceStatusOnDate(context, ents, ondate);
+        Date compliantUntil = null;
+        Map<String, DateRange> dateRanges = null;
+
+        if (status.isCompliant() && calculateCompliantUntil && !ents.isEmpty()) {
+            compliantUntil = this.determineCompliantUntilDate(context, ents, ondate);
+        }
+
+        if (status.isPartiallyCompliant() && calculateProductComplianceDateRanges && !ents.isEmpty()) {
+            dateRanges = this.getProductComplianceDateRanges(context, ents, ondate, status);
+        }
+
+        return status.build()
+            .setCompliantUntil(compliantUntil)
+            .setProductComplianceDateRanges(dateRanges);
+    }
+
+    /**
+     * Checks whether or not the stack with the given ID is fully compliant for the consumer. This
+     * is the equivalent of the is_stack_compliant rules function.
+     *
+     * @param consumer
+     *  the consumer to check
+     *
+     * @param stackId
+     *  the ID of the stack to check
+     *
+     * @param entitlements
+     *  the entitlements to consider
+     *
+     * @param guestIds
+     *  the guest IDs reported by the consumer
+     *
+     * @return
+     *  true if the stack covers the consumer; false otherwise
+     */
+    public boolean isStackCompliant(ConsumerDTO consumer, String stackId,
+        Collection<EntitlementDTO> entitlements, Collection<GuestIdDTO> guestIds) {
+
+        EvaluationContext context = new EvaluationContext(consumer, guestIds);
+        return this.getStackCoverage(context, stackId, context.wrap(entitlements)).covered;
+    }
+
+    /**
+     * Checks whether or not the given entitlement fully covers the consumer. This is the
+     * equivalent of the is_ent_compliant rules function.
+     *
+     * @param consumer
+     *  the consumer to check
+     *
+     * @param entitlement
+     *  the entitlement to check
+     *
+     * @param entitlements
+     *  the entitlements to consider for attributes which are evaluated across all entitlements
+     *
+     * @param guestIds
+     *  the guest IDs reported by the consumer
+     *
+     * @return
+     *  true if the entitlement covers the consumer; false otherwise
+     */
+    public boolean isEntitlementCompliant(ConsumerDTO consumer, EntitlementDTO entitlement,
+        Collection<EntitlementDTO> entitlements, Collection<GuestIdDTO> guestIds) {
+
+        EvaluationContext context = new EvaluationContext(consumer, guestIds);
+        Ent ent = context.wrap(Collections.singletonList(entitlement)).get(0);
+
+        return this.getEntitlementCoverage(context, ent, context.wrap(entitlements)).covered;
+    }
+
+    @SuppressWarnings("checkstyle:methodlength")
+    private StatusBuilder getComplianceStatusOnDate(EvaluationContext context, List<Ent> entitlements,
+        Date ondate) {
+
+        StatusBuilder status = new StatusBuilder(ondate);
+
+        // Track the stack IDs we've already checked to save some time:
+        Set<String> compliantStackIds = new HashSet<>();
+        Set<String> nonCompliantStackIds = new HashSet<>();
+
+        log.debug("Checking compliance status for consumer: {} on date: {}", context.consumer.getUuid(),
+            ondate);
+
+        List<Ent> entitlementsOnDate = filterEntitlementsByDate(entitlements, ondate);
+        for (Ent ent : entitlementsOnDate) {
+            List<String> relevantPids = context.findRelevantPids(ent);
+            boolean partiallyStacked = false;
+            boolean stacked = ent.pool.isStacked();
+
+            // If the pool is stacked, check that the stack requirements are met:
+            if (stacked) {
+                String stackId = ent.pool.getProductAttribute(STACKING_ID_ATTRIBUTE);
+
+                if (nonCompliantStackIds.contains(stackId)) {
+                    partiallyStacked = true;
+                    status.addPartialStack(stackId, ent);
+                }
+                else if (!compliantStackIds.contains(stackId)) {
+                    Coverage stackCoverage = this.getStackCoverage(context, stackId, entitlementsOnDate);
+                    if (!stackCoverage.covered) {
+                        partiallyStacked = true;
+                        status.addPartialStack(stackId, ent);
+                        nonCompliantStackIds.add(stackId);
+                        status.addReasons(stackCoverage.reasons);
+                    }
+                    else {
+                        compliantStackIds.add(stackId);
+                    }
+                }
+            }
+
+            // Entitlement coverage does not change between products, so it is calculated at most
+            // once per entitlement.
+            Coverage entCoverage = null;
+
+            // If we have no installed products and the entitlement is partially covered, we want
+            // the system to be partial.
+            if (relevantPids.isEmpty() && !stacked) {
+                entCoverage = this.getEntitlementCoverage(context, ent, entitlementsOnDate);
+                if (!entCoverage.covered) {
+                    status.addReasons(entCoverage.reasons);
+                }
+            }
+
+            // If the consumer has an entitlement from a pool marked unmapped_guests_only it can
+            // only hope to be yellow
+            if (equalsIgnoreCase("true", ent.pool.getAttribute(UNMAPPED_GUESTS_ONLY))) {
+                status.addReason(buildUnmappedEntitlementReason(ent.dto.getId()));
+            }
+
+            for (String pid : relevantPids) {
+                if (partiallyStacked) {
+                    status.addPartialProduct(pid, ent);
+                    continue;
+                }
+
+                if (!stacked) {
+                    if (entCoverage == null) {
+                        entCoverage = this.getEntitlementCoverage(context, ent, entitlementsOnDate);
+                    }
+
+                    if (!entCoverage.covered) {
+                        status.addPartialProduct(pid, ent);
+                        status.addReasons(entCoverage.reasons);
+                        continue;
+                    }
+                }
+
+                status.addCompliantProduct(pid, ent);
+            }
+        }
+
+        // Products which are provided by a regular entitlement should not also be considered
+        // partially compliant. We do, however, leave the stack in the partial stacks, as it
+        // should still be repaired.
+        status.partiallyCompliantProducts.keySet().removeAll(status.compliantProducts.keySet());
+
+        // Any installed products we didn't find an entitlement for are not compliant
+        for (String pid : context.installedProductIds) {
+            if (!status.compliantProducts.containsKey(pid) &&
+                !status.partiallyCompliantProducts.containsKey(pid)) {
+
+                status.nonCompliantProducts.add(pid);
+                status.addReason(buildInstalledProductReason(pid));
+            }
+        }
+
+        return status;
+    }
+
+    private Date determineCompliantUntilDate(EvaluationContext context, List<Ent> entitlements,
+        Date startDate) {
+
+        List<String> installed = context.installedProductIds;
+        if (installed.isEmpty()) {
+            return null;
+        }
+
+        List<Ent> providing = new ArrayList<>();
+        for (Ent ent : entitlements) {
+            for (String pid : installed) {
+                if (ent.pool.provides(pid)) {
+                    providing.add(ent);
+                    break;
+                }
+            }
+        }
+
+        long lastDate = startDate.getTime();
+        for (long date : getSortedEntitlementDates(providing, false, true)) {
+            // Ignore past dates and duplicates
+            if (date <= lastDate) {
+                continue;
+            }
+
+            // Need to check if we are still compliant after the end date, so we add one second.
+            // Note that the rules also carry the adjusted date forward as the last date checked.
+            lastDate = date + 1000;
+
+            Date dateToCheck = new Date(lastDate);
+            if (!this.getComplianceStatusOnDate(context, entitlements, dateToCheck).isCompliant()) {
+                return dateToCheck;
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("checkstyle:methodlength")
+    private Map<String, DateRange> getProductComplianceDateRanges(EvaluationContext context,
+        List<Ent> entitlements, Date ondate, StatusBuilder compStatus) {
+
+        Map<String, DateRange> ranges = new HashMap<>();
+        if (context.installedProductIds.isEmpty()) {
+            return ranges;
+        }
+
+        long[] dates = getSortedEntitlementDates(entitlements, true, true);
+        int dateCount = dates.length;
+        int nextDate = -1;
+
+        // Find our next date in the future...
+        for (int i = dateCount - 1; i >= 0; --i) {
+            if (dates[i] <= ondate.getTime()) {
+                nextDate = i + 1;
+                break;
+            }
+        }
+
+        // Initialize the ranges for compliant-ish products
+        Map<String, Long[]> bounds = new LinkedHashMap<>();
+        for (String pid : context.installedProductIds) {
+            if (!compStatus.nonCompliantProducts.contains(pid)) {
+                bounds.put(pid, new Long[2]);
+            }
+        }
+
+        if (!bounds.isEmpty()) {
+            // Find start dates
+            int complete = 0;
+            long lastValidDate = ondate.getTime();
+
+            for (int i = nextDate - 1; i >= 0; --i) {
+                // We add a millisecond to the date here to (potentially) move us outside the range
+                // of a given entitlement, to avoid bridging certain coverage gaps.
+                StatusBuilder status = this.getComplianceStatusOnDate(context, entitlements,
+                    new Date(dates[i] + 1));
+
+                for (Map.Entry<String, Long[]> entry : bounds.entrySet()) {
+                    String pid = entry.getKey();
+
+                    if (entry.getValue()[0] == null && (status.nonCompliantProducts.contains(pid) ||
+                        (compStatus.compliantProducts.containsKey(pid) &&
+                        !status.compliantProducts.containsKey(pid)) ||
+                        (compStatus.partiallyCompliantProducts.containsKey(pid) &&
+                        !status.partiallyCompliantProducts.containsKey(pid)))) {
+
+                        entry.getValue()[0] = lastValidDate;
+                        ++complete;
+                    }
+                }
+
+                if (complete >= bounds.size()) {
+                    break;
+                }
+
+                lastValidDate = dates[i];
+            }
+
+            // Find end dates
+            complete = 0;
+            for (int i = Math.max(nextDate, 0); i < dateCount; ++i) {
+                StatusBuilder status = this.getComplianceStatusOnDate(context, entitlements,
+                    new Date(dates[i] + 1));
+
+                for (Map.Entry<String, Long[]> entry : bounds.entrySet()) {
+                    String pid = entry.getKey();
+
+                    if (entry.getValue()[1] == null && (status.nonCompliantProducts.contains(pid) ||
+                        (compStatus.compliantProducts.containsKey(pid) &&
+                        !status.compliantProducts.containsKey(pid)) ||
+                        (compStatus.partiallyCompliantProducts.containsKey(pid) &&
+                        !status.partiallyCompliantProducts.containsKey(pid) &&
+                        !status.compliantProducts.containsKey(pid)))) {
+
+                        entry.getValue()[1] = dates[i];
+                        ++complete;
+                    }
+                }
+
+                if (complete >= bounds.size()) {
+                    break;
+                }
+            }
+
+            // Products which were valid all the way to the ends of our date ranges use the extremes
+            for (Map.Entry<String, Long[]> entry : bounds.entrySet()) {
+                Long start = entry.getValue()[0] != null ? entry.getValue()[0] : dates[0];
+                Long end = entry.getValue()[1] != null ? entry.getValue()[1] : dates[dateCount - 1];
+
+                ranges.put(entry.getKey(), new DateRange(new Date(start), new Date(end)));
+            }
+        }
+
+        return ranges;
+    }
+
+    private Coverage getStackCoverage(EvaluationContext context, String stackId, List<Ent> entitlements) {
+        log.debug("Checking stack compliance for: {}", stackId);
+        ComplianceTracker tracker = new ComplianceTracker(context, stackId);
+
+        for (Ent ent : entitlements) {
+            if (ent.pool.isStacked() &&
+                Objects.equals(stackId, ent.pool.getProductAttribute(STACKING_ID_ATTRIBUTE))) {
+                tracker.updateAccumulatedFromEnt(ent);
+            }
+        }
+
+        return this.getTrackerCoverage(context, tracker, entitlements);
+    }
+
+    private Coverage getEntitlementCoverage(EvaluationContext context, Ent ent, List<Ent> entitlements) {
+        log.debug("Checking compliance for entitlement: {}", ent.dto.getId());
+        ComplianceTracker tracker = new ComplianceTracker(context, null);
+        tracker.updateAccumulatedFromEnt(ent);
+
+        return this.getTrackerCoverage(context, tracker, entitlements);
+    }
+
+    /**
+     * Determines the coverage provided by the given tracker. Attributes which are not enforced by
+     * the tracker are considered covered.
+     */
+    private Coverage getTrackerCoverage(EvaluationContext context, ComplianceTracker tracker,
+        List<Ent> entitlements) {
+
+        List<String> attributes = context.getComplianceAttributes();
+
+        // guest_limit is a global attribute and is evaluated across all of the entitlements
+        if (tracker.enforces(GUEST_LIMIT_ATTRIBUTE)) {
+            tracker.accumulatedValues.put(GUEST_LIMIT_ATTRIBUTE, getGlobalGuestLimit(entitlements));
+        }
+
+        Coverage coverage = new Coverage();
+        for (String attribute : attributes) {
+            if (!tracker.enforces(attribute)) {
+                continue;
+            }
+
+            ComplianceReasonDTO reason;
+            switch (attribute) {
+                case ARCH_ATTRIBUTE:
+                    reason = this.checkArchitecture(context, tracker);
+                    break;
+
+                case GUEST_LIMIT_ATTRIBUTE:
+                    reason = this.checkGuestLimit(context, tracker);
+                    break;
+
+                default:
+                    reason = this.checkQuantity(context, tracker, attribute);
+            }
+
+            if (reason != null) {
+                coverage.reasons.add(reason);
+            }
+        }
+
+        coverage.covered = coverage.reasons.isEmpty();
+        return coverage;
+    }
+
+    private ComplianceReasonDTO checkArchitecture(EvaluationContext context, ComplianceTracker tracker) {
+        Object accumulated = tracker.accumulatedValues.get(ARCH_ATTRIBUTE);
+        String consumerArch = context.facts.get(ARCH_FACT);
+        String consumerType = context.consumer.getType() != null ?
+            context.consumer.getType().getLabel() :
+            null;
+
+        if (accumulated instanceof List) {
+            for (Object archString : (List<?>) accumulated) {
+                if (!architectureMatches((String) archString, consumerArch, consumerType)) {
+                    return buildReason(ARCH_ATTRIBUTE, tracker, consumerArch, archString);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private ComplianceReasonDTO checkGuestLimit(EvaluationContext context, ComplianceTracker tracker) {
+        Object consumerQuantity = context.getFact(GUEST_LIMIT_ATTRIBUTE);
+        Object sourceValue = tracker.accumulatedValues.get(GUEST_LIMIT_ATTRIBUTE);
+
+        boolean covered = (sourceValue instanceof Double && (Double) sourceValue == -1) ||
+            parseInt(sourceValue) >= toNumber(consumerQuantity);
+
+        return covered ? null : buildReason(GUEST_LIMIT_ATTRIBUTE, tracker, consumerQuantity, sourceValue);
+    }
+
+    private ComplianceReasonDTO checkQuantity(EvaluationContext context, ComplianceTracker tracker,
+        String attribute) {
+
+        Object consumerQuantity = context.getFact(attribute);
+        Object sourceValue = tracker.accumulatedValues.get(attribute);
+
+        boolean covered = parseInt(sourceValue) >= toNumber(consumerQuantity);
+        return covered ? null : buildReason(attribute, tracker, consumerQuantity, sourceValue);
+    }
+
+    private static Object getGlobalGuestLimit(List<Ent> entitlements) {
+        Double total = null;
+
+        for (Ent ent : entitlements) {
+            String value = ent.pool.getProductAttribute(GUEST_LIMIT_ATTRIBUTE);
+            if (value != null) {
+                if (total == null) {
+                    total = 0.0;
+                }
+
+                double poolValue = parseInt(value);
+                if (poolValue == -1) {
+                    return poolValue;
+                }
+
+                if (poolValue > total) {
+                    total = poolValue;
+                }
+            }
+        }
+
+        return total;
+    }
+
+    private static boolean architectureMatches(String productArch, String consumerArch,
+        String consumerType) {
+
+        // Non-system consumers without an architecture fact can pass this rule regardless what
+        // arch the product requires.
+        if (!isTruthy(consumerArch) && !"system".equals(consumerType)) {
+            return true;
+        }
+
+        if (productArch != null) {
+            List<String> supported = new ArrayList<>(Arrays.asList(
+                productArch.toUpperCase(Locale.ROOT).split(",", -1)));
+
+            // If X86 is supported, add all variants to this list:
+            if (supported.contains("X86")) {
+                supported.add("I386");
+                supported.add("I586");
+                supported.add("I686");
+            }
+
+            if (!supported.contains("ALL") && (!isTruthy(consumerArch) ||
+                !supported.contains(consumerArch.toUpperCase(Locale.ROOT)))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List<Ent> filterEntitlementsByDate(List<Ent> entitlements, Date date) {
+        List<Ent> filtered = new ArrayList<>();
+        long time = date.getTime();
+
+        for (Ent ent : entitlements) {
+            if (getTime(ent.dto.getStartDate()) <= time && getTime(ent.dto.getEndDate()) >= time) {
+                filtered.add(ent);
+            }
+        }
+
+        return filtered;
+    }
+
+    private static long[] getSortedEntitlementDates(List<Ent> entitlements, boolean useStartDates,
+        boolean useEndDates) {
+
+        long[] dates = new long[entitlements.size() * ((useStartDates ? 1 : 0) + (useEndDates ? 1 : 0))];
+        int offset = 0;
+
+        for (Ent ent : entitlements) {
+            if (useStartDates) {
+                dates[offset++] = getTime(ent.dto.getStartDate());
+            }
+
+            if (useEndDates) {
+                dates[offset++] = getTime(ent.dto.getEndDate());
+            }
+        }
+
+        Arrays.sort(dates);
+        return dates;
+    }
+
+    private static long getTime(Date date) {
+        // The rules treat missing dates as the epoch
+        return date != null ? date.getTime() : 0;
+    }
+
+    private static ComplianceReasonDTO buildReason(String attribute, ComplianceTracker tracker,
+        Object has, Object covered) {
+
+        String key = attribute.toUpperCase(Locale.ROOT);
+
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put(ComplianceReason.Attributes.PRESENT, toReasonValue(has));
+        attributes.put(ComplianceReason.Attributes.COVERED, toReasonValue(covered));
+        attributes.put(TRACKER_TYPE_STACK.equals(tracker.type) ?
+            ComplianceReason.Attributes.STACKING_ID :
+            ComplianceReason.Attributes.ENTITLEMENT_ID, tracker.id);
+
+        return new ComplianceReasonDTO()
+            .setKey(key)
+            .setMessage(key)
+            .setAttributes(attributes);
+    }
+
+    private static ComplianceReasonDTO buildInstalledProductReason(String productId) {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put(ComplianceReason.Attributes.PRODUCT_ID, productId);
+
+        return new ComplianceReasonDTO()
+            .setKey(ComplianceReason.ReasonKeys.NOT_COVERED)
+            .setMessage(ComplianceReason.ReasonKeys.NOT_COVERED)
+            .setAttributes(attributes);
+    }
+
+    private static ComplianceReasonDTO buildUnmappedEntitlementReason(String entitlementId) {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put(ComplianceReason.Attributes.ENTITLEMENT_ID, entitlementId);
+
+        return new ComplianceReasonDTO()
+            .setKey(ComplianceReason.ReasonKeys.UNMAPPED_GUEST)
+            .setMessage(ComplianceReason.ReasonKeys.UNMAPPED_GUEST)
+            .setAttributes(attributes);
+    }
+
+    private static boolean equalsIgnoreCase(String str1, String str2) {
+        return str1 == null ? str2 == null : str1.equalsIgnoreCase(str2);
+    }
+
+    // JavaScript value semantics. The rules operate on loosely typed values (fact values are
+    // strings, accumulated values are numbers), so the conversions below reproduce the ECMAScript
+    // conversions used by the rules to keep both engines in agreement.
+
+    /**
+     * Converts the given value to a number, as per the ECMAScript ToNumber operation.
+     */
+    static double toNumber(Object value) {
+        if (value == null) {
+            return 0;
+        }
+
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+
+        String str = value.toString().strip();
+        if (str.isEmpty()) {
+            return 0;
+        }
+
+        if (DECIMAL_LITERAL.matcher(str).matches()) {
+            return Double.parseDouble(str);
+        }
+
+        if (HEX_LITERAL.matcher(str).matches()) {
+            return parseDigits(str.substring(2), 16);
+        }
+
+        switch (str) {
+            case "Infinity":
+            case "+Infinity":
+                return Double.POSITIVE_INFINITY;
+
+            case "-Infinity":
+                return Double.NEGATIVE_INFINITY;
+
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * Parses the leading integer of the string representation of the given value, as per the
+     * ECMAScript parseInt function with no radix.
+     */
+    static double parseInt(Object value) {
+        String str = value instanceof Double ? numberToString((Double) value) : String.valueOf(value);
+        str = str.stripLeading();
+
+        int sign = 1;
+        if (str.startsWith("-") || str.startsWith("+")) {
+            sign = str.charAt(0) == '-' ? -1 : 1;
+            str = str.substring(1);
+        }
+
+        int radix = 10;
+        if (str.startsWith("0x") || str.startsWith("0X")) {
+            radix = 16;
+            str = str.substring(2);
+        }
+
+        int end = 0;
+        while (end < str.length() && Character.digit(str.charAt(end), radix) >= 0 &&
+            str.charAt(end) < 128) {
+            ++end;
+        }
+
+        return end > 0 ? sign * parseDigits(str.substring(0, end), radix) : Double.NaN;
+    }
+
+    private static double parseDigits(String digits, int radix) {
+        double result = 0;
+        for (int i = 0; i < digits.length(); ++i) {
+            result = result * radix + Character.digit(digits.charAt(i), radix);
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts the given value to a 32-bit integer, as per the ECMAScript ToInt32 operation.
+     */
+    static int toInt32(Object value) {
+        double number = value instanceof List ? Double.NaN : toNumber(value);
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            return 0;
+        }
+
+        return (int) (long) number;
+    }
+
+    /**
+     * Converts the given number to a string, as per the ECMAScript ToString operation.
+     */
+    static String numberToString(double number) {
+        if (Double.isNaN(number)) {
+            return "NaN";
+        }
+
+        if (Double.isInfinite(number)) {
+            return number > 0 ? "Infinity" : "-Infinity";
+        }
+
+        if (number == 0) {
+            return "0";
+        }
+
+        double abs = Math.abs(number);
+        if (abs >= 1e-6 && abs < 1e21) {
+            return new BigDecimal(Double.toString(number)).stripTrailingZeros().toPlainString();
+        }
+
+        // Exponential notation: 1e+21, 1.5e-7
+        String str = Double.toString(number);
+        int exp = str.indexOf('E');
+        String mantissa = new BigDecimal(str.substring(0, exp)).stripTrailingZeros().toPlainString();
+        String exponent = str.substring(exp + 1);
+
+        return mantissa + "e" + (exponent.startsWith("-") ? exponent : "+" + exponent);
+    }
+
+    /**
+     * Converts the given value to the string value the rules framework would produce when
+     * serializing it as a reason attribute.
+     */
+    private static String toReasonValue(Object value) {
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return Double.isNaN(number) || Double.isInfinite(number) ? null : numberToString(number);
+        }
+
+        return value != null ? value.toString() : null;
+    }
+
+    private static boolean isTruthy(Object value) {
+        if (value == null) {
+            return false;
+        }
+
+        if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number != 0 && !Double.isNaN(number);
+        }
+
+        return true;
+    }
+
+    /**
+     * The per-invocation state shared by the calculations: the consumer and its derived
+     * properties.
+     */
+    private static class EvaluationContext {
+        private final ConsumerDTO consumer;
+        private final Map<String, String> facts;
+        private final List<String> installedProductIds;
+        private final Collection<GuestIdDTO> guestIds;
+        private final boolean guest;
+
+        public EvaluationContext(ConsumerDTO consumer, Collection<GuestIdDTO> guestIds) {
+            this.consumer = consumer;
+            this.facts = consumer.getFacts() != null ? consumer.getFacts() : Collections.emptyMap();
+            this.installedProductIds = consumer.getInstalledProducts() != null ?
+                new ArrayList<>(consumer.getInstalledProducts()) :
+                Collections.emptyList();
+            this.guestIds = guestIds;
+
+            String isGuest = this.facts.get(IS_VIRT_GUEST_FACT);
+            this.guest = isTruthy(isGuest) && "true".equalsIgnoreCase(isGuest);
+        }
+
+        public List<Ent> wrap(Collection<EntitlementDTO> entitlements) {
+            List<Ent> output = new ArrayList<>();
+
+            if (entitlements != null) {
+                for (EntitlementDTO entitlement : entitlements) {
+                    output.add(new Ent(entitlement, new PoolView(entitlement.getPool(), this.guest)));
+                }
+            }
+
+            return output;
+        }
+
+        public List<String> getComplianceAttributes() {
+            return this.guest ? VIRT_ATTRIBUTES : PHYSICAL_ATTRIBUTES;
+        }
+
+        /**
+         * Returns the installed product IDs provided by the given entitlement
+         */
+        public List<String> findRelevantPids(Ent ent) {
+            List<String> pids = new ArrayList<>();
+            for (String pid : this.installedProductIds) {
+                if (ent.pool.provides(pid)) {
+                    pids.add(pid);
+                }
+            }
+
+            return pids;
+        }
+
+        /**
+         * Calculates the consumer value that should be compared against the given product
+         * attribute when determining coverage. The value is either a raw fact value (string) or a
+         * calculated number.
+         */
+        public Object getFact(String attribute) {
+            switch (attribute) {
+                case RAM_ATTRIBUTE:
+                    // RAM is reported in kB but specified on products in GB
+                    double ram = parseInt(this.getRawFact(attribute)) / 1024 / 1024;
+                    return Double.isNaN(ram) ? ram : Math.floor(ram + 0.5);
+
+                case CORES_ATTRIBUTE:
+                    return toNumber(this.getRawFact(attribute)) * toNumber(this.getFact(SOCKETS_ATTRIBUTE));
+
+                case VCPU_ATTRIBUTE:
+                    return this.getFact(CORES_ATTRIBUTE);
+
+                case GUEST_LIMIT_ATTRIBUTE:
+                    return (double) this.countActiveGuests();
+
+                default:
+                    return this.getRawFact(attribute);
+            }
+        }
+
+        private Object getRawFact(String attribute) {
+            String value = this.facts.get(ATTRIBUTES_TO_CONSUMER_FACTS.get(attribute));
+            return isTruthy(value) ? value : (Object) 1.0;
+        }
+
+        private int countActiveGuests() {
+            int count = 0;
+
+            if (this.guestIds != null) {
+                for (GuestIdDTO guestId : this.guestIds) {
+                    Map<String, String> attribs = guestId.getAttributes();
+
+                    // Only libvirt guests report whether or not they are active
+                    if (attribs != null && "libvirt".equals(attribs.get("virtWhoType")) &&
+                        "1".equals(attribs.get("active"))) {
+                        ++count;
+                    }
+                }
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * An entitlement paired with its pool view
+     */
+    private static class Ent {
+        private final EntitlementDTO dto;
+        private final PoolView pool;
+
+        public Ent(EntitlementDTO dto, PoolView pool) {
+            this.dto = dto;
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * Read-only view of a pool providing the attribute lookups used by the rules
+     */
+    private static class PoolView {
+        private final PoolDTO pool;
+        private final Map<String, String> attributes;
+        private final Map<String, String> productAttributes;
+
+        public PoolView(PoolDTO pool, boolean guest) {
+            this.pool = pool;
+            this.productAttributes = pool.getProductAttributes() != null ?
+                pool.getProductAttributes() :
+                Collections.emptyMap();
+
+            Map<String, String> attributes = pool.getAttributes() != null ?
+                pool.getAttributes() :
+                Collections.emptyMap();
+
+            // When the pool is missing vcpu and the consumer is virtual, the pool uses its cores
+            // as its vcpu value
+            if (guest && !this.hasAttribute(attributes, VCPU_ATTRIBUTE) &&
+                this.hasAttribute(attributes, CORES_ATTRIBUTE)) {
+
+                double vcpu = parseInt(this.lookup(attributes, this.productAttributes, CORES_ATTRIBUTE));
+
+                attributes = new HashMap<>(attributes);
+                attributes.put(VCPU_ATTRIBUTE, numberToString(vcpu));
+
+                // The rules add the calculated attribute to the pool they return with the status,
+                // so it is added to the DTO as well to keep the output identical.
+                Map<String, String> dtoAttributes = new HashMap<>(attributes);
+                dtoAttributes.put(VCPU_ATTRIBUTE, toReasonValue(vcpu));
+                pool.setAttributes(dtoAttributes);
+            }
+
+            this.attributes = attributes;
+        }
+
+        private boolean hasAttribute(Map<String, String> attributes, String name) {
+            return this.lookup(attributes, this.productAttributes, name) != null;
+        }
+
+        private String lookup(Map<String, String> primary, Map<String, String> secondary, String name) {
+            String value = find(primary, name);
+            return value != null ? value : find(secondary, name);
+        }
+
+        private static String find(Map<String, String> attributes, String name) {
+            String value = attributes.get(name);
+
+            // An attribute is considered not set if it has a value of 0.
+            return "0".equals(value) ? null : value;
+        }
+
+        public String getAttribute(String name) {
+            return this.lookup(this.attributes, this.productAttributes, name);
+        }
+
+        public String getProductAttribute(String name) {
+            return this.lookup(this.productAttributes, this.attributes, name);
+        }
+
+        public boolean isStacked() {
+            return this.productAttributes.containsKey(STACKING_ID_ATTRIBUTE);
+        }
+
+        public boolean provides(String productId) {
+            if (Objects.equals(this.pool.getProductId(), productId)) {
+                return true;
+            }
+
+            Collection<PoolDTO.ProvidedProductDTO> provided = this.pool.getProvidedProducts();
+            if (provided != null) {
+                for (PoolDTO.ProvidedProductDTO product : provided) {
+                    if (Objects.equals(product.getProductId(), productId)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Tracks the values accumulated from an entitlement or a set of stacked entitlements. A stack
+     * changes what it provides based on the entitlements which make up the stack.
+     */
+    private static class ComplianceTracker {
+        private final EvaluationContext context;
+        private final String type;
+        private String id;
+        private int entitlementCount;
+        private String hostRestricted;
+
+        /** Mapping of product attribute to accumulated value; either a Double or a List of strings */
+        private final Map<String, Object> accumulatedValues = new HashMap<>();
+
+        public ComplianceTracker(EvaluationContext context, String id) {
+            this.context = context;
+            this.id = id;
+            this.type = id == null ? TRACKER_TYPE_ENTITLEMENT : TRACKER_TYPE_STACK;
+        }
+
+        /**
+         * Checks whether the given attribute is enforced; that is, if a value has been
+         * accumulated for it. Guests are not subject to RAM/vCPU limits on host restricted pools.
+         */
+        public boolean enforces(String attribute) {
+            if (this.hostRestricted != null && this.context.guest &&
+                UNCHECKED_WHEN_HOST_RESTRICTED.contains(attribute)) {
+                return false;
+            }
+
+            return this.accumulatedValues.containsKey(attribute);
+        }
+
+        /**
+         * Updates the accumulated values from the given entitlement. Unlike the pool-level
+         * update, unstacked entitlements only ever count for a quantity of one.
+         */
+        public void updateAccumulatedFromEnt(Ent ent) {
+            if (TRACKER_TYPE_ENTITLEMENT.equals(this.type) && this.entitlementCount == 0) {
+                this.id = ent.dto.getId();
+            }
+
+            // Impl note: the rules check for previously added entitlements with the "in" operator
+            // against an array of IDs, which tests array indexes rather than the IDs themselves.
+            // As such, only IDs which happen to be valid indexes are ever skipped.
+            if (isArrayIndex(ent.dto.getId(), this.entitlementCount)) {
+                return;
+            }
+
+            ++this.entitlementCount;
+
+            Integer quantity = ent.dto.getQuantity();
+            if (!ent.pool.isStacked() && quantity != null && quantity > 1) {
+                quantity = 1;
+            }
+
+            this.updateAccumulatedFromPool(ent.pool, quantity != null ? quantity : 0);
+        }
+
+        private void updateAccumulatedFromPool(PoolView pool, int quantity) {
+            String requiresHost = pool.getAttribute(REQUIRES_HOST_ATTRIBUTE);
+            if (isTruthy(requiresHost)) {
+                this.hostRestricted = requiresHost;
+            }
+
+            for (String attribute : this.context.getComplianceAttributes()) {
+                String poolValue = pool.getProductAttribute(attribute);
+                if (poolValue != null) {
+                    Object stackValue = this.enforces(attribute) ?
+                        this.accumulatedValues.get(attribute) :
+                        null;
+
+                    this.accumulatedValues.put(attribute,
+                        accumulate(attribute, stackValue, poolValue, pool, quantity));
+                }
+            }
+        }
+
+        private static boolean isArrayIndex(String id, int length) {
+            if (id == null || id.isEmpty() || id.length() > 10 || (id.length() > 1 && id.charAt(0) == '0')) {
+                return false;
+            }
+
+            for (int i = 0; i < id.length(); ++i) {
+                if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                    return false;
+                }
+            }
+
+            return Long.parseLong(id) < length;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object accumulate(String attribute, Object stackValue, String poolValue,
+            PoolView pool, int quantity) {
+
+            switch (attribute) {
+                case ARCH_ATTRIBUTE:
+                    List<String> archs = stackValue instanceof List ?
+                        (List<String>) stackValue :
+                        new ArrayList<>();
+
+                    archs.add(poolValue);
+                    return archs;
+
+                case SOCKETS_ATTRIBUTE:
+                    double increment = parseInt(pool.getProductAttribute(INSTANCE_ATTRIBUTE));
+                    if (Double.isNaN(increment) || increment == 0) {
+                        increment = 1;
+                    }
+
+                    // use lowest quantity evenly divisible by the instance multiplier
+                    double adjusted = quantity - (quantity % increment);
+                    return toInt32(stackValue) + (parseInt(poolValue) * adjusted) / increment;
+
+                case GUEST_LIMIT_ATTRIBUTE:
+                    // The value doesn't matter, it just needs to be enforced
+                    return -1.0;
+
+                default:
+                    return toInt32(stackValue) + parseInt(poolValue) * quantity;
+            }
+        }
+    }
+
+    /**
+     * The coverage provided by a tracker
+     */
+    private static class Coverage {
+        private boolean covered;
+        private final List<ComplianceReasonDTO> reasons = new ArrayList<>();
+    }
+
+    /**
+     * Accumulates the status of a consumer on a given date
+     */
+    private static class StatusBuilder {
+        private final Date date;
+        private final Map<String, Set<EntitlementDTO>> partialStacks = new HashMap<>();
+        private final Map<String, Set<EntitlementDTO>> partiallyCompliantProducts = new HashMap<>();
+        private final Map<String, Set<EntitlementDTO>> compliantProducts = new HashMap<>();
+        private final Set<String> nonCompliantProducts = new LinkedHashSet<>();
+        private final List<ComplianceReasonDTO> reasons = new ArrayList<>();
+
+        public StatusBuilder(Date date) {
+            this.date = date;
+        }
+
+        public void addPartialStack(String stackId, Ent ent) {
+            this.partialStacks.computeIfAbsent(stackId, key -> new HashSet<>()).add(ent.dto);
+        }
+
+        public void addPartialProduct(String productId, Ent ent) {
+            this.partiallyCompliantProducts.computeIfAbsent(productId, key -> new HashSet<>())
+                .add(ent.dto);
+        }
+
+        public void addCompliantProduct(String productId, Ent ent) {
+            this.compliantProducts.computeIfAbsent(productId, key -> new HashSet<>()).add(ent.dto);
+        }
+
+        public void addReason(ComplianceReasonDTO reason) {
+            this.reasons.add(reason);
+        }
+
+        public void addReasons(Collection<ComplianceReasonDTO> reasons) {
+            this.reasons.addAll(reasons);
+        }
+
+        public boolean isCompliant() {
+            return this.nonCompliantProducts.isEmpty() && this.partiallyCompliantProducts.isEmpty();
+        }
+
+        public boolean isPartiallyCompliant() {
+            return !this.compliantProducts.isEmpty() || !this.partiallyCompliantProducts.isEmpty();
+        }
+
+        public ComplianceStatusDTO build() {
+            return new ComplianceStatusDTO()
+                .setDate(this.date)
+                .setCompliantProducts(this.compliantProducts)
+                .setPartiallyCompliantProducts(this.partiallyCompliantProducts)
+                .setPartialStacks(this.partialStacks)
+                .setNonCompliantProducts(this.nonCompliantProducts)
+                .setReasons(this.reasons);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.policy.js.compliance.hash;
+
+import org.candlepin.model.Consumer;
+import org.candlepin.model.Entitlement;
+
+import java.util.Collection;
+
+/**
+ * Creates a hash of the inputs of a compliance calculation: the consumer's
+ * facts, installed products, entitlements and guests, along with the date
+ * and options the status is calculated with.
+ *
+ * Two calculations producing the same hash are expected to produce the same
+ * compliance status, which allows a computed status to be reused.
+ */
+public class ComplianceInputHasher extends Hasher {
+
+    public ComplianceInputHasher(Consumer consumer, Collection<Entitlement> newEntitlements,
+        long dateBucket, boolean calculateCompliantUntil, boolean calculateProductComplianceDateRanges) {
+
+        putObject(consumer, HashableStringGenerators.CONSUMER);
+        putObject("|type:" + consumer.getTypeId(), HashableStringGenerators.STRING);
+        putObject("|new:", HashableStringGenerators.STRING);
+        putCollection(newEntitlements, HashableStringGenerators.ENTITLEMENT);
+        putObject("|guests:", HashableStringGenerators.STRING);
+        putCollection(consumer.getGuestIds(), HashableStringGenerators.GUEST_ID);
+        putObject(String.format("|date:%d|until:%b|ranges:%b", dateBucket, calculateCompliantUntil,
+            calculateProductComplianceDateRanges), HashableStringGenerators.STRING);
+    }
+
+}
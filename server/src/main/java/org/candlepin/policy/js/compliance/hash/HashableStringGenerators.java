@@ -18,6 +18,7 @@ package org.candlepin.policy.js.compliance.hash;
 import org.candlepin.model.Consumer;
 import org.candlepin.model.ConsumerInstalledProduct;
 import org.candlepin.model.Entitlement;
+import org.candlepin.model.GuestId;
 import org.candlepin.model.Pool;
 import org.candlepin.policy.js.compliance.ComplianceReason;
 
@@ -45,6 +46,7 @@ public class HashableStringGenerators {
     public static final ConsumerGenerator CONSUMER = new ConsumerGenerator();
     public static final ConsumerInstalledProductGenerator INSTALLED_PRODUCT =
         new ConsumerInstalledProductGenerator();
+    public static final GuestIdGenerator GUEST_ID = new GuestIdGenerator();
 
 
     private HashableStringGenerators() {
@@ -241,4 +243,23 @@ public class HashableStringGenerators {
 
     }
 
+    /**
+     * Generates a string from a {@link GuestId} intended for use in a hash.
+     */
+    private static class GuestIdGenerator implements HashableStringGenerator<GuestId> {
+
+        @Override
+        public String generate(GuestId target) {
+            if (target == null) {
+                return null;
+            }
+
+            String generated = target.getGuestId();
+            generated += generateFromCollection(target.getAttributes() != null ?
+                target.getAttributes().entrySet() : null, STRING_ENTRY);
+            return generated;
+        }
+
+    }
+
 }
@@ -109,6 +109,7 @@ import org.candlepin.policy.js.consumer.ConsumerRules;
 import org.candlepin.resource.dto.AutobindData;
 import org.candlepin.resource.dto.ContentAccessListing;
 import org.candlepin.resource.util.CalculatedAttributesUtil;
+import org.candlepin.resource.util.ComplianceStatusStreamer;
 import org.candlepin.resource.util.ConsumerBindUtil;
 import org.candlepin.resource.util.ConsumerEnricher;
 import org.candlepin.resource.util.ConsumerTypeValidator;
@@ -138,6 +139,7 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.Authorization;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.jboss.resteasy.annotations.providers.jaxb.Wrapped;
@@ -153,6 +155,7 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -181,8 +184,10 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * API Gateway for Consumers
@@ -230,6 +235,7 @@ public class ConsumerResource {
     private Provider<GuestMigration> migrationProvider;
     private ModelTranslator translator;
     private JobManager jobManager;
+    private ComplianceStatusStreamer complianceStatusStreamer;
 
     @Inject
     @SuppressWarnings({ "checkstyle:parameternumber" })
@@ -267,7 +273,8 @@ public class ConsumerResource {
         ConsumerEnricher consumerEnricher,
         Provider<GuestMigration> migrationProvider,
         ModelTranslator translator,
-        JobManager jobManager) {
+        JobManager jobManager,
+        ComplianceStatusStreamer complianceStatusStreamer) {
 
         this.consumerCurator = consumerCurator;
         this.consumerTypeCurator = consumerTypeCurator;
@@ -308,6 +315,7 @@ public class ConsumerResource {
         this.migrationProvider = migrationProvider;
         this.translator = translator;
         this.jobManager = jobManager;
+        this.complianceStatusStreamer = complianceStatusStreamer;
     }
 
     /**
@@ -1989,34 +1997,49 @@ public class ConsumerResource {
         "client certificate metadata a for the given consumer. This is a small" +
         " subset of data clients can use to determine which certificates they" +
         " need to update/fetch.",
-        value = "getEntitlementCertificateSerials")
-    @ApiResponses({ @ApiResponse(code = 404, message = "") })
+        value = "getEntitlementCertificateSerials",
+        response = CertificateSerialDTO.class,
+        responseContainer = "list")
+    @ApiResponses({ @ApiResponse(code = 404, message = ""), @ApiResponse(code = 304, message = "") })
     @GET
     @Path("{consumer_uuid}/certificates/serials")
     @Produces(MediaType.APPLICATION_JSON)
     @Wrapped(element = "serials")
     @UpdateConsumerCheckIn
-    public List<CertificateSerialDTO> getEntitlementCertificateSerials(
-        @PathParam("consumer_uuid") @Verify(Consumer.class) String consumerUuid) {
+    public Response getEntitlementCertificateSerials(
+        @PathParam("consumer_uuid") @Verify(Consumer.class) String consumerUuid,
+        @HeaderParam("If-None-Match") String ifNoneMatch) {
 
         log.debug("Getting client certificate serials for consumer: {}", consumerUuid);
         Consumer consumer = consumerCurator.verifyAndLookupConsumer(consumerUuid);
-        ConsumerType ctype = this.consumerTypeCurator.getConsumerType(consumer);
+
+        // If the client already has the current serials and nothing needs to be revoked or
+        // regenerated, we can skip straight to telling them so.
+        if (ifNoneMatch != null && !this.entitlementCurator.hasDirtyEntitlements(consumer) &&
+            this.contentAccessManager.isCertificateCurrent(consumer)) {
+
+            List<Long> serials = new ArrayList<>(entCertService.listEntitlementSerialIds(consumer));
+            ContentAccessCertificate cac = consumer.getContentAccessCert();
+            if (cac != null && this.contentAccessManager.isCertificateRequired(consumer)) {
+                serials.add(cac.getSerial().getId());
+            }
+
+            EntityTag tag = this.buildCertificateSerialsTag(consumer, serials);
+            if (this.matchesEntityTag(ifNoneMatch, tag)) {
+                return Response.notModified(tag).build();
+            }
+        }
 
         revokeOnGuestMigration(consumer);
         poolManager.regenerateDirtyEntitlements(consumer);
 
-        List<CertificateSerialDTO> allCerts = new LinkedList<>();
-        for (Long id : entCertService.listEntitlementSerialIds(consumer)) {
-            allCerts.add(new CertificateSerialDTO().setSerial(BigInteger.valueOf(id)));
-        }
+        List<Long> serials = new ArrayList<>(entCertService.listEntitlementSerialIds(consumer));
 
         // add content access cert if needed
         try {
             ContentAccessCertificate cac = this.contentAccessManager.getCertificate(consumer);
             if (cac != null) {
-                allCerts.add(new CertificateSerialDTO().setSerial(
-                    BigInteger.valueOf(cac.getSerial().getId())));
+                serials.add(cac.getSerial().getId());
             }
         }
         catch (IOException ioe) {
@@ -2026,7 +2049,68 @@ public class ConsumerResource {
             throw new BadRequestException(i18n.tr("Cannot retrieve content access certificate", gse));
         }
 
-        return allCerts;
+        List<CertificateSerialDTO> allCerts = new LinkedList<>();
+        for (Long id : serials) {
+            allCerts.add(new CertificateSerialDTO().setSerial(BigInteger.valueOf(id)));
+        }
+
+        return Response.ok(allCerts)
+            .tag(this.buildCertificateSerialsTag(consumer, serials))
+            .build();
+    }
+
+    /**
+     * Builds an entity tag identifying the certificates the given consumer currently has. Along
+     * with the certificate serials, the tag covers the consumer's environment and, for guests, the
+     * host they are running on, as changes to either can result in entitlements being revoked or
+     * regenerated.
+     *
+     * @param consumer
+     *  the consumer for which to build the entity tag
+     *
+     * @param serials
+     *  the serials of the consumer's entitlement and content access certificates
+     *
+     * @return
+     *  an entity tag for the consumer's certificates
+     */
+    private EntityTag buildCertificateSerialsTag(Consumer consumer, Collection<Long> serials) {
+        StringBuilder state = new StringBuilder();
+
+        serials.stream()
+            .sorted()
+            .forEach(serial -> state.append(serial).append(','));
+
+        state.append('|').append(consumer.getEnvironmentId());
+
+        if (consumer.isGuest() && consumer.hasFact("virt.uuid")) {
+            Consumer host = this.consumerCurator.getHost(consumer.getFact("virt.uuid"),
+                consumer.getOwnerId());
+
+            state.append('|').append(host != null ? host.getUuid() : null);
+        }
+
+        return new EntityTag(DigestUtils.sha256Hex(state.toString()));
+    }
+
+    /**
+     * Checks if an If-None-Match header value matches the given entity tag. The header may contain
+     * a wildcard, or a comma-separated list of strong or weak entity tags.
+     */
+    private boolean matchesEntityTag(String ifNoneMatch, EntityTag tag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+
+            if ("*".equals(candidate) || ('"' + tag.getValue() + '"').equals(candidate)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     private void validateBindArguments(String poolIdString, Integer quantity,
@@ -2849,6 +2933,25 @@ public class ConsumerResource {
         return results;
     }
 
+    @ApiOperation(notes = "Streams the Compliance Statuses of a list of Consumers as a map of " +
+        "Consumer UUIDs to their statuses. The statuses are calculated in parallel, in chunks of " +
+        "Consumers, and written out as they become available. Consumers which cannot be found " +
+        "or accessed are omitted. Unlike the statuses retrieved individually, streamed statuses " +
+        "are not saved to the Consumers.",
+        value = "streamComplianceStatusList", response = ComplianceStatusDTO.class,
+        responseContainer = "map")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/compliance/stream")
+    @SecurityHole
+    public StreamingOutput streamComplianceStatusList(@QueryParam("uuid") List<String> uuids,
+        @Context Principal principal) {
+
+        // Access to the consumers is checked by the streamer as it loads them, one chunk at a
+        // time, rather than loading every requested consumer up front to verify the request.
+        return this.complianceStatusStreamer.stream(uuids, principal);
+    }
+
     @ApiOperation(
         notes = "Removes the Deletion Record for a Consumer Allowed for a superadmin." +
         " The main use case for this would be if a user accidently deleted a " +
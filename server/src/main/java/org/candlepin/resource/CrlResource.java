@@ -17,6 +17,7 @@ package org.candlepin.resource;
 import org.candlepin.auth.Principal;
 import org.candlepin.common.config.Configuration;
 import org.candlepin.common.exceptions.IseException;
+import org.candlepin.common.exceptions.NotFoundException;
 import org.candlepin.config.ConfigProperties;
 import org.candlepin.model.CertificateSerial;
 import org.candlepin.model.CertificateSerialCurator;
@@ -27,6 +28,8 @@ import com.google.inject.Inject;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.Authorization;
 
 import java.io.File;
@@ -96,6 +99,32 @@ public class CrlResource {
         }
     }
 
+    @ApiOperation(notes = "Retrieves the delta Certificate Revocation List, listing the changes made " +
+        "since the current Certificate Revocation List was issued", value = "getCurrentDeltaCrl",
+        response = String.class)
+    @ApiResponses({ @ApiResponse(code = 404, message = "No delta CRL has been published") })
+    @GET
+    @Path("delta")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response getCurrentDeltaCrl(@Context Principal principal) throws CRLException {
+        String filePath = getCrlFilePath();
+        File crlFile = new File(filePath);
+
+        try {
+            this.crlFileUtil.syncCRLWithDB(crlFile);
+
+            File deltaFile = this.crlFileUtil.getDeltaCRLFile(crlFile);
+            if (!deltaFile.exists() || deltaFile.length() < 1) {
+                throw new NotFoundException("No delta CRL has been published");
+            }
+
+            return Response.ok().entity(new FileInputStream(deltaFile)).build();
+        }
+        catch (IOException e) {
+            throw new IseException(e.getMessage(), e);
+        }
+    }
+
     @ApiOperation(notes = "Deletes a Certificate from the Revocation List", value = "unrevoke")
     @DELETE
     @Produces(MediaType.APPLICATION_JSON)
@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.resource.util;
+
+import org.candlepin.auth.Access;
+import org.candlepin.auth.Principal;
+import org.candlepin.auth.SubResource;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.dto.ModelTranslator;
+import org.candlepin.dto.api.v1.ComplianceStatusDTO;
+import org.candlepin.guice.CandlepinRequestScope;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.policy.js.compliance.ComplianceRules;
+import org.candlepin.policy.js.compliance.ComplianceStatus;
+import org.candlepin.resteasy.JsonProvider;
+import org.candlepin.util.ExecutorUtil;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.UnitOfWork;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.inject.Singleton;
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+
+
+/**
+ * The ComplianceStatusStreamer calculates the compliance statuses of a list of consumers and
+ * streams them out as a JSON object mapping each consumer UUID to its status.
+ *
+ * The consumers are processed in fixed-size chunks on a bounded pool of worker threads. Each chunk
+ * is processed in its own unit of work, with a read-only session, and its statuses are written out
+ * as soon as it and every chunk before it are done. Only a few chunks per worker are in flight at
+ * any time, so neither the memory used nor the time to the first byte grows with the number of
+ * consumers requested.
+ *
+ * Unlike the statuses calculated by most other paths, the streamed statuses are never applied to
+ * the consumers: no entitlement or consumer is updated, and no compliance event is sent.
+ */
+@Singleton
+public class ComplianceStatusStreamer {
+    private static Logger log = LoggerFactory.getLogger(ComplianceStatusStreamer.class);
+
+    /** The number of chunks each worker may have queued or in progress for a single stream */
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private final Provider<ComplianceRules> complianceRulesProvider;
+    private final ConsumerCurator consumerCurator;
+    private final ModelTranslator translator;
+    private final UnitOfWork unitOfWork;
+    private final Provider<EntityManager> emProvider;
+    private final CandlepinRequestScope requestScope;
+    private final JsonProvider jsonProvider;
+
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final ExecutorService executor;
+
+    @Inject
+    public ComplianceStatusStreamer(Configuration config, Provider<ComplianceRules> complianceRulesProvider,
+        ConsumerCurator consumerCurator, ModelTranslator translator, UnitOfWork unitOfWork,
+        Provider<EntityManager> emProvider, CandlepinRequestScope requestScope, JsonProvider jsonProvider) {
+
+        this.complianceRulesProvider = Objects.requireNonNull(complianceRulesProvider);
+        this.consumerCurator = Objects.requireNonNull(consumerCurator);
+        this.translator = Objects.requireNonNull(translator);
+        this.unitOfWork = Objects.requireNonNull(unitOfWork);
+        this.emProvider = Objects.requireNonNull(emProvider);
+        this.requestScope = Objects.requireNonNull(requestScope);
+        this.jsonProvider = Objects.requireNonNull(jsonProvider);
+
+        int threads = Math.max(1, config.getInt(ConfigProperties.COMPLIANCE_STREAM_THREADS));
+
+        this.chunkSize = Math.max(1, config.getInt(ConfigProperties.COMPLIANCE_STREAM_CHUNK_SIZE));
+        this.maxChunksInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+        this.executor = ExecutorUtil.newBoundedExecutor("compliance-stream", threads);
+    }
+
+    /**
+     * Builds an output streamer which calculates and writes out the compliance statuses of the
+     * consumers with the given UUIDs. Consumers which cannot be found, or which the given principal
+     * cannot access, are omitted from the output.
+     *
+     * Access to the consumers is checked chunk by chunk, as they are looked up from the worker
+     * threads, so the consumers need not be loaded up front to verify the request.
+     *
+     * @param uuids
+     *  the UUIDs of the consumers for which to stream compliance statuses
+     *
+     * @param principal
+     *  the principal requesting the compliance statuses
+     *
+     * @return
+     *  an output streamer writing out a JSON object mapping consumer UUIDs to their statuses
+     */
+    public StreamingOutput stream(Collection<String> uuids, Principal principal) {
+        Objects.requireNonNull(principal);
+
+        List<List<String>> chunks = this.partition(uuids);
+        ObjectMapper mapper = this.jsonProvider.locateMapper(Object.class, MediaType.APPLICATION_JSON_TYPE);
+
+        return stream -> {
+            Deque<Future<Map<String, ComplianceStatusDTO>>> pending = new ArrayDeque<>();
+            int next = 0;
+
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(stream)) {
+                generator.writeStartObject();
+
+                while (next < chunks.size() || !pending.isEmpty()) {
+                    while (next < chunks.size() && pending.size() < this.maxChunksInFlight) {
+                        List<String> chunk = chunks.get(next++);
+                        pending.add(this.executor.submit(() -> this.processChunk(chunk, principal)));
+                    }
+
+                    // Write the chunks out in order, so the output is stable for a given request
+                    Map<String, ComplianceStatusDTO> statuses = this.await(pending.poll());
+
+                    for (Map.Entry<String, ComplianceStatusDTO> entry : statuses.entrySet()) {
+                        generator.writeFieldName(entry.getKey());
+                        mapper.writeValue(generator, entry.getValue());
+                    }
+
+                    generator.flush();
+                }
+
+                generator.writeEndObject();
+                generator.flush();
+            }
+            finally {
+                // If we bailed out early, don't leave the workers busy with chunks nobody will read
+                for (Future<?> future : pending) {
+                    future.cancel(false);
+                }
+            }
+        };
+    }
+
+    private List<List<String>> partition(Collection<String> uuids) {
+        List<List<String>> chunks = new ArrayList<>();
+
+        if (uuids != null) {
+            List<String> chunk = new ArrayList<>(this.chunkSize);
+
+            for (String uuid : new LinkedHashSet<>(uuids)) {
+                chunk.add(uuid);
+
+                if (chunk.size() >= this.chunkSize) {
+                    chunks.add(chunk);
+                    chunk = new ArrayList<>(this.chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+        }
+
+        return chunks;
+    }
+
+    private Map<String, ComplianceStatusDTO> await(Future<Map<String, ComplianceStatusDTO>> future)
+        throws IOException {
+
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for compliance statuses", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException("Unable to calculate compliance statuses", cause);
+        }
+    }
+
+    /**
+     * Calculates the compliance statuses of a chunk of consumers in a dedicated unit of work.
+     * Called from the worker threads.
+     *
+     * @param uuids
+     *  the UUIDs of the consumers in the chunk
+     *
+     * @param principal
+     *  the principal requesting the compliance statuses
+     *
+     * @return
+     *  a map of the consumer UUIDs to their statuses, in the order the UUIDs were given
+     */
+    protected Map<String, ComplianceStatusDTO> processChunk(List<String> uuids, Principal principal) {
+        Map<String, ComplianceStatusDTO> statuses = new LinkedHashMap<>();
+
+        // The compliance rules pull in request-scoped dependencies, so the workers need a scope of
+        // their own. Anything queued in it, such as events, is discarded along with the scope.
+        this.requestScope.enter();
+        this.unitOfWork.begin();
+
+        try {
+            Session session = (Session) this.emProvider.get().getDelegate();
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+
+            ComplianceRules complianceRules = this.complianceRulesProvider.get();
+            Map<String, Consumer> consumers = new LinkedHashMap<>();
+
+            // The lookup itself is not restricted, so consumers the principal cannot access are
+            // dropped here, as if they did not exist.
+            for (Consumer consumer : this.consumerCurator.findByUuids(uuids)) {
+                if (principal.canAccess(consumer, SubResource.NONE, Access.READ_ONLY)) {
+                    consumers.put(consumer.getUuid(), consumer);
+                }
+                else {
+                    log.debug("Omitting consumer not accessible to principal {}: {}",
+                        principal.getPrincipalName(), consumer.getUuid());
+                }
+            }
+
+            for (String uuid : uuids) {
+                Consumer consumer = consumers.get(uuid);
+
+                if (consumer != null) {
+                    ComplianceStatus status = complianceRules.getStatus(consumer, null, null, true, false,
+                        false, false);
+
+                    statuses.put(uuid, this.translator.translate(status, ComplianceStatusDTO.class));
+                }
+            }
+
+            log.debug("Calculated compliance statuses for {} of {} consumers", statuses.size(),
+                uuids.size());
+        }
+        finally {
+            this.unitOfWork.end();
+            this.requestScope.exit();
+        }
+
+        return statuses;
+    }
+}
@@ -15,6 +15,7 @@
 package org.candlepin.resteasy.filter;
 
 import org.candlepin.common.paging.Page;
+import org.candlepin.common.paging.PageCursor;
 import org.candlepin.common.paging.PageRequest;
 import org.candlepin.model.AbstractHibernateObject;
 import org.candlepin.model.CandlepinQuery;
@@ -26,11 +27,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+import org.hibernate.NullPrecedence;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.jboss.resteasy.core.ResteasyContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Objects;
 
 import javax.persistence.EntityManager;
@@ -48,6 +57,10 @@ import javax.ws.rs.core.StreamingOutput;
  */
 @javax.ws.rs.ext.Provider
 public class CandlepinQueryInterceptor implements ContainerResponseFilter {
+    private static Logger log = LoggerFactory.getLogger(CandlepinQueryInterceptor.class);
+
+    /** The field used to break ties between results with the same sort value when paging by cursor */
+    private static final String ID_FIELD = "id";
 
     protected final JsonProvider jsonProvider;
     protected final Provider<EntityManager> emProvider;
@@ -119,6 +132,11 @@ public class CandlepinQueryInterceptor implements ContainerResponseFilter {
             pageRequest.getOrder() :
             PageRequest.DEFAULT_ORDER;
 
+        if (pageRequest.isCursorPaging()) {
+            this.applyCursorPaging(pageRequest, sortField, order, query);
+            return;
+        }
+
         query.addOrder(order == PageRequest.Order.DESCENDING ?
             Order.desc(sortField) :
             Order.asc(sortField)
@@ -138,6 +156,93 @@ public class CandlepinQueryInterceptor implements ContainerResponseFilter {
         }
     }
 
+    /**
+     * Restricts the query to the page of results following the request's cursor. Rather than
+     * skipping over the results of all previous pages, the results are ordered by the sort field
+     * and ID, and the query seeks straight past the sort key stored in the cursor.
+     */
+    private void applyCursorPaging(PageRequest pageRequest, String sortField, PageRequest.Order order,
+        CandlepinQuery query) {
+
+        boolean descending = order == PageRequest.Order.DESCENDING;
+
+        // Impl note:
+        // Null sort values are explicitly sorted last in either order, as databases disagree on
+        // where they go by default, and the seek restriction has to know.
+        Order sortOrder = descending ? Order.desc(sortField) : Order.asc(sortField);
+        query.addOrder(sortOrder.nulls(NullPrecedence.LAST));
+        query.addOrder(descending ? Order.desc(ID_FIELD) : Order.asc(ID_FIELD));
+
+        Page page = new Page();
+        page.setPageRequest(pageRequest);
+
+        // The total has to be counted before the query is restricted to the remaining results. The
+        // query keeps any restriction added after it has been executed, so counting first is safe.
+        if (pageRequest.isIncludeTotal()) {
+            page.setMaxRecords(query.getRowCount());
+        }
+
+        PageCursor cursor = pageRequest.getCursor();
+        if (cursor != null) {
+            query.addRestriction(this.buildSeekRestriction(sortField, descending, cursor));
+        }
+
+        // Look up the sort key of the last result on this page, and whether or not any result
+        // follows it, to build the cursor for the next page. This only has to step over a single
+        // page worth of index entries, unlike a count of all the results.
+        int perPage = pageRequest.getPerPage();
+        ProjectionList sortKey = Projections.projectionList()
+            .add(Projections.property(sortField))
+            .add(Projections.property(ID_FIELD));
+
+        List<?> keys = query.setFirstResult(perPage - 1)
+            .setMaxResults(2)
+            .listProjection(sortKey);
+
+        if (keys.size() > 1) {
+            Object[] last = (Object[]) keys.get(0);
+
+            if (PageCursor.isSupportedType(last[0]) && PageCursor.isSupportedType(last[1])) {
+                page.setNextCursor(new PageCursor(sortField, order, last[0], last[1]).encode());
+            }
+            else {
+                log.warn("Unable to build a page cursor for sort field \"{}\" of type {}", sortField,
+                    last[0].getClass().getName());
+            }
+        }
+
+        query.setFirstResult(-1);
+        query.setMaxResults(perPage);
+
+        ResteasyContext.pushContext(Page.class, page);
+    }
+
+    /**
+     * Builds a restriction matching the results that follow the sort key stored in the given
+     * cursor, assuming the results are sorted by the sort field with nulls last, and then by ID.
+     */
+    private Criterion buildSeekRestriction(String sortField, boolean descending, PageCursor cursor) {
+        Object lastValue = cursor.getLastValue();
+        Object lastId = cursor.getLastId();
+
+        Criterion idFollows = descending ?
+            Restrictions.lt(ID_FIELD, lastId) :
+            Restrictions.gt(ID_FIELD, lastId);
+
+        if (lastValue == null) {
+            return Restrictions.and(Restrictions.isNull(sortField), idFollows);
+        }
+
+        Criterion valueFollows = descending ?
+            Restrictions.lt(sortField, lastValue) :
+            Restrictions.gt(sortField, lastValue);
+
+        return Restrictions.or(
+            valueFollows,
+            Restrictions.and(Restrictions.eq(sortField, lastValue), idFollows),
+            Restrictions.isNull(sortField));
+    }
+
     private StreamingOutput buildOutputStreamer(Session session, CandlepinQuery query) {
         ObjectMapper mapper = this.jsonProvider
             .locateMapper(Object.class, MediaType.APPLICATION_JSON_TYPE);
@@ -17,7 +17,7 @@ package org.candlepin.resteasy.filter;
 import org.candlepin.auth.ConsumerPrincipal;
 import org.candlepin.auth.Principal;
 import org.candlepin.auth.UpdateConsumerCheckIn;
-import org.candlepin.model.ConsumerCurator;
+import org.candlepin.controller.ConsumerCheckInAggregator;
 import org.candlepin.resteasy.AnnotationLocator;
 
 import org.jboss.resteasy.core.ResteasyContext;
@@ -37,17 +37,19 @@ import javax.ws.rs.ext.Provider;
 
 /** This filter is applied to resource methods annotated with @UpdateConsumerCheckIn.  It
  * will inspect the principal and if the principal is a ConsumerPrincipal, it will update
- * the consumer's check-in time.
+ * the consumer's check-in time. Depending on configuration, the check-in may be buffered and
+ * written to the database shortly after the request.
  */
 @Priority(Priorities.USER)
 @Provider
 public class ConsumerCheckInFilter implements ContainerRequestFilter {
-    private final ConsumerCurator consumerCurator;
+    private final ConsumerCheckInAggregator checkInAggregator;
     private final AnnotationLocator annotationLocator;
 
     @Inject
-    public ConsumerCheckInFilter(ConsumerCurator consumerCurator, AnnotationLocator annotationLocator) {
-        this.consumerCurator = consumerCurator;
+    public ConsumerCheckInFilter(ConsumerCheckInAggregator checkInAggregator,
+        AnnotationLocator annotationLocator) {
+        this.checkInAggregator = checkInAggregator;
         this.annotationLocator = annotationLocator;
     }
 
@@ -60,7 +62,7 @@ public class ConsumerCheckInFilter implements ContainerRequestFilter {
         if (principal instanceof ConsumerPrincipal &&
             annotationLocator.getAnnotation(method, UpdateConsumerCheckIn.class) != null) {
             ConsumerPrincipal p = (ConsumerPrincipal) principal;
-            consumerCurator.updateLastCheckin(p.getConsumer());
+            checkInAggregator.checkIn(p.getConsumer());
         }
     }
 }
@@ -38,6 +38,9 @@ import org.candlepin.model.PoolQuantity;
 import org.candlepin.model.Product;
 import org.candlepin.model.ProductContent;
 import org.candlepin.model.ProductCurator;
+import org.candlepin.model.dto.EntitlementBody;
+import org.candlepin.pki.CertificateSigningExecutor;
+import org.candlepin.pki.CertificateSigningExecutor.SigningTask;
 import org.candlepin.pki.PKIUtility;
 import org.candlepin.pki.X509ByteExtensionWrapper;
 import org.candlepin.pki.X509ExtensionWrapper;
@@ -63,6 +66,7 @@ import java.net.URLEncoder;
 import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -91,6 +95,7 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
     private ProductCurator productCurator;
     private ConsumerTypeCurator consumerTypeCurator;
     private EnvironmentCurator environmentCurator;
+    private CertificateSigningExecutor signingExecutor;
 
     @Inject
     public DefaultEntitlementCertServiceAdapter(PKIUtility pki,
@@ -104,7 +109,8 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
         Configuration config,
         ProductCurator productCurator,
         ConsumerTypeCurator consumerTypeCurator,
-        EnvironmentCurator environmentCurator) {
+        EnvironmentCurator environmentCurator,
+        CertificateSigningExecutor signingExecutor) {
 
         this.pki = pki;
         this.extensionUtil = extensionUtil;
@@ -119,6 +125,7 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
         this.productCurator = productCurator;
         this.consumerTypeCurator = consumerTypeCurator;
         this.environmentCurator = environmentCurator;
+        this.signingExecutor = signingExecutor;
     }
 
 
@@ -151,10 +158,10 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
         return doEntitlementCertGeneration(consumer, products, poolQuantities, entitlements, save);
     }
 
-    private Set<Product> getDerivedProductsForDistributor(Pool pool, Consumer consumer) {
+    private Set<Product> getDerivedProductsForDistributor(Pool pool, boolean manifestDistributor) {
         Set<Product> derivedProducts = new HashSet<>();
 
-        if (!pool.hasAttribute(Pool.Attributes.DERIVED_POOL) && this.isManifestDistributor(consumer)) {
+        if (!pool.hasAttribute(Pool.Attributes.DERIVED_POOL) && manifestDistributor) {
             Product derivedProduct = pool.getDerivedProduct();
 
             if (derivedProduct != null) {
@@ -175,15 +182,30 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
         KeyPair keyPair, boolean useContentPrefix)
         throws GeneralSecurityException, IOException {
 
+        Map<String, EnvironmentContent> promotedContent = getPromotedContent(consumer);
+        String contentPrefix = getContentPrefix(consumer, owner, useContentPrefix);
+
+        CertificateTemplate template = this.prepareCertificate(consumer, owner, pool, ent, product, products,
+            productModels, serialNumber, shouldGenerateV3(consumer), contentPrefix, promotedContent);
+
+        return template.sign(this.pki, keyPair);
+    }
+
+    /**
+     * Builds everything an entitlement certificate is created from, short of signing it. This
+     * requires access to the entities involved and must be done on the requesting thread.
+     */
+    private CertificateTemplate prepareCertificate(Consumer consumer, Owner owner, Pool pool,
+        Entitlement ent, Product product, Set<Product> products,
+        List<org.candlepin.model.dto.Product> productModels, BigInteger serialNumber, boolean generateV3,
+        String contentPrefix, Map<String, EnvironmentContent> promotedContent) throws IOException {
+
         // oidutil is busted at the moment, so do this manually
         Set<X509ExtensionWrapper> extensions;
         Set<X509ByteExtensionWrapper> byteExtensions = new LinkedHashSet<>();
         products.add(product);
 
-        Map<String, EnvironmentContent> promotedContent = getPromotedContent(consumer);
-        String contentPrefix = getContentPrefix(consumer, owner, useContentPrefix);
-
-        if (shouldGenerateV3(consumer)) {
+        if (generateV3) {
             extensions = prepareV3Extensions();
             byteExtensions = prepareV3ByteExtensions(product, productModels, contentPrefix, promotedContent);
         }
@@ -203,11 +225,8 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
             startDate = calMinusHour.getTime();
         }
 
-        X509Certificate x509Cert =  this.pki.createX509Certificate(
-            createDN(ent, owner), extensions, byteExtensions, startDate,
-            endDate, keyPair, serialNumber, null);
-
-        return x509Cert;
+        return new CertificateTemplate(createDN(ent, owner), extensions, byteExtensions, startDate, endDate,
+            serialNumber);
     }
 
     /**
@@ -446,6 +465,12 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
         KeyPair keyPair = keyPairCurator.getConsumerKeyPair(consumer);
         byte[] pemEncodedKeyPair = pki.getPemEncoded(keyPair.getPrivate());
 
+        // None of these vary between the consumer's certificates, so only look them up once
+        boolean manifestDistributor = this.isManifestDistributor(consumer);
+        boolean generateV3 = this.shouldGenerateV3(consumer);
+        Map<String, EnvironmentContent> promotedContent = getPromotedContent(consumer);
+        String contentPrefix = getContentPrefix(consumer, owner, true);
+
         Map<String, CertificateSerial> serialMap = new HashMap<>();
         for (Entry<String, PoolQuantity> entry : poolQuantities.entrySet()) {
             serialMap.put(entry.getKey(), new CertificateSerial(entry.getValue().getPool().getEndDate()));
@@ -455,7 +480,11 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
         log.debug("Persisting new certificate serials");
         serialCurator.saveOrUpdateAll(serialMap.values(), false, false);
 
-        Map<String, EntitlementCertificate> entitlementCerts = new HashMap<>();
+        // Gather up the contents of each certificate here, where the entities can be safely accessed,
+        // and leave the encoding and signing to the signing executor.
+        List<String> poolIds = new ArrayList<>(poolQuantities.size());
+        List<SigningTask<String>> signingTasks = new ArrayList<>(poolQuantities.size());
+
         for (Entry<String, PoolQuantity> entry : poolQuantities.entrySet()) {
             Pool pool = entry.getValue().getPool();
             Entitlement ent = entitlements.get(entry.getKey());
@@ -472,57 +501,47 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
             // If creating a certificate for a distributor, we need
             // to add any derived products as well so that their content
             // is available in the upstream certificate.
-            products.addAll(getDerivedProductsForDistributor(pool, consumer));
+            products.addAll(getDerivedProductsForDistributor(pool, manifestDistributor));
             products.add(product);
 
-            Map<String, EnvironmentContent> promotedContent = getPromotedContent(consumer);
-            String contentPrefix = getContentPrefix(consumer, owner, true);
-
             log.info("Creating X509 cert for product: {}", product);
             log.debug("Provided products: {}", products);
             List<org.candlepin.model.dto.Product> productModels = v3extensionUtil.createProducts(product,
                 products, contentPrefix, promotedContent, consumer, pool);
 
-            X509Certificate x509Cert = createX509Certificate(consumer, owner, pool, ent,
-                product, products, productModels,
-                BigInteger.valueOf(serial.getId()), keyPair, true);
-
-            log.debug("Getting PEM encoded cert.");
-            String pem = new String(this.pki.getPemEncoded(x509Cert));
-
-            if (shouldGenerateV3(consumer)) {
-                log.debug("Generating v3 entitlement data");
+            CertificateTemplate template = this.prepareCertificate(consumer, owner, pool, ent, product,
+                products, productModels, BigInteger.valueOf(serial.getId()), generateV3, contentPrefix,
+                promotedContent);
 
-                byte[] payloadBytes = v3extensionUtil.createEntitlementDataPayload(productModels,
-                        consumer, pool, ent.getQuantity());
+            EntitlementBody entitlementBody = generateV3 ?
+                v3extensionUtil.createEntitlementBody(productModels, consumer, pool, ent.getQuantity()) :
+                null;
 
-                String payload = "-----BEGIN ENTITLEMENT DATA-----\n";
-                payload += Util.toBase64(payloadBytes);
-                payload += "-----END ENTITLEMENT DATA-----\n";
+            poolIds.add(entry.getKey());
+            signingTasks.add(() -> this.buildCertificatePem(template, keyPair, entitlementBody));
+        }
 
-                byte[] bytes = pki.getSHA256WithRSAHash(new ByteArrayInputStream(payloadBytes));
-                String signature = "-----BEGIN RSA SIGNATURE-----\n";
-                signature += Util.toBase64(bytes);
-                signature += "-----END RSA SIGNATURE-----\n";
+        List<String> pems = this.signingExecutor.signAll(signingTasks);
 
-                pem += payload + signature;
-            }
+        Map<String, EntitlementCertificate> entitlementCerts = new HashMap<>();
+        for (int i = 0; i < poolIds.size(); ++i) {
+            Entitlement ent = entitlements.get(poolIds.get(i));
 
             // Build a skeleton cert as part of the entitlement processing.
             EntitlementCertificate cert = new EntitlementCertificate();
             cert.setKeyAsBytes(pemEncodedKeyPair);
-            cert.setCert(pem);
+            cert.setCert(pems.get(i));
             if (save) {
                 cert.setEntitlement(ent);
             }
 
             if (log.isDebugEnabled()) {
-                log.debug("Generated cert serial number: {}", serial.getId());
+                log.debug("Generated cert serial number: {}", serialMap.get(poolIds.get(i)).getId());
                 log.debug("Key: {}", cert.getKey());
                 log.debug("Cert: {}", cert.getCert());
             }
 
-            entitlementCerts.put(entry.getKey(), cert);
+            entitlementCerts.put(poolIds.get(i), cert);
         }
 
         // Now that the serials have been saved, update the newly created
@@ -557,6 +576,35 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
         return entitlementCerts;
     }
 
+    /**
+     * Signs a certificate and encodes it, along with the signed v3 entitlement data when an
+     * entitlement body is provided. Called from the signing executor.
+     */
+    private String buildCertificatePem(CertificateTemplate template, KeyPair keyPair,
+        EntitlementBody entitlementBody) throws GeneralSecurityException, IOException {
+
+        X509Certificate x509Cert = template.sign(this.pki, keyPair);
+
+        log.debug("Getting PEM encoded cert.");
+        StringBuilder pem = new StringBuilder(new String(this.pki.getPemEncoded(x509Cert)));
+
+        if (entitlementBody != null) {
+            log.debug("Generating v3 entitlement data");
+
+            byte[] payloadBytes = v3extensionUtil.createEntitlementDataPayload(entitlementBody);
+            byte[] signature = pki.getSHA256WithRSAHash(new ByteArrayInputStream(payloadBytes));
+
+            pem.append("-----BEGIN ENTITLEMENT DATA-----\n")
+                .append(Util.toBase64(payloadBytes))
+                .append("-----END ENTITLEMENT DATA-----\n")
+                .append("-----BEGIN RSA SIGNATURE-----\n")
+                .append(Util.toBase64(signature))
+                .append("-----END RSA SIGNATURE-----\n");
+        }
+
+        return pem.toString();
+    }
+
     private String createDN(Entitlement ent, Owner owner) {
         StringBuilder sb = new StringBuilder("CN=");
         sb.append(ent.getId());
@@ -568,4 +616,35 @@ public class DefaultEntitlementCertServiceAdapter extends BaseEntitlementCertSer
     public List<Long> listEntitlementSerialIds(Consumer consumer) {
         return serialCurator.listEntitlementSerialIds(consumer);
     }
+
+    /**
+     * The contents of an entitlement certificate, ready to be signed
+     */
+    private static class CertificateTemplate {
+        private final String dn;
+        private final Set<X509ExtensionWrapper> extensions;
+        private final Set<X509ByteExtensionWrapper> byteExtensions;
+        private final Date startDate;
+        private final Date endDate;
+        private final BigInteger serialNumber;
+
+        public CertificateTemplate(String dn, Set<X509ExtensionWrapper> extensions,
+            Set<X509ByteExtensionWrapper> byteExtensions, Date startDate, Date endDate,
+            BigInteger serialNumber) {
+
+            this.dn = dn;
+            this.extensions = extensions;
+            this.byteExtensions = byteExtensions;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.serialNumber = serialNumber;
+        }
+
+        public X509Certificate sign(PKIUtility pki, KeyPair keyPair)
+            throws GeneralSecurityException, IOException {
+
+            return pki.createX509Certificate(this.dn, this.extensions, this.byteExtensions, this.startDate,
+                this.endDate, keyPair, this.serialNumber, null);
+        }
+    }
 }
@@ -36,6 +36,7 @@ import org.candlepin.resource.util.GuestMigration;
 import org.candlepin.service.SubscriptionServiceAdapter;
 import org.candlepin.util.Transactional;
 
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
 import org.apache.commons.lang.StringUtils;
@@ -107,6 +108,14 @@ public class HypervisorUpdateAction {
         parseHypervisorList(hypervisors, hosts, guests, incomingHosts);
         VirtConsumerMap hypervisorConsumersMap = new VirtConsumerMap();
 
+        int batchSize = this.config.getInt(ConfigProperties.HYPERVISOR_UPDATE_BATCH_SIZE);
+        if (batchSize > 1) {
+            this.reconcileHostsInBatches(owner, hosts, incomingHosts, result, hypervisorConsumersMap,
+                create, principal, jobReporterId, batchSize);
+
+            return new Result(result, hypervisorConsumersMap);
+        }
+
         HypervisorUpdateAction act = this;
         Transactional<Consumer> transaction = this.consumerCurator.transactional(args ->
             act.reconcileHost((Owner) args[0], (Consumer) args[1], (HypervisorUpdateResultDTO) args[2],
@@ -134,6 +143,166 @@ public class HypervisorUpdateAction {
         return new Result(result, hypervisorConsumersMap);
     }
 
+    /**
+     * Reconciles the given hypervisors in chunks of the given size. Each chunk is reconciled in its
+     * own transaction, with the existing host consumers of the whole chunk looked up and locked
+     * up front. If anything in a chunk fails, the chunk is rolled back and each of its hypervisors
+     * is reported as failed; the remaining chunks are unaffected.
+     *
+     * Isolation is per chunk rather than per host: changes are only flushed once a chunk has been
+     * reconciled, so most failures, such as constraint violations, cannot be attributed to a single
+     * host. After a rollback, the persistence context is cleared, so the entities of the failed
+     * chunk are not flushed again along with the next one.
+     */
+    @SuppressWarnings("unchecked")
+    private void reconcileHostsInBatches(Owner owner, Set<String> hosts, Map<String, Consumer> incomingHosts,
+        HypervisorUpdateResultDTO result, VirtConsumerMap hypervisorConsumersMap, boolean create,
+        String principal, String jobReporterId, int batchSize) {
+
+        HypervisorUpdateAction act = this;
+        Transactional<List<Consumer>> transaction = this.consumerCurator.transactional(args ->
+            act.reconcileHosts((Owner) args[0], (List<Consumer>) args[1], (HypervisorUpdateResultDTO) args[2],
+            (Boolean) args[3], (String) args[4], (String) args[5]))
+            .onCommit(status -> sink.sendEvents())
+            .onRollback(status -> sink.rollback());
+
+        // Failures are collected separately, as they cannot be added to the result one at a time
+        // without being reformatted
+        List<String> failed = new ArrayList<>();
+
+        for (List<String> block : Iterables.partition(hosts, batchSize)) {
+            List<Consumer> chunk = new ArrayList<>(block.size());
+            for (String hypervisorId : block) {
+                chunk.add(incomingHosts.get(hypervisorId));
+            }
+
+            HypervisorUpdateResultDTO chunkResult = new HypervisorUpdateResultDTO();
+
+            try {
+                List<Consumer> knownHosts = transaction.execute(owner, chunk, chunkResult, create,
+                    principal, jobReporterId);
+
+                for (Consumer knownHost : knownHosts) {
+                    hypervisorConsumersMap.add(knownHost.getHypervisorId().getHypervisorId(), knownHost);
+                }
+
+                if (chunkResult.getCreated() != null) {
+                    chunkResult.getCreated().forEach(result::addCreated);
+                }
+
+                if (chunkResult.getUpdated() != null) {
+                    chunkResult.getUpdated().forEach(result::addUpdated);
+                }
+
+                if (chunkResult.getUnchanged() != null) {
+                    chunkResult.getUnchanged().forEach(result::addUnchanged);
+                }
+
+                if (chunkResult.getFailedUpdate() != null) {
+                    failed.addAll(chunkResult.getFailedUpdate());
+                }
+            }
+            catch (Exception e) {
+                log.error("Unable to reconcile a chunk of {} hypervisors in org {}", block.size(),
+                    owner.getKey(), e);
+
+                // The rolled back changes are still pending in the persistence context
+                this.consumerCurator.clear();
+
+                HypervisorUpdateResultDTO chunkFailures = new HypervisorUpdateResultDTO();
+                for (String hypervisorId : block) {
+                    chunkFailures.addFailed(hypervisorId, "Unable to reconcile hypervisor with id " +
+                        hypervisorId + " in org " + owner.getKey());
+                }
+
+                failed.addAll(chunkFailures.getFailedUpdate());
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            result.setFailedUpdate(failed);
+        }
+    }
+
+    /**
+     * Reconciles a chunk of incoming hypervisors against their existing host consumers, which are
+     * looked up with a single query rather than one per hypervisor, and then locked together.
+     * Changes are flushed once the whole chunk has been reconciled.
+     *
+     * @return
+     *  the host consumers created or updated for the given hypervisors
+     */
+    public List<Consumer> reconcileHosts(Owner owner, List<Consumer> incomingHosts,
+        HypervisorUpdateResultDTO result, boolean create, String principal, String jobReporterId) {
+
+        boolean matchSystemUuid = this.config.getBoolean(ConfigProperties.USE_SYSTEM_UUID_FOR_MATCHING);
+        VirtConsumerMap existingHosts;
+
+        if (matchSystemUuid) {
+            existingHosts = this.consumerCurator.getHostConsumersMap(owner, incomingHosts);
+        }
+        else {
+            List<String> hypervisorIds = new ArrayList<>(incomingHosts.size());
+            for (Consumer incomingHost : incomingHosts) {
+                hypervisorIds.add(incomingHost.getHypervisorId().getHypervisorId());
+            }
+
+            existingHosts = this.consumerCurator.getHostConsumersMap(owner, hypervisorIds);
+        }
+
+        // The lookup does not lock the hosts it finds, and does not reload those already in the
+        // persistence context, which may predate updates committed since by other transactions. The
+        // hosts are locked in ID order and refreshed, so they are reconciled against their current
+        // state rather than overwriting concurrent updates.
+        List<String> existingHostIds = new ArrayList<>(existingHosts.size());
+        for (Consumer existingHost : existingHosts.getConsumers()) {
+            existingHostIds.add(existingHost.getId());
+        }
+
+        this.consumerCurator.refresh(this.consumerCurator.lockAndLoad(existingHostIds));
+
+        // Hosts matched on their system UUID are keyed by their existing hypervisor ID, which may
+        // differ from the one being reported
+        Map<String, Consumer> hostsBySystemUuid = new HashMap<>();
+        if (matchSystemUuid) {
+            for (Consumer existingHost : existingHosts.getConsumers()) {
+                String systemUuid = existingHost.getFact(Consumer.Facts.SYSTEM_UUID);
+                if (systemUuid != null) {
+                    hostsBySystemUuid.putIfAbsent(systemUuid.toLowerCase(), existingHost);
+                }
+            }
+        }
+
+        List<Consumer> knownHosts = new ArrayList<>(incomingHosts.size());
+
+        for (Consumer incomingHost : incomingHosts) {
+            String hypervisorId = incomingHost.getHypervisorId().getHypervisorId();
+            String systemUuid = incomingHost.getFact(Consumer.Facts.SYSTEM_UUID);
+
+            Consumer existingHost = existingHosts.get(hypervisorId);
+            if (existingHost == null && matchSystemUuid && systemUuid != null) {
+                existingHost = hostsBySystemUuid.get(systemUuid.toLowerCase());
+            }
+
+            Consumer knownHost = this.reconcileHost(owner, incomingHost, existingHost, result, create,
+                principal, jobReporterId, false);
+
+            if (knownHost != null) {
+                knownHosts.add(knownHost);
+
+                // Later hypervisors in this chunk reporting the same system UUID should match the
+                // host just created, as they would have had it been flushed
+                if (existingHost == null && matchSystemUuid && systemUuid != null) {
+                    hostsBySystemUuid.putIfAbsent(systemUuid.toLowerCase(), knownHost);
+                }
+            }
+        }
+
+        this.consumerCurator.flush();
+
+        return knownHosts;
+    }
+
     public Consumer reconcileHost(Owner owner, Consumer incomingHost, HypervisorUpdateResultDTO result,
         boolean create, String principal, String jobReporterId) {
         String systemUuid = incomingHost.getFact(Consumer.Facts.SYSTEM_UUID);
@@ -142,6 +311,20 @@ public class HypervisorUpdateAction {
             hypervisorId,
             config.getBoolean(ConfigProperties.USE_SYSTEM_UUID_FOR_MATCHING) ? systemUuid : null);
 
+        if (resultHost != null) {
+            consumerCurator.lock(resultHost);
+        }
+
+        return this.reconcileHost(owner, incomingHost, resultHost, result, create, principal, jobReporterId,
+            true);
+    }
+
+    private Consumer reconcileHost(Owner owner, Consumer incomingHost, Consumer resultHost,
+        HypervisorUpdateResultDTO result, boolean create, String principal, String jobReporterId,
+        boolean flush) {
+
+        String hypervisorId = incomingHost.getHypervisorId().getHypervisorId();
+
         if (jobReporterId == null) {
             log.debug("hypervisor checkin reported asynchronously without reporter id " +
                 "for hypervisor:{} of owner:{}", hypervisorId, owner.getKey());
@@ -165,7 +348,13 @@ public class HypervisorUpdateAction {
                     guestMigration.migrate(false);
                 }
                 try {
-                    consumerCurator.create(resultHost);
+                    if (flush) {
+                        consumerCurator.create(resultHost);
+                    }
+                    else {
+                        consumerCurator.create(resultHost, false);
+                    }
+
                     result.addCreated(this.translator.translate(resultHost, HypervisorConsumerDTO.class));
                     Event event = evtFactory.consumerCreated(resultHost);
                     sink.queueEvent(event);
@@ -179,7 +368,6 @@ public class HypervisorUpdateAction {
             }
         }
         else {
-            consumerCurator.lock(resultHost);
             boolean hypervisorIdUpdated = updateHypervisorId(resultHost, owner, jobReporterId,
                 hypervisorId);
 
@@ -232,7 +420,12 @@ public class HypervisorUpdateAction {
             }
 
             try {
-                consumerCurator.update(resultHost);
+                if (flush) {
+                    consumerCurator.update(resultHost);
+                }
+                else {
+                    consumerCurator.update(resultHost, false);
+                }
             }
             catch (Exception e) {
                 result.addFailed(hypervisorId,
@@ -62,14 +62,26 @@ public class EventFilter implements Filter {
         // CandlepinRequestScope as the filter must be a singleton.
         EventSink eventSink = injector.getInstance(EventSink.class);
         TeeHttpServletResponse resp = new TeeHttpServletResponse((HttpServletResponse) response);
-        chain.doFilter(request, resp);
-        Status status = Status.fromStatusCode(resp.getStatus());
-        if (status.getFamily() == Status.Family.SUCCESSFUL) {
-            eventSink.sendEvents();
+        boolean successful = false;
+
+        try {
+            chain.doFilter(request, resp);
+
+            Status status = Status.fromStatusCode(resp.getStatus());
+            successful = status != null && status.getFamily() == Status.Family.SUCCESSFUL;
+
+            if (!successful) {
+                log.debug("Request failed, skipping event sending, status={}", resp.getStatus());
+            }
         }
-        else {
-            eventSink.rollback();
-            log.debug("Request failed, skipping event sending, status={}", status);
+        finally {
+            // Queued events must be dealt with even if the request blew up
+            if (successful) {
+                eventSink.sendEvents();
+            }
+            else {
+                eventSink.rollback();
+            }
         }
     }
 
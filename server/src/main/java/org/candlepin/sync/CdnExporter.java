@@ -36,9 +36,13 @@ public class CdnExporter {
         this.translator = translator;
     }
 
+    CdnDTO translate(Cdn cdn) {
+        return this.translator.translate(cdn, CdnDTO.class);
+    }
+
     void export(ObjectMapper mapper, Writer writer, Cdn cdn)
         throws IOException {
 
-        mapper.writeValue(writer, this.translator.translate(cdn, CdnDTO.class));
+        mapper.writeValue(writer, this.translate(cdn));
     }
 }
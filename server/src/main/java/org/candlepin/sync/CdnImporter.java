@@ -41,7 +41,10 @@ public class CdnImporter {
     }
 
     public CdnDTO createObject(ObjectMapper mapper, Reader reader) throws IOException {
-        CdnDTO cdnDTO = mapper.readValue(reader, CdnDTO.class);
+        return this.createObject(mapper.readValue(reader, CdnDTO.class));
+    }
+
+    public CdnDTO createObject(CdnDTO cdnDTO) {
         cdnDTO.setId(null);
         return cdnDTO;
     }
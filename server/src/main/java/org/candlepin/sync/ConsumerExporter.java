@@ -36,12 +36,16 @@ public class ConsumerExporter {
         this.translator = translator;
     }
 
-    void export(ObjectMapper mapper, Writer writer, Consumer consumer,
-        String weburl, String apiurl) throws IOException {
+    ConsumerDTO translate(Consumer consumer, String weburl, String apiurl) {
         ConsumerDTO consumerDTO = this.translator.translate(consumer, ConsumerDTO.class);
 
         consumerDTO.setUrlApi(apiurl);
         consumerDTO.setUrlWeb(weburl);
-        mapper.writeValue(writer, consumerDTO);
+        return consumerDTO;
+    }
+
+    void export(ObjectMapper mapper, Writer writer, Consumer consumer,
+        String weburl, String apiurl) throws IOException {
+        mapper.writeValue(writer, this.translate(consumer, weburl, apiurl));
     }
 }
@@ -36,8 +36,12 @@ public class ConsumerTypeExporter {
         this.translator = translator;
     }
 
+    ConsumerTypeDTO translate(ConsumerType consumerType) {
+        return this.translator.translate(consumerType, ConsumerTypeDTO.class);
+    }
+
     void export(ObjectMapper mapper, Writer writer, ConsumerType consumerType)
         throws IOException {
-        mapper.writeValue(writer, this.translator.translate(consumerType, ConsumerTypeDTO.class));
+        mapper.writeValue(writer, this.translate(consumerType));
     }
 }
@@ -36,9 +36,13 @@ public class DistributorVersionExporter {
         this.translator = translator;
     }
 
+    DistributorVersionDTO translate(DistributorVersion version) {
+        return this.translator.translate(version, DistributorVersionDTO.class);
+    }
+
     void export(ObjectMapper mapper, Writer writer, DistributorVersion version)
         throws IOException {
 
-        mapper.writeValue(writer, this.translator.translate(version, DistributorVersionDTO.class));
+        mapper.writeValue(writer, this.translate(version));
     }
 }
@@ -36,7 +36,11 @@ public class EntitlementExporter {
         this.translator = translator;
     }
 
+    EntitlementDTO translate(Entitlement entitlement) {
+        return this.translator.translate(entitlement, EntitlementDTO.class);
+    }
+
     void export(ObjectMapper mapper, Writer writer, Entitlement entitlement) throws IOException {
-        mapper.writeValue(writer, this.translator.translate(entitlement, EntitlementDTO.class));
+        mapper.writeValue(writer, this.translate(entitlement));
     }
 }
@@ -74,6 +74,12 @@ public class EntitlementImporter {
         throws IOException, SyncDataFormatException {
 
         EntitlementDTO entitlement = mapper.readValue(reader, EntitlementDTO.class);
+        return this.importObject(entitlement, owner, productsById, consumerUuid, meta);
+    }
+
+    public SubscriptionDTO importObject(EntitlementDTO entitlement, Owner owner,
+        Map<String, ProductDTO> productsById, String consumerUuid, Meta meta)
+        throws SyncDataFormatException {
 
         SubscriptionDTO subscription = new SubscriptionDTO();
 
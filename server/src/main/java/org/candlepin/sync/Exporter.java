@@ -39,6 +39,7 @@ import org.candlepin.model.Pool;
 import org.candlepin.model.Product;
 import org.candlepin.model.ResultIterator;
 import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.SignatureGenerator;
 import org.candlepin.policy.js.export.ExportRules;
 import org.candlepin.service.EntitlementCertServiceAdapter;
 import org.candlepin.service.ProductServiceAdapter;
@@ -48,10 +49,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -59,7 +62,11 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -103,6 +110,7 @@ public class Exporter {
 
     private static final String LEGACY_RULES_FILE = "/rules/default-rules.js";
     private SyncUtils syncUtils;
+    private ManifestEntrySerializer serializer;
 
     @Inject
     public Exporter(ConsumerTypeCurator consumerTypeCurator, OwnerCurator ownerCurator, MetaExporter meta,
@@ -118,7 +126,8 @@ public class Exporter {
         CdnExporter cdnExporter,
         SyncUtils syncUtils,
         ModelTranslator translator,
-        ContentAccessManager contentAccessManager) {
+        ContentAccessManager contentAccessManager,
+        ManifestEntrySerializer serializer) {
 
         this.consumerTypeCurator = consumerTypeCurator;
         this.ownerCurator = ownerCurator;
@@ -144,6 +153,7 @@ public class Exporter {
         mapper = syncUtils.getObjectMapper();
         this.translator = translator;
         this.contentAccessManager = contentAccessManager;
+        this.serializer = serializer;
     }
 
     /**
@@ -158,6 +168,11 @@ public class Exporter {
      */
     public File getFullExport(Consumer consumer, String cdnLabel, String webUrl,
         String apiUrl) throws ExportCreationException {
+
+        if (config.getBoolean(ConfigProperties.SYNC_EXPORT_STREAMING)) {
+            return this.getStreamedFullExport(consumer, cdnLabel, webUrl, apiUrl);
+        }
+
         try {
             File tmpDir = syncUtils.makeTempDir("export");
             File baseDir = new File(tmpDir.getAbsolutePath(), "export");
@@ -181,6 +196,54 @@ public class Exporter {
         }
     }
 
+    /**
+     * Creates a manifest archive for the target {@link Consumer} in a single pass. The contents of
+     * the manifest are serialized in parallel and written straight into the archive, and the
+     * consumer_export archive is signed as it is written; only the resulting manifest archive is
+     * written to the sync work directory.
+     */
+    private File getStreamedFullExport(Consumer consumer, String cdnLabel, String webUrl, String apiUrl)
+        throws ExportCreationException {
+
+        try {
+            File tmpDir = syncUtils.makeTempDir("export");
+            File archive = new File(tmpDir, String.format("%s-export.zip", consumer.getUuid()));
+            log.info("Streaming export of consumer {} to: {}", consumer.getUuid(), archive.getAbsolutePath());
+
+            SignatureGenerator signer = pki.createCAKeySignatureGenerator();
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(archive))) {
+                ManifestStreamWriter writer = new ManifestStreamWriter(mapper, serializer, signer, out,
+                    consumer.getUuid());
+
+                try {
+                    writer.writeJson("meta.json", this.createMeta(cdnLabel));
+                    writer.writeJson("consumer.json", this.consumerExporter.translate(consumer,
+                        getPrefixWebUrl(webUrl), getPrefixApiUrl(apiUrl)));
+                    streamIdentityCertificate(writer, consumer);
+                    streamEntitlements(writer, consumer);
+                    streamEntitlementsCerts(writer, consumer);
+                    streamProducts(writer, consumer);
+                    streamConsumerTypes(writer);
+                    streamRules(writer);
+                    streamDistributorVersions(writer);
+                    streamContentDeliveryNetworks(writer);
+
+                    writer.finish();
+                }
+                finally {
+                    writer.abort();
+                }
+            }
+
+            return archive;
+        }
+        catch (IOException | GeneralSecurityException e) {
+            log.error("Error generating entitlement export", e);
+            throw new ExportCreationException("Unable to create export archive", e);
+        }
+    }
+
     public File getEntitlementExport(Consumer consumer, Set<Long> serials) throws ExportCreationException {
         // TODO: need to delete tmpDir (which contains the archive,
         // which we need to return...)
@@ -328,10 +391,7 @@ public class Exporter {
         FileWriter writer = null;
         try {
             writer = new FileWriter(file);
-            Meta m = new Meta(getVersion(), new Date(),
-                principalProvider.get().getName(),
-                null, cdnKey);
-            meta.export(mapper, writer, m);
+            meta.export(mapper, writer, this.createMeta(cdnKey));
         }
         finally {
             if (writer != null) {
@@ -340,6 +400,10 @@ public class Exporter {
         }
     }
 
+    private Meta createMeta(String cdnKey) {
+        return new Meta(getVersion(), new Date(), principalProvider.get().getName(), null, cdnKey);
+    }
+
     private String getPrefixWebUrl(String override) {
         String prefixWebUrl = config.getString(ConfigProperties.PREFIX_WEBURL);
         if (!StringUtils.isBlank(override)) {
@@ -388,6 +452,27 @@ public class Exporter {
         File entCertDir = new File(baseDir.getCanonicalPath(), "entitlement_certificates");
         entCertDir.mkdir();
 
+        for (EntitlementCertificate cert : this.getExportableCertificates(consumer, serials, manifest)) {
+            log.debug("Exporting entitlement certificate: {}", cert.getSerial());
+            File file = new File(entCertDir.getCanonicalPath(), cert.getSerial().getId() + ".pem");
+            CertificateExporter crt = new CertificateExporter();
+            crt.exportCertificate(cert, file);
+        }
+    }
+
+    private void streamEntitlementsCerts(ManifestStreamWriter writer, Consumer consumer) throws IOException {
+        for (EntitlementCertificate cert : this.getExportableCertificates(consumer, null, true)) {
+            log.debug("Exporting entitlement certificate: {}", cert.getSerial());
+            writer.write("entitlement_certificates/" + cert.getSerial().getId() + ".pem",
+                (cert.getCert() + cert.getKey()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private List<EntitlementCertificate> getExportableCertificates(Consumer consumer, Set<Long> serials,
+        boolean manifest) {
+
+        List<EntitlementCertificate> certs = new ArrayList<>();
+
         for (EntitlementCertificate cert : entCertAdapter.listForConsumer(consumer)) {
             if (manifest && !this.exportRules.canExport(cert.getEntitlement())) {
                 log.debug("Skipping export of entitlement cert with product: {}",
@@ -397,12 +482,11 @@ public class Exporter {
             }
 
             if ((serials == null) || (serials.contains(cert.getSerial().getId()))) {
-                log.debug("Exporting entitlement certificate: {}", cert.getSerial());
-                File file = new File(entCertDir.getCanonicalPath(), cert.getSerial().getId() + ".pem");
-                CertificateExporter crt = new CertificateExporter();
-                crt.exportCertificate(cert, file);
+                certs.add(cert);
             }
         }
+
+        return certs;
     }
 
     /**
@@ -455,11 +539,41 @@ public class Exporter {
         }
     }
 
+    private void streamIdentityCertificate(ManifestStreamWriter writer, Consumer consumer)
+        throws IOException {
+
+        IdentityCertificate cert = consumer.getIdCert();
+        writer.writeJson("upstream_consumer/" + cert.getSerial().getId() + ".json",
+            this.translator.translate(cert, CertificateDTO.class));
+    }
+
     private void exportEntitlements(File baseDir, Consumer consumer)
         throws IOException, ExportCreationException {
         File entCertDir = new File(baseDir.getCanonicalPath(), "entitlements");
         entCertDir.mkdir();
 
+        for (Entitlement ent : this.getExportableEntitlements(consumer)) {
+            log.debug("Exporting entitlement for product {}", ent.getPool().getProductId());
+
+            File file = new File(entCertDir.getCanonicalPath(), ent.getId() + ".json");
+            try (FileWriter writer = new FileWriter(file)) {
+                entExporter.export(mapper, writer, ent);
+            }
+        }
+    }
+
+    private void streamEntitlements(ManifestStreamWriter writer, Consumer consumer)
+        throws IOException, ExportCreationException {
+
+        for (Entitlement ent : this.getExportableEntitlements(consumer)) {
+            log.debug("Exporting entitlement for product {}", ent.getPool().getProductId());
+            writer.writeJson("entitlements/" + ent.getId() + ".json", entExporter.translate(ent));
+        }
+    }
+
+    private List<Entitlement> getExportableEntitlements(Consumer consumer) throws ExportCreationException {
+        List<Entitlement> entitlements = new ArrayList<>();
+
         for (Entitlement ent : entitlementCurator.listByConsumer(consumer)) {
             if (ent.isDirty()) {
                 log.error("Entitlement {} is marked as dirty.", ent.getId());
@@ -471,38 +585,17 @@ public class Exporter {
                 continue;
             }
 
-            log.debug("Exporting entitlement for product {}", ent.getPool().getProductId());
-
-            File file = new File(entCertDir.getCanonicalPath(), ent.getId() + ".json");
-            try (FileWriter writer = new FileWriter(file)) {
-                entExporter.export(mapper, writer, ent);
-            }
+            entitlements.add(ent);
         }
+
+        return entitlements;
     }
 
     private void exportProducts(File baseDir, Consumer consumer) throws IOException {
         File productDir = new File(baseDir.getCanonicalPath(), "products");
         productDir.mkdir();
 
-        Map<String, Product> products = new HashMap<>();
-        for (Entitlement entitlement : consumer.getEntitlements()) {
-            Pool pool = entitlement.getPool();
-
-            // Don't forget the 'main' product!
-            Product product = pool.getProduct();
-            products.put(product.getId(), product);
-
-            addProvidedProducts(product.getProvidedProducts(), products);
-
-            // Also need to check for sub products
-            Product derivedProduct = product.getDerivedProduct();
-            if (derivedProduct != null) {
-                products.put(derivedProduct.getId(), derivedProduct);
-                addProvidedProducts(derivedProduct.getProvidedProducts(), products);
-            }
-        }
-
-        for (Product product : products.values()) {
+        for (Product product : this.getExportableProducts(consumer).values()) {
             // Clear the owner and UUID so they can be re-generated/assigned on import
             // product.setUuid(null);
             // product.setOwner(null);
@@ -534,6 +627,48 @@ public class Exporter {
         }
     }
 
+    private void streamProducts(ManifestStreamWriter writer, Consumer consumer) throws IOException {
+        for (Product product : this.getExportableProducts(consumer).values()) {
+            writer.writeJson("products/" + product.getId() + ".json", productExporter.translate(product));
+
+            // Real products have a numeric id.
+            if (StringUtils.isNumeric(product.getId())) {
+                Owner owner = ownerCurator.findOwnerById(consumer.getOwnerId());
+
+                CertificateInfo cert = productAdapter.getProductCertificate(owner.getKey(), product.getId());
+
+                // XXX: not all product adapters implement getProductCertificate,
+                // so just skip over this if we get null back
+                if (cert != null) {
+                    writer.write("products/" + product.getId() + ".pem",
+                        cert.getCertificate().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    private Map<String, Product> getExportableProducts(Consumer consumer) {
+        Map<String, Product> products = new HashMap<>();
+        for (Entitlement entitlement : consumer.getEntitlements()) {
+            Pool pool = entitlement.getPool();
+
+            // Don't forget the 'main' product!
+            Product product = pool.getProduct();
+            products.put(product.getId(), product);
+
+            addProvidedProducts(product.getProvidedProducts(), products);
+
+            // Also need to check for sub products
+            Product derivedProduct = product.getDerivedProduct();
+            if (derivedProduct != null) {
+                products.put(derivedProduct.getId(), derivedProduct);
+                addProvidedProducts(derivedProduct.getProvidedProducts(), products);
+            }
+        }
+
+        return products;
+    }
+
     private void addProvidedProducts(Collection<Product> providedProducts, Map<String, Product> products) {
         if (providedProducts == null || providedProducts.isEmpty()) {
             return;
@@ -566,6 +701,12 @@ public class Exporter {
         }
     }
 
+    private void streamConsumerTypes(ManifestStreamWriter writer) throws IOException {
+        for (ConsumerType type : consumerTypeCurator.listAll()) {
+            writer.writeJson("consumer_types/" + type.getLabel() + ".json", consumerType.translate(type));
+        }
+    }
+
     private void exportRules(File baseDir) throws IOException {
         // Because old candlepin servers assume to import a file in rules dir, we had to
         // move to a new directory for versioned rules file:
@@ -601,6 +742,21 @@ public class Exporter {
             oldRulesFile);
     }
 
+    private void streamRules(ManifestStreamWriter writer) throws IOException {
+        StringWriter rulesWriter = new StringWriter();
+        rules.export(rulesWriter);
+
+        // Because old candlepin servers assume to import a file in rules dir, we had to
+        // move to a new directory for versioned rules file:
+        writer.write("rules2/rules.js", rulesWriter.toString().getBytes(StandardCharsets.UTF_8));
+
+        // We still need to export a copy of the deprecated default-rules.js so new manifests
+        // can still be imported by old candlepin servers.
+        try (InputStream legacyRules = this.getClass().getResourceAsStream(LEGACY_RULES_FILE)) {
+            writer.write("rules/default-rules.js", IOUtils.toByteArray(legacyRules));
+        }
+    }
+
     private void exportDistributorVersions(File baseDir) throws IOException {
         List<DistributorVersion> versions = distVerCurator.findAll();
         if (versions == null || versions.isEmpty()) {
@@ -628,6 +784,18 @@ public class Exporter {
         }
     }
 
+    private void streamDistributorVersions(ManifestStreamWriter writer) throws IOException {
+        List<DistributorVersion> versions = distVerCurator.findAll();
+        if (versions == null) {
+            return;
+        }
+
+        for (DistributorVersion dv : versions) {
+            log.debug("Exporting Distributor Version {}", dv.getName());
+            writer.writeJson("distributor_version/" + dv.getName() + ".json", distVerExporter.translate(dv));
+        }
+    }
+
     private void exportContentDeliveryNetworks(File baseDir) throws IOException {
         ResultIterator<Cdn> iterator = this.cdnCurator.listAll().iterate();
 
@@ -658,4 +826,21 @@ public class Exporter {
             iterator.close();
         }
     }
+
+    private void streamContentDeliveryNetworks(ManifestStreamWriter writer) throws IOException {
+        ResultIterator<Cdn> iterator = this.cdnCurator.listAll().iterate();
+
+        try {
+            while (iterator.hasNext()) {
+                Cdn cdn = iterator.next();
+                log.debug("Exporting CDN: {}", cdn.getName());
+
+                writer.writeJson("content_delivery_network/" + cdn.getLabel() + ".json",
+                    cdnExporter.translate(cdn));
+            }
+        }
+        finally {
+            iterator.close();
+        }
+    }
 }
@@ -25,6 +25,7 @@ import org.candlepin.dto.manifest.v1.CertificateDTO;
 import org.candlepin.dto.manifest.v1.ConsumerDTO;
 import org.candlepin.dto.manifest.v1.ConsumerTypeDTO;
 import org.candlepin.dto.manifest.v1.DistributorVersionDTO;
+import org.candlepin.dto.manifest.v1.EntitlementDTO;
 import org.candlepin.dto.manifest.v1.ProductDTO;
 import org.candlepin.dto.manifest.v1.SubscriptionDTO;
 import org.candlepin.model.CdnCurator;
@@ -45,6 +46,7 @@ import org.candlepin.model.OwnerCurator;
 import org.candlepin.model.ProductCurator;
 import org.candlepin.model.UpstreamConsumer;
 import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.SignatureVerifier;
 import org.candlepin.service.ProductServiceAdapter;
 import org.candlepin.service.SubscriptionServiceAdapter;
 import org.candlepin.service.impl.ImportProductServiceAdapter;
@@ -57,7 +59,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
@@ -67,13 +68,15 @@ import org.xnap.commons.i18n.I18n;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -82,8 +85,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import javax.persistence.PersistenceException;
 
@@ -144,7 +145,6 @@ public class Importer {
     private final EventSink sink;
     private final I18n i18n;
     private final DistributorVersionCurator distVerCurator;
-    private final SyncUtils syncUtils;
     private final ImportRecordCurator importRecordCurator;
     private final SubscriptionReconciler subscriptionReconciler;
     private final ModelTranslator translator;
@@ -166,7 +166,6 @@ public class Importer {
         this.ownerCurator = Objects.requireNonNull(ownerCurator);
         this.idCertCurator = Objects.requireNonNull(idCertCurator);
         this.poolManager = Objects.requireNonNull(pm);
-        this.syncUtils = Objects.requireNonNull(syncUtils);
         this.mapper = Objects.requireNonNull(syncUtils.getObjectMapper());
         this.pki = Objects.requireNonNull(pki);
         this.expMetaCurator = Objects.requireNonNull(emc);
@@ -184,14 +183,22 @@ public class Importer {
 
     public ImportRecord loadExport(Owner owner, File archive, ConflictOverrides overrides,
         String uploadedFileName) throws ImporterException {
-        try {
-            return doExport(owner, unpackExportFile(archive.getName(), new FileInputStream(archive)),
-                overrides, uploadedFileName);
+
+        ManifestStreamReader manifest;
+
+        try (InputStream stream = new FileInputStream(archive)) {
+            manifest = this.readManifest(archive.getName(), stream);
         }
         catch (FileNotFoundException e) {
             log.error(String.format("Could not find import archive: %s", archive.getAbsolutePath()));
             throw new ImporterException(i18n.tr("Uploaded manifest file does not exist."), e);
         }
+        catch (IOException e) {
+            log.error("Unable to extract export archive", e);
+            throw new ImportExtractionException(i18n.tr("Unable to extract export archive"), e);
+        }
+
+        return doExport(owner, manifest, overrides, uploadedFileName);
     }
 
     /**
@@ -207,7 +214,7 @@ public class Importer {
     public ImportRecord loadStoredExport(ManifestFile export, Owner owner, ConflictOverrides overrides,
         String uploadedFileName) throws ImporterException {
         try {
-            return doExport(owner, extractFromService(export), overrides, uploadedFileName);
+            return doExport(owner, readFromService(export), overrides, uploadedFileName);
         }
         catch (ManifestFileServiceException e) {
             throw new ImporterException("Could not load stored manifest file for async import", e);
@@ -293,18 +300,55 @@ public class Importer {
     //       Because of this, we make this method transactional.
 
     /**
-     * Pulls the manifest from the {@link ManifestFileService} and unpacks it. The manifest file
-     * is deleted as soon as it is extracted.
+     * Pulls the manifest from the {@link ManifestFileService} and reads it.
      *
      * @param export the manifest's file.
-     * @return a {@link File} pointing to the unpacked manifest directory.
+     * @return a {@link ManifestStreamReader} holding the contents of the manifest.
      * @throws ManifestFileServiceException
      * @throws ImporterException
      */
     @Transactional
-    protected File extractFromService(ManifestFile export)
+    protected ManifestStreamReader readFromService(ManifestFile export)
         throws ManifestFileServiceException, ImporterException {
-        return unpackExportFile(export.getId(), export.getInputStream());
+
+        try (InputStream stream = export.getInputStream()) {
+            return this.readManifest(export.getId(), stream);
+        }
+        catch (IOException e) {
+            log.error("Unable to extract export archive", e);
+            throw new ImportExtractionException(i18n.tr("Unable to extract export archive"), e);
+        }
+    }
+
+    /**
+     * Reads a manifest archive in a single pass, verifying the consumer_export archive against
+     * the CA certificates as it is read.
+     *
+     * @param archiveName the name of the manifest archive.
+     * @param stream a stream providing the manifest archive.
+     * @return a {@link ManifestStreamReader} holding the contents of the manifest.
+     * @throws IOException if the manifest archive cannot be read.
+     * @throws ImporterException if the manifest is not an archive, or the CA certificates cannot be
+     *  read.
+     */
+    private ManifestStreamReader readManifest(String archiveName, InputStream stream)
+        throws IOException, ImporterException {
+
+        SignatureVerifier verifier;
+
+        try {
+            verifier = this.pki.createCACertSignatureVerifier();
+        }
+        catch (CertificateException e) {
+            log.error("Certificate exception checking archive signature", e);
+            throw new ImportExtractionException(
+                i18n.tr("Certificate exception checking archive signature"), e);
+        }
+
+        ManifestStreamReader reader = new ManifestStreamReader(this.mapper, this.i18n, verifier);
+        reader.read(archiveName, stream);
+
+        return reader;
     }
 
     /**
@@ -319,7 +363,20 @@ public class Importer {
     protected void validateMetadata(String type, Owner owner, File meta, ConflictOverrides forcedConflicts)
         throws IOException, ImporterException {
 
-        Meta m = mapper.readValue(meta, Meta.class);
+        this.validateMetadata(type, owner, mapper.readValue(meta, Meta.class), forcedConflicts);
+    }
+
+    /**
+     * Check to make sure the meta data is newer than the imported data.
+     * @param type ExporterMetadata.TYPE_PER_USER or TYPE_SYSTEM
+     * @param owner Owner in the case of PER_USER
+     * @param m the manifest metadata
+     * @param forcedConflicts Conflicts we will override if encountered
+     * @throws ImporterException thrown if the metadata is invalid.
+     */
+    protected void validateMetadata(String type, Owner owner, Meta m, ConflictOverrides forcedConflicts)
+        throws ImporterException {
+
         if (type == null) {
             throw new ImporterException(i18n.tr("Wrong metadata type"));
         }
@@ -376,21 +433,24 @@ public class Importer {
         }
     }
 
-    private ImportRecord doExport(Owner owner, File exportDir, ConflictOverrides overrides,
+    private ImportRecord doExport(Owner owner, ManifestStreamReader manifest, ConflictOverrides overrides,
         String uploadedFileName) throws ImporterException {
 
         Map<String, Object> result = new HashMap<>();
         try {
-            File signature = new File(exportDir, "signature");
-            if (signature.length() == 0) {
+            byte[] signature = manifest.getSignature();
+            if (signature == null || signature.length == 0) {
                 throw new ImportExtractionException(
                     i18n.tr("The archive does not contain the required signature file"));
             }
 
-            boolean verifiedSignature = pki.verifySHA256WithRSAHashAgainstCACerts(
-                new File(exportDir, "consumer_export.zip"), loadSignature(new File(exportDir, "signature")));
+            if (!manifest.containsConsumerExport()) {
+                log.error("Archive file does not contain consumer_export.zip");
+                throw new ImportExtractionException(i18n.tr("The archive does not contain " +
+                    "the required consumer_export.zip file"));
+            }
 
-            if (!verifiedSignature) {
+            if (!manifest.verifySignature()) {
                 log.warn("Archive signature check failed.");
 
                 if (!overrides.isForced(Conflict.SIGNATURE_CONFLICT)) {
@@ -409,37 +469,16 @@ public class Importer {
                 }
             }
 
-            File consumerExport = new File(exportDir, "consumer_export.zip");
-            File consumerExportDir = extractArchive(exportDir, consumerExport.getName(),
-                new FileInputStream(consumerExport));
-
-            Map<String, File> importFiles = new HashMap<>();
-            File[] listFiles = consumerExportDir.listFiles();
-            if (listFiles == null || listFiles.length == 0) {
-                throw new ImportExtractionException(i18n.tr("The consumer_export archive has no contents"));
-            }
-            for (File file : listFiles) {
-                importFiles.put(file.getName(), file);
-            }
-
-            // Need the rules file as well which is in a nested dir:
-            File rulesFile = new File(consumerExportDir, ImportFile.RULES_FILE.fileName());
-            importFiles.put(ImportFile.RULES_FILE.fileName(), rulesFile);
+            ManifestContents contents = manifest.getContents();
 
-            List<SubscriptionDTO> importSubs = importObjects(owner, importFiles, overrides);
-            Meta m = mapper.readValue(importFiles.get(ImportFile.META.fileName()), Meta.class);
+            List<SubscriptionDTO> importSubs = importObjects(owner, contents, overrides);
 
             result.put("subscriptions", importSubs);
-            result.put("meta", m);
+            result.put("meta", contents.getMeta());
 
             sink.emitImportCreated(owner);
             return recordImportSuccess(owner, result, overrides, uploadedFileName);
         }
-        catch (FileNotFoundException fnfe) {
-            log.error("Archive file does not contain consumer_export.zip", fnfe);
-            throw new ImportExtractionException(i18n.tr("The archive does not contain " +
-                "the required consumer_export.zip file"));
-        }
         catch (ConstraintViolationException cve) {
             log.error("Failed to import archive", cve);
             throw new ImporterException(i18n.tr("Failed to import archive"), cve, result);
@@ -452,50 +491,50 @@ public class Importer {
             log.error("Exception caught importing archive", e);
             throw new ImportExtractionException(i18n.tr("Unable to extract export archive"), e, result);
         }
-        catch (CertificateException e) {
-            log.error("Certificate exception checking archive signature", e);
-            throw new ImportExtractionException(
-                i18n.tr("Certificate exception checking archive signature"), e, result);
-        }
-        finally {
-            if (exportDir != null) {
-                try {
-                    FileUtils.deleteDirectory(exportDir);
-                }
-                catch (IOException e) {
-                    log.error("Failed to delete extracted export", e);
-                }
-            }
-        }
     }
 
-    @SuppressWarnings("checkstyle:methodlength")
+    /**
+     * Imports the objects of a manifest extracted to disk.
+     *
+     * @param owner the {@link Owner} to import data into.
+     * @param importFiles the files and directories of the extracted consumer_export archive, mapped
+     *  by their name.
+     * @param overrides the conflicts that are to be overridden.
+     * @return the subscriptions imported from the manifest.
+     * @throws IOException if any of the files cannot be read.
+     * @throws ImporterException if the manifest cannot be imported.
+     */
     @Transactional(rollbackOn = { IOException.class, ImporterException.class,
         RuntimeException.class, ImportConflictException.class })
     // WARNING: Keep this method public, otherwise @Transactional is ignored:
     public List<SubscriptionDTO> importObjects(Owner owner, Map<String, File> importFiles,
         ConflictOverrides overrides) throws IOException, ImporterException {
+
+        return this.importObjects(owner, new ExtractedManifestContents(importFiles), overrides);
+    }
+
+    @SuppressWarnings("checkstyle:methodlength")
+    @Transactional(rollbackOn = { IOException.class, ImporterException.class,
+        RuntimeException.class, ImportConflictException.class })
+    // WARNING: Keep this method public, otherwise @Transactional is ignored:
+    public List<SubscriptionDTO> importObjects(Owner owner, ManifestContents contents,
+        ConflictOverrides overrides) throws IOException, ImporterException {
         ownerCurator.lock(owner);
 
         log.debug("Importing objects for owner: {}", owner);
 
-        File metadata = importFiles.get(ImportFile.META.fileName());
-        if (metadata == null) {
+        if (!contents.contains(ImportFile.META)) {
             throw new ImporterException(i18n.tr("The archive does not contain the required meta.json file"));
         }
-        File consumerTypes = importFiles.get(ImportFile.CONSUMER_TYPE.fileName());
-        if (consumerTypes == null) {
+        if (!contents.contains(ImportFile.CONSUMER_TYPE)) {
             throw new ImporterException(
                 i18n.tr("The archive does not contain the required consumer_types directory"));
         }
-        File consumerFile = importFiles.get(ImportFile.CONSUMER.fileName());
-        if (consumerFile == null) {
+        if (!contents.contains(ImportFile.CONSUMER)) {
             throw new ImporterException(
                 i18n.tr("The archive does not contain the required consumer.json file"));
         }
-        File products = importFiles.get(ImportFile.PRODUCTS.fileName());
-        File entitlements = importFiles.get(ImportFile.ENTITLEMENTS.fileName());
-        if (products != null && entitlements == null) {
+        if (contents.contains(ImportFile.PRODUCTS) && !contents.contains(ImportFile.ENTITLEMENTS)) {
             throw new ImporterException(
                 i18n.tr("The archive does not contain the required entitlements directory"));
         }
@@ -513,24 +552,23 @@ public class Importer {
         // if desired:
         List<ImportConflictException> conflictExceptions = new LinkedList<>();
 
-        File rules = importFiles.get(ImportFile.RULES_FILE.fileName());
-        importRules(rules, metadata);
+        importRules(contents.getRules());
 
-        importConsumerTypes(consumerTypes.listFiles());
+        importConsumerTypes(contents.getConsumerTypes());
 
-        File distributorVersions = importFiles.get(ImportFile.DISTRIBUTOR_VERSIONS.fileName());
-        if (distributorVersions != null) {
-            importDistributorVersions(distributorVersions.listFiles());
+        if (contents.contains(ImportFile.DISTRIBUTOR_VERSIONS)) {
+            importDistributorVersions(contents.getDistributorVersions());
         }
 
-        File cdns = importFiles.get(ImportFile.CONTENT_DELIVERY_NETWORKS.fileName());
-        if (cdns != null) {
-            importContentDeliveryNetworks(cdns.listFiles());
+        if (contents.contains(ImportFile.CONTENT_DELIVERY_NETWORKS)) {
+            importContentDeliveryNetworks(contents.getContentDeliveryNetworks());
         }
 
         // per user elements
+        Meta meta = contents.getMeta();
+
         try {
-            validateMetadata(ExporterMetadata.TYPE_PER_USER, owner, metadata, overrides);
+            validateMetadata(ExporterMetadata.TYPE_PER_USER, owner, meta, overrides);
         }
         catch (ImportConflictException e) {
             conflictExceptions.add(e);
@@ -538,15 +576,8 @@ public class Importer {
 
         ConsumerDTO consumer = null;
         try {
-            Meta m = mapper.readValue(metadata, Meta.class);
-            File upstreamFile = importFiles.get(ImportFile.UPSTREAM_CONSUMER.fileName());
-            File[] dafiles = new File[0];
-
-            if (upstreamFile != null) {
-                dafiles = upstreamFile.listFiles();
-            }
-
-            consumer = importConsumer(owner, consumerFile, dafiles, overrides, m);
+            consumer = importConsumer(owner, contents.getConsumer(), contents.getUpstreamConsumerCertificates(),
+                overrides, meta);
         }
         catch (ImportConflictException e) {
             conflictExceptions.add(e);
@@ -568,25 +599,24 @@ public class Importer {
 
         // If the consumer has no entitlements, this products directory will end up empty.
         // This also implies there will be no entitlements to import.
-        Meta meta = mapper.readValue(metadata, Meta.class);
         List<SubscriptionDTO> importSubs;
         Set<ProductDTO> productsToImport;
 
-        if (importFiles.get(ImportFile.PRODUCTS.fileName()) != null) {
+        if (contents.contains(ImportFile.PRODUCTS)) {
             ProductImporter importer = new ProductImporter();
 
-            productsToImport = this.importProducts(
-                importFiles.get(ImportFile.PRODUCTS.fileName()).listFiles(), importer, owner);
+            productsToImport = this.importProducts(contents.getProducts(), importer, owner);
 
             importSubs = this.importEntitlements(
-                owner, productsToImport, entitlements.listFiles(), consumer.getUuid(), meta);
+                owner, productsToImport, contents.getEntitlements(), consumer.getUuid(), meta);
         }
         else {
             log.warn("No products found to import, skipping product import.");
             log.warn("No entitlements in manifest, removing all subscriptions for owner.");
 
             productsToImport = null;
-            importSubs = importEntitlements(owner, new HashSet<>(), new File[]{}, consumer.getUuid(), meta);
+            importSubs = importEntitlements(owner, new HashSet<>(), Collections.emptyList(),
+                consumer.getUuid(), meta);
         }
 
         final String contentAccessMode = ContentAccessMode
@@ -607,24 +637,23 @@ public class Importer {
         return importSubs;
     }
 
-    protected void importRules(File rulesFile, File metadata) throws IOException {
-        try (Reader reader = new FileReader(rulesFile)) {
-            rulesImporter.importObject(reader);
-        }
-        catch (FileNotFoundException fnfe) {
+    protected void importRules(String rules) throws IOException {
+        if (rules == null) {
             log.warn("Skipping rules import, manifest does not contain rules file: {}",
                 ImportFile.RULES_FILE.fileName());
+
+            return;
         }
+
+        rulesImporter.importObject(new StringReader(rules));
     }
 
-    protected void importConsumerTypes(File[] consumerTypes) throws IOException {
+    protected void importConsumerTypes(Collection<ConsumerTypeDTO> consumerTypes) {
         ConsumerTypeImporter importer = new ConsumerTypeImporter(consumerTypeCurator);
         Set<ConsumerType> consumerTypeObjs = new HashSet<>();
 
-        for (File consumerType : consumerTypes) {
-            try (Reader reader = new FileReader(consumerType)) {
-                consumerTypeObjs.add(importer.createObject(mapper, reader));
-            }
+        for (ConsumerTypeDTO consumerType : consumerTypes) {
+            consumerTypeObjs.add(importer.createObject(consumerType));
         }
 
         importer.store(consumerTypeObjs);
@@ -633,61 +662,49 @@ public class Importer {
     protected ConsumerDTO importConsumer(Owner owner, File consumerFile, File[] upstreamConsumer,
         ConflictOverrides forcedConflicts, Meta meta) throws IOException, SyncDataFormatException {
 
+        return this.importConsumer(owner, mapper.readValue(consumerFile, ConsumerDTO.class),
+            this.readUpstreamConsumerCertificates(upstreamConsumer), forcedConflicts, meta);
+    }
+
+    protected ConsumerDTO importConsumer(Owner owner, ConsumerDTO consumer,
+        Collection<CertificateDTO> upstreamConsumerCertificates, ConflictOverrides forcedConflicts, Meta meta)
+        throws SyncDataFormatException {
+
         IdentityCertificate idcert = null;
-        for (File uc : upstreamConsumer) {
-            if (uc.getName().endsWith(".json")) {
-                log.debug("Import upstream consumeridentity certificate: {}", uc.getName());
-
-                try (Reader reader = new FileReader(uc)) {
-                    CertificateDTO dtoCert = mapper.readValue(reader, CertificateDTO.class);
-                    idcert = new IdentityCertificate();
-                    ImporterUtils.populateEntity(idcert, dtoCert);
-                    idcert.setId(dtoCert.getId());
-                }
-            }
-            else {
-                log.warn("Extra file found in upstream_consumer directory: {}", uc.getName());
-            }
+        for (CertificateDTO dtoCert : upstreamConsumerCertificates) {
+            idcert = new IdentityCertificate();
+            ImporterUtils.populateEntity(idcert, dtoCert);
+            idcert.setId(dtoCert.getId());
         }
 
         ConsumerImporter importer = new ConsumerImporter(ownerCurator, idCertCurator, i18n, csCurator);
-        ConsumerDTO consumer = null;
 
-        try (Reader reader = new FileReader(consumerFile)) {
-            consumer = importer.createObject(mapper, reader);
-            // we can not rely on the actual ConsumerType in the ConsumerDto
-            // because it could have an id not in our database. We need to
-            // stick with the label. Hence we need to lookup the ACTUAL type
-            // by label here before attempting to store the UpstreamConsumer
-            ConsumerType type = consumerTypeCurator.getByLabel(consumer.getType().getLabel());
-            consumer.setType(this.translator.translate(type, ConsumerTypeDTO.class));
-
-            // in older manifests the web app prefix will not
-            // be on the consumer, we can use the one stored in
-            // the metadata
-            if (StringUtils.isEmpty(consumer.getUrlWeb())) {
-                consumer.setUrlWeb(meta.getWebAppPrefix());
-            }
+        // we can not rely on the actual ConsumerType in the ConsumerDto
+        // because it could have an id not in our database. We need to
+        // stick with the label. Hence we need to lookup the ACTUAL type
+        // by label here before attempting to store the UpstreamConsumer
+        ConsumerType type = consumerTypeCurator.getByLabel(consumer.getType().getLabel());
+        consumer.setType(this.translator.translate(type, ConsumerTypeDTO.class));
 
-            importer.store(owner, consumer, forcedConflicts, idcert);
+        // in older manifests the web app prefix will not
+        // be on the consumer, we can use the one stored in
+        // the metadata
+        if (StringUtils.isEmpty(consumer.getUrlWeb())) {
+            consumer.setUrlWeb(meta.getWebAppPrefix());
         }
 
+        importer.store(owner, consumer, forcedConflicts, idcert);
+
         return consumer;
     }
 
-    protected Set<ProductDTO> importProducts(File[] products, ProductImporter importer, Owner owner)
-        throws IOException {
+    protected Set<ProductDTO> importProducts(Collection<ProductDTO> products, ProductImporter importer,
+        Owner owner) {
 
         Set<ProductDTO> productsToImport = new HashSet<>();
-        for (File product : products) {
-            // Skip product.pem's, we just need the json to import:
-            if (product.getName().endsWith(".json")) {
-                log.debug("Importing product {} for owner {}", product.getName(), owner.getKey());
-
-                try (Reader reader = new FileReader(product)) {
-                    productsToImport.add(importer.createObject(mapper, reader, owner));
-                }
-            }
+        for (ProductDTO product : products) {
+            log.debug("Importing product {} for owner {}", product.getId(), owner.getKey());
+            productsToImport.add(importer.createObject(product, owner));
         }
 
         // TODO: Do we need to cleanup unused products? Looked at this earlier and it
@@ -698,8 +715,8 @@ public class Importer {
     }
 
     protected List<SubscriptionDTO> importEntitlements(Owner owner, Set<ProductDTO> products,
-        File[] entitlements, String consumerUuid, Meta meta)
-        throws IOException, SyncDataFormatException {
+        Collection<EntitlementDTO> entitlements, String consumerUuid, Meta meta)
+        throws SyncDataFormatException {
 
         log.debug("Importing entitlements for owner: {}", owner);
 
@@ -716,12 +733,10 @@ public class Importer {
         }
 
         List<SubscriptionDTO> subscriptionsToImport = new ArrayList<>();
-        for (File entitlement : entitlements) {
-            try (Reader reader = new FileReader(entitlement)) {
-                log.debug("Import entitlement: {}", entitlement.getName());
-                subscriptionsToImport.add(
-                    importer.importObject(mapper, reader, owner, productsById, consumerUuid, meta));
-            }
+        for (EntitlementDTO entitlement : entitlements) {
+            log.debug("Import entitlement: {}", entitlement.getId());
+            subscriptionsToImport.add(
+                importer.importObject(entitlement, owner, productsById, consumerUuid, meta));
         }
 
         // Reconcile the subscriptions so they line up with pools we're tracking
@@ -730,91 +745,165 @@ public class Importer {
         return subscriptionsToImport;
     }
 
+    protected void importDistributorVersions(File[] versionFiles) throws IOException {
+        this.importDistributorVersions(this.readFiles(versionFiles, DistributorVersionDTO.class));
+    }
+
+    protected void importDistributorVersions(Collection<DistributorVersionDTO> versions) {
+        DistributorVersionImporter importer = new DistributorVersionImporter(distVerCurator);
+        Set<DistributorVersionDTO> distVers = new HashSet<>();
+
+        for (DistributorVersionDTO version : versions) {
+            distVers.add(importer.createObject(version));
+        }
+        importer.store(distVers);
+    }
+
+    protected void importContentDeliveryNetworks(Collection<CdnDTO> cdnDTOs) {
+        CdnImporter importer = new CdnImporter(cdnCurator);
+        Set<CdnDTO> cdns = new HashSet<>();
+
+        for (CdnDTO cdn : cdnDTOs) {
+            cdns.add(importer.createObject(cdn));
+        }
+
+        importer.store(cdns);
+    }
+
     /**
-     * Create a tar.gz archive of the exported directory.
+     * Reads the given files as objects of the given type.
      *
-     * @param exportDir Directory where Candlepin data was exported.
-     * @return File reference to the new archive tar.gz.
+     * @param files the files to read; may be null if the directory containing them could not be listed.
+     * @param type the class of the objects to read.
+     * @return the objects read from the files.
+     * @throws IOException if any of the files cannot be read.
      */
-    private File extractArchive(File tempDir, String exportFileName, InputStream exportFileStream)
-        throws IOException, ImportExtractionException {
+    private <T> List<T> readFiles(File[] files, Class<T> type) throws IOException {
+        List<T> objects = new ArrayList<>();
 
-        log.debug("Extracting archive to: {}", tempDir.getAbsolutePath());
+        if (files != null) {
+            for (File file : files) {
+                log.debug("Reading {}: {}", type.getSimpleName(), file.getName());
+                objects.add(mapper.readValue(file, type));
+            }
+        }
 
-        byte[] buf = new byte[1024];
+        return objects;
+    }
 
-        try (ZipInputStream zipinputstream = new ZipInputStream(exportFileStream)) {
-            ZipEntry zipentry = zipinputstream.getNextEntry();
+    private List<CertificateDTO> readUpstreamConsumerCertificates(File[] files) throws IOException {
+        List<CertificateDTO> certificates = new ArrayList<>();
 
-            if (zipentry == null) {
-                throw new ImportExtractionException(i18n.tr(
-                    "The archive {0} is not a properly compressed file or is empty", exportFileName));
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".json")) {
+                    log.debug("Import upstream consumeridentity certificate: {}", file.getName());
+                    certificates.add(mapper.readValue(file, CertificateDTO.class));
+                }
+                else {
+                    log.warn("Extra file found in upstream_consumer directory: {}", file.getName());
+                }
             }
+        }
 
-            while (zipentry != null) {
-                //for each entry to be extracted
-                String entryName = zipentry.getName();
-                log.debug("entryname {}", entryName);
+        return certificates;
+    }
 
-                File newFile = new File(entryName);
-                String directory = newFile.getParent();
-                if (directory != null) {
-                    new File(tempDir, directory).mkdirs();
-                }
+    /**
+     * ManifestContents implementation backed by a consumer_export archive extracted to disk. Files
+     * are read when their objects are requested.
+     */
+    private class ExtractedManifestContents implements ManifestContents {
+        private final Map<String, File> importFiles;
+        private Meta meta;
 
-                try (FileOutputStream fileoutputstream = new FileOutputStream(new File(tempDir, entryName))) {
-                    int n;
-                    while ((n = zipinputstream.read(buf, 0, 1024)) > -1) {
-                        fileoutputstream.write(buf, 0, n);
-                    }
-                }
+        public ExtractedManifestContents(Map<String, File> importFiles) {
+            this.importFiles = Objects.requireNonNull(importFiles);
+        }
 
-                zipinputstream.closeEntry();
-                zipentry = zipinputstream.getNextEntry();
-            }
+        private File[] listFiles(ImportFile file) {
+            File dir = this.importFiles.get(file.fileName());
+            return dir != null ? dir.listFiles() : null;
         }
 
-        return new File(tempDir.getAbsolutePath(), "export");
-    }
+        @Override
+        public boolean contains(ImportFile file) {
+            return this.importFiles.get(file.fileName()) != null;
+        }
+
+        @Override
+        public Meta getMeta() throws IOException {
+            File file = this.importFiles.get(ImportFile.META.fileName());
 
-    private byte[] loadSignature(File signatureFile) throws IOException {
-        // signature is never going to be a huge file, therefore cast is a-okay
-        byte[] signatureBytes = new byte[(int) signatureFile.length()];
-        try (FileInputStream signature = new FileInputStream(signatureFile)) {
-            int offset = 0;
-            int numRead = 0;
-            while (offset < signatureBytes.length && numRead >= 0) {
-                numRead = signature.read(signatureBytes, offset, signatureBytes.length - offset);
-                offset += numRead;
+            if (this.meta == null && file != null) {
+                this.meta = mapper.readValue(file, Meta.class);
             }
 
-            return signatureBytes;
+            return this.meta;
         }
-    }
 
-    protected void importDistributorVersions(File[] versionFiles) throws IOException {
-        DistributorVersionImporter importer = new DistributorVersionImporter(distVerCurator);
-        Set<DistributorVersionDTO> distVers = new HashSet<>();
+        @Override
+        public String getRules() throws IOException {
+            File file = this.importFiles.get(ImportFile.RULES_FILE.fileName());
+            if (file == null) {
+                return null;
+            }
 
-        for (File verFile : versionFiles) {
-            try (Reader reader = new FileReader(verFile)) {
-                distVers.add(importer.createObject(mapper, reader));
+            try (Reader reader = new FileReader(file)) {
+                return StringFromReader.asString(reader);
+            }
+            catch (FileNotFoundException e) {
+                return null;
             }
         }
-        importer.store(distVers);
-    }
 
-    protected void importContentDeliveryNetworks(File[] cdnFiles) throws IOException {
-        CdnImporter importer = new CdnImporter(cdnCurator);
-        Set<CdnDTO> cdns = new HashSet<>();
+        @Override
+        public Collection<ConsumerTypeDTO> getConsumerTypes() throws IOException {
+            return readFiles(this.listFiles(ImportFile.CONSUMER_TYPE), ConsumerTypeDTO.class);
+        }
+
+        @Override
+        public Collection<DistributorVersionDTO> getDistributorVersions() throws IOException {
+            return readFiles(this.listFiles(ImportFile.DISTRIBUTOR_VERSIONS), DistributorVersionDTO.class);
+        }
 
-        for (File cdnFile : cdnFiles) {
-            try (Reader reader = new FileReader(cdnFile)) {
-                cdns.add(importer.createObject(mapper, reader));
+        @Override
+        public Collection<CdnDTO> getContentDeliveryNetworks() throws IOException {
+            return readFiles(this.listFiles(ImportFile.CONTENT_DELIVERY_NETWORKS), CdnDTO.class);
+        }
+
+        @Override
+        public ConsumerDTO getConsumer() throws IOException {
+            File file = this.importFiles.get(ImportFile.CONSUMER.fileName());
+            return file != null ? mapper.readValue(file, ConsumerDTO.class) : null;
+        }
+
+        @Override
+        public Collection<CertificateDTO> getUpstreamConsumerCertificates() throws IOException {
+            return readUpstreamConsumerCertificates(this.listFiles(ImportFile.UPSTREAM_CONSUMER));
+        }
+
+        @Override
+        public Collection<ProductDTO> getProducts() throws IOException {
+            List<ProductDTO> products = new ArrayList<>();
+            File[] files = this.listFiles(ImportFile.PRODUCTS);
+
+            if (files != null) {
+                for (File file : files) {
+                    // Skip product.pem's, we just need the json to import:
+                    if (file.getName().endsWith(".json")) {
+                        products.add(mapper.readValue(file, ProductDTO.class));
+                    }
+                }
             }
+
+            return products;
         }
 
-        importer.store(cdns);
+        @Override
+        public Collection<EntitlementDTO> getEntitlements() throws IOException {
+            return readFiles(this.listFiles(ImportFile.ENTITLEMENTS), EntitlementDTO.class);
+        }
     }
 
     private ImportUpstreamConsumer createImportUpstreamConsumer(Owner owner, UpstreamConsumer uc) {
@@ -832,17 +921,4 @@ public class Importer {
         return iup;
     }
 
-    private File unpackExportFile(String fileName, InputStream exportInputStream)
-        throws ImportExtractionException {
-        try {
-            File tmpDir = syncUtils.makeTempDir("import");
-            extractArchive(tmpDir, fileName, exportInputStream);
-            return tmpDir;
-        }
-        catch (IOException e) {
-            log.error("Unable to extract export archive", e);
-            throw new ImportExtractionException(i18n.tr("Unable to extract export archive"), e);
-        }
-    }
-
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync;
+
+import org.candlepin.dto.manifest.v1.CdnDTO;
+import org.candlepin.dto.manifest.v1.CertificateDTO;
+import org.candlepin.dto.manifest.v1.ConsumerDTO;
+import org.candlepin.dto.manifest.v1.ConsumerTypeDTO;
+import org.candlepin.dto.manifest.v1.DistributorVersionDTO;
+import org.candlepin.dto.manifest.v1.EntitlementDTO;
+import org.candlepin.dto.manifest.v1.ProductDTO;
+import org.candlepin.sync.Importer.ImportFile;
+
+import java.io.IOException;
+import java.util.Collection;
+
+
+
+/**
+ * The ManifestContents interface provides the Importer with the objects contained in the
+ * consumer_export archive of a manifest, regardless of whether the archive was extracted to disk
+ * or read as a stream.
+ *
+ * Implementations may read objects from the manifest as they are requested, or have read them ahead
+ * of time; callers should avoid requesting the same objects more than once.
+ */
+interface ManifestContents {
+
+    /**
+     * Checks whether the manifest contains the given file or directory. Directories are only
+     * present if they contain at least one file.
+     *
+     * @param file
+     *  the file or directory to check
+     *
+     * @return
+     *  true if the manifest contains the file or directory; false otherwise
+     */
+    boolean contains(ImportFile file);
+
+    /**
+     * @return
+     *  the manifest metadata, or null if the manifest does not contain a meta.json file
+     */
+    Meta getMeta() throws IOException;
+
+    /**
+     * @return
+     *  the source of the rules included in the manifest, or null if the manifest does not contain
+     *  any rules
+     */
+    String getRules() throws IOException;
+
+    /**
+     * @return
+     *  the consumer types included in the manifest
+     */
+    Collection<ConsumerTypeDTO> getConsumerTypes() throws IOException;
+
+    /**
+     * @return
+     *  the distributor versions included in the manifest
+     */
+    Collection<DistributorVersionDTO> getDistributorVersions() throws IOException;
+
+    /**
+     * @return
+     *  the content delivery networks included in the manifest
+     */
+    Collection<CdnDTO> getContentDeliveryNetworks() throws IOException;
+
+    /**
+     * @return
+     *  the upstream consumer of the manifest, or null if the manifest does not contain a
+     *  consumer.json file
+     */
+    ConsumerDTO getConsumer() throws IOException;
+
+    /**
+     * @return
+     *  the identity certificates of the upstream consumer included in the manifest
+     */
+    Collection<CertificateDTO> getUpstreamConsumerCertificates() throws IOException;
+
+    /**
+     * @return
+     *  the products included in the manifest
+     */
+    Collection<ProductDTO> getProducts() throws IOException;
+
+    /**
+     * @return
+     *  the entitlements of the upstream consumer included in the manifest
+     */
+    Collection<EntitlementDTO> getEntitlements() throws IOException;
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.util.ExecutorUtil;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.inject.Singleton;
+
+
+
+/**
+ * The ManifestEntrySerializer serializes the objects of streamed manifest exports to JSON on a
+ * bounded pool of worker threads, shared by every export in progress.
+ *
+ * Only detached objects, such as manifest DTOs, may be handed to the serializer; entities must be
+ * translated on the thread which loaded them, as the workers have no access to its session.
+ */
+@Singleton
+public class ManifestEntrySerializer {
+
+    /** The number of entries each worker may have queued or in progress for a single export */
+    private static final int ENTRIES_IN_FLIGHT_PER_THREAD = 16;
+
+    private final int maxInFlight;
+    private final ExecutorService executor;
+
+    @Inject
+    public ManifestEntrySerializer(Configuration config) {
+        int threads = Math.max(1, config.getInt(ConfigProperties.SYNC_EXPORT_THREADS));
+
+        this.maxInFlight = threads * ENTRIES_IN_FLIGHT_PER_THREAD;
+        this.executor = ExecutorUtil.newBoundedExecutor("manifest-export", threads);
+    }
+
+    /**
+     * Queues the given object to be serialized to JSON.
+     *
+     * @param mapper
+     *  the object mapper with which to serialize the object
+     *
+     * @param value
+     *  the object to serialize
+     *
+     * @return
+     *  a future providing the serialized object
+     */
+    public Future<byte[]> serialize(ObjectMapper mapper, Object value) {
+        return this.executor.submit(() -> mapper.writeValueAsBytes(value));
+    }
+
+    /**
+     * @return
+     *  the maximum number of entries a single export should have queued for serialization at once
+     */
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+}
@@ -0,0 +1,463 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync;
+
+import org.candlepin.dto.manifest.v1.CdnDTO;
+import org.candlepin.dto.manifest.v1.CertificateDTO;
+import org.candlepin.dto.manifest.v1.ConsumerDTO;
+import org.candlepin.dto.manifest.v1.ConsumerTypeDTO;
+import org.candlepin.dto.manifest.v1.DistributorVersionDTO;
+import org.candlepin.dto.manifest.v1.EntitlementDTO;
+import org.candlepin.dto.manifest.v1.ProductDTO;
+import org.candlepin.pki.SignatureVerifier;
+import org.candlepin.sync.Importer.ImportFile;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnap.commons.i18n.I18n;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+
+
+/**
+ * The ManifestStreamReader reads a manifest archive in a single pass, without extracting it to
+ * disk. The nested consumer_export.zip archive is fed to a SignatureVerifier as it is decompressed
+ * from the manifest, while the objects it contains are parsed as their entries arrive.
+ *
+ * Since the signature is only found after the consumer_export archive, nothing read from the
+ * manifest may be trusted, let alone imported, until verifySignature has been called. Errors in
+ * the consumer_export archive are therefore held back until the contents are requested, so that
+ * a manifest failing the signature check is reported as such.
+ */
+public class ManifestStreamReader {
+    private static Logger log = LoggerFactory.getLogger(ManifestStreamReader.class);
+
+    private static final String CONSUMER_EXPORT = "consumer_export.zip";
+    private static final String SIGNATURE = "signature";
+    private static final String EXPORT_DIR = "export/";
+
+    /**
+     * Passes the bytes read from the consumer_export entry to the signature verifier, and keeps
+     * the inner archive from closing the manifest stream.
+     */
+    private static class VerifyingInputStream extends FilterInputStream {
+        private final SignatureVerifier verifier;
+
+        public VerifyingInputStream(InputStream in, SignatureVerifier verifier) {
+            super(in);
+            this.verifier = verifier;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                this.verifier.update(new byte[] { (byte) b }, 0, 1);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                this.verifier.update(buffer, offset, count);
+            }
+
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must be verified as well
+            byte[] buffer = new byte[(int) Math.min(n, 4096)];
+            long skipped = 0;
+
+            while (skipped < n) {
+                int count = this.read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+                if (count < 0) {
+                    break;
+                }
+
+                skipped += count;
+            }
+
+            return skipped;
+        }
+
+        /**
+         * Reads the remainder of the stream.
+         */
+        public void drain() throws IOException {
+            this.skip(Long.MAX_VALUE);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // The manifest stream is closed by the reader
+        }
+    }
+
+    /**
+     * The objects read from the consumer_export archive
+     */
+    private static class StreamedContents implements ManifestContents {
+        private final Set<ImportFile> files = EnumSet.noneOf(ImportFile.class);
+        private boolean empty = true;
+
+        private Meta meta;
+        private String rules;
+        private ConsumerDTO consumer;
+        private final List<ConsumerTypeDTO> consumerTypes = new ArrayList<>();
+        private final List<DistributorVersionDTO> distributorVersions = new ArrayList<>();
+        private final List<CdnDTO> cdns = new ArrayList<>();
+        private final List<CertificateDTO> upstreamConsumerCertificates = new ArrayList<>();
+        private final List<ProductDTO> products = new ArrayList<>();
+        private final List<EntitlementDTO> entitlements = new ArrayList<>();
+
+        @Override
+        public boolean contains(ImportFile file) {
+            return this.files.contains(file);
+        }
+
+        @Override
+        public Meta getMeta() {
+            return this.meta;
+        }
+
+        @Override
+        public String getRules() {
+            return this.rules;
+        }
+
+        @Override
+        public Collection<ConsumerTypeDTO> getConsumerTypes() {
+            return this.consumerTypes;
+        }
+
+        @Override
+        public Collection<DistributorVersionDTO> getDistributorVersions() {
+            return this.distributorVersions;
+        }
+
+        @Override
+        public Collection<CdnDTO> getContentDeliveryNetworks() {
+            return this.cdns;
+        }
+
+        @Override
+        public ConsumerDTO getConsumer() {
+            return this.consumer;
+        }
+
+        @Override
+        public Collection<CertificateDTO> getUpstreamConsumerCertificates() {
+            return this.upstreamConsumerCertificates;
+        }
+
+        @Override
+        public Collection<ProductDTO> getProducts() {
+            return this.products;
+        }
+
+        @Override
+        public Collection<EntitlementDTO> getEntitlements() {
+            return this.entitlements;
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final I18n i18n;
+    private final SignatureVerifier verifier;
+
+    private StreamedContents contents;
+    private boolean consumerExportFound;
+    private byte[] signature;
+    private IOException contentsIOException;
+    private ImporterException contentsImporterException;
+
+    /**
+     * Creates a new reader for a single manifest.
+     *
+     * @param mapper
+     *  the object mapper to use for parsing the objects in the manifest
+     *
+     * @param i18n
+     *  the I18n instance to use for error messages
+     *
+     * @param verifier
+     *  the verifier to which the consumer_export archive is fed
+     */
+    public ManifestStreamReader(ObjectMapper mapper, I18n i18n, SignatureVerifier verifier) {
+        if (mapper == null) {
+            throw new IllegalArgumentException("mapper is null");
+        }
+
+        if (i18n == null) {
+            throw new IllegalArgumentException("i18n is null");
+        }
+
+        if (verifier == null) {
+            throw new IllegalArgumentException("verifier is null");
+        }
+
+        this.mapper = mapper;
+        this.i18n = i18n;
+        this.verifier = verifier;
+    }
+
+    /**
+     * Reads the given manifest archive. The stream is read to its end, but is not closed.
+     *
+     * @param archiveName
+     *  the name of the manifest archive, used in error messages
+     *
+     * @param archive
+     *  a stream providing the manifest archive
+     *
+     * @throws ImportExtractionException
+     *  if the manifest is not a zip archive, or is empty
+     *
+     * @throws IOException
+     *  if the manifest archive cannot be read
+     */
+    public void read(String archiveName, InputStream archive) throws ImportExtractionException, IOException {
+        ZipInputStream zip = new ZipInputStream(archive);
+        ZipEntry entry = zip.getNextEntry();
+
+        if (entry == null) {
+            throw new ImportExtractionException(i18n.tr(
+                "The archive {0} is not a properly compressed file or is empty", archiveName));
+        }
+
+        while (entry != null) {
+            log.debug("Reading manifest entry: {}", entry.getName());
+
+            if (CONSUMER_EXPORT.equals(entry.getName())) {
+                this.consumerExportFound = true;
+                this.readConsumerExport(new VerifyingInputStream(zip, this.verifier));
+            }
+            else if (SIGNATURE.equals(entry.getName())) {
+                this.signature = IOUtils.toByteArray(zip);
+            }
+
+            zip.closeEntry();
+            entry = zip.getNextEntry();
+        }
+    }
+
+    private void readConsumerExport(VerifyingInputStream stream) throws IOException {
+        this.contents = new StreamedContents();
+
+        try {
+            ZipInputStream zip = new ZipInputStream(stream);
+            ZipEntry entry = zip.getNextEntry();
+
+            if (entry == null) {
+                throw new ImportExtractionException(i18n.tr(
+                    "The archive {0} is not a properly compressed file or is empty", CONSUMER_EXPORT));
+            }
+
+            while (entry != null) {
+                if (!entry.isDirectory()) {
+                    this.readContentsEntry(entry.getName(), zip);
+                }
+
+                zip.closeEntry();
+                entry = zip.getNextEntry();
+            }
+        }
+        catch (IOException e) {
+            this.contentsIOException = e;
+        }
+        catch (ImporterException e) {
+            this.contentsImporterException = e;
+        }
+
+        // The signature covers the whole consumer_export archive, including anything the inner
+        // archive did not need to read, such as its central directory
+        stream.drain();
+    }
+
+    private void readContentsEntry(String name, InputStream stream) throws IOException {
+        if (!name.startsWith(EXPORT_DIR)) {
+            log.debug("Skipping entry outside of the export directory: {}", name);
+            return;
+        }
+
+        String path = name.substring(EXPORT_DIR.length());
+        this.contents.empty = false;
+
+        if (path.equals(ImportFile.META.fileName())) {
+            this.contents.meta = this.readValue(stream, Meta.class);
+            this.contents.files.add(ImportFile.META);
+            return;
+        }
+
+        if (path.equals(ImportFile.CONSUMER.fileName())) {
+            this.contents.consumer = this.readValue(stream, ConsumerDTO.class);
+            this.contents.files.add(ImportFile.CONSUMER);
+            return;
+        }
+
+        if (path.equals(ImportFile.RULES_FILE.fileName())) {
+            this.contents.rules = StringFromReader.asString(
+                new InputStreamReader(stream, StandardCharsets.UTF_8));
+            this.contents.files.add(ImportFile.RULES_FILE);
+            return;
+        }
+
+        int separator = path.indexOf('/');
+        if (separator < 0 || path.indexOf('/', separator + 1) >= 0) {
+            log.debug("Skipping unexpected manifest entry: {}", name);
+            return;
+        }
+
+        String directory = path.substring(0, separator);
+        String fileName = path.substring(separator + 1);
+
+        if (directory.equals(ImportFile.CONSUMER_TYPE.fileName())) {
+            this.contents.consumerTypes.add(this.readValue(stream, ConsumerTypeDTO.class));
+            this.contents.files.add(ImportFile.CONSUMER_TYPE);
+        }
+        else if (directory.equals(ImportFile.DISTRIBUTOR_VERSIONS.fileName())) {
+            this.contents.distributorVersions.add(this.readValue(stream, DistributorVersionDTO.class));
+            this.contents.files.add(ImportFile.DISTRIBUTOR_VERSIONS);
+        }
+        else if (directory.equals(ImportFile.CONTENT_DELIVERY_NETWORKS.fileName())) {
+            this.contents.cdns.add(this.readValue(stream, CdnDTO.class));
+            this.contents.files.add(ImportFile.CONTENT_DELIVERY_NETWORKS);
+        }
+        else if (directory.equals(ImportFile.UPSTREAM_CONSUMER.fileName())) {
+            this.contents.files.add(ImportFile.UPSTREAM_CONSUMER);
+
+            if (fileName.endsWith(".json")) {
+                this.contents.upstreamConsumerCertificates.add(this.readValue(stream, CertificateDTO.class));
+            }
+            else {
+                log.warn("Extra file found in upstream_consumer directory: {}", fileName);
+            }
+        }
+        else if (directory.equals(ImportFile.PRODUCTS.fileName())) {
+            this.contents.files.add(ImportFile.PRODUCTS);
+
+            // Skip product.pem's, we just need the json to import:
+            if (fileName.endsWith(".json")) {
+                this.contents.products.add(this.readValue(stream, ProductDTO.class));
+            }
+        }
+        else if (directory.equals(ImportFile.ENTITLEMENTS.fileName())) {
+            this.contents.entitlements.add(this.readValue(stream, EntitlementDTO.class));
+            this.contents.files.add(ImportFile.ENTITLEMENTS);
+        }
+    }
+
+    /**
+     * Parses a single object from the current entry, without closing the archive stream.
+     */
+    private <T> T readValue(InputStream stream, Class<T> type) throws IOException {
+        try (JsonParser parser = this.mapper.getFactory().createParser(stream)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return this.mapper.readValue(parser, type);
+        }
+    }
+
+    /**
+     * @return
+     *  true if the manifest contains a consumer_export.zip archive; false otherwise
+     */
+    public boolean containsConsumerExport() {
+        return this.consumerExportFound;
+    }
+
+    /**
+     * @return
+     *  the signature included in the manifest, or null if the manifest does not contain one
+     */
+    public byte[] getSignature() {
+        return this.signature;
+    }
+
+    /**
+     * Checks the signature included in the manifest against the consumer_export archive.
+     *
+     * @return
+     *  true if the manifest contains a consumer_export archive and a signature matching it;
+     *  false otherwise
+     */
+    public boolean verifySignature() {
+        if (!this.consumerExportFound || this.signature == null) {
+            return false;
+        }
+
+        return this.verifier.verify(this.signature);
+    }
+
+    /**
+     * Fetches the objects read from the consumer_export archive. This should only be called once
+     * the signature has been verified, or its verification failure overridden.
+     *
+     * @throws ImporterException
+     *  if the consumer_export archive is missing, is not a zip archive or has no contents
+     *
+     * @throws IOException
+     *  if the consumer_export archive or any of the objects it contains could not be read
+     *
+     * @return
+     *  the objects read from the consumer_export archive
+     */
+    public ManifestContents getContents() throws ImporterException, IOException {
+        if (this.contentsIOException != null) {
+            throw this.contentsIOException;
+        }
+
+        if (this.contentsImporterException != null) {
+            throw this.contentsImporterException;
+        }
+
+        if (this.contents == null) {
+            throw new ImportExtractionException(i18n.tr("The archive does not contain " +
+                "the required consumer_export.zip file"));
+        }
+
+        if (this.contents.empty) {
+            throw new ImportExtractionException(i18n.tr("The consumer_export archive has no contents"));
+        }
+
+        return this.contents;
+    }
+}
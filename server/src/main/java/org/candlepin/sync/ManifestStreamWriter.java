@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync;
+
+import org.candlepin.pki.SignatureGenerator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+
+/**
+ * The ManifestStreamWriter writes a signed manifest archive in a single pass, without staging its
+ * contents on disk.
+ *
+ * Entries are written straight into the consumer_export.zip entry of the manifest archive, and the
+ * bytes of that inner archive are fed to a SignatureGenerator as they are written, so the signature
+ * entry can follow as soon as the inner archive is complete. Objects are serialized to JSON by the
+ * ManifestEntrySerializer in parallel, and written out in the order in which they were added, with
+ * only a bounded number of entries pending at any time.
+ *
+ * Instances are not thread-safe, and write a single manifest.
+ */
+public class ManifestStreamWriter {
+    private static Logger log = LoggerFactory.getLogger(ManifestStreamWriter.class);
+
+    private static final String CONSUMER_EXPORT = "consumer_export.zip";
+    private static final String SIGNATURE = "signature";
+    private static final String EXPORT_DIR = "export/";
+
+    /**
+     * Feeds everything written through it to a SignatureGenerator. Closing this stream does not
+     * close the manifest archive.
+     */
+    private static class SigningOutputStream extends FilterOutputStream {
+        private final SignatureGenerator signer;
+
+        public SigningOutputStream(OutputStream out, SignatureGenerator signer) {
+            super(out);
+            this.signer = signer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.signer.update(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.signer.update(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The manifest archive is finished by the writer
+            this.flush();
+        }
+    }
+
+    /**
+     * An entry of the consumer_export archive waiting for its content
+     */
+    private static class PendingEntry {
+        private final String name;
+        private final Future<byte[]> content;
+
+        public PendingEntry(String name, Future<byte[]> content) {
+            this.name = name;
+            this.content = content;
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final ManifestEntrySerializer serializer;
+    private final SignatureGenerator signer;
+
+    private final ZipOutputStream manifest;
+    private final ZipOutputStream consumerExport;
+    private final Deque<PendingEntry> pending;
+
+    private boolean finished;
+
+    /**
+     * Creates a new writer, and starts writing the manifest archive to the given stream.
+     *
+     * @param mapper
+     *  the object mapper with which to serialize the objects in the manifest
+     *
+     * @param serializer
+     *  the serializer on which the objects are serialized
+     *
+     * @param signer
+     *  the generator with which to sign the consumer_export archive
+     *
+     * @param out
+     *  the stream to which the manifest archive is written; it is not closed by the writer
+     *
+     * @param consumerUuid
+     *  the UUID of the consumer being exported, recorded in the archive comments
+     *
+     * @throws IOException
+     *  if the manifest archive cannot be written
+     */
+    public ManifestStreamWriter(ObjectMapper mapper, ManifestEntrySerializer serializer,
+        SignatureGenerator signer, OutputStream out, String consumerUuid) throws IOException {
+
+        if (mapper == null) {
+            throw new IllegalArgumentException("mapper is null");
+        }
+
+        if (serializer == null) {
+            throw new IllegalArgumentException("serializer is null");
+        }
+
+        if (signer == null) {
+            throw new IllegalArgumentException("signer is null");
+        }
+
+        if (out == null) {
+            throw new IllegalArgumentException("out is null");
+        }
+
+        this.mapper = mapper;
+        this.serializer = serializer;
+        this.signer = signer;
+        this.pending = new ArrayDeque<>();
+
+        this.manifest = new ZipOutputStream(out);
+        this.manifest.setComment("signed Candlepin export for " + consumerUuid);
+        this.manifest.putNextEntry(new ZipEntry(CONSUMER_EXPORT));
+
+        this.consumerExport = new ZipOutputStream(new SigningOutputStream(this.manifest, signer));
+        this.consumerExport.setComment("Candlepin export for " + consumerUuid);
+    }
+
+    /**
+     * Adds an entry containing the given object, serialized to JSON, to the consumer_export
+     * archive. The object is serialized on a worker thread, and must not be modified afterwards.
+     *
+     * @param name
+     *  the path of the entry, relative to the export directory
+     *
+     * @param value
+     *  the object to serialize; must not be an entity
+     *
+     * @throws IOException
+     *  if any of the pending entries cannot be serialized or written
+     */
+    public void writeJson(String name, Object value) throws IOException {
+        this.add(new PendingEntry(name, this.serializer.serialize(this.mapper, value)));
+    }
+
+    /**
+     * Adds an entry with the given content to the consumer_export archive.
+     *
+     * @param name
+     *  the path of the entry, relative to the export directory
+     *
+     * @param content
+     *  the content of the entry
+     *
+     * @throws IOException
+     *  if any of the pending entries cannot be serialized or written
+     */
+    public void write(String name, byte[] content) throws IOException {
+        this.add(new PendingEntry(name, CompletableFuture.completedFuture(content)));
+    }
+
+    private void add(PendingEntry entry) throws IOException {
+        if (this.finished) {
+            throw new IllegalStateException("manifest has already been finished");
+        }
+
+        this.pending.add(entry);
+
+        while (this.pending.size() > this.serializer.getMaxInFlight()) {
+            this.writeEntry(this.pending.poll());
+        }
+    }
+
+    private void writeEntry(PendingEntry entry) throws IOException {
+        byte[] content = this.await(entry.content);
+
+        log.debug("Adding file to archive: {}{}", EXPORT_DIR, entry.name);
+        this.consumerExport.putNextEntry(new ZipEntry(EXPORT_DIR + entry.name));
+        this.consumerExport.write(content);
+        this.consumerExport.closeEntry();
+    }
+
+    private byte[] await(Future<byte[]> content) throws IOException {
+        try {
+            return content.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while serializing manifest entry");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException("Unable to serialize manifest entry", cause);
+        }
+    }
+
+    /**
+     * Writes out every pending entry, completes the consumer_export archive, and adds its
+     * signature to the manifest archive. The stream the manifest was written to is not closed.
+     *
+     * @throws IOException
+     *  if any of the pending entries cannot be serialized or written
+     */
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+
+        while (!this.pending.isEmpty()) {
+            this.writeEntry(this.pending.poll());
+        }
+
+        this.finished = true;
+
+        this.consumerExport.finish();
+        this.consumerExport.flush();
+        this.manifest.closeEntry();
+
+        byte[] signature = this.signer.sign();
+
+        log.debug("Adding signature to archive.");
+        this.manifest.putNextEntry(new ZipEntry(SIGNATURE));
+        this.manifest.write(signature, 0, signature.length);
+        this.manifest.closeEntry();
+
+        this.manifest.finish();
+    }
+
+    /**
+     * Abandons the manifest, discarding any entry still waiting to be serialized.
+     */
+    public void abort() {
+        this.finished = true;
+
+        for (PendingEntry entry : this.pending) {
+            entry.content.cancel(false);
+        }
+
+        this.pending.clear();
+    }
+}
@@ -36,9 +36,13 @@ public class ProductExporter {
         this.translator = translator;
     }
 
+    public ProductDTO translate(Product product) {
+        return this.translator.translate(product, ProductDTO.class);
+    }
+
     public void export(ObjectMapper mapper, Writer writer, Product product)
         throws IOException {
-        mapper.writeValue(writer, this.translator.translate(product, ProductDTO.class));
+        mapper.writeValue(writer, this.translate(product));
     }
 
 }
@@ -40,9 +40,10 @@ public class ProductImporter {
     }
 
     public ProductDTO createObject(ObjectMapper mapper, Reader reader, Owner owner) throws IOException {
+        return this.createObject(mapper.readValue(reader, ProductDTO.class), owner);
+    }
 
-        ProductDTO importedProduct = mapper.readValue(reader, ProductDTO.class);
-
+    public ProductDTO createObject(ProductDTO importedProduct, Owner owner) {
         // Make sure the (UU)ID's are null, otherwise Hibernate thinks these are
         // detached entities.
         importedProduct.setUuid(null);
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.util;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
+
+import com.google.inject.Inject;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import javax.inject.Singleton;
+
+
+
+/**
+ * A bounded cache of the encoded content payloads of v3 certificates, keyed by a digest of the
+ * content paths they encode. Consumers attached to the same pools in the same environment, with the
+ * same content prefix, end up with identical content paths, so the payload only has to be built
+ * once for all of them. Everything else in their certificates is still built per consumer.
+ *
+ * The cache is bounded by the total size of the payloads it holds, and evicts the least recently
+ * used payloads first. Cached payloads are shared, and must not be modified.
+ */
+@Singleton
+public class ContentPayloadCache {
+
+    private final LruCache<String, byte[]> cache;
+
+    @Inject
+    public ContentPayloadCache(Configuration config) {
+        long maxSize = Math.max(0, config.getLong(ConfigProperties.CONTENT_PAYLOAD_CACHE_MAX_SIZE)) * 1024;
+        this.cache = new LruCache<>("Content payload cache", maxSize, payload -> payload.length);
+    }
+
+    /**
+     * Checks whether or not payloads are cached at all. The cache is disabled by setting its
+     * maximum size to zero.
+     *
+     * @return
+     *  true if payloads are cached; false otherwise
+     */
+    public boolean isEnabled() {
+        return this.cache.isEnabled();
+    }
+
+    /**
+     * Builds the key of the payload encoding the given content paths. The order of the paths is
+     * significant.
+     *
+     * @param paths
+     *  the content paths encoded in the payload
+     *
+     * @return
+     *  the cache key of the payload
+     */
+    public String getKey(List<String> paths) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+
+        for (String path : paths) {
+            // Length-prefix each path so that no two distinct lists of paths produce the same input
+            String element = path != null ? path.length() + ":" + path : "-1:";
+            digest.update(element.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Fetches the payload cached under the given key.
+     *
+     * @param key
+     *  the key of the payload, as built by {@link #getKey}
+     *
+     * @return
+     *  the cached payload, or null if no payload is cached under the key
+     */
+    public byte[] get(String key) {
+        return this.cache.get(key);
+    }
+
+    /**
+     * Caches an encoded payload under the given key, evicting the least recently used payloads as
+     * needed to stay within the maximum size. Payloads larger than the cache itself are not cached.
+     *
+     * @param key
+     *  the key of the payload, as built by {@link #getKey}
+     *
+     * @param payload
+     *  the encoded payload
+     */
+    public void put(String key, byte[] payload) {
+        this.cache.put(key, payload);
+    }
+
+    /**
+     * Removes every payload from the cache.
+     */
+    public void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * @return
+     *  the number of lookups which found a cached payload
+     */
+    public long getHitCount() {
+        return this.cache.getHitCount();
+    }
+
+    /**
+     * @return
+     *  the number of lookups which did not find a cached payload
+     */
+    public long getMissCount() {
+        return this.cache.getMissCount();
+    }
+
+    /**
+     * @return
+     *  the total size, in bytes, of the payloads currently cached
+     */
+    public long getSize() {
+        return this.cache.getWeight();
+    }
+}
@@ -27,11 +27,12 @@ import com.google.inject.persist.Transactional;
 
 import org.apache.commons.codec.binary.Base64InputStream;
 import org.apache.commons.codec.binary.Base64OutputStream;
-import org.apache.commons.io.IOUtils;
 import org.mozilla.jss.asn1.InvalidBERException;
+import org.mozilla.jss.netscape.security.util.DerValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -46,19 +47,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
+import java.security.cert.CRLReason;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509CRLEntry;
 import java.security.interfaces.RSAPrivateKey;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
@@ -70,6 +79,35 @@ import java.util.regex.Pattern;
  */
 @Singleton
 public class CrlFileUtil {
+
+    /**
+     * Writes a CRL file to the given stream
+     */
+    private interface CRLOutput {
+        void write(OutputStream output) throws IOException;
+    }
+
+    /**
+     * The entries added to or removed from a base CRL since it was written, as published in its
+     * delta CRL
+     */
+    private static class DeltaCRL {
+        private final BigInteger crlNumber;
+        private final BigInteger baseCrlNumber;
+        private final Map<BigInteger, Date> revoked;
+        private final Set<BigInteger> removed;
+
+        DeltaCRL(BigInteger crlNumber, BigInteger baseCrlNumber, Map<BigInteger, Date> revoked,
+            Set<BigInteger> removed) {
+
+            this.crlNumber = crlNumber;
+            this.baseCrlNumber = baseCrlNumber;
+            this.revoked = revoked;
+            this.removed = removed;
+        }
+    }
+
+
     private static final Logger log = LoggerFactory.getLogger(CrlFileUtil.class);
 
     // See https://tools.ietf.org/html/rfc5280#section-5.3.1
@@ -81,6 +119,10 @@ public class CrlFileUtil {
     private static final Pattern CRL_FOOTER_PATTERN = Pattern.compile("^(-+)END (.+)\\1$");
     private static final Pattern WHITESPACE = Pattern.compile("^\\s.*$");
 
+    private static final String DELTA_CRL_SUFFIX = ".delta";
+    private static final String CRL_NUMBER_OID = "2.5.29.20";
+    private static final String DELTA_CRL_INDICATOR_OID = "2.5.29.27";
+
     private final CertificateReader certificateReader;
     private final PKIUtility pkiUtility;
     private CertificateSerialCurator certificateSerialCurator;
@@ -98,7 +140,8 @@ public class CrlFileUtil {
     }
 
     /**
-     * Initializes a new CRL at the specified location
+     * Initializes a new CRL at the specified location, along with an empty delta CRL if delta CRLs
+     * are published
      *
      * @param file
      *  The file to initialize
@@ -107,25 +150,50 @@ public class CrlFileUtil {
      *  If an IO error occurs while initializing the CRL file
      */
     public void initializeCRLFile(File file, Collection<BigInteger> revoke) throws IOException {
-        FileOutputStream output = null;
-
-        List<X509CRLEntryWrapper> entries = new LinkedList<>();
+        Map<BigInteger, Date> entries = new HashMap<>();
 
+        Date now = new Date();
         for (BigInteger serial : revoke) {
-            entries.add(new X509CRLEntryWrapper(serial, new Date()));
+            entries.put(serial, now);
         }
 
-        X509CRL crl = this.pkiUtility.createX509CRL(entries, BigInteger.ONE);
+        this.lock.writeLock().lock();
 
         try {
-            output = new FileOutputStream(file);
-            this.pkiUtility.writePemEncoded(crl, output);
+            this.initializeCRLFile(file, entries, BigInteger.ONE);
+            this.publishEmptyDeltaCRL(this.getDeltaCRLFile(file), BigInteger.ONE);
         }
         finally {
-            IOUtils.closeQuietly(output);
+            this.lock.writeLock().unlock();
         }
     }
 
+    private void initializeCRLFile(File file, Map<BigInteger, Date> revoked, BigInteger crlNumber)
+        throws IOException {
+
+        List<X509CRLEntryWrapper> entries = new LinkedList<>();
+
+        for (Map.Entry<BigInteger, Date> entry : revoked.entrySet()) {
+            entries.add(new X509CRLEntryWrapper(entry.getKey(), entry.getValue()));
+        }
+
+        X509CRL crl = this.pkiUtility.createX509CRL(entries, crlNumber);
+        this.writeAtomically(file, output -> this.pkiUtility.writePemEncoded(crl, output));
+    }
+
+    /**
+     * Returns the file in which the delta CRL for the specified CRL file is published.
+     *
+     * @param file
+     *  The CRL file
+     *
+     * @return
+     *  the delta CRL file for the specified CRL file
+     */
+    public File getDeltaCRLFile(File file) {
+        return new File(file.getPath() + DELTA_CRL_SUFFIX);
+    }
+
     /**
      * Opens the specified CRL file for streaming. If the CRL file contains a header in the form of
      * "/-+BEGIN .+-+\n/i", the header and matching footer will be automatically truncated.
@@ -175,6 +243,12 @@ public class CrlFileUtil {
      * or empty, the CRL file will not be modified by this method. If the file does not exist or
      * appears to be empty, it will be initialized before processing the lists.
      *
+     * When a base CRL rebuild interval is configured, the CRL file is only rewritten once it is
+     * older than the interval. Until then, the entries added or removed since it was last written
+     * are published in the delta CRL file instead, which is rewritten in full on every update. In
+     * either case, files are written to a temporary file and renamed over the previous version, so
+     * readers never see a partially written CRL.
+     *
      * @param file
      *  The CRL file to update
      *
@@ -190,20 +264,96 @@ public class CrlFileUtil {
     public void updateCRLFile(File file, final Collection<BigInteger> revoke,
         final Collection<BigInteger> unrevoke) throws IOException {
 
-        if (!file.exists() || file.length() == 0) {
-            this.initializeCRLFile(file, revoke);
-            return;
+        this.lock.writeLock().lock();
+
+        try {
+            File deltaFile = this.getDeltaCRLFile(file);
+            DeltaCRL delta = this.readDeltaCRL(deltaFile);
+
+            // Entries pending in the delta CRL are folded into any new base CRL, along with the
+            // changes requested here.
+            Map<BigInteger, Date> revoked = delta != null ? delta.revoked : new HashMap<>();
+            Set<BigInteger> removed = delta != null ? delta.removed : new HashSet<>();
+
+            if (unrevoke != null) {
+                for (BigInteger serial : unrevoke) {
+                    revoked.remove(serial);
+                    removed.add(serial);
+                }
+            }
+
+            if (revoke != null) {
+                Date now = new Date();
+                for (BigInteger serial : revoke) {
+                    removed.remove(serial);
+                    revoked.put(serial, now);
+                }
+            }
+
+            if (!file.exists() || file.length() == 0) {
+                BigInteger crlNumber = delta != null ? delta.crlNumber.add(BigInteger.ONE) : BigInteger.ONE;
+
+                this.initializeCRLFile(file, revoked, crlNumber);
+                this.publishEmptyDeltaCRL(deltaFile, crlNumber);
+                return;
+            }
+
+            boolean hasChanges = (revoke != null && !revoke.isEmpty()) ||
+                (unrevoke != null && !unrevoke.isEmpty());
+
+            if (!hasChanges) {
+                return;
+            }
+
+            if (!this.isBaseRebuildDue(file, delta)) {
+                log.debug("Publishing {} revoked and {} removed serials in delta CRL: {}", revoked.size(),
+                    removed.size(), deltaFile);
+
+                this.writeDeltaCRL(deltaFile, new DeltaCRL(delta.crlNumber.add(BigInteger.ONE),
+                    delta.baseCrlNumber, revoked, removed));
+
+                return;
+            }
+
+            this.rebuildBaseCRL(file, deltaFile, delta, revoked, removed);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the base CRL file with the given entries added and removed, and resets the delta CRL
+     * against the new base CRL.
+     */
+    private void rebuildBaseCRL(File file, File deltaFile, DeltaCRL delta, Map<BigInteger, Date> revoked,
+        Set<BigInteger> removed) throws IOException {
+
+        // Serials being revoked are also filtered out of the existing entries, so serials which
+        // were removed and then revoked again are not listed twice.
+        Set<BigInteger> filtered = new HashSet<>(removed);
+        filtered.addAll(revoked.keySet());
+
+        BigInteger minimumCrlNumber = delta != null ? delta.crlNumber.add(BigInteger.ONE) : null;
+        BigInteger crlNumber = this.rebuildCRLFile(file, revoked, filtered, minimumCrlNumber);
+
+        if (crlNumber != null) {
+            this.publishEmptyDeltaCRL(deltaFile, crlNumber);
         }
+    }
+
+    /**
+     * Rewrites the base CRL file with the given entries added and removed, returning the number of
+     * the new base CRL, or null if the file was left unmodified.
+     */
+    private BigInteger rebuildCRLFile(File file, Map<BigInteger, Date> revoke, Set<BigInteger> unrevoke,
+        BigInteger minimumCrlNumber) throws IOException {
 
         File strippedFile = stripCRLFile(file);
 
         InputStream input = null;
         InputStream reaper = null;
 
-        BufferedOutputStream output = null;
-        OutputStream filter = null;
-        OutputStream encoder = null;
-
         try {
             // Impl note:
             // Due to the way the X509CRLStreamWriter works (and the DER format in general), we have
@@ -225,18 +375,22 @@ public class CrlFileUtil {
                 throw new IOException("Could not read DER", e);
             }
 
-            // Add new entries
-            if (revoke != null) {
-                Date now = new Date();
-                for (BigInteger serial : revoke) {
+            // The base CRL has to be numbered past any delta CRL issued against the previous one
+            if (minimumCrlNumber != null) {
+                writer.setMinimumCRLNumber(minimumCrlNumber);
+            }
 
-                    writer.add(serial, now, PRIVILEGE_WITHDRAWN);
-                }
+            // Point clients to the delta CRL, or stop doing so if delta CRLs are no longer published
+            writer.setDeltaCRLLocation(this.getDeltaCRLLocation());
+
+            // Add new entries
+            for (Map.Entry<BigInteger, Date> entry : revoke.entrySet()) {
+                writer.add(entry.getKey(), entry.getValue(), PRIVILEGE_WITHDRAWN);
             }
 
             // Unfortunately, we need to do the prescan before checking if we have changes queued,
             // or we could miss cases where we have entries to remove, but nothing to add.
-            if (unrevoke != null && !unrevoke.isEmpty()) {
+            if (!unrevoke.isEmpty()) {
                 writer.preScan(reaper, new CRLEntryValidator() {
                     public boolean shouldDelete(X509CRLEntry entry) {
                         BigInteger certSerial = entry.getSerialNumber();
@@ -251,55 +405,22 @@ public class CrlFileUtil {
             writer.setSigningAlgorithm(PKIUtility.SIGNATURE_ALGO);
 
             // Verify we actually have work to do now
-            if (writer.hasChangesQueued()) {
-                output = new BufferedOutputStream(new FileOutputStream(file));
-                filter = new FilterOutputStream(output) {
-                    private boolean needsLineBreak = true;
-
-                    public void write(int b) throws IOException {
-                        this.needsLineBreak = (b != (byte) '\n');
-                        super.write(b);
-                    }
-
-                    public void write(byte[] buffer) throws IOException {
-                        this.needsLineBreak = (buffer[buffer.length - 1] != (byte) '\n');
-                        super.write(buffer);
-                    }
-
-                    public void write(byte[] buffer, int off, int len) throws IOException {
-                        this.needsLineBreak = (buffer[off + len - 1] != (byte) '\n');
-                        super.write(buffer, off, len);
-                    }
-
-                    public void close() throws IOException {
-                        if (this.needsLineBreak) {
-                            super.write((int) '\n');
-                            this.needsLineBreak = false;
-                        }
-
-                        // Impl note:
-                        // We're intentionally not propagating the call here.
-                    }
-                };
-                encoder = new Base64OutputStream(filter, true, 76, new byte[] { (byte) '\n' });
-
-                output.write("-----BEGIN X509 CRL-----\n".getBytes());
+            if (!writer.hasChangesQueued()) {
+                return null;
+            }
 
-                writer.lock();
-                writer.write(encoder);
-                encoder.close();
-                filter.close();
+            writer.lock();
+            this.writeAtomically(file, output -> this.writePemEncoded(writer, output));
 
-                output.write("-----END X509 CRL-----\n".getBytes());
-                output.close();
-            }
+            return writer.getCRLNumber();
         }
         catch (GeneralSecurityException e) {
             // This should never actually happen
             log.error("Unexpected security error occurred while retrieving CA key", e);
+            return null;
         }
         finally {
-            for (Closeable stream : Arrays.asList(encoder, output, reaper, input)) {
+            for (Closeable stream : Arrays.asList(reaper, input)) {
                 if (stream != null) {
                     try {
                         stream.close();
@@ -316,6 +437,199 @@ public class CrlFileUtil {
         }
     }
 
+    private void writePemEncoded(X509CRLStreamWriter writer, OutputStream output) throws IOException {
+        OutputStream filter = new FilterOutputStream(output) {
+            private boolean needsLineBreak = true;
+
+            public void write(int b) throws IOException {
+                this.needsLineBreak = (b != (byte) '\n');
+                super.write(b);
+            }
+
+            public void write(byte[] buffer) throws IOException {
+                this.needsLineBreak = (buffer[buffer.length - 1] != (byte) '\n');
+                super.write(buffer);
+            }
+
+            public void write(byte[] buffer, int off, int len) throws IOException {
+                this.needsLineBreak = (buffer[off + len - 1] != (byte) '\n');
+                super.write(buffer, off, len);
+            }
+
+            public void close() throws IOException {
+                if (this.needsLineBreak) {
+                    super.write((int) '\n');
+                    this.needsLineBreak = false;
+                }
+
+                // Impl note:
+                // We're intentionally not propagating the call here.
+            }
+        };
+        OutputStream encoder = new Base64OutputStream(filter, true, 76, new byte[] { (byte) '\n' });
+
+        output.write("-----BEGIN X509 CRL-----\n".getBytes());
+
+        writer.write(encoder);
+        encoder.close();
+        filter.close();
+
+        output.write("-----END X509 CRL-----\n".getBytes());
+    }
+
+    /**
+     * Checks whether the base CRL file is to be rewritten, rather than publishing changes in the
+     * delta CRL file.
+     */
+    private boolean isBaseRebuildDue(File file, DeltaCRL delta) {
+        int interval = this.config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL);
+
+        if (interval <= 0 || delta == null) {
+            return true;
+        }
+
+        long age = System.currentTimeMillis() - file.lastModified();
+        return age < 0 || age >= TimeUnit.HOURS.toMillis(interval);
+    }
+
+    /**
+     * Returns the location of the delta CRL to point to from base CRLs, or null if delta CRLs are
+     * not published or their location is not configured.
+     */
+    private String getDeltaCRLLocation() {
+        String location = this.config.getString(ConfigProperties.CRL_DELTA_URL);
+
+        if (location == null || location.isEmpty() ||
+            this.config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL) <= 0) {
+            return null;
+        }
+
+        return location;
+    }
+
+    /**
+     * Reads the entries pending in the specified delta CRL file.
+     *
+     * @return
+     *  the pending entries, or null if the file does not exist or cannot be read
+     */
+    private DeltaCRL readDeltaCRL(File deltaFile) {
+        if (!deltaFile.exists() || deltaFile.length() == 0) {
+            return null;
+        }
+
+        try (InputStream input = new BufferedInputStream(new FileInputStream(deltaFile))) {
+            X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(input);
+
+            BigInteger crlNumber = readNumberExtension(crl, CRL_NUMBER_OID);
+            BigInteger baseCrlNumber = readNumberExtension(crl, DELTA_CRL_INDICATOR_OID);
+
+            if (crlNumber == null || baseCrlNumber == null) {
+                log.warn("Ignoring delta CRL without CRL number or delta CRL indicator: {}", deltaFile);
+                return null;
+            }
+
+            Map<BigInteger, Date> revoked = new HashMap<>();
+            Set<BigInteger> removed = new HashSet<>();
+
+            if (crl.getRevokedCertificates() != null) {
+                for (X509CRLEntry entry : crl.getRevokedCertificates()) {
+                    if (entry.getRevocationReason() == CRLReason.REMOVE_FROM_CRL) {
+                        removed.add(entry.getSerialNumber());
+                    }
+                    else {
+                        revoked.put(entry.getSerialNumber(), entry.getRevocationDate());
+                    }
+                }
+            }
+
+            return new DeltaCRL(crlNumber, baseCrlNumber, revoked, removed);
+        }
+        catch (IOException | GeneralSecurityException e) {
+            log.warn("Unable to read delta CRL; the base CRL will be rebuilt: {}", deltaFile, e);
+            return null;
+        }
+    }
+
+    private static BigInteger readNumberExtension(X509CRL crl, String oid) throws IOException {
+        byte[] value = crl.getExtensionValue(oid);
+        if (value == null) {
+            return null;
+        }
+
+        // The extension value is an OCTET STRING wrapping the DER-encoded INTEGER
+        byte[] encoded = new DerValue(value).getOctetString();
+        return new DerValue(encoded).getInteger().toBigInteger();
+    }
+
+    private void writeDeltaCRL(File deltaFile, DeltaCRL delta) throws IOException {
+        List<X509CRLEntryWrapper> entries = new LinkedList<>();
+
+        for (Map.Entry<BigInteger, Date> entry : delta.revoked.entrySet()) {
+            entries.add(new X509CRLEntryWrapper(entry.getKey(), entry.getValue()));
+        }
+
+        Date now = new Date();
+        for (BigInteger serial : delta.removed) {
+            entries.add(new X509CRLEntryWrapper(serial, now, true));
+        }
+
+        X509CRL crl = this.pkiUtility.createX509DeltaCRL(entries, delta.crlNumber, delta.baseCrlNumber);
+        this.writeAtomically(deltaFile, output -> this.pkiUtility.writePemEncoded(crl, output));
+    }
+
+    /**
+     * Publishes an empty delta CRL against a newly written base CRL, or removes the delta CRL file
+     * if delta CRLs are not in use.
+     */
+    private void publishEmptyDeltaCRL(File deltaFile, BigInteger baseCrlNumber) throws IOException {
+        if (this.config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL) > 0) {
+            this.writeDeltaCRL(deltaFile, new DeltaCRL(baseCrlNumber.add(BigInteger.ONE), baseCrlNumber,
+                new HashMap<>(), new HashSet<>()));
+        }
+        else if (deltaFile.exists() && !deltaFile.delete()) {
+            log.error("Unable to delete stale delta CRL file: {}", deltaFile);
+        }
+    }
+
+    /**
+     * Writes a file to a temporary file in the same directory, which is then renamed over the
+     * target file. The target file keeps the permissions of the file it replaces.
+     */
+    private void writeAtomically(File target, CRLOutput content) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        File tempFile = new File(directory, "." + target.getName() + ".tmp");
+
+        try {
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                content.write(output);
+            }
+
+            if (target.exists()) {
+                try {
+                    Files.setPosixFilePermissions(tempFile.toPath(),
+                        Files.getPosixFilePermissions(target.toPath()));
+                }
+                catch (UnsupportedOperationException e) {
+                    // Not a POSIX file system; the new file keeps its default permissions
+                }
+            }
+
+            try {
+                Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                log.warn("Atomic rename not supported; replacing CRL file in place: {}", target);
+                Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                log.error("Unable to delete temporary CRL file: {}", tempFile);
+            }
+        }
+    }
+
     /**
      * Sync the specified CRL file with the database. The sync will be done in batches of the
      * specified amount.
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+
+/**
+ * Utility methods for building the executors backing the application's shared worker pools.
+ */
+public class ExecutorUtil {
+
+    /** The number of seconds an idle worker thread is kept around */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private ExecutorUtil() {
+        // Intentionally left empty
+    }
+
+    /**
+     * Builds an executor running its tasks on at most the given number of daemon threads, named
+     * with the given prefix followed by a sequence number. Tasks submitted while every thread is
+     * busy are queued. Threads are only started as tasks are submitted, and are released once they
+     * have been idle for a minute, so a pool which is rarely used holds no threads in between.
+     *
+     * @param threadPrefix
+     *  the prefix of the names of the executor's threads
+     *
+     * @param threads
+     *  the maximum number of threads to run tasks on
+     *
+     * @throws IllegalArgumentException
+     *  if threads is less than one
+     *
+     * @return
+     *  a new bounded executor
+     */
+    public static ExecutorService newBoundedExecutor(String threadPrefix, int threads) {
+        return newBoundedExecutor(threadPrefix, threads, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * Builds an executor running its tasks on at most the given number of daemon threads of the
+     * given priority. See newBoundedExecutor(String, int) for details.
+     *
+     * @param threadPrefix
+     *  the prefix of the names of the executor's threads
+     *
+     * @param threads
+     *  the maximum number of threads to run tasks on
+     *
+     * @param priority
+     *  the priority of the executor's threads
+     *
+     * @throws IllegalArgumentException
+     *  if threads is less than one, or priority is not a valid thread priority
+     *
+     * @return
+     *  a new bounded executor
+     */
+    public static ExecutorService newBoundedExecutor(String threadPrefix, int threads, int priority) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads is less than one");
+        }
+
+        if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY) {
+            throw new IllegalArgumentException("priority is not a valid thread priority: " + priority);
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+
+            return thread;
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+}
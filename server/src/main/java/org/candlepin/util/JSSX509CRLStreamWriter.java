@@ -144,6 +144,12 @@ public class JSSX509CRLStreamWriter extends AbstractX509CRLStreamWriter {
     private int extensionsDelta;
     private byte[] newExtensions;
 
+    private BigInteger minimumCrlNumber;
+    private BigInteger crlNumber;
+
+    private boolean replaceFreshestCrl;
+    private Extension freshestCrl;
+
     public JSSX509CRLStreamWriter(File crlToChange, RSAPrivateKey key, X509Certificate ca)
         throws IOException, InvalidBERException {
         this(new BufferedInputStream(new FileInputStream(crlToChange)), key, ca);
@@ -304,6 +310,52 @@ public class JSSX509CRLStreamWriter extends AbstractX509CRLStreamWriter {
         return this.newEntries.size() > 0 || this.deletedEntries.size() > 0;
     }
 
+    @Override
+    public void setMinimumCRLNumber(BigInteger crlNumber) {
+        if (locked || preScanned) {
+            throw new IllegalStateException("The CRL number must be set before the stream is prescanned.");
+        }
+
+        this.minimumCrlNumber = crlNumber;
+    }
+
+    @Override
+    public BigInteger getCRLNumber() {
+        return this.crlNumber;
+    }
+
+    @Override
+    public void setDeltaCRLLocation(String location) throws IOException {
+        if (locked || preScanned) {
+            throw new IllegalStateException(
+                "The delta CRL location must be set before the stream is prescanned.");
+        }
+
+        this.replaceFreshestCrl = true;
+        this.freshestCrl = location != null ? JSSPKIUtility.buildFreshestCRLExtension(location) : null;
+    }
+
+    /**
+     * Checks whether the given extension of the CRL being modified is left out of the modified CRL
+     */
+    private boolean isReplaced(Extension ext) {
+        return this.replaceFreshestCrl && ext.getExtensionId().equals(PKIXExtensions.FreshestCRL_Id);
+    }
+
+    /**
+     * Determines the number of the modified CRL from the number of the CRL being modified.
+     */
+    private BigInteger nextCRLNumber(BigInteger oldCrlNumber) {
+        BigInteger next = oldCrlNumber.add(BigInteger.ONE);
+
+        if (this.minimumCrlNumber != null && this.minimumCrlNumber.compareTo(next) > 0) {
+            next = this.minimumCrlNumber;
+        }
+
+        this.crlNumber = next;
+        return next;
+    }
+
     @Override
     protected void writeToEmptyCrl(OutputStream out) throws IOException {
         byte[] oldCrlbytes = ByteStreams.toByteArray(crlIn);
@@ -331,16 +383,20 @@ public class JSSX509CRLStreamWriter extends AbstractX509CRLStreamWriter {
                 if (ext.getExtensionId().equals(PKIXExtensions.CRLNumber_Id)) {
                     CRLNumberExtension crlNumExt = (CRLNumberExtension) ext;
                     BigInteger crlNum = (BigInteger) crlNumExt.get(CRLNumberExtension.NUMBER);
-                    newExts.add(new CRLNumberExtension(ext.isCritical(), crlNum.add(BigInteger.ONE)));
+                    newExts.add(new CRLNumberExtension(ext.isCritical(), nextCRLNumber(crlNum)));
                 }
                 else if (ext.getExtensionId().equals(PKIXExtensions.AuthorityKey_Id)) {
                     aki.setCritical(ext.isCritical());
                     newExts.add(aki);
                 }
-                else {
+                else if (!isReplaced(ext)) {
                     newExts.add(ext);
                 }
             }
+
+            if (freshestCrl != null) {
+                newExts.add(freshestCrl);
+            }
         }
         catch (GeneralSecurityException e) {
             throw new IOException("Could not decode old CRL", e);
@@ -456,7 +512,7 @@ public class JSSX509CRLStreamWriter extends AbstractX509CRLStreamWriter {
             for (Extension e : exts) {
                 if (e.getExtensionId().equals(PKIXExtensions.CRLNumber_Id)) {
                     DerValue crlNum = new DerValue(e.getExtensionValue());
-                    BigInteger newCrlNum = crlNum.getInteger().toBigInteger().add(BigInteger.ONE);
+                    BigInteger newCrlNum = nextCRLNumber(crlNum.getInteger().toBigInteger());
 
                     modifiedExts.addElement(new org.mozilla.jss.pkix.cert.Extension(
                         new OBJECT_IDENTIFIER(e.getExtensionId().toString()), e.isCritical(),
@@ -468,13 +524,20 @@ public class JSSX509CRLStreamWriter extends AbstractX509CRLStreamWriter {
                         e.isCritical(),
                         new OCTET_STRING(aki.getExtensionValue())));
                 }
-                else {
+                else if (!isReplaced(e)) {
                     modifiedExts.addElement(new org.mozilla.jss.pkix.cert.Extension(
                         new OBJECT_IDENTIFIER(e.getExtensionId().toString()),
                         e.isCritical(),
                         new OCTET_STRING(e.getExtensionValue())));
                 }
             }
+
+            if (freshestCrl != null) {
+                modifiedExts.addElement(new org.mozilla.jss.pkix.cert.Extension(
+                    new OBJECT_IDENTIFIER(freshestCrl.getExtensionId().toString()),
+                    freshestCrl.isCritical(),
+                    new OCTET_STRING(freshestCrl.getExtensionValue())));
+            }
         }
         catch (CRLException | X509ExtensionException e) {
             throw new IOException("Could not read CRL extensions", e);
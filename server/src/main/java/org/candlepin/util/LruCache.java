@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+
+
+/**
+ * A bounded, thread-safe, in-memory cache which evicts its least recently used entries first, and
+ * counts the lookups which did and did not find a cached value. The counts are logged
+ * periodically, as lookups are made.
+ *
+ * The cache is bounded by the total weight of its values, which is the number of values unless
+ * the cache is given a function weighing each value.
+ *
+ * @param <K>
+ *  the type of the keys of the cache
+ *
+ * @param <V>
+ *  the type of the values of the cache
+ */
+public class LruCache<K, V> {
+    private static Logger log = LoggerFactory.getLogger(LruCache.class);
+
+    /** The minimum number of milliseconds between two logs of the lookup counts of a cache */
+    private static final long STATS_LOG_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong nextStatsLog;
+
+    // Guarded by the cache's own monitor
+    private final LinkedHashMap<K, V> cache;
+    private long weight;
+
+    /**
+     * Creates a new cache holding at most the given number of entries. A cache with a maximum of
+     * zero entries is disabled, and caches nothing.
+     *
+     * @param name
+     *  the name of the cache, used when logging its lookup counts
+     *
+     * @param maxEntries
+     *  the maximum number of entries to cache
+     */
+    public LruCache(String name, int maxEntries) {
+        this(name, maxEntries, value -> 1);
+    }
+
+    /**
+     * Creates a new cache holding values up to the given total weight. A cache with a maximum
+     * weight of zero is disabled, and caches nothing.
+     *
+     * @param name
+     *  the name of the cache, used when logging its lookup counts
+     *
+     * @param maxWeight
+     *  the maximum total weight of the cached values
+     *
+     * @param weigher
+     *  the function weighing each value; the weight of a value must not change while it is cached
+     */
+    public LruCache(String name, long maxWeight, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxWeight = Math.max(0, maxWeight);
+        this.weigher = weigher;
+        this.nextStatsLog = new AtomicLong(System.currentTimeMillis() + STATS_LOG_INTERVAL);
+
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.weight = 0;
+    }
+
+    /**
+     * Checks whether or not values are cached at all.
+     *
+     * @return
+     *  true if values are cached; false otherwise
+     */
+    public boolean isEnabled() {
+        return this.maxWeight > 0;
+    }
+
+    /**
+     * Fetches the value cached under the given key, making it the most recently used entry.
+     *
+     * @param key
+     *  the key of the value
+     *
+     * @return
+     *  the cached value, or null if no value is cached under the key
+     */
+    public V get(K key) {
+        V value;
+
+        synchronized (this.cache) {
+            value = this.cache.get(key);
+        }
+
+        if (value != null) {
+            this.hits.increment();
+        }
+        else {
+            this.misses.increment();
+        }
+
+        this.logStats();
+
+        return value;
+    }
+
+    /**
+     * Caches a value under the given key, evicting the least recently used entries as needed to
+     * stay within the maximum weight. Null keys and values, and values heavier than the cache
+     * itself, are not cached.
+     *
+     * @param key
+     *  the key of the value
+     *
+     * @param value
+     *  the value to cache
+     */
+    public void put(K key, V value) {
+        if (!this.isEnabled() || key == null || value == null) {
+            return;
+        }
+
+        long valueWeight = this.weigher.applyAsLong(value);
+        if (valueWeight > this.maxWeight) {
+            return;
+        }
+
+        synchronized (this.cache) {
+            V previous = this.cache.put(key, value);
+            this.weight += valueWeight - (previous != null ? this.weigher.applyAsLong(previous) : 0);
+
+            Iterator<V> iterator = this.cache.values().iterator();
+            while (this.weight > this.maxWeight && iterator.hasNext()) {
+                this.weight -= this.weigher.applyAsLong(iterator.next());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes every entry from the cache. The lookup counts are kept.
+     */
+    public void clear() {
+        synchronized (this.cache) {
+            this.cache.clear();
+            this.weight = 0;
+        }
+    }
+
+    /**
+     * Logs the lookup counts of the cache if they have not been logged for a while. Of the
+     * lookups made once the interval has passed, only one logs the counts.
+     */
+    private void logStats() {
+        long next = this.nextStatsLog.get();
+        long now = System.currentTimeMillis();
+
+        if (now >= next && this.nextStatsLog.compareAndSet(next, now + STATS_LOG_INTERVAL)) {
+            long hitCount = this.getHitCount();
+            long missCount = this.getMissCount();
+
+            log.info("{}: {} entries cached; {} hits and {} misses ({}% hit rate)", this.name,
+                this.size(), hitCount, missCount, hitCount * 100 / Math.max(1, hitCount + missCount));
+        }
+    }
+
+    /**
+     * @return
+     *  the number of lookups which found a cached value
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return
+     *  the number of lookups which did not find a cached value
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return
+     *  the number of entries currently cached
+     */
+    public int size() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * @return
+     *  the total weight of the values currently cached
+     */
+    public long getWeight() {
+        synchronized (this.cache) {
+            return this.weight;
+        }
+    }
+}
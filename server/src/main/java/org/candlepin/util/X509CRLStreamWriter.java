@@ -58,6 +58,35 @@ public interface X509CRLStreamWriter {
 
     boolean hasChangesQueued();
 
+    /**
+     * Sets the lowest CRL number the modified CRL may be given. By default, the modified CRL is
+     * numbered one past the CRL being modified; this allows skipping the numbers already given to
+     * delta CRLs issued against it. Must be called before the stream is prescanned.
+     *
+     * @param crlNumber the lowest CRL number of the modified CRL
+     */
+    void setMinimumCRLNumber(BigInteger crlNumber);
+
+    /**
+     * Returns the CRL number given to the modified CRL. The number is known once the stream has
+     * been written, and may be known as early as once it has been prescanned.
+     *
+     * @return the CRL number of the modified CRL, or null if it is not known or the CRL being
+     *  modified does not have one
+     */
+    BigInteger getCRLNumber();
+
+    /**
+     * Sets the location of the delta CRL the modified CRL points to in its FreshestCRL extension.
+     * Any FreshestCRL extension of the CRL being modified is replaced, or dropped if the location is
+     * null. By default, the extensions of the CRL being modified are kept as they are. Must be
+     * called before the stream is prescanned.
+     *
+     * @param location the URI of the delta CRL, or null to drop the FreshestCRL extension
+     * @throws IOException if the extension cannot be encoded
+     */
+    void setDeltaCRLLocation(String location) throws IOException;
+
     /**
      * Write a modified CRL to the given output stream.  This method will add each entry provided
      * via the add() method.
@@ -46,14 +46,16 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -68,6 +70,7 @@ public class X509V3ExtensionUtil extends X509Util {
     private ObjectMapper mapper;
     private Configuration config;
     private EntitlementCurator entCurator;
+    private ContentPayloadCache payloadCache;
     public static final String CERT_VERSION = "3.4";
 
     private long pathNodeId = 0;
@@ -77,12 +80,14 @@ public class X509V3ExtensionUtil extends X509Util {
 
     @Inject
     public X509V3ExtensionUtil(Configuration config, EntitlementCurator entCurator,
-        @Named("X509V3ExtensionUtilObjectMapper") ObjectMapper objectMapper) {
+        @Named("X509V3ExtensionUtilObjectMapper") ObjectMapper objectMapper,
+        ContentPayloadCache payloadCache) {
 
         // Output everything in UTC
         this.config = config;
         this.entCurator = entCurator;
         this.mapper = objectMapper;
+        this.payloadCache = payloadCache;
     }
 
     public Set<X509ExtensionWrapper> getExtensions() {
@@ -114,13 +119,51 @@ public class X509V3ExtensionUtil extends X509Util {
         Consumer consumer, Pool pool, Integer quantity) throws IOException {
 
         EntitlementBody map = createEntitlementBody(productModels, consumer, pool, quantity);
+        return createEntitlementDataPayload(map);
+    }
 
-        String json = toJson(map);
+    /**
+     * Serializes and compresses an entitlement body built by {@link #createEntitlementBody}. This
+     * only reads the body itself, so it may be called outside of the thread which built it.
+     *
+     * @param body
+     *  the entitlement body to encode
+     *
+     * @throws IOException
+     *  if the body cannot be compressed
+     *
+     * @return
+     *  the encoded entitlement data payload
+     */
+    public byte[] createEntitlementDataPayload(EntitlementBody body) throws IOException {
+        String json = toJson(body);
         return processPayload(json);
     }
 
     private byte[] retrieveContentValue(EntitlementBody eb) throws IOException {
         List<Content> contentList = getContentList(eb);
+        if (!this.payloadCache.isEnabled()) {
+            return this.encodeContentValue(contentList);
+        }
+
+        // The payload only encodes the content paths, so certificates listing the same paths share it
+        List<String> paths = new ArrayList<>(contentList.size());
+        for (Content content : contentList) {
+            paths.add(content.getPath());
+        }
+
+        String key = this.payloadCache.getKey(paths);
+        byte[] payload = this.payloadCache.get(key);
+
+        if (payload == null) {
+            payload = this.encodeContentValue(contentList);
+            this.payloadCache.put(key, payload);
+        }
+
+        return payload;
+    }
+
+    private byte[] encodeContentValue(List<Content> contentList) throws IOException {
         PathNode treeRoot = makePathTree(contentList, new PathNode());
         List<String> nodeStrings = orderStrings(treeRoot);
         if (nodeStrings.size() == 0) {
@@ -458,6 +501,7 @@ public class X509V3ExtensionUtil extends X509Util {
 
     public PathNode makePathTree(List<Content> contents, PathNode parent) {
         PathNode endMarker = new PathNode();
+        Map<PathNode, Map<String, PathNode>> branches = new HashMap<>();
         for (Content c : contents) {
             String path = c.getPath();
 
@@ -465,7 +509,7 @@ public class X509V3ExtensionUtil extends X509Util {
                 log.debug(path);
             }
             StringTokenizer st = new StringTokenizer(path, "/");
-            makePathForURL(st, parent, endMarker);
+            makePathForURL(st, parent, endMarker, branches);
         }
         if (treeDebug) {
             printTree(parent, 0);
@@ -530,33 +574,46 @@ public class X509V3ExtensionUtil extends X509Util {
         }
     }
 
-    private void makePathForURL(StringTokenizer st, PathNode parent, PathNode endMarker) {
+    /**
+     * Adds the remaining segments of a path below the given node. Branches are looked up through
+     * an index of the children of each node which do not lead to the end marker, as a node has at
+     * most one such child per name while the tree is being built.
+     */
+    private void makePathForURL(StringTokenizer st, PathNode parent, PathNode endMarker,
+        Map<PathNode, Map<String, PathNode>> branches) {
+
         if (st.hasMoreTokens()) {
             String childVal = st.nextToken();
             if (childVal.equals("")) {
                 return;
             }
-            boolean isNew = true;
-            for (NodePair child : parent.getChildren()) {
-                if (child.getName().equals(childVal) &&
-                    !child.getConnection().equals(endMarker)) {
-                    makePathForURL(st, child.getConnection(), endMarker);
-                    isNew = false;
+
+            Map<String, PathNode> parentBranches = branches.computeIfAbsent(parent, pn -> {
+                Map<String, PathNode> index = new HashMap<>();
+                for (NodePair child : pn.getChildren()) {
+                    if (!child.getConnection().equals(endMarker)) {
+                        index.putIfAbsent(child.getName(), child.getConnection());
+                    }
                 }
+                return index;
+            });
+
+            PathNode branch = parentBranches.get(childVal);
+            if (branch != null) {
+                makePathForURL(st, branch, endMarker, branches);
             }
-            if (isNew) {
+            else {
                 PathNode next;
                 if (st.hasMoreTokens()) {
                     next = new PathNode();
                     parent.addChild(new NodePair(childVal, next));
+                    parentBranches.put(childVal, next);
                     next.addParent(parent);
-                    makePathForURL(st, next, endMarker);
+                    makePathForURL(st, next, endMarker, branches);
                 }
                 else {
                     parent.addChild(new NodePair(childVal, endMarker));
-                    if (!endMarker.getParents().contains(parent)) {
-                        endMarker.addParent(parent);
-                    }
+                    endMarker.addParent(parent);
                 }
             }
         }
@@ -564,8 +621,7 @@ public class X509V3ExtensionUtil extends X509Util {
 
     private void condenseSubTreeNodes(PathNode location) {
         // "equivalent" parents are merged
-        List<PathNode> parentResult = new ArrayList<>();
-        parentResult.addAll(location.getParents());
+        Set<PathNode> parentResult = new LinkedHashSet<>(location.getParents());
         for (PathNode parent1 : location.getParents()) {
             if (!parentResult.contains(parent1)) {
                 continue;
@@ -584,14 +640,8 @@ public class X509V3ExtensionUtil extends X509Util {
 
                     // track down the name of the string in the grandparent
                     //  that points to parent
-                    String name = "";
                     PathNode oneParent = toRemove.getParents().get(0);
-                    for (NodePair child : oneParent.getChildren()) {
-                        if (child.getConnection().getId() == toRemove.getId()) {
-                            name = child.getName();
-                            break;
-                        }
-                    }
+                    String name = oneParent.getChildName(toRemove);
 
                     // copy grandparents to merged parent node.
                     List<PathNode> movingParents = toRemove.getParents();
@@ -599,17 +649,13 @@ public class X509V3ExtensionUtil extends X509Util {
 
                     // all grandparents with name now point to merged node
                     for (PathNode pn : toRemove.getParents()) {
-                        for (NodePair child : pn.getChildren()) {
-                            if (child.getName().equals(name)) {
-                                child.setConnection(merged);
-                            }
-                        }
+                        pn.redirectChildren(name, merged);
                     }
                     parentResult.remove(toRemove);
                 }
             }
         }
-        location.setParents(parentResult);
+        location.setParents(new ArrayList<>(parentResult));
         for (PathNode pn : location.getParents()) {
             condenseSubTreeNodes(pn);
         }
@@ -621,25 +667,14 @@ public class X509V3ExtensionUtil extends X509Util {
         Map<String, Integer> segments = new HashMap<>();
         Set<PathNode> nodes = new HashSet<>();
         buildSegments(segments, nodes, parent);
-        for (Entry<String, Integer> entry : segments.entrySet()) {
-            String part = entry.getKey();
+        for (String part : segments.keySet()) {
             if (!part.equals("")) {
-                int count = entry.getValue();
-                if (parts.size() == 0) {
-                    parts.add(part);
-                }
-                else {
-                    int pos = parts.size();
-                    for (int i = 0; i < parts.size(); i++) {
-                        if (count < segments.get(parts.get(i))) {
-                            pos = i;
-                            break;
-                        }
-                    }
-                    parts.add(pos, part);
-                }
+                parts.add(part);
             }
         }
+
+        // The sort is stable, so segments with the same count stay in map order
+        parts.sort(Comparator.comparing(segments::get));
         if (treeDebug) {
             log.debug("Parts List: " + parts);
         }
@@ -666,31 +701,14 @@ public class X509V3ExtensionUtil extends X509Util {
 
         // walk tree to make string map
         Set<PathNode> nodes =  getPathNodes(treeRoot);
-        for (PathNode pn : nodes) {
-            int count = pn.getParents().size();
-            if (nodes.size() == 0) {
-                nodes.add(pn);
-            }
-            else {
-                int pos = result.size();
-                for (int i = 0; i < result.size(); i++) {
-                    if (count <= result.get(i).getParents().size()) {
-                        pos = i;
-                        break;
-                    }
-                    if (count == result.get(i).getParents().size()) {
-                        if (pn.getId() < result.get(i).getId()) {
-                            pos = i;
-                        }
-                        else {
-                            pos = i + 1;
-                        }
-                        break;
-                    }
-                }
-                result.add(pos, pn);
-            }
-        }
+        result.addAll(nodes);
+
+        // Nodes are ordered by their number of parents, and then by the order they were created in.
+        // Nodes with the same number of parents used to be left in the iteration order of a hash set
+        // of identity-hashed nodes, so the same paths could be encoded differently from one run to
+        // the next. Any order of these nodes decodes to the same paths.
+        result.sort(Comparator.comparingInt((PathNode pn) -> pn.getParents().size())
+            .thenComparingLong(PathNode::getId));
         // single node plus term node. We need to have one more for huffman trie
         if (result.size() == 2) {
             result.add(new PathNode());
@@ -734,37 +752,20 @@ public class X509V3ExtensionUtil extends X509Util {
         else {
             baos.write(nodeSize);
         }
-        StringBuilder bits = new StringBuilder();
-        String endNodeLocation = findHuffPath(stringParent, END_NODE);
+        Map<Object, HuffCode> stringCodes = this.buildCodeTable(stringParent);
+        Map<Object, HuffCode> pathNodeCodes = this.buildCodeTable(pathNodeParent);
+        HuffCode endNodeCode = stringCodes.getOrDefault(END_NODE, HuffCode.EMPTY);
+
+        BitWriter bits = new BitWriter(baos);
         for (PathNode pn : pathNodes) {
             for (NodePair np : pn.getChildren()) {
-                bits.append(findHuffPath(stringParent, np.getName()));
-                bits.append(findHuffPath(pathNodeParent, np.getConnection()));
-            }
-            bits.append(endNodeLocation);
-            while (bits.length() >= 8) {
-                int next = 0;
-                for (int i = 0; i < 8; i++) {
-                    next = (byte) next << 1;
-                    if (bits.charAt(i) == '1') {
-                        next++;
-                    }
-                }
-                baos.write(next);
-                bits.delete(0, 8);
+                bits.write(stringCodes.getOrDefault(np.getName(), HuffCode.EMPTY));
+                bits.write(pathNodeCodes.getOrDefault(np.getConnection(), HuffCode.EMPTY));
             }
+            bits.write(endNodeCode);
         }
+        bits.flush();
 
-        if (bits.length() > 0) {
-            int next = 0;
-            for (int i = 0;  i < 8; i++) {
-                next = (byte) next << 1;
-                if (i < bits.length() && bits.charAt(i) == '1') {
-                    next++;
-                }
-            }
-            baos.write(next);
-        }
         byte[] result = baos.toByteArray();
         if (treeDebug) {
             ByteArrayInputStream bais = new ByteArrayInputStream(result);
@@ -786,6 +787,44 @@ public class X509V3ExtensionUtil extends X509Util {
             (byte) value};
     }
 
+    /**
+     * Builds a table of the codes of the values stored in the given trie, so that values can be
+     * encoded without searching the trie for each of them. Like findHuffPath, the root node itself
+     * is never given a code.
+     *
+     * @param trie
+     *  the root of the Huffman trie
+     *
+     * @return
+     *  a map of the values in the trie to their codes
+     */
+    private Map<Object, HuffCode> buildCodeTable(HuffNode trie) {
+        Map<Object, HuffCode> codes = new HashMap<>();
+        this.buildCodeTable(trie, HuffCode.EMPTY, codes);
+
+        return codes;
+    }
+
+    private void buildCodeTable(HuffNode node, HuffCode code, Map<Object, HuffCode> codes) {
+        if (node.getLeft() != null) {
+            HuffCode leftCode = code.append(0);
+            if (node.getLeft().getValue() != null) {
+                codes.putIfAbsent(node.getLeft().getValue(), leftCode);
+            }
+
+            this.buildCodeTable(node.getLeft(), leftCode, codes);
+        }
+
+        if (node.getRight() != null) {
+            HuffCode rightCode = code.append(1);
+            if (node.getRight().getValue() != null) {
+                codes.putIfAbsent(node.getRight().getValue(), rightCode);
+            }
+
+            this.buildCodeTable(node.getRight(), rightCode, codes);
+        }
+    }
+
     public String findHuffPath(HuffNode trie, Object need) {
         HuffNode left = trie.getLeft();
         HuffNode right = trie.getRight();
@@ -862,34 +901,30 @@ public class X509V3ExtensionUtil extends X509Util {
         if (nodesList.get(0).getValue() instanceof PathNode) {
             nodesList.remove(0);
         }
-        while (nodesList.size() > 1) {
-            int node1 = findSmallest(-1, nodesList);
-            int node2 = findSmallest(node1, nodesList);
-            HuffNode hn1 = nodesList.get(node1);
-            HuffNode hn2 = nodesList.get(node2);
-            HuffNode merged = mergeNodes(hn1, hn2);
-            nodesList.remove(hn1);
-            nodesList.remove(hn2);
-            nodesList.add(merged);
+
+        // The two lightest nodes are merged until only the root remains. Ties between nodes of the
+        // same weight go to the node queued first: the given nodes in list order, followed by the
+        // merged nodes in the order they were created. Decoders rebuild the trie the same way, so
+        // this order must not change.
+        PriorityQueue<QueuedHuffNode> queue = new PriorityQueue<>(Math.max(1, nodesList.size()));
+        int order = 0;
+
+        for (HuffNode node : nodesList) {
+            queue.add(new QueuedHuffNode(node, order++));
         }
-        if (treeDebug) {
-            printTrie(nodesList.get(0), 0);
+
+        while (queue.size() > 1) {
+            HuffNode hn1 = queue.poll().node;
+            HuffNode hn2 = queue.poll().node;
+
+            queue.add(new QueuedHuffNode(mergeNodes(hn1, hn2), order++));
         }
-        return nodesList.get(0);
-    }
 
-    private int findSmallest(int exclude, List<HuffNode> nodes) {
-        int smallest = -1;
-        for (int index = 0; index < nodes.size(); index++) {
-            if (index == exclude) {
-                continue;
-            }
-            if (smallest == -1 || nodes.get(index).getWeight() <
-                nodes.get(smallest).getWeight()) {
-                smallest = index;
-            }
+        HuffNode root = queue.peek().node;
+        if (treeDebug) {
+            printTrie(root, 0);
         }
-        return smallest;
+        return root;
     }
 
     private HuffNode mergeNodes(HuffNode left, HuffNode right) {
@@ -1095,6 +1130,80 @@ public class X509V3ExtensionUtil extends X509Util {
         return baos.toByteArray();
     }
 
+    /**
+     * A HuffNode waiting to be merged, ordered by weight and then by the order in which it was
+     * queued
+     */
+    private static class QueuedHuffNode implements Comparable<QueuedHuffNode> {
+        private final HuffNode node;
+        private final int order;
+
+        QueuedHuffNode(HuffNode node, int order) {
+            this.node = node;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(QueuedHuffNode other) {
+            int result = Integer.compare(this.node.getWeight(), other.node.getWeight());
+            return result != 0 ? result : Integer.compare(this.order, other.order);
+        }
+    }
+
+    /**
+     * The path from the root of a Huffman trie to one of its nodes, as a sequence of bits where 0
+     * selects the left child and 1 the right child
+     */
+    private static class HuffCode {
+        private static final HuffCode EMPTY = new HuffCode(new byte[0]);
+
+        private final byte[] bits;
+
+        private HuffCode(byte[] bits) {
+            this.bits = bits;
+        }
+
+        HuffCode append(int bit) {
+            byte[] extended = Arrays.copyOf(this.bits, this.bits.length + 1);
+            extended[this.bits.length] = (byte) bit;
+
+            return new HuffCode(extended);
+        }
+    }
+
+    /**
+     * Packs bits into bytes, most significant bit first. The last byte is padded with zeros.
+     */
+    private static class BitWriter {
+        private final ByteArrayOutputStream output;
+        private int buffer = 0;
+        private int count = 0;
+
+        BitWriter(ByteArrayOutputStream output) {
+            this.output = output;
+        }
+
+        void write(HuffCode code) {
+            for (byte bit : code.bits) {
+                this.buffer = (this.buffer << 1) | bit;
+
+                if (++this.count == 8) {
+                    this.output.write(this.buffer);
+                    this.buffer = 0;
+                    this.count = 0;
+                }
+            }
+        }
+
+        void flush() {
+            if (this.count > 0) {
+                this.output.write(this.buffer << (8 - this.count));
+                this.buffer = 0;
+                this.count = 0;
+            }
+        }
+    }
+
     /**
      *
      * HuffNode
@@ -1157,6 +1266,12 @@ public class X509V3ExtensionUtil extends X509Util {
         private long id = 0;
         private List<NodePair> children = new ArrayList<>();
         private List<PathNode> parents = new ArrayList<>();
+        private Set<PathNode> parentSet = new HashSet<>();
+        private boolean sorted = true;
+
+        // Positions of the sorted children by name and by connection, built when first needed
+        private Map<String, List<Integer>> childrenByName;
+        private Map<PathNode, TreeMap<Integer, NodePair>> childrenByConnection;
 
         public PathNode() {
             this.id = pathNodeId++;
@@ -1168,25 +1283,87 @@ public class X509V3ExtensionUtil extends X509Util {
 
         void addChild(NodePair cp) {
             this.children.add(cp);
+            this.sorted = false;
+            this.childrenByName = null;
+            this.childrenByConnection = null;
         }
 
         void addParent(PathNode cp) {
-            if (!parents.contains(cp)) {
+            if (this.parentSet.add(cp)) {
                 this.parents.add(cp);
             }
         }
 
         public List<NodePair> getChildren() {
-            Collections.sort(this.children);
+            // Children are only ever added through addChild, so the list stays sorted until then
+            if (!this.sorted) {
+                Collections.sort(this.children);
+                this.sorted = true;
+            }
+
             return this.children;
         }
 
+        private void indexChildren() {
+            if (this.childrenByName != null) {
+                return;
+            }
+
+            List<NodePair> sortedChildren = this.getChildren();
+            this.childrenByName = new HashMap<>();
+            this.childrenByConnection = new HashMap<>();
+
+            for (int i = 0; i < sortedChildren.size(); i++) {
+                NodePair child = sortedChildren.get(i);
+
+                this.childrenByName.computeIfAbsent(child.getName(), key -> new ArrayList<>())
+                    .add(i);
+                this.childrenByConnection.computeIfAbsent(child.getConnection(), key -> new TreeMap<>())
+                    .put(i, child);
+            }
+        }
+
+        /**
+         * Fetches the name of the first child, in sorted order, connected to the given node.
+         *
+         * @return
+         *  the name of the first child connected to the node, or an empty string if none are
+         */
+        String getChildName(PathNode connection) {
+            this.indexChildren();
+
+            TreeMap<Integer, NodePair> connected = this.childrenByConnection.get(connection);
+            return connected != null ? connected.firstEntry().getValue().getName() : "";
+        }
+
+        /**
+         * Connects every child with the given name to the given node.
+         */
+        void redirectChildren(String name, PathNode connection) {
+            this.indexChildren();
+
+            for (int pos : this.childrenByName.getOrDefault(name, Collections.emptyList())) {
+                NodePair child = this.children.get(pos);
+
+                TreeMap<Integer, NodePair> previous = this.childrenByConnection.get(child.getConnection());
+                previous.remove(pos);
+                if (previous.isEmpty()) {
+                    this.childrenByConnection.remove(child.getConnection());
+                }
+
+                child.setConnection(connection);
+                this.childrenByConnection.computeIfAbsent(connection, key -> new TreeMap<>())
+                    .put(pos, child);
+            }
+        }
+
         List<PathNode> getParents() {
             return this.parents;
         }
 
         void setParents(List<PathNode> parents) {
             this.parents = parents;
+            this.parentSet = new HashSet<>(parents);
         }
 
         void addParents(List<PathNode> parents) {
@@ -1,4 +1,4 @@
-// Version: 5.41
+// Version: 5.42
 
 /*
  * Default Candlepin rule set.
@@ -42,6 +42,17 @@ function test_name_space() {
     return TestNamespace;
 }
 
+/*
+ * Returns the context of the current call. The server provides it either as
+ * native objects (rules_context) or as a JSON string (json_context).
+ */
+function get_rules_context() {
+    if (typeof rules_context !== 'undefined' && rules_context !== null) {
+        return rules_context;
+    }
+    return JSON.parse(json_context);
+}
+
 // consumer types
 var SYSTEM_TYPE = "system";
 var HYPERVISOR_TYPE = "hypervisor";
@@ -802,7 +813,7 @@ var FactValueCalculator = {
         },
 
         guest_limit: function (prodAttr, consumer) {
-            var context = JSON.parse(json_context);
+            var context = get_rules_context();
             if (!context.hasOwnProperty('guestIds') || context.guestIds === null) {
                 return 0;
             }
@@ -1455,7 +1466,7 @@ function comparePools(pool1, pool2) {
 var ActivationKey = {
 
     get_attribute_context: function() {
-        context = JSON.parse(json_context);
+        context = get_rules_context();
 
         // Pool to validate
         context.pool = createPool(context.pool);
@@ -1558,7 +1569,7 @@ var Entitlement = {
     },
 
     get_attribute_context: function() {
-        context = JSON.parse(json_context);
+        context = get_rules_context();
 
         if ("pool" in context) {
             context.pool = createPool(context.pool, context.consumer);
@@ -2599,7 +2610,7 @@ var Autobind = {
     },
 
     create_autobind_context: function() {
-        var context = JSON.parse(json_context);
+        var context = get_rules_context();
 
         // The considerDerived property indicates if we should look to derived
         // provided products rather than the usual set. Used in situations where
@@ -3149,7 +3160,7 @@ function get_role_pools(in_pools) {
  */
 var Compliance = {
     get_status_context: function() {
-        context = JSON.parse(json_context);
+        context = get_rules_context();
         context.ondate = new Date(context.ondate);
 
         // Add some methods to the various Pool objects:
@@ -3653,7 +3664,7 @@ var Compliance = {
 
 var Quantity = {
     get_quantity_context: function() {
-        context = JSON.parse(json_context);
+        context = get_rules_context();
 
         if ("pool" in context) {
             context.pool = createPool(context.pool, context.consumer);
@@ -3752,7 +3763,7 @@ var Quantity = {
 var PoolType = {
 
     get_pool_type_context: function() {
-        context = JSON.parse(json_context);
+        context = get_rules_context();
         context.pool = createPool(context.pool);
         return context;
     },
@@ -3809,7 +3820,7 @@ var PoolType = {
  */
 var Override = {
     get_override_context: function() {
-        context = JSON.parse(json_context);
+        context = get_rules_context();
         return context;
     },
 
@@ -4007,7 +4018,7 @@ var TestNamespace = {
     },
 
     create_get_pool_priority_context: function() {
-        var context = JSON.parse(json_context);
+        var context = get_rules_context();
 
         // Also need to convert all pools reported in compliance.
         var compliance = context.compliance;
@@ -385,6 +385,26 @@ public class JobManagerTest {
         verify(spy).execute(any());
     }
 
+    @Test
+    public void testJobCheckpointIsPersistedDuringExecution() throws JobException {
+        AsyncJobStatus status = this.createJobStatus(JOB_ID)
+            .setJobKey(TestJob.JOB_KEY)
+            .setState(JobState.QUEUED);
+
+        AsyncJob job = context -> context.setCheckpoint("checkpoint");
+        doReturn(job).when(injector).getInstance(TestJob.class);
+        this.injectMockedJobStatus(status);
+
+        JobManager manager = createJobManager();
+        manager.initialize();
+        manager.start();
+
+        AsyncJobStatus result = manager.executeJob(new JobMessage(JOB_ID, TestJob.JOB_KEY));
+
+        assertEquals("checkpoint", result.getCheckpoint());
+        verify(this.jobCurator).updateJobCheckpoint(eq(JOB_ID), eq("checkpoint"));
+    }
+
     @Test
     public void testJobManagerDoesNotExecuteCanceledJob() throws JobException {
         AsyncJobStatus status = this.createJobStatus(JOB_ID)
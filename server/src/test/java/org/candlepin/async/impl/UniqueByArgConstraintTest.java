@@ -17,10 +17,17 @@ package org.candlepin.async.impl;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import org.candlepin.async.JobConfig;
 import org.candlepin.async.JobConstraint;
 import org.candlepin.model.AsyncJobStatus;
+import org.candlepin.model.AsyncJobStatusCurator;
 import org.candlepin.test.DatabaseTestFixture;
 
 import org.junit.jupiter.api.Test;
@@ -73,6 +80,15 @@ public class UniqueByArgConstraintTest extends DatabaseTestFixture {
         return this.asyncJobCurator.merge(status);
     }
 
+    private AsyncJobStatus setConstraintKey(AsyncJobStatus status, String... params) {
+        Map<String, String> values = new HashMap<>();
+        for (String param : params) {
+            values.put(param, status.getJobArguments().getSerializedValue(param));
+        }
+
+        return status.setConstraintKey(AsyncJobStatus.buildConstraintKey(status.getJobKey(), values));
+    }
+
     @Test
     public void testStandardMatching() {
         AsyncJobStatus inbound = this.buildJobStatus("inbound", "test_key", this.map("param1", "val1"));
@@ -423,4 +439,114 @@ public class UniqueByArgConstraintTest extends DatabaseTestFixture {
         assertThat(result, hasItem(existing3.getId()));
     }
 
+    @Test
+    public void testKeyedMatching() {
+        AsyncJobStatus inbound = this.buildJobStatus("inbound", "test_key", this.map(
+            "param1", "val1",
+            "param2", "val2"));
+
+        AsyncJobStatus existing = this.buildJobStatus("existing", "test_key", this.map(
+            "param1", "val1",
+            "param2", "val2"));
+
+        AsyncJobStatus other = this.buildJobStatus("other", "test_key", this.map(
+            "param1", "val1",
+            "param2", "val3"));
+
+        this.setConstraintKey(inbound, "param1", "param2");
+        existing = this.asyncJobCurator.merge(this.setConstraintKey(existing, "param1", "param2"));
+        other = this.asyncJobCurator.merge(this.setConstraintKey(other, "param1", "param2"));
+
+        JobConstraint constraint = new UniqueByArgConstraint("param2", "param1");
+        Collection<String> result = constraint.test(this.asyncJobCurator, inbound);
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertThat(result, hasItem(existing.getId()));
+    }
+
+    @Test
+    public void testKeyedMatchingIgnoresTerminalJobs() {
+        AsyncJobStatus inbound = this.buildJobStatus("inbound", "test_key", this.map("param1", "val1"));
+        AsyncJobStatus existing = this.buildJobStatus("existing", "test_key", this.map("param1", "val1"));
+
+        this.setConstraintKey(inbound, "param1");
+        this.setConstraintKey(existing, "param1");
+        existing.setState(AsyncJobStatus.JobState.FINISHED);
+
+        assertNull(existing.getConstraintKey());
+        this.asyncJobCurator.merge(existing);
+
+        JobConstraint constraint = new UniqueByArgConstraint("param1");
+        Collection<String> result = constraint.test(this.asyncJobCurator, inbound);
+
+        assertNotNull(result);
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void testKeyedMatchingFindsJobsWithoutConstraintKey() {
+        AsyncJobStatus inbound = this.buildJobStatus("inbound", "test_key", this.map("param1", "val1"));
+
+        // Jobs queued before constraint keys were introduced have none
+        AsyncJobStatus existing = this.persistJobStatus("existing", "test_key", this.map("param1", "val1"));
+        AsyncJobStatus other = this.persistJobStatus("other", "test_key", this.map("param1", "val2"));
+        AsyncJobStatus keyed = this.buildJobStatus("keyed", "test_key", this.map("param1", "val1"));
+
+        assertNull(existing.getConstraintKey());
+        assertNull(other.getConstraintKey());
+
+        this.setConstraintKey(inbound, "param1");
+        keyed = this.asyncJobCurator.merge(this.setConstraintKey(keyed, "param1"));
+
+        JobConstraint constraint = new UniqueByArgConstraint("param1");
+        Collection<String> result = constraint.test(this.asyncJobCurator, inbound);
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertThat(result, hasItem(existing.getId()));
+        assertThat(result, hasItem(keyed.getId()));
+    }
+
+    @Test
+    public void testKeyedMatchingSkipsArgumentMatchingWithoutUnkeyedJobs() {
+        AsyncJobStatus inbound = this.buildJobStatus("inbound", "test_key", this.map("param1", "val1"));
+        this.setConstraintKey(inbound, "param1");
+
+        AsyncJobStatusCurator curator = mock(AsyncJobStatusCurator.class);
+        doReturn(Arrays.asList("existing")).when(curator)
+            .fetchJobIdsByConstraintKey("test_key", inbound.getConstraintKey());
+        doReturn(false).when(curator).hasUnkeyedActiveJobs("test_key");
+
+        JobConstraint constraint = new UniqueByArgConstraint("param1");
+        Collection<String> result = constraint.test(curator, inbound);
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertThat(result, hasItem("existing"));
+
+        verify(curator, never()).fetchUnkeyedJobIdsByArguments(anyString(), anyMap());
+        verify(curator, never()).fetchJobIdsByArguments(anyString(), anyMap());
+    }
+
+    @Test
+    public void testKeyedOnOtherArgumentsFallsBackToArgumentMatching() {
+        AsyncJobStatus inbound = this.buildJobStatus("inbound", "test_key", this.map(
+            "param1", "val1",
+            "param2", "val2"));
+
+        AsyncJobStatus existing = this.persistJobStatus("existing", "test_key", this.map(
+            "param1", "val1",
+            "param2", "val3"));
+
+        // The inbound job is keyed on both arguments, but the constraint only targets one of them
+        this.setConstraintKey(inbound, "param1", "param2");
+
+        JobConstraint constraint = new UniqueByArgConstraint("param1");
+        Collection<String> result = constraint.test(this.asyncJobCurator, inbound);
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertThat(result, hasItem(existing.getId()));
+    }
 }
@@ -50,11 +50,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.xnap.commons.i18n.I18n;
 import org.xnap.commons.i18n.I18nFactory;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.function.Function;
@@ -393,6 +396,179 @@ public class HypervisorUpdateJobTest {
         job.execute(ctx);
     }
 
+    @Test
+    public void testBulkReconciliationLooksUpHostsOncePerChunk() throws Exception {
+        when(ownerCurator.findOwnerById(eq("joe"))).thenReturn(owner);
+        when(config.getInt(eq(ConfigProperties.HYPERVISOR_UPDATE_BATCH_SIZE))).thenReturn(2);
+
+        Consumer hypervisor = new Consumer();
+        hypervisor.ensureUUID();
+        hypervisor.setName("hypervisor_1");
+        hypervisor.setOwner(owner);
+        hypervisor.setHypervisorId(new HypervisorId("hypervisor_1"));
+
+        VirtConsumerMap existing = new VirtConsumerMap();
+        existing.add("hypervisor_1", hypervisor);
+
+        when(consumerCurator.getHostConsumersMap(eq(owner), Mockito.<String>anyIterable()))
+            .thenReturn(existing);
+
+        HypervisorUpdateAction.Result result = hypervisorUpdateAction.update(owner,
+            this.buildHypervisors("hypervisor_1", "hypervisor_2", "hypervisor_3"), true, null, null);
+
+        verify(consumerCurator, times(2)).getHostConsumersMap(eq(owner), Mockito.<String>anyIterable());
+        verify(consumerCurator, never()).getExistingConsumerByHypervisorIdOrUuid(anyString(), anyString(),
+            nullable(String.class));
+
+        verify(consumerCurator, times(1)).update(eq(hypervisor), eq(false));
+        verify(consumerCurator, times(2)).create(any(Consumer.class), eq(false));
+        verify(consumerCurator, times(2)).flush();
+
+        assertEquals(2, result.getResult().getCreated().size());
+        assertEquals(1, result.getResult().getUpdated().size());
+        assertEquals(3, result.getKnownConsumers().size());
+    }
+
+    @Test
+    public void testBulkReconciliationIsolatesFailedChunks() throws Exception {
+        when(ownerCurator.findOwnerById(eq("joe"))).thenReturn(owner);
+        when(config.getInt(eq(ConfigProperties.HYPERVISOR_UPDATE_BATCH_SIZE))).thenReturn(2);
+        when(consumerCurator.getHostConsumersMap(eq(owner), Mockito.<String>anyIterable()))
+            .thenReturn(new VirtConsumerMap());
+
+        // Fail the first chunk when its changes are flushed
+        doThrow(new RuntimeException("flush failed")).doNothing().when(consumerCurator).flush();
+
+        HypervisorUpdateAction.Result result = hypervisorUpdateAction.update(owner,
+            this.buildHypervisors("hypervisor_1", "hypervisor_2", "hypervisor_3"), true, null, null);
+
+        assertEquals(2, result.getResult().getFailedUpdate().size());
+        assertEquals(1, result.getResult().getCreated().size());
+        assertEquals(1, result.getKnownConsumers().size());
+        verify(sink, times(1)).rollback();
+        verify(sink, times(1)).sendEvents();
+    }
+
+    @Test
+    public void testBulkReconciliationClearsFailedChunkBeforeNextChunk() throws Exception {
+        when(ownerCurator.findOwnerById(eq("joe"))).thenReturn(owner);
+        when(config.getInt(eq(ConfigProperties.HYPERVISOR_UPDATE_BATCH_SIZE))).thenReturn(2);
+        when(consumerCurator.getHostConsumersMap(eq(owner), Mockito.<String>anyIterable()))
+            .thenReturn(new VirtConsumerMap());
+
+        List<Consumer> created = new ArrayList<>();
+        doAnswer(iom -> {
+            created.add(iom.getArgument(0));
+            return iom.getArgument(0);
+        }).when(consumerCurator).create(any(Consumer.class), eq(false));
+
+        // The pending creations are discarded once cleared, as they would be by the entity manager
+        doAnswer(iom -> {
+            created.clear();
+            return null;
+        }).when(consumerCurator).clear();
+
+        // Fail the first chunk when its changes are flushed
+        List<Consumer> flushed = new ArrayList<>();
+        doThrow(new RuntimeException("flush failed"))
+            .doAnswer(iom -> flushed.addAll(created))
+            .when(consumerCurator).flush();
+
+        HypervisorUpdateAction.Result result = hypervisorUpdateAction.update(owner,
+            this.buildHypervisors("hypervisor_1", "hypervisor_2", "hypervisor_3"), true, null, null);
+
+        InOrder inOrder = inOrder(consumerCurator);
+        inOrder.verify(consumerCurator).flush();
+        inOrder.verify(consumerCurator).clear();
+        inOrder.verify(consumerCurator).flush();
+
+        // Only the host of the chunk which succeeded is flushed with it
+        assertEquals(1, flushed.size());
+        assertEquals(2, result.getResult().getFailedUpdate().size());
+        assertEquals(1, result.getResult().getCreated().size());
+
+        assertEquals(flushed.get(0).getUuid(), result.getResult().getCreated().iterator().next().getUuid());
+
+        String hypervisorId = flushed.get(0).getHypervisorId().getHypervisorId();
+        assertTrue(result.getResult().getFailedUpdate().stream()
+            .noneMatch(failure -> failure.startsWith(hypervisorId + ":")));
+    }
+
+    @Test
+    public void testBulkReconciliationMatchesOnSystemUuid() throws Exception {
+        when(ownerCurator.findOwnerById(eq("joe"))).thenReturn(owner);
+        when(config.getInt(eq(ConfigProperties.HYPERVISOR_UPDATE_BATCH_SIZE))).thenReturn(10);
+        when(config.getBoolean(eq(ConfigProperties.USE_SYSTEM_UUID_FOR_MATCHING))).thenReturn(true);
+
+        Consumer hypervisor = new Consumer();
+        hypervisor.ensureUUID();
+        hypervisor.setName("hyper-name");
+        hypervisor.setOwner(owner);
+        hypervisor.setFact(Consumer.Facts.SYSTEM_UUID, "myUuid");
+        hypervisor.setHypervisorId(new HypervisorId("existing_hypervisor_id"));
+
+        VirtConsumerMap existing = new VirtConsumerMap();
+        existing.add("existing_hypervisor_id", hypervisor);
+
+        when(consumerCurator.getHostConsumersMap(eq(owner), Mockito.<Consumer>anyList()))
+            .thenReturn(existing);
+
+        List<Consumer> hypervisors = this.buildHypervisors("expected_hypervisor_id");
+        hypervisors.get(0).setFact(Consumer.Facts.SYSTEM_UUID, "MYUUID");
+
+        hypervisorUpdateAction.update(owner, hypervisors, true, null, null);
+
+        verify(consumerCurator, never()).create(any(Consumer.class), anyBoolean());
+        verify(consumerCurator, times(1)).update(eq(hypervisor), eq(false));
+        assertEquals("expected_hypervisor_id", hypervisor.getHypervisorId().getHypervisorId());
+    }
+
+    @Test
+    public void testBulkReconciliationLocksAndRefreshesExistingHostsBeforeUpdating() throws Exception {
+        when(ownerCurator.findOwnerById(eq("joe"))).thenReturn(owner);
+        when(config.getInt(eq(ConfigProperties.HYPERVISOR_UPDATE_BATCH_SIZE))).thenReturn(10);
+
+        Consumer hypervisor = new Consumer();
+        hypervisor.setId("host_id");
+        hypervisor.ensureUUID();
+        hypervisor.setName("hyper-name");
+        hypervisor.setOwner(owner);
+        hypervisor.setHypervisorId(new HypervisorId("existing_hypervisor_id"));
+
+        VirtConsumerMap existing = new VirtConsumerMap();
+        existing.add("existing_hypervisor_id", hypervisor);
+
+        List<Consumer> locked = List.of(hypervisor);
+        when(consumerCurator.getHostConsumersMap(eq(owner), Mockito.<String>anyIterable()))
+            .thenReturn(existing);
+        doReturn(locked).when(consumerCurator).lockAndLoad(eq(List.of("host_id")));
+
+        List<Consumer> hypervisors = this.buildHypervisors("existing_hypervisor_id");
+        hypervisors.get(0).setName("new-hyper-name");
+
+        hypervisorUpdateAction.update(owner, hypervisors, true, null, null);
+
+        InOrder order = inOrder(consumerCurator);
+        order.verify(consumerCurator).lockAndLoad(eq(List.of("host_id")));
+        order.verify(consumerCurator).refresh(eq(locked));
+        order.verify(consumerCurator).update(eq(hypervisor), eq(false));
+    }
+
+    private List<Consumer> buildHypervisors(String... hypervisorIds) {
+        List<Consumer> hypervisors = new ArrayList<>();
+
+        for (String hypervisorId : hypervisorIds) {
+            Consumer hypervisor = new Consumer();
+            hypervisor.setName(hypervisorId);
+            hypervisor.setHypervisorId(new HypervisorId(hypervisorId));
+            hypervisor.setGuestIds(new ArrayList<>());
+
+            hypervisors.add(hypervisor);
+        }
+
+        return hypervisors;
+    }
+
     private JobConfig createJobConfig(final String reporterId) {
         return HypervisorUpdateJob.createJobConfig()
             .setOwner(owner)
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.async.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.async.JobExecutionContext;
+import org.candlepin.async.JobExecutionException;
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.Owner;
+import org.candlepin.model.OwnerCurator;
+import org.candlepin.model.OwnerInfoCurator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Date;
+
+
+
+/**
+ * Test suite for the OwnerInfoRefreshJob class
+ */
+public class OwnerInfoRefreshJobTest {
+
+    private CandlepinCommonTestConfig config;
+    private OwnerCurator ownerCurator;
+    private OwnerInfoCurator ownerInfoCurator;
+    private JobExecutionContext context;
+
+    @BeforeEach
+    public void init() {
+        this.config = new CandlepinCommonTestConfig();
+        this.ownerCurator = mock(OwnerCurator.class);
+        this.ownerInfoCurator = mock(OwnerInfoCurator.class);
+        this.context = mock(JobExecutionContext.class);
+    }
+
+    private OwnerInfoRefreshJob createJobInstance() {
+        return new OwnerInfoRefreshJob(this.ownerCurator, this.ownerInfoCurator, this.config);
+    }
+
+    private Owner mockOwner(String id) {
+        Owner owner = new Owner("key-" + id);
+        owner.setId(id);
+
+        when(this.ownerCurator.get(id)).thenReturn(owner);
+        return owner;
+    }
+
+    @Test
+    public void testRefreshesListedSnapshots() throws Exception {
+        Owner owner1 = this.mockOwner("owner-1");
+        Owner owner2 = this.mockOwner("owner-2");
+
+        when(this.ownerInfoCurator.getOwnerIdsToRefresh(any(Date.class)))
+            .thenReturn(Arrays.asList("owner-1", "owner-2", "deleted-owner"));
+
+        this.createJobInstance().execute(this.context);
+
+        verify(this.ownerInfoCurator).refresh(owner1);
+        verify(this.ownerInfoCurator).refresh(owner2);
+        verify(this.ownerInfoCurator, times(2)).refresh(any(Owner.class));
+        verify(this.context).setJobResult("Refreshed 2 owner info snapshots");
+    }
+
+    @Test
+    public void testStaleSnapshotsAreListedByMaxAge() throws Exception {
+        this.config.setProperty(
+            ConfigProperties.jobConfig(OwnerInfoRefreshJob.JOB_KEY, OwnerInfoRefreshJob.CFG_MAX_AGE), "30");
+
+        long start = System.currentTimeMillis();
+        this.createJobInstance().execute(this.context);
+
+        ArgumentCaptor<Date> captor = ArgumentCaptor.forClass(Date.class);
+        verify(this.ownerInfoCurator).getOwnerIdsToRefresh(captor.capture());
+
+        Date staleBefore = captor.getValue();
+        assertNotNull(staleBefore);
+        assertTrue(staleBefore.getTime() >= start - 30 * 60 * 1000);
+        assertTrue(staleBefore.getTime() <= System.currentTimeMillis() - 30 * 60 * 1000);
+    }
+
+    @Test
+    public void testZeroMaxAgeOnlyListsDirtySnapshots() throws Exception {
+        this.config.setProperty(
+            ConfigProperties.jobConfig(OwnerInfoRefreshJob.JOB_KEY, OwnerInfoRefreshJob.CFG_MAX_AGE), "0");
+
+        this.createJobInstance().execute(this.context);
+
+        ArgumentCaptor<Date> captor = ArgumentCaptor.forClass(Date.class);
+        verify(this.ownerInfoCurator).getOwnerIdsToRefresh(captor.capture());
+        assertNull(captor.getValue());
+    }
+
+    @Test
+    public void testInvalidMaxAge() {
+        this.config.setProperty(
+            ConfigProperties.jobConfig(OwnerInfoRefreshJob.JOB_KEY, OwnerInfoRefreshJob.CFG_MAX_AGE), "-1");
+
+        assertThrows(JobExecutionException.class, () -> this.createJobInstance().execute(this.context));
+        verify(this.ownerInfoCurator, never()).refresh(any(Owner.class));
+    }
+
+    @Test
+    public void testFailedRefreshDoesNotStopOthers() throws Exception {
+        Owner owner1 = this.mockOwner("owner-1");
+        Owner owner2 = this.mockOwner("owner-2");
+
+        when(this.ownerInfoCurator.getOwnerIdsToRefresh(any(Date.class)))
+            .thenReturn(Arrays.asList("owner-1", "owner-2"));
+        doThrow(new RuntimeException("db down")).when(this.ownerInfoCurator).refresh(owner1);
+
+        this.createJobInstance().execute(this.context);
+
+        verify(this.ownerInfoCurator).refresh(owner2);
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(this.context).setJobResult(captor.capture());
+        assertEquals("Refreshed 1 owner info snapshots; 1 snapshots could not be refreshed",
+            captor.getValue());
+    }
+}
@@ -23,6 +23,7 @@ import org.candlepin.async.JobConfigValidationException;
 import org.candlepin.async.JobExecutionContext;
 import org.candlepin.async.JobExecutionException;
 import org.candlepin.controller.PoolManager;
+import org.candlepin.controller.RefreshStatistics;
 import org.candlepin.controller.Refresher;
 import org.candlepin.model.AsyncJobStatus;
 import org.candlepin.model.Owner;
@@ -129,6 +130,13 @@ public class RefreshPoolsJobTest {
         doReturn(owner).when(ownerCurator).getByKey(eq("my-test-owner"));
         doReturn(refresher).when(poolManager).getRefresher(eq(subAdapter), eq(prodAdapter), eq(true));
         doReturn(refresher).when(refresher).add(eq(owner));
+        doReturn(refresher).when(refresher).setCheckpoint(isNull(), any(Refresher.CheckpointListener.class));
+
+        RefreshStatistics statistics = new RefreshStatistics()
+            .subscriptionUpdated()
+            .subscriptionSkipped()
+            .subscriptionSkipped();
+        doReturn(statistics).when(refresher).getStatistics();
 
         ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
 
@@ -137,7 +145,8 @@ public class RefreshPoolsJobTest {
         verify(context, times(1)).setJobResult(captor.capture());
         Object result = captor.getValue();
 
-        assertEquals("Pools refreshed for owner: my-test-owner-displayname", result);
+        assertEquals("Pools refreshed for owner: my-test-owner-displayname; 1 subscription(s) updated, " +
+            "2 unchanged", result);
     }
 
     @Test
@@ -157,10 +166,74 @@ public class RefreshPoolsJobTest {
         doReturn(owner).when(ownerCurator).getByKey(eq("my-test-owner"));
         doReturn(refresher).when(poolManager).getRefresher(eq(subAdapter), eq(prodAdapter), eq(false));
         doReturn(refresher).when(refresher).add(eq(owner));
+        doReturn(refresher).when(refresher).setCheckpoint(isNull(), any(Refresher.CheckpointListener.class));
         doThrow(new RuntimeException("something went wrong with refresh")).when(refresher).run();
 
-        Exception e = assertThrows(JobExecutionException.class, () -> job.execute(context));
+        JobExecutionException e = assertThrows(JobExecutionException.class, () -> job.execute(context));
         assertEquals("something went wrong with refresh", e.getMessage());
+
+        // Nothing was committed, so there's no point in retrying
+        assertTrue(e.isTerminal());
+    }
+
+    @Test
+    public void ensureJobRetriedAfterCommittingChunks() {
+        Owner owner = createTestOwner("my-test-owner", "test-log-level");
+
+        JobConfig jobConfig = RefreshPoolsJob.createJobConfig()
+            .setOwner(owner)
+            .setLazyRegeneration(false);
+
+        RefreshPoolsJob job = this.buildRefreshPoolsJob();
+
+        AsyncJobStatus status = new AsyncJobStatus()
+            .setJobArguments(jobConfig.getJobArguments());
+        JobExecutionContext context = new JobExecutionContext(status);
+
+        ArgumentCaptor<Refresher.CheckpointListener> captor =
+            ArgumentCaptor.forClass(Refresher.CheckpointListener.class);
+
+        doReturn(owner).when(ownerCurator).getByKey(eq("my-test-owner"));
+        doReturn(refresher).when(poolManager).getRefresher(eq(subAdapter), eq(prodAdapter), eq(false));
+        doReturn(refresher).when(refresher).add(eq(owner));
+        doReturn(refresher).when(refresher).setCheckpoint(isNull(), captor.capture());
+        doAnswer(iom -> {
+            captor.getValue().onCheckpoint("sub-3");
+            throw new RuntimeException("something went wrong with refresh");
+        }).when(refresher).run();
+
+        JobExecutionException e = assertThrows(JobExecutionException.class, () -> job.execute(context));
+
+        assertFalse(e.isTerminal());
+        assertEquals("sub-3", status.getCheckpoint());
+    }
+
+    @Test
+    public void ensureJobResumesFromCheckpoint() throws Exception {
+        Owner owner = createTestOwner("my-test-owner", "test-log-level");
+
+        JobConfig jobConfig = RefreshPoolsJob.createJobConfig()
+            .setOwner(owner)
+            .setLazyRegeneration(false);
+
+        RefreshPoolsJob job = this.buildRefreshPoolsJob();
+
+        AsyncJobStatus status = new AsyncJobStatus()
+            .setJobArguments(jobConfig.getJobArguments())
+            .setCheckpoint("sub-3");
+        JobExecutionContext context = new JobExecutionContext(status);
+
+        doReturn(owner).when(ownerCurator).getByKey(eq("my-test-owner"));
+        doReturn(refresher).when(poolManager).getRefresher(eq(subAdapter), eq(prodAdapter), eq(false));
+        doReturn(refresher).when(refresher).add(eq(owner));
+        doReturn(refresher).when(refresher)
+            .setCheckpoint(eq("sub-3"), any(Refresher.CheckpointListener.class));
+        doReturn(new RefreshStatistics()).when(refresher).getStatistics();
+
+        job.execute(context);
+
+        verify(refresher).setCheckpoint(eq("sub-3"), any(Refresher.CheckpointListener.class));
+        verify(refresher).run();
     }
 
     @Test
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.candlepin.async.impl.ActiveMQSessionFactory;
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+
+import org.apache.activemq.artemis.api.core.client.ClientProducer;
+import org.apache.activemq.artemis.api.core.client.ClientSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+
+/**
+ * Test suite for the EventProducerPool class
+ */
+public class EventProducerPoolTest {
+
+    private CandlepinCommonTestConfig config;
+    private ActiveMQSessionFactory sessionFactory;
+
+    @BeforeEach
+    public void init() throws Exception {
+        this.config = new CandlepinCommonTestConfig();
+        this.config.setProperty(ConfigProperties.ACTIVEMQ_PRODUCER_POOL_SIZE, "2");
+        this.config.setProperty(ConfigProperties.ACTIVEMQ_PRODUCER_POOL_TIMEOUT, "10");
+
+        this.sessionFactory = mock(ActiveMQSessionFactory.class);
+
+        // Each call opens a distinct session
+        doReturn(this.mockSession(), this.mockSession(), this.mockSession(), this.mockSession())
+            .when(this.sessionFactory).getEgressSession(true);
+    }
+
+    private ClientSession mockSession() throws Exception {
+        ClientSession session = mock(ClientSession.class);
+        doReturn(mock(ClientProducer.class)).when(session).createProducer(anyString());
+
+        return session;
+    }
+
+    private EventProducerPool buildPool() {
+        return new EventProducerPool(this.config, this.sessionFactory);
+    }
+
+    @Test
+    public void testReleasedProducerIsReused() throws Exception {
+        EventProducerPool pool = this.buildPool();
+
+        EventProducerPool.PooledProducer first = pool.borrow();
+        pool.release(first, true);
+
+        EventProducerPool.PooledProducer second = pool.borrow();
+
+        assertSame(first, second);
+        assertTrue(second.isPooled());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowCount());
+        verify(first.getSession(), never()).close();
+    }
+
+    @Test
+    public void testUnhealthyProducerIsDiscarded() throws Exception {
+        EventProducerPool pool = this.buildPool();
+
+        EventProducerPool.PooledProducer first = pool.borrow();
+        pool.release(first, false);
+
+        EventProducerPool.PooledProducer second = pool.borrow();
+
+        assertNotSame(first, second);
+        assertEquals(1, pool.getDiscardedCount());
+        verify(first.getSession()).close();
+    }
+
+    @Test
+    public void testClosedIdleSessionIsDiscardedOnBorrow() throws Exception {
+        EventProducerPool pool = this.buildPool();
+
+        EventProducerPool.PooledProducer first = pool.borrow();
+        pool.release(first, true);
+        doReturn(true).when(first.getSession()).isClosed();
+
+        EventProducerPool.PooledProducer second = pool.borrow();
+
+        assertNotSame(first, second);
+        assertEquals(1, pool.getDiscardedCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testExhaustedPoolFallsBackToDedicatedSession() throws Exception {
+        EventProducerPool pool = this.buildPool();
+
+        pool.borrow();
+        pool.borrow();
+        EventProducerPool.PooledProducer dedicated = pool.borrow();
+
+        assertFalse(dedicated.isPooled());
+        assertEquals(1, pool.getTimeoutCount());
+        assertTrue(pool.getTotalBorrowWait() >= 10);
+
+        pool.release(dedicated, true);
+
+        verify(dedicated.getSession()).close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testBrokerOutageRetiresSessions() throws Exception {
+        EventProducerPool pool = this.buildPool();
+
+        EventProducerPool.PooledProducer idle = pool.borrow();
+        EventProducerPool.PooledProducer borrowed = pool.borrow();
+        pool.release(idle, true);
+        assertEquals(1, pool.getIdleCount());
+
+        pool.onStatusUpdate(ActiveMQStatus.CONNECTED, ActiveMQStatus.DOWN);
+
+        assertEquals(0, pool.getIdleCount());
+        verify(idle.getSession()).close();
+
+        // Sessions borrowed before the outage are not pooled again
+        pool.release(borrowed, true);
+
+        assertEquals(0, pool.getIdleCount());
+        verify(borrowed.getSession()).close();
+    }
+
+    @Test
+    public void testFailedSessionCreationReleasesPermit() throws Exception {
+        this.config.setProperty(ConfigProperties.ACTIVEMQ_PRODUCER_POOL_SIZE, "1");
+        EventProducerPool pool = this.buildPool();
+
+        doThrow(new RuntimeException("broker unavailable")).when(this.sessionFactory).getEgressSession(true);
+        assertThrows(RuntimeException.class, pool::borrow);
+
+        doReturn(this.mockSession()).when(this.sessionFactory).getEgressSession(true);
+
+        assertTrue(pool.borrow().isPooled());
+        assertEquals(0, pool.getTimeoutCount());
+    }
+
+    @Test
+    public void testDisabledPoolOpensSessionPerBorrow() throws Exception {
+        this.config.setProperty(ConfigProperties.ACTIVEMQ_PRODUCER_POOL_SIZE, "0");
+        EventProducerPool pool = this.buildPool();
+
+        EventProducerPool.PooledProducer producer = pool.borrow();
+
+        assertFalse(pool.isEnabled());
+        assertFalse(producer.isPooled());
+
+        pool.release(producer, true);
+        verify(producer.getSession()).close();
+    }
+}
@@ -26,12 +26,14 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.candlepin.async.impl.ActiveMQSessionFactory;
 import org.candlepin.auth.Principal;
 import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.controller.mode.CandlepinModeManager;
 import org.candlepin.controller.mode.CandlepinModeManager.Mode;
 import org.candlepin.dto.ModelTranslator;
@@ -52,6 +54,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.apache.activemq.artemis.api.core.ActiveMQBuffer;
 import org.apache.activemq.artemis.api.core.ActiveMQBuffers;
+import org.apache.activemq.artemis.api.core.ActiveMQException;
 import org.apache.activemq.artemis.api.core.SimpleString;
 import org.apache.activemq.artemis.api.core.client.ClientMessage;
 import org.apache.activemq.artemis.api.core.client.ClientProducer;
@@ -90,7 +93,9 @@ public class EventSinkImplTest {
     private OwnerCurator mockOwnerCurator;
     private ModelTranslator modelTranslator;
 
+    private CandlepinCommonTestConfig config;
     private ActiveMQSessionFactory amqSessionFactory;
+    private EventProducerPool producerPool;
     private EventFactory factory;
     private EventFilter eventFilter;
     private EventSinkImpl eventSinkImpl;
@@ -109,7 +114,9 @@ public class EventSinkImplTest {
         when(mockSessionFactory.getServerLocator()).thenReturn(mockLocator);
         doReturn(Mode.NORMAL).when(this.mockModeManager).getCurrentMode();
 
+        this.config = new CandlepinCommonTestConfig();
         this.amqSessionFactory = new TestingActiveMQSessionFactory(null, mockSessionFactory);
+        this.producerPool = new EventProducerPool(this.config, this.amqSessionFactory);
         this.mapper = spy(new ObjectMapper());
 
         this.mockConsumerTypeCurator = mock(ConsumerTypeCurator.class);
@@ -130,8 +137,8 @@ public class EventSinkImplTest {
      * @throws Exception
      */
     private EventSinkImpl createEventSink(final ClientSessionFactory sessionFactory) throws Exception {
-        EventSinkImpl sink = new EventSinkImpl(eventFilter, factory, mapper,
-            new CandlepinCommonTestConfig(), this.amqSessionFactory, mockModeManager);
+        EventSinkImpl sink = new EventSinkImpl(eventFilter, factory, mapper, this.config,
+            this.amqSessionFactory, this.producerPool, mockModeManager);
         return sink;
     }
 
@@ -233,6 +240,110 @@ public class EventSinkImplTest {
         verify(mockClientProducer).send(any(ClientMessage.class));
     }
 
+    @Test
+    public void sendEventsShouldReuseSessionAcrossRequests() throws Exception {
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.sendEvents();
+
+        EventSinkImpl other = createEventSink(mockSessionFactory);
+        other.emitOwnerCreated(o);
+        other.sendEvents();
+
+        verify(mockSessionFactory, times(1)).createSession();
+        verify(mockClientSession, times(2)).commit();
+        verify(mockClientSession, never()).close();
+    }
+
+    @Test
+    public void queuedEventsShouldNotHoldSession() throws Exception {
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.emitOwnerCreated(o);
+
+        verify(mockSessionFactory, never()).createSession();
+
+        eventSinkImpl.sendEvents();
+
+        verify(mockSessionFactory, times(1)).createSession();
+        verify(mockClientProducer, times(2)).send(any(ClientMessage.class));
+        verify(mockClientSession, times(1)).commit();
+        assertEquals(1, this.producerPool.getIdleCount());
+    }
+
+    @Test
+    public void pendingEventsShouldNotBlockOtherSinks() throws Exception {
+        this.config.setProperty(ConfigProperties.ACTIVEMQ_PRODUCER_POOL_SIZE, "1");
+        this.producerPool = new EventProducerPool(this.config, this.amqSessionFactory);
+
+        // A long running request or job with events pending
+        EventSinkImpl pending = createEventSink(mockSessionFactory);
+        pending.emitOwnerCreated(o);
+
+        EventSinkImpl other = createEventSink(mockSessionFactory);
+        other.emitOwnerCreated(o);
+        other.sendEvents();
+
+        pending.sendEvents();
+
+        assertEquals(0, this.producerPool.getTimeoutCount());
+        verify(mockSessionFactory, times(1)).createSession();
+        verify(mockClientSession, times(2)).commit();
+    }
+
+    @Test
+    public void rollbackShouldNotBorrowSession() throws Exception {
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.rollback();
+
+        verify(mockSessionFactory, never()).createSession();
+
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.sendEvents();
+
+        verify(mockClientProducer, times(1)).send(any(ClientMessage.class));
+        verify(mockClientSession, never()).rollback();
+        verify(mockClientSession).commit();
+    }
+
+    @Test
+    public void failedCommitShouldDiscardSession() throws Exception {
+        doThrow(new ActiveMQException("broken")).when(mockClientSession).commit();
+
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.sendEvents();
+        verify(mockClientSession).close();
+
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.sendEvents();
+        verify(mockSessionFactory, times(2)).createSession();
+    }
+
+    @Test
+    public void failedBorrowShouldDropEventsWithoutReleasingSession() throws Exception {
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.sendEvents();
+
+        // The pooled session is closed, and no new session can be opened
+        when(mockClientSession.isClosed()).thenReturn(true);
+        when(mockSessionFactory.createSession()).thenThrow(new ActiveMQException("broker down"));
+
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.sendEvents();
+
+        verify(mockClientSession, times(1)).close();
+        verify(mockClientSession, times(1)).commit();
+        assertEquals(1, this.producerPool.getDiscardedCount());
+
+        // The permit was handed back despite the failed borrow
+        when(mockClientSession.isClosed()).thenReturn(false);
+        doReturn(mockClientSession).when(mockSessionFactory).createSession();
+
+        eventSinkImpl.emitOwnerCreated(o);
+        eventSinkImpl.sendEvents();
+
+        verify(mockClientSession, times(2)).commit();
+        assertEquals(0, this.producerPool.getTimeoutCount());
+    }
+
     @Test
     public void rulesDeletedShouldEmitSuccessfully() throws Exception {
         Rules oldRules = new Rules(TestUtil.createRulesBlob(1));
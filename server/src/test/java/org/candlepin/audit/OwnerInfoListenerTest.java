@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.audit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import org.candlepin.model.OwnerInfoCurator;
+
+import com.google.inject.persist.UnitOfWork;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+
+
+/**
+ * Test suite for the OwnerInfoListener class
+ */
+public class OwnerInfoListenerTest {
+
+    private OwnerInfoCurator ownerInfoCurator;
+    private UnitOfWork unitOfWork;
+    private OwnerInfoListener listener;
+
+    @BeforeEach
+    public void init() {
+        this.ownerInfoCurator = mock(OwnerInfoCurator.class);
+        this.unitOfWork = mock(UnitOfWork.class);
+        this.listener = new OwnerInfoListener(this.ownerInfoCurator, this.unitOfWork);
+    }
+
+    private Event buildEvent(Event.Target target, String ownerId) {
+        Event event = new Event();
+        event.setType(Event.Type.CREATED);
+        event.setTarget(target);
+        event.setOwnerId(ownerId);
+        event.setEntityId("entity-id");
+
+        return event;
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Event.Target.class, names = { "CONSUMER", "ENTITLEMENT", "POOL", "COMPLIANCE",
+        "GUESTID" })
+    public void testRelevantEventsFlagSnapshot(Event.Target target) {
+        this.listener.onEvent(this.buildEvent(target, "owner-id"));
+
+        verify(this.ownerInfoCurator).markDirty("owner-id");
+        verify(this.unitOfWork).begin();
+        verify(this.unitOfWork).end();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Event.Target.class, names = { "OWNER", "EXPORT", "IMPORT", "USER", "RULES" })
+    public void testOtherEventsAreIgnored(Event.Target target) {
+        this.listener.onEvent(this.buildEvent(target, "owner-id"));
+
+        verifyZeroInteractions(this.ownerInfoCurator, this.unitOfWork);
+    }
+
+    @Test
+    public void testEventsWithoutOwnerAreIgnored() {
+        this.listener.onEvent(this.buildEvent(Event.Target.CONSUMER, null));
+
+        verify(this.ownerInfoCurator, never()).markDirty(anyString());
+    }
+
+    @Test
+    public void testUnitOfWorkEndsOnFailure() {
+        doThrow(new RuntimeException("db down")).when(this.ownerInfoCurator).markDirty("owner-id");
+
+        assertThrows(RuntimeException.class,
+            () -> this.listener.onEvent(this.buildEvent(Event.Target.CONSUMER, "owner-id")));
+
+        verify(this.unitOfWork).end();
+    }
+}
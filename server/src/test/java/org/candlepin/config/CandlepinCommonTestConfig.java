@@ -41,6 +41,9 @@ public class CandlepinCommonTestConfig extends MapConfiguration {
             setProperty(ConfigProperties.CA_KEY_PASSWORD, "password");
             setProperty(ConfigProperties.SYNC_WORK_DIR, "/tmp");
             setProperty(ConfigProperties.ACTIVEMQ_LARGE_MSG_SIZE, "0");
+            setProperty(ConfigProperties.KEY_PAIR_POOL_SIZE, "0");
+            setProperty(ConfigProperties.CONSUMER_CHECKIN_WRITE_BEHIND, "false");
+            setProperty(ConfigProperties.OWNER_INFO_MATERIALIZED, "false");
 
             setProperty(DatabaseConfigFactory.IN_OPERATOR_BLOCK_SIZE, "10");
             setProperty(DatabaseConfigFactory.CASE_OPERATOR_BLOCK_SIZE, "10");
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+
+import com.google.inject.persist.UnitOfWork;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Date;
+import java.util.Map;
+
+
+
+/**
+ * Test suite for the ConsumerCheckInAggregator class
+ */
+public class ConsumerCheckInAggregatorTest {
+
+    private CandlepinCommonTestConfig config;
+    private ConsumerCurator consumerCurator;
+    private UnitOfWork unitOfWork;
+    private ConsumerCheckInAggregator aggregator;
+
+    @BeforeEach
+    public void setUp() {
+        this.config = new CandlepinCommonTestConfig();
+        this.config.setProperty(ConfigProperties.CONSUMER_CHECKIN_WRITE_BEHIND, "true");
+        this.config.setProperty(ConfigProperties.CONSUMER_CHECKIN_FLUSH_INTERVAL, "3600");
+        this.config.setProperty(ConfigProperties.CONSUMER_CHECKIN_FLUSH_THRESHOLD, "100");
+
+        this.consumerCurator = mock(ConsumerCurator.class);
+        this.unitOfWork = mock(UnitOfWork.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (this.aggregator != null) {
+            this.aggregator.shutdown();
+        }
+    }
+
+    private ConsumerCheckInAggregator buildAggregator() {
+        this.aggregator = new ConsumerCheckInAggregator(this.config, this.consumerCurator, this.unitOfWork);
+        return this.aggregator;
+    }
+
+    private Consumer buildConsumer(String id) {
+        Consumer consumer = new Consumer();
+        consumer.setId(id);
+
+        return consumer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Date> captureFlushedCheckIns() {
+        ArgumentCaptor<Map<String, Date>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(this.consumerCurator, times(1)).updateLastCheckins(captor.capture());
+
+        return captor.getValue();
+    }
+
+    @Test
+    public void testCheckInIsWrittenImmediatelyWhenWriteBehindIsDisabled() {
+        this.config.setProperty(ConfigProperties.CONSUMER_CHECKIN_WRITE_BEHIND, "false");
+        ConsumerCheckInAggregator aggregator = this.buildAggregator();
+
+        Consumer consumer = this.buildConsumer("consumer-1");
+        Date now = new Date();
+
+        assertFalse(aggregator.isWriteBehindEnabled());
+        aggregator.checkIn(consumer, now);
+
+        verify(this.consumerCurator, times(1)).updateLastCheckin(eq(consumer), eq(now));
+        assertEquals(0, aggregator.getPendingCount());
+    }
+
+    @Test
+    public void testCheckInsAreBufferedUntilFlushed() {
+        ConsumerCheckInAggregator aggregator = this.buildAggregator();
+        Date now = new Date();
+
+        assertTrue(aggregator.isWriteBehindEnabled());
+        aggregator.checkIn(this.buildConsumer("consumer-1"), now);
+        aggregator.checkIn(this.buildConsumer("consumer-2"), now);
+
+        verify(this.consumerCurator, never()).updateLastCheckin(any(Consumer.class), any(Date.class));
+        verify(this.consumerCurator, never()).updateLastCheckins(anyMap());
+        assertEquals(2, aggregator.getPendingCount());
+
+        assertEquals(2, aggregator.flush());
+
+        Map<String, Date> flushed = this.captureFlushedCheckIns();
+        assertEquals(2, flushed.size());
+        assertEquals(now, flushed.get("consumer-1"));
+        assertEquals(now, flushed.get("consumer-2"));
+        assertEquals(0, aggregator.getPendingCount());
+
+        verify(this.unitOfWork, times(1)).begin();
+        verify(this.unitOfWork, times(1)).end();
+    }
+
+    @Test
+    public void testLatestCheckInOfEachConsumerIsKept() {
+        ConsumerCheckInAggregator aggregator = this.buildAggregator();
+        Consumer consumer = this.buildConsumer("consumer-1");
+
+        Date earlier = new Date(System.currentTimeMillis() - 60000);
+        Date later = new Date();
+
+        aggregator.checkIn(consumer, later);
+        aggregator.checkIn(consumer, earlier);
+
+        assertEquals(1, aggregator.getPendingCount());
+        aggregator.flush();
+
+        assertEquals(later, this.captureFlushedCheckIns().get("consumer-1"));
+    }
+
+    @Test
+    public void testReachingThresholdTriggersFlush() {
+        this.config.setProperty(ConfigProperties.CONSUMER_CHECKIN_FLUSH_THRESHOLD, "2");
+        ConsumerCheckInAggregator aggregator = this.buildAggregator();
+
+        aggregator.checkIn(this.buildConsumer("consumer-1"));
+        aggregator.checkIn(this.buildConsumer("consumer-2"));
+
+        verify(this.consumerCurator, timeout(5000).times(1)).updateLastCheckins(anyMap());
+    }
+
+    @Test
+    public void testFailedFlushReturnsCheckInsToBuffer() {
+        ConsumerCheckInAggregator aggregator = this.buildAggregator();
+        doThrow(new RuntimeException("db down")).when(this.consumerCurator).updateLastCheckins(anyMap());
+
+        aggregator.checkIn(this.buildConsumer("consumer-1"));
+        aggregator.checkIn(this.buildConsumer("consumer-2"));
+
+        assertEquals(0, aggregator.flush());
+        assertEquals(2, aggregator.getPendingCount());
+        verify(this.unitOfWork, times(1)).end();
+    }
+
+    @Test
+    public void testShutdownFlushesBufferedCheckIns() {
+        ConsumerCheckInAggregator aggregator = this.buildAggregator();
+        Date now = new Date();
+
+        aggregator.checkIn(this.buildConsumer("consumer-1"), now);
+        aggregator.shutdown();
+
+        assertEquals(now, this.captureFlushedCheckIns().get("consumer-1"));
+        assertEquals(0, aggregator.getPendingCount());
+
+        // Anything after shutdown is written immediately
+        Consumer late = this.buildConsumer("consumer-2");
+        aggregator.checkIn(late, now);
+
+        verify(this.consumerCurator, times(1)).updateLastCheckin(eq(late), eq(now));
+    }
+}
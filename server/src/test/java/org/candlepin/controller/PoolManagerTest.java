@@ -38,7 +38,9 @@ import org.candlepin.bind.PoolOperationCallback;
 import org.candlepin.bind.PostBindBonusPoolsOp;
 import org.candlepin.bind.PreEntitlementRulesCheckOp;
 import org.candlepin.bind.PreEntitlementRulesCheckOpFactory;
+import org.candlepin.bind.ReservePoolQuantitiesOp;
 import org.candlepin.common.config.Configuration;
+import org.candlepin.common.exceptions.ForbiddenException;
 import org.candlepin.common.paging.Page;
 import org.candlepin.common.paging.PageRequest;
 import org.candlepin.config.ConfigProperties;
@@ -126,6 +128,13 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import javax.inject.Provider;
@@ -265,15 +274,6 @@ public class PoolManagerTest {
     }
 
     private void setupBindChain() {
-        final HandleEntitlementsOp entitlementsOp =
-            new HandleEntitlementsOp(mockPoolCurator, entitlementCurator);
-        final PostBindBonusPoolsOp postBindBonusPoolsOp = new PostBindBonusPoolsOp(manager,
-            consumerTypeCuratorMock, mockPoolCurator, enforcerMock);
-        final CheckBonusPoolQuantitiesOp checkBonusPoolQuantitiesOp = new CheckBonusPoolQuantitiesOp(manager);
-        final HandleCertificatesOp certificatesOp = new HandleCertificatesOp(mockECGenerator, certCuratorMock,
-            entitlementCurator);
-        final ComplianceOp complianceOp = new ComplianceOp(complianceRules, systemPurposeComplianceRules);
-
         when(mockPreEntitlementRulesCheckFactory.create(any(CallerType.class)))
             .thenAnswer(new Answer<PreEntitlementRulesCheckOp>() {
                 @Override
@@ -296,6 +296,7 @@ public class PoolManagerTest {
                         consumerTypeCuratorMock,
                         mockOwnerCurator,
                         i18n,
+                        mockConfig,
                         consumer,
                         pQ);
                 }
@@ -309,13 +310,17 @@ public class PoolManagerTest {
                     Consumer consumer = (Consumer) args[0];
                     Map<String, Integer> pQ = (Map<String, Integer>) args[1];
                     CallerType type = (CallerType) args[2];
+
+                    // Operations hold state for the bind they belong to, so each chain gets its own
                     return new BindChain(mockBindContextFactory,
                         mockPreEntitlementRulesCheckFactory,
-                        entitlementsOp,
-                        postBindBonusPoolsOp,
-                        checkBonusPoolQuantitiesOp,
-                        certificatesOp,
-                        complianceOp,
+                        new HandleEntitlementsOp(mockPoolCurator, entitlementCurator),
+                        new ReservePoolQuantitiesOp(mockPoolCurator, i18n),
+                        new PostBindBonusPoolsOp(manager, consumerTypeCuratorMock, mockPoolCurator,
+                            enforcerMock),
+                        new CheckBonusPoolQuantitiesOp(manager),
+                        new HandleCertificatesOp(mockECGenerator, certCuratorMock, entitlementCurator),
+                        new ComplianceOp(complianceRules, systemPurposeComplianceRules),
                         consumer,
                         pQ,
                         type);
@@ -481,6 +486,174 @@ public class PoolManagerTest {
         assertPoolsAreEqual(TestUtil.copyFromSub(sub), argPool.getValue());
     }
 
+    @Test
+    public void testRefreshPoolsSkipsUnchangedSubscriptions() {
+        Owner owner = this.getOwner();
+        Product product = TestUtil.createProduct();
+        product.setLocked(true);
+
+        Subscription sub = TestUtil.createSubscription(owner, product);
+        sub.setId("testing-subid");
+
+        Pool pool = TestUtil.createPool(product);
+        pool.setSourceSubscription(new SourceSubscription(sub.getId(), "master"));
+        pool.setOwner(owner);
+
+        this.mockSubscriptions(owner, Arrays.asList(sub));
+        this.mockPoolsList(Arrays.asList(pool));
+        when(mockOwnerCurator.getByKey(owner.getKey())).thenReturn(owner);
+        this.mockProducts(owner, product);
+        this.mockRefresh(owner, Arrays.asList(product), Collections.emptyList());
+
+        doReturn(Collections.singletonMap(sub.getId(), pool)).when(mockPoolCurator)
+            .getMasterPoolsBySubscriptionIdForOwner(eq(owner), anyCollection());
+        doReturn(Collections.singletonMap(sub.getId(), 1L)).when(mockPoolCurator)
+            .getPoolCountsBySubscriptionIds(anyCollection());
+
+        // The first refresh fingerprints the subscription...
+        Refresher refresher = this.manager.getRefresher(mockSubAdapter, mockProdAdapter).add(owner);
+        refresher.run();
+
+        assertNotNull(pool.getSubscriptionFingerprint());
+        assertEquals(1, refresher.getStatistics().getUpdatedCount());
+        assertEquals(0, refresher.getStatistics().getSkippedCount());
+
+        // ...which is skipped by the next refresh, as it has not changed...
+        refresher = this.manager.getRefresher(mockSubAdapter, mockProdAdapter).add(owner);
+        refresher.run();
+
+        assertEquals(0, refresher.getStatistics().getUpdatedCount());
+        assertEquals(1, refresher.getStatistics().getSkippedCount());
+        verify(this.manager, times(1)).updatePoolsForMasterPool(anyList(), any(Pool.class), anyLong(),
+            anyBoolean(), anyMap());
+
+        // ...until it changes
+        sub.setQuantity(sub.getQuantity() + 10);
+
+        refresher = this.manager.getRefresher(mockSubAdapter, mockProdAdapter).add(owner);
+        refresher.run();
+
+        assertEquals(1, refresher.getStatistics().getUpdatedCount());
+        assertEquals(0, refresher.getStatistics().getSkippedCount());
+        verify(this.manager, times(2)).updatePoolsForMasterPool(anyList(), any(Pool.class), anyLong(),
+            anyBoolean(), anyMap());
+    }
+
+    @Test
+    public void testRefreshPoolsRefreshesSubscriptionsWithMissingPools() {
+        Owner owner = this.getOwner();
+        Product product = TestUtil.createProduct();
+        product.setLocked(true);
+
+        Subscription sub = TestUtil.createSubscription(owner, product);
+        sub.setId("testing-subid");
+
+        Pool pool = TestUtil.createPool(product);
+        pool.setSourceSubscription(new SourceSubscription(sub.getId(), "master"));
+        pool.setOwner(owner);
+
+        this.mockSubscriptions(owner, Arrays.asList(sub));
+        this.mockPoolsList(Arrays.asList(pool));
+        when(mockOwnerCurator.getByKey(owner.getKey())).thenReturn(owner);
+        this.mockProducts(owner, product);
+        this.mockRefresh(owner, Arrays.asList(product), Collections.emptyList());
+
+        doReturn(Collections.singletonMap(sub.getId(), pool)).when(mockPoolCurator)
+            .getMasterPoolsBySubscriptionIdForOwner(eq(owner), anyCollection());
+        doReturn(Collections.singletonMap(sub.getId(), 2L)).when(mockPoolCurator)
+            .getPoolCountsBySubscriptionIds(anyCollection());
+
+        this.manager.getRefresher(mockSubAdapter, mockProdAdapter).add(owner).run();
+
+        // One of the pools of the subscription goes away
+        doReturn(Collections.singletonMap(sub.getId(), 1L)).when(mockPoolCurator)
+            .getPoolCountsBySubscriptionIds(anyCollection());
+
+        Refresher refresher = this.manager.getRefresher(mockSubAdapter, mockProdAdapter).add(owner);
+        refresher.run();
+
+        assertEquals(1, refresher.getStatistics().getUpdatedCount());
+        assertEquals(0, refresher.getStatistics().getSkippedCount());
+        verify(this.manager, times(2)).updatePoolsForMasterPool(anyList(), any(Pool.class), anyLong(),
+            anyBoolean(), anyMap());
+    }
+
+    @Test
+    public void testRefreshPoolsInChunksReportsCheckpoints() {
+        Owner owner = this.getOwner();
+        Product product = TestUtil.createProduct();
+        product.setLocked(true);
+
+        List<Subscription> subscriptions = new ArrayList<>();
+        List<Pool> pools = new ArrayList<>();
+
+        for (String sid : Arrays.asList("sub-3", "sub-1", "sub-2")) {
+            Subscription sub = TestUtil.createSubscription(owner, product);
+            sub.setId(sid);
+            subscriptions.add(sub);
+
+            Pool pool = TestUtil.createPool(product);
+            pool.setSourceSubscription(new SourceSubscription(sid, "master"));
+            pool.setOwner(owner);
+            pools.add(pool);
+        }
+
+        this.mockSubscriptions(owner, subscriptions);
+        this.mockPoolsList(pools);
+        when(mockOwnerCurator.getByKey(owner.getKey())).thenReturn(owner);
+        this.mockProducts(owner, product);
+        this.mockRefresh(owner, Arrays.asList(product), Collections.emptyList());
+
+        List<String> checkpoints = new ArrayList<>();
+        RefreshStatistics statistics = this.manager.refreshPoolsInChunks(mockSubAdapter, mockProdAdapter,
+            owner, false, 2, null, checkpoints::add);
+
+        // Subscriptions are refreshed in order of their IDs
+        assertEquals(Arrays.asList("sub-2", "sub-3"), checkpoints);
+        assertEquals(3, statistics.getUpdatedCount());
+        verify(this.manager, times(2)).refreshSubscriptions(any(), anyCollection());
+        verify(this.manager, times(1)).finishOwnerRefresh(any());
+    }
+
+    @Test
+    public void testRefreshPoolsInChunksResumesFromCheckpoint() {
+        Owner owner = this.getOwner();
+        Product product = TestUtil.createProduct();
+        product.setLocked(true);
+
+        List<Subscription> subscriptions = new ArrayList<>();
+        List<Pool> pools = new ArrayList<>();
+
+        for (String sid : Arrays.asList("sub-1", "sub-2", "sub-3")) {
+            Subscription sub = TestUtil.createSubscription(owner, product);
+            sub.setId(sid);
+            subscriptions.add(sub);
+
+            Pool pool = TestUtil.createPool(product);
+            pool.setSourceSubscription(new SourceSubscription(sid, "master"));
+            pool.setOwner(owner);
+            pools.add(pool);
+        }
+
+        this.mockSubscriptions(owner, subscriptions);
+        this.mockPoolsList(pools);
+        when(mockOwnerCurator.getByKey(owner.getKey())).thenReturn(owner);
+        this.mockProducts(owner, product);
+        this.mockRefresh(owner, Arrays.asList(product), Collections.emptyList());
+
+        List<String> checkpoints = new ArrayList<>();
+        RefreshStatistics statistics = this.manager.refreshPoolsInChunks(mockSubAdapter, mockProdAdapter,
+            owner, false, 2, "sub-2", checkpoints::add);
+
+        assertEquals(Arrays.asList("sub-3"), checkpoints);
+        assertEquals(1, statistics.getUpdatedCount());
+        verify(this.manager, times(1)).updatePoolsForMasterPool(eq(Arrays.asList(pools.get(2))),
+            any(Pool.class), anyLong(), anyBoolean(), anyMap());
+
+        // Pools of the subscriptions refreshed by the previous attempt must be kept
+        verify(this.manager, never()).deletePool(any(Pool.class));
+    }
+
     private void mockSubscriptions(Owner owner, Collection<? extends SubscriptionInfo> subscriptions) {
         Set<String> sids = new HashSet<>();
 
@@ -1113,8 +1286,12 @@ public class PoolManagerTest {
         CandlepinQuery mockQuery = mock(CandlepinQuery.class);
         when(mockPoolCurator.listAllByIds(nullable(Set.class))).thenReturn(mockQuery);
         when(mockQuery.iterator()).thenReturn(Arrays.asList(pool1).listIterator());
-        when(enforcerMock.preEntitlement(any(Consumer.class), any(Pool.class), anyInt(),
-            any(CallerType.class))).thenReturn(result);
+
+        Map<String, ValidationResult> resultMap = new HashMap<>();
+        resultMap.put(pool1.getId(), result);
+        resultMap.put(pool2.getId(), result);
+        when(enforcerMock.preEntitlement(any(Consumer.class), anyCollection(),
+            any(CallerType.class))).thenReturn(resultMap);
 
         when(enforcerMock.postEntitlement(eq(manager), any(Consumer.class), nullable(Owner.class), anyMap(),
             anyList(), eq(false), anyMap())).thenReturn(new PoolOperationCallback());
@@ -1142,6 +1319,153 @@ public class PoolManagerTest {
         assertEquals(1, e.size());
     }
 
+    private void mockOptimisticBind(Pool pool) {
+        when(mockConfig.getBoolean(eq(ConfigProperties.BIND_OPTIMISTIC_POOL_RESERVATION))).thenReturn(true);
+        pool.setId("test-pool");
+
+        Map<String, EntitlementCertificate> entCerts = new HashMap<>();
+        entCerts.put(pool.getId(), new EntitlementCertificate());
+        when(mockECGenerator.generateEntitlementCertificates(any(Consumer.class), anyMap(), anyMap(),
+            anyMap(), eq(false))).thenReturn(entCerts);
+
+        CandlepinQuery mockQuery = mock(CandlepinQuery.class);
+        when(mockPoolCurator.listAllByIds(anyCollection())).thenReturn(mockQuery);
+        when(mockQuery.iterator()).thenAnswer(iom -> Arrays.asList(pool).listIterator());
+
+        ValidationResult result = new ValidationResult();
+        Map<String, ValidationResult> resultMap = new HashMap<>();
+        resultMap.put(pool.getId(), result);
+        when(enforcerMock.preEntitlement(any(Consumer.class), anyCollection(), any(CallerType.class)))
+            .thenReturn(resultMap);
+        when(enforcerMock.postEntitlement(eq(manager), any(Consumer.class), nullable(Owner.class), anyMap(),
+            anyList(), eq(false), anyMap())).thenReturn(new PoolOperationCallback());
+    }
+
+    @Test
+    public void testOptimisticBindReservesPoolQuantity() throws Exception {
+        this.mockOptimisticBind(pool);
+        when(mockPoolCurator.reservePoolQuantity(eq(pool.getId()), eq(2L), eq(false))).thenReturn(true);
+
+        ConsumerType ctype = this.mockConsumerType(TestUtil.createConsumerType());
+        Consumer consumer = TestUtil.createConsumer(ctype, owner);
+
+        Map<String, Integer> poolQuantities = new HashMap<>();
+        poolQuantities.put(pool.getId(), 2);
+
+        List<Entitlement> entitlements = manager.entitleByPools(consumer, poolQuantities);
+
+        assertEquals(1, entitlements.size());
+        verify(mockPoolCurator).reservePoolQuantity(eq(pool.getId()), eq(2L), eq(false));
+        verify(mockPoolCurator, never()).lockAndLoad(anyIterable());
+
+        // The reservation is picked up by refreshing the pool, not by updating it directly
+        assertEquals(0L, pool.getConsumed());
+    }
+
+    @Test
+    public void testOptimisticBindRefusedWhenPoolExhausted() throws Exception {
+        this.mockOptimisticBind(pool);
+        when(mockPoolCurator.reservePoolQuantity(eq(pool.getId()), eq(1L), eq(false))).thenReturn(false);
+
+        ConsumerType ctype = this.mockConsumerType(TestUtil.createConsumerType());
+        Consumer consumer = TestUtil.createConsumer(ctype, owner);
+
+        Map<String, Integer> poolQuantities = new HashMap<>();
+        poolQuantities.put(pool.getId(), 1);
+
+        assertThrows(ForbiddenException.class, () -> manager.entitleByPools(consumer, poolQuantities));
+        assertEquals(0L, pool.getConsumed());
+    }
+
+    @Test
+    public void testConcurrentOptimisticBindsNeverOverConsumePool() throws Exception {
+        this.mockOptimisticBind(pool);
+        pool.setQuantity(10L);
+
+        // Each bind loads its own instance of the pool, as it would in its own session
+        CandlepinQuery mockQuery = mock(CandlepinQuery.class);
+        when(mockPoolCurator.listAllByIds(anyCollection())).thenReturn(mockQuery);
+        when(mockQuery.iterator()).thenAnswer(iom -> {
+            Pool copy = TestUtil.createPool(owner, product);
+            copy.setId(pool.getId());
+            copy.setQuantity(pool.getQuantity());
+
+            return Arrays.asList(copy).listIterator();
+        });
+
+        when(enforcerMock.postEntitlement(eq(manager), any(Consumer.class), nullable(Owner.class), anyMap(),
+            anyList(), eq(false), anyMap())).thenAnswer(iom -> new PoolOperationCallback());
+
+        // Emulates the conditional update issued by the pool curator
+        AtomicLong consumed = new AtomicLong();
+        when(mockPoolCurator.reservePoolQuantity(eq(pool.getId()), anyLong(), eq(false))).thenAnswer(iom -> {
+            long quantity = iom.getArgument(1);
+
+            while (true) {
+                long current = consumed.get();
+                if (current + quantity > pool.getQuantity()) {
+                    return false;
+                }
+
+                if (consumed.compareAndSet(current, current + quantity)) {
+                    return true;
+                }
+            }
+        });
+
+        ConsumerType ctype = this.mockConsumerType(TestUtil.createConsumerType());
+
+        int threads = 8;
+        int bindsPerThread = 5;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger refused = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threads; ++i) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int bound = 0;
+
+                    for (int j = 0; j < bindsPerThread; ++j) {
+                        Consumer consumer = TestUtil.createConsumer(ctype, owner);
+                        Map<String, Integer> poolQuantities = new HashMap<>();
+                        poolQuantities.put(pool.getId(), 1);
+
+                        try {
+                            bound += manager.entitleByPools(consumer, poolQuantities).size();
+                        }
+                        catch (ForbiddenException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+
+                    return bound;
+                }));
+            }
+
+            start.countDown();
+
+            int bound = 0;
+            for (Future<Integer> result : results) {
+                bound += result.get(30, TimeUnit.SECONDS);
+            }
+
+            assertEquals(10, bound);
+            assertEquals(threads * bindsPerThread - 10, refused.get());
+            assertEquals(10L, consumed.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // Refused binds stop at the reservation, before their certificates are persisted
+        verify(certCuratorMock, times(10)).saveAll(anyCollection(), eq(false), eq(false));
+        verify(mockPoolCurator, never()).lockAndLoad(anyIterable());
+    }
+
     @Test
     public void testEntitleByProductRetry() {
         Product product = TestUtil.createProduct();
@@ -1364,6 +1688,53 @@ public class PoolManagerTest {
         return newPool;
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Test
+    public void testGetBestPoolsValidatesCandidatesInSingleBatch() throws Exception {
+        Product product = TestUtil.createProduct();
+        Pool pool1 = TestUtil.createPool(product);
+        pool1.setId("pool1");
+        Pool pool2 = TestUtil.createPool(product);
+        pool2.setId("pool2");
+        Pool pool3 = TestUtil.createPool(product);
+        pool3.setId("pool3");
+        Date now = new Date();
+
+        Page page = mock(Page.class);
+        when(page.getPageData()).thenReturn(Arrays.asList(pool1, pool2, pool3));
+        when(mockPoolCurator.listAvailableEntitlementPools(any(Consumer.class),
+            nullable(String.class), nullable(String.class), nullable(String.class), eq(now),
+            any(PoolFilterBuilder.class), nullable(PageRequest.class), anyBoolean(), anyBoolean(),
+            anyBoolean(), nullable(Date.class))).thenReturn(page);
+        when(complianceRules.getStatus(any(Consumer.class), any(Date.class), anyBoolean()))
+            .thenReturn(new ComplianceStatus(now));
+
+        ValidationResult failed = new ValidationResult();
+        failed.addError("rulefailed.consumer.type.mismatch");
+
+        Map<String, ValidationResult> resultMap = new HashMap<>();
+        resultMap.put(pool1.getId(), new ValidationResult());
+        resultMap.put(pool2.getId(), failed);
+        resultMap.put(pool3.getId(), new ValidationResult());
+        when(enforcerMock.preEntitlement(any(Consumer.class), anyCollection(),
+            eq(CallerType.BEST_POOLS))).thenReturn(resultMap);
+
+        Consumer consumer = TestUtil.createConsumer(owner);
+        manager.getBestPools(consumer, new String[] { product.getId() }, now, owner.getId(), null, null);
+
+        ArgumentCaptor<Collection> quantitiesCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(enforcerMock, times(1)).preEntitlement(eq(consumer), quantitiesCaptor.capture(),
+            eq(CallerType.BEST_POOLS));
+        verify(enforcerMock, never()).preEntitlement(any(Consumer.class), any(Pool.class), anyInt(),
+            any(CallerType.class));
+        assertEquals(3, quantitiesCaptor.getValue().size());
+
+        ArgumentCaptor<List> poolsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(autobindRules).selectBestPools(eq(consumer), any(String[].class), poolsCaptor.capture(),
+            any(ComplianceStatus.class), nullable(String.class), anySet(), eq(false));
+        assertEquals(Arrays.asList(pool1, pool3), poolsCaptor.getValue());
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Test
     public void testEntitleByProductsEmptyArray() throws Exception {
@@ -1394,8 +1765,10 @@ public class PoolManagerTest {
         when(mockPoolCurator.listAllByIds(anyList())).thenReturn(mockQuery);
         when(mockQuery.iterator()).thenReturn(Arrays.asList(pool1).listIterator());
 
-        when(enforcerMock.preEntitlement(any(Consumer.class), any(Pool.class), anyInt(),
-            any(CallerType.class))).thenReturn(result);
+        Map<String, ValidationResult> resultMap = new HashMap<>();
+        resultMap.put(pool1.getId(), result);
+        when(enforcerMock.preEntitlement(any(Consumer.class), anyCollection(),
+            any(CallerType.class))).thenReturn(resultMap);
         when(enforcerMock.postEntitlement(eq(manager), any(Consumer.class), any(Owner.class), anyMap(),
             anyList(), eq(false), anyMap())).thenReturn(new PoolOperationCallback());
         when(result.isSuccessful()).thenReturn(true);
@@ -77,6 +77,50 @@ public class RefresherTest {
             .refreshPoolsWithRegeneration(eq(subAdapter), eq(prodAdapter), eq(owner), eq(false));
     }
 
+    @Test
+    public void testStatisticsSummedAcrossOwners() {
+        Owner owner1 = TestUtil.createOwner();
+        Owner owner2 = TestUtil.createOwner();
+
+        doReturn(new RefreshStatistics().subscriptionUpdated().subscriptionSkipped())
+            .when(poolManager)
+            .refreshPoolsWithRegeneration(eq(subAdapter), eq(prodAdapter), eq(owner1), eq(false));
+        doReturn(new RefreshStatistics().subscriptionSkipped().subscriptionSkipped())
+            .when(poolManager)
+            .refreshPoolsWithRegeneration(eq(subAdapter), eq(prodAdapter), eq(owner2), eq(false));
+
+        refresher.add(owner1);
+        refresher.add(owner2);
+        refresher.run();
+
+        assertEquals(1, refresher.getStatistics().getUpdatedCount());
+        assertEquals(3, refresher.getStatistics().getSkippedCount());
+    }
+
+    @Test
+    public void testChunkedRefreshResumesFromCheckpoint() {
+        Owner owner = TestUtil.createOwner();
+        Refresher.CheckpointListener listener = mock(Refresher.CheckpointListener.class);
+
+        refresher.setChunkSize(25);
+        refresher.setCheckpoint("sub-3", listener);
+        refresher.add(owner);
+        refresher.run();
+
+        verify(poolManager).refreshPoolsInChunks(eq(subAdapter), eq(prodAdapter), eq(owner), eq(false),
+            eq(25), eq("sub-3"), eq(listener));
+        verify(poolManager, never()).refreshPoolsWithRegeneration(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void testCheckpointRejectedForSeveralOwners() {
+        refresher.setCheckpoint("sub-3", mock(Refresher.CheckpointListener.class));
+        refresher.add(TestUtil.createOwner());
+        refresher.add(TestUtil.createOwner());
+
+        assertThrows(IllegalStateException.class, () -> refresher.run());
+    }
+
     @Test
     public void testRefreshDateSet() {
         Owner owner = TestUtil.createOwner();
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import org.candlepin.model.ModelEntity;
 
@@ -320,4 +321,47 @@ public class SimpleModelTranslatorTest {
         assertSame(entity, dto.getSourceObject());
     }
 
+    @Test
+    public void testResolvedTranslatorUpdatedOnRegistration() {
+        ModelTranslator modelTranslator = new SimpleModelTranslator();
+        ObjectTranslator translator1 = new TestTranslator();
+        ObjectTranslator translator2 = new TestTranslator();
+
+        ModelEntity entity = new TestModelEntity() {};
+
+        modelTranslator.registerTranslator(translator1, ModelEntity.class, TestDTO.class);
+        assertSame(translator1, modelTranslator.findTranslatorByInstance(entity, TestDTO.class));
+
+        // A nearer translator registered after the first lookup must take over
+        modelTranslator.registerTranslator(translator2, TestModelEntity.class, TestDTO.class);
+        assertSame(translator2, modelTranslator.findTranslatorByInstance(entity, TestDTO.class));
+        assertSame(translator2, modelTranslator.translate(entity, TestDTO.class).getObjectTranslator());
+    }
+
+    @Test
+    public void testResolvedTranslatorUpdatedOnUnregistration() {
+        ModelTranslator modelTranslator = new SimpleModelTranslator();
+        ObjectTranslator translator1 = new TestTranslator();
+        ObjectTranslator translator2 = new TestTranslator();
+
+        ModelEntity entity = new TestModelEntity() {};
+
+        modelTranslator.registerTranslator(translator1, ModelEntity.class, TestDTO.class);
+        modelTranslator.registerTranslator(translator2, TestModelEntity.class, TestDTO.class);
+        assertSame(translator2, modelTranslator.findTranslatorByInstance(entity, TestDTO.class));
+
+        modelTranslator.unregisterTranslator(TestModelEntity.class, TestDTO.class);
+        assertSame(translator1, modelTranslator.findTranslatorByInstance(entity, TestDTO.class));
+
+        modelTranslator.unregisterTranslator(translator1);
+
+        try {
+            modelTranslator.findTranslatorByInstance(entity, TestDTO.class);
+            fail("Expected TranslationException");
+        }
+        catch (TranslationException e) {
+            // Expected
+        }
+    }
+
 }
@@ -2656,5 +2656,110 @@ public class AsyncJobStatusCuratorTest extends DatabaseTestFixture {
         this.validateJobStates(jobMap, Arrays.asList(), JobState.ABORTED);
     }
 
+    @Test
+    public void testUpdateJobStateClearsConstraintKeyOfTerminalJobs() {
+        AsyncJobStatus job = new AsyncJobStatus()
+            .setName("job-1")
+            .setJobKey("job_key-1")
+            .setState(JobState.QUEUED);
+
+        job.setConstraintKey("constraint_key-1");
+        job = this.asyncJobCurator.create(job);
+        this.asyncJobCurator.flush();
+
+        assertEquals(Arrays.asList(job.getId()),
+            this.asyncJobCurator.fetchJobIdsByConstraintKey("job_key-1", "constraint_key-1"));
+
+        AsyncJobStatusQueryBuilder queryBuilder = new AsyncJobStatusQueryBuilder()
+            .setJobIds(Arrays.asList(job.getId()));
+
+        int updated = this.asyncJobCurator.updateJobState(queryBuilder, JobState.ABORTED);
+        assertEquals(1, updated);
+
+        this.asyncJobCurator.refresh(job);
+
+        assertNull(job.getConstraintKey());
+        assertEquals(0,
+            this.asyncJobCurator.fetchJobIdsByConstraintKey("job_key-1", "constraint_key-1").size());
+    }
+
+    @Test
+    public void testHasUnkeyedActiveJobs() {
+        AsyncJobStatus unkeyed = new AsyncJobStatus()
+            .setName("job-1")
+            .setJobKey("job_key-1")
+            .setState(JobState.QUEUED);
+
+        AsyncJobStatus keyed = new AsyncJobStatus()
+            .setName("job-2")
+            .setJobKey("job_key-2")
+            .setState(JobState.QUEUED);
+
+        keyed.setConstraintKey("constraint_key-2");
+
+        AsyncJobStatus terminal = new AsyncJobStatus()
+            .setName("job-3")
+            .setJobKey("job_key-3")
+            .setState(JobState.FINISHED);
+
+        unkeyed = this.asyncJobCurator.create(unkeyed);
+        this.asyncJobCurator.create(keyed);
+        this.asyncJobCurator.create(terminal);
+        this.asyncJobCurator.flush();
+
+        assertTrue(this.asyncJobCurator.hasUnkeyedActiveJobs("job_key-1"));
+        assertFalse(this.asyncJobCurator.hasUnkeyedActiveJobs("job_key-2"));
+        assertFalse(this.asyncJobCurator.hasUnkeyedActiveJobs("job_key-3"));
+        assertFalse(this.asyncJobCurator.hasUnkeyedActiveJobs("job_key-4"));
+
+        AsyncJobStatusQueryBuilder queryBuilder = new AsyncJobStatusQueryBuilder()
+            .setJobIds(Arrays.asList(unkeyed.getId()));
+
+        this.asyncJobCurator.updateJobState(queryBuilder, JobState.ABORTED);
+
+        assertFalse(this.asyncJobCurator.hasUnkeyedActiveJobs("job_key-1"));
+    }
+
+    @Test
+    public void testHasUnkeyedActiveJobsCachesJobKeysWithoutUnkeyedJobs() {
+        assertFalse(this.asyncJobCurator.hasUnkeyedActiveJobs("job_key-1"));
+
+        // Jobs are always queued with a constraint key, so none are expected to show up later
+        AsyncJobStatus unkeyed = new AsyncJobStatus()
+            .setName("job-1")
+            .setJobKey("job_key-1")
+            .setState(JobState.QUEUED);
+
+        this.asyncJobCurator.create(unkeyed);
+        this.asyncJobCurator.flush();
+
+        assertFalse(this.asyncJobCurator.hasUnkeyedActiveJobs("job_key-1"));
+    }
 
+    @Test
+    public void testUpdateJobCheckpoint() {
+        AsyncJobStatus job = new AsyncJobStatus()
+            .setName("job-1")
+            .setJobKey("job_key-1")
+            .setState(JobState.RUNNING);
+
+        job = this.asyncJobCurator.create(job);
+        this.asyncJobCurator.flush();
+
+        int updated = this.asyncJobCurator.updateJobCheckpoint(job.getId(), "checkpoint-1");
+        assertEquals(1, updated);
+
+        this.asyncJobCurator.refresh(job);
+        assertEquals("checkpoint-1", job.getCheckpoint());
+
+        // Updates to the entity itself leave the checkpoint alone
+        job.setCheckpoint("checkpoint-2");
+        job.setState(JobState.FAILED_WITH_RETRY);
+        this.asyncJobCurator.merge(job);
+        this.asyncJobCurator.flush();
+
+        this.asyncJobCurator.refresh(job);
+        assertEquals("checkpoint-1", job.getCheckpoint());
+        assertEquals(JobState.FAILED_WITH_RETRY, job.getState());
+    }
 }
@@ -970,6 +970,44 @@ public class ConsumerCuratorTest extends DatabaseTestFixture {
         assertTrue(consumer.getLastCheckin().getTime() > date.getTime());
     }
 
+    @Test
+    public void testUpdateLastCheckinsSetsCheckinAndUpdatedTimes() {
+        Consumer consumer = consumerCurator.create(new Consumer("hostConsumer", "testUser", owner, ct));
+        Date checkin = new Date(consumer.getUpdated().getTime() + 3600000);
+
+        int count = consumerCurator.updateLastCheckins(Collections.singletonMap(consumer.getId(), checkin));
+        consumerCurator.refresh(consumer);
+
+        assertEquals(1, count);
+        assertEquals(checkin.getTime(), consumer.getLastCheckin().getTime());
+        assertEquals(checkin.getTime(), consumer.getUpdated().getTime());
+    }
+
+    @Test
+    public void testUpdateLastCheckinsNeverMovesTimesBackwards() {
+        Date newer = new Date(System.currentTimeMillis() + 3600000);
+        Date older = new Date(newer.getTime() - 60000);
+
+        // A consumer updated after the buffered check-in was received
+        Consumer updated = consumerCurator.create(new Consumer("updated", "testUser", owner, ct));
+        consumerCurator.updateLastCheckin(updated, newer);
+
+        Consumer other = consumerCurator.create(new Consumer("other", "testUser", owner, ct));
+
+        Map<String, Date> checkins = new HashMap<>();
+        checkins.put(updated.getId(), older);
+        checkins.put(other.getId(), newer);
+
+        consumerCurator.updateLastCheckins(checkins);
+        consumerCurator.refresh(updated);
+        consumerCurator.refresh(other);
+
+        assertEquals(newer.getTime(), updated.getLastCheckin().getTime());
+        assertEquals(newer.getTime(), updated.getUpdated().getTime());
+        assertEquals(newer.getTime(), other.getLastCheckin().getTime());
+        assertEquals(newer.getTime(), other.getUpdated().getTime());
+    }
+
     @Test
     public void delete() {
         Consumer consumer = new Consumer("testConsumer", "testUser", owner, ct);
@@ -15,11 +15,14 @@
 package org.candlepin.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.candlepin.auth.Principal;
 import org.candlepin.auth.UserPrincipal;
 import org.candlepin.auth.permissions.Permission;
 import org.candlepin.auth.permissions.UsernameConsumersPermission;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.policy.js.compliance.ComplianceStatus;
 import org.candlepin.test.DatabaseTestFixture;
 import org.candlepin.test.TestUtil;
@@ -28,6 +31,7 @@ import org.candlepin.util.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -770,6 +774,71 @@ public class OwnerInfoCuratorTest extends DatabaseTestFixture {
 
     }
 
+    @Test
+    public void testMaterializedOwnerInfoIsReadFromSnapshot() {
+        this.config.setProperty(ConfigProperties.OWNER_INFO_MATERIALIZED, "true");
+        ConsumerType type = consumerTypeCurator.getByLabel("system");
+
+        OwnerInfo info = ownerInfoCurator.getByOwner(owner);
+        assertEquals((Integer) 0, info.getConsumerCounts().get("system"));
+
+        consumerCurator.create(new Consumer("test-consumer", "test-user", owner, type));
+
+        // The snapshot is served until it is refreshed
+        info = ownerInfoCurator.getByOwner(owner);
+        assertEquals((Integer) 0, info.getConsumerCounts().get("system"));
+
+        ownerInfoCurator.refresh(owner);
+
+        info = ownerInfoCurator.getByOwner(owner);
+        assertEquals((Integer) 1, info.getConsumerCounts().get("system"));
+        assertEquals((Integer) 1, info.getConsumerGuestCounts().get(OwnerInfo.PHYSICAL));
+        assertEquals(ownerInfoCurator.calculateOwnerInfo(owner).getEntitlementsConsumedByFamily(),
+            info.getEntitlementsConsumedByFamily());
+    }
+
+    @Test
+    public void testDirtySnapshotsAreListedForRefresh() {
+        this.config.setProperty(ConfigProperties.OWNER_INFO_MATERIALIZED, "true");
+
+        // No snapshot to flag yet
+        assertFalse(ownerInfoCurator.markDirty(owner.getId()));
+
+        ownerInfoCurator.getByOwner(owner);
+        assertTrue(ownerInfoCurator.getOwnerIdsToRefresh(null).isEmpty());
+
+        assertTrue(ownerInfoCurator.markDirty(owner.getId()));
+        assertFalse(ownerInfoCurator.markDirty(owner.getId()));
+        assertEquals(1, ownerInfoCurator.getOwnerIdsToRefresh(null).size());
+
+        ownerInfoCurator.refresh(owner);
+        assertTrue(ownerInfoCurator.getOwnerIdsToRefresh(null).isEmpty());
+
+        // Snapshots older than the given date are listed even when clean
+        Date future = new Date(System.currentTimeMillis() + 60000);
+        assertEquals(1, ownerInfoCurator.getOwnerIdsToRefresh(future).size());
+    }
+
+    @Test
+    public void testRefreshKeepsSingleSnapshotPerOwner() {
+        this.config.setProperty(ConfigProperties.OWNER_INFO_MATERIALIZED, "true");
+
+        ownerInfoCurator.refresh(owner);
+        this.getEntityManager().flush();
+        this.getEntityManager().clear();
+
+        // Refreshing an owner whose snapshot is not loaded updates the stored snapshot
+        ownerInfoCurator.refresh(owner);
+        this.getEntityManager().flush();
+
+        Long count = this.getEntityManager()
+            .createQuery("SELECT COUNT(s) FROM OwnerInfoSnapshot s WHERE s.ownerId = :owner_id", Long.class)
+            .setParameter("owner_id", owner.getId())
+            .getSingleResult();
+
+        assertEquals(1L, count.longValue());
+    }
+
     private void assertConsumerCountsByEntitlementStatus(OwnerInfo info) {
         assertEquals((Integer) 2, info.getConsumerCountByStatus(ComplianceStatus.GREEN));
         assertEquals((Integer) 1, info.getConsumerCountByStatus(ComplianceStatus.RED));
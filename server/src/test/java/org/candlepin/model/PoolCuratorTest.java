@@ -57,9 +57,16 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
 
 
 /**
@@ -2803,4 +2810,96 @@ public class PoolCuratorTest extends DatabaseTestFixture {
         assertEquals(output, Util.asSet(pool7.getId()));
     }
 
+    @Test
+    public void testReservePoolQuantity() {
+        assertTrue(this.poolCurator.reservePoolQuantity(pool.getId(), 10, false));
+        assertFalse(this.poolCurator.reservePoolQuantity(pool.getId(), 7, false));
+        assertTrue(this.poolCurator.reservePoolQuantity(pool.getId(), 6, true));
+        assertFalse(this.poolCurator.reservePoolQuantity(pool.getId(), 1, false));
+
+        this.poolCurator.refresh(pool);
+
+        assertEquals(16L, pool.getConsumed());
+        assertEquals(6L, pool.getExported());
+    }
+
+    @Test
+    public void testReservePoolQuantityFromUnlimitedPool() {
+        Pool unlimited = this.createPool(owner, product, -1L, TestUtil.createDate(2015, 10, 21),
+            TestUtil.createDate(2025, 1, 1));
+
+        assertTrue(this.poolCurator.reservePoolQuantity(unlimited.getId(), 1000, false));
+
+        this.poolCurator.refresh(unlimited);
+        assertEquals(1000L, unlimited.getConsumed());
+    }
+
+    @Test
+    public void testReservePoolQuantityFromUnknownPool() {
+        assertFalse(this.poolCurator.reservePoolQuantity("bad_pool_id", 1, false));
+    }
+
+    @Test
+    public void testConcurrentReservationsNeverOverConsumePool() throws Exception {
+        int threads = 16;
+        int attempts = 25;
+
+        Pool hotPool = this.createPool(owner, product, 100L, TestUtil.createDate(2015, 10, 21),
+            TestUtil.createDate(2025, 1, 1));
+        String poolId = hotPool.getId();
+
+        // The workers use their own entity managers, which can only see committed data
+        this.commitTransaction();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threads; ++i) {
+                results.add(executor.submit(() -> {
+                    EntityManager manager = this.getEntityManager();
+                    int reserved = 0;
+
+                    try {
+                        start.await();
+
+                        for (int j = 0; j < attempts; ++j) {
+                            EntityTransaction transaction = manager.getTransaction();
+                            transaction.begin();
+
+                            if (this.poolCurator.reservePoolQuantity(poolId, 1, false)) {
+                                ++reserved;
+                            }
+
+                            transaction.commit();
+                        }
+                    }
+                    finally {
+                        manager.close();
+                    }
+
+                    return reserved;
+                }));
+            }
+
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Integer> result : results) {
+                reserved += result.get(60, TimeUnit.SECONDS);
+            }
+
+            assertEquals(100, reserved);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        this.beginTransaction();
+        this.poolCurator.refresh(hotPool);
+
+        assertEquals(100L, hotPool.getConsumed());
+        assertEquals(0L, hotPool.getExported());
+    }
 }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.pki.CertificateSigningExecutor.SigningTask;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+
+
+/**
+ * Test suite for the CertificateSigningExecutor class
+ */
+public class CertificateSigningExecutorTest {
+
+    private CertificateSigningExecutor buildExecutor(int threads) {
+        CandlepinCommonTestConfig config = new CandlepinCommonTestConfig();
+        config.setProperty(ConfigProperties.CERT_SIGNING_THREADS, String.valueOf(threads));
+
+        return new CertificateSigningExecutor(config);
+    }
+
+    @Test
+    public void testResultsAreReturnedInTaskOrder() throws Exception {
+        List<SigningTask<Integer>> tasks = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 50; ++i) {
+            int value = i;
+            tasks.add(() -> {
+                // Finish the early tasks last
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50 - value));
+                return value;
+            });
+
+            expected.add(i);
+        }
+
+        assertEquals(expected, this.buildExecutor(4).signAll(tasks));
+    }
+
+    @Test
+    public void testTasksRunOnCallingThreadWhenDisabled() throws Exception {
+        Thread caller = Thread.currentThread();
+        List<SigningTask<Thread>> tasks = Collections.nCopies(3, Thread::currentThread);
+
+        assertEquals(Collections.nCopies(3, caller), this.buildExecutor(1).signAll(tasks));
+    }
+
+    @Test
+    public void testTasksRunOnSigningThreadsWhenEnabled() throws Exception {
+        Thread caller = Thread.currentThread();
+        List<SigningTask<Thread>> tasks = Collections.nCopies(3, Thread::currentThread);
+
+        for (Thread thread : this.buildExecutor(2).signAll(tasks)) {
+            assertNotEquals(caller, thread);
+        }
+    }
+
+    @Test
+    public void testCheckedExceptionsPropagate() {
+        CertificateSigningExecutor executor = this.buildExecutor(2);
+
+        List<SigningTask<String>> tasks = new ArrayList<>();
+        tasks.add(() -> "ok");
+        tasks.add(() -> {
+            throw new GeneralSecurityException("bad key");
+        });
+
+        assertThrows(GeneralSecurityException.class, () -> executor.signAll(tasks));
+
+        tasks.set(1, () -> {
+            throw new IOException("bad encoding");
+        });
+
+        assertThrows(IOException.class, () -> executor.signAll(tasks));
+    }
+
+    @Test
+    public void testRuntimeExceptionsPropagate() {
+        List<SigningTask<String>> tasks = new ArrayList<>();
+        tasks.add(() -> "ok");
+        tasks.add(() -> {
+            throw new IllegalStateException();
+        });
+
+        assertThrows(IllegalStateException.class, () -> this.buildExecutor(2).signAll(tasks));
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+
+
+/**
+ * Test suite for the KeyPairPool class
+ */
+public class KeyPairPoolTest {
+
+    private CandlepinCommonTestConfig config;
+    private PKIUtility pki;
+    private CountDownLatch refillLatch;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.config = new CandlepinCommonTestConfig();
+        this.config.setProperty(ConfigProperties.KEY_PAIR_POOL_SIZE, "4");
+        this.config.setProperty(ConfigProperties.KEY_PAIR_POOL_LOW_WATER_MARK, "2");
+        this.config.setProperty(ConfigProperties.KEY_PAIR_POOL_REFILL_THREADS, "2");
+
+        // Key pairs are only generated in the background once the latch is released
+        this.refillLatch = new CountDownLatch(0);
+
+        this.pki = mock(PKIUtility.class);
+        when(this.pki.generateNewKeyPair()).then(iom -> {
+            if (Thread.currentThread().getName().startsWith("keypair-pool-")) {
+                this.refillLatch.await();
+            }
+
+            return new KeyPair(mock(PublicKey.class), mock(PrivateKey.class));
+        });
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for the key pair pool");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testPoolIsFilledInTheBackground() throws Exception {
+        KeyPairPool pool = new KeyPairPool(this.config, this.pki);
+
+        assertTrue(pool.isEnabled());
+        this.waitFor(() -> pool.getDepth() == 4);
+
+        assertEquals(4, pool.getRefillCount());
+        assertTrue(pool.getRefillRate() > 0);
+    }
+
+    @Test
+    public void testPoolHandsOutEachKeyPairOnce() throws Exception {
+        KeyPairPool pool = new KeyPairPool(this.config, this.pki);
+        Set<KeyPair> keyPairs = new HashSet<>();
+
+        for (int i = 0; i < 20; ++i) {
+            this.waitFor(() -> pool.getDepth() > 0);
+            assertTrue(keyPairs.add(pool.take()));
+        }
+
+        assertEquals(0, pool.getFallbackCount());
+    }
+
+    @Test
+    public void testPoolIsRefilledAtLowWaterMark() throws Exception {
+        KeyPairPool pool = new KeyPairPool(this.config, this.pki);
+        this.waitFor(() -> pool.getDepth() == 4);
+
+        // Taking down to the low-water mark triggers a refill back up to the full size
+        pool.take();
+        pool.take();
+
+        this.waitFor(() -> pool.getRefillCount() == 6);
+        this.waitFor(() -> pool.getDepth() == 4);
+    }
+
+    @Test
+    public void testFallsBackToGeneratingOnDemandWhenEmpty() throws Exception {
+        this.refillLatch = new CountDownLatch(1);
+
+        try {
+            KeyPairPool pool = new KeyPairPool(this.config, this.pki);
+
+            assertEquals(0, pool.getDepth());
+            assertNotNull(pool.take());
+            assertEquals(1, pool.getFallbackCount());
+        }
+        finally {
+            this.refillLatch.countDown();
+        }
+    }
+
+    @Test
+    public void testDisabledPoolGeneratesOnDemand() throws Exception {
+        this.config.setProperty(ConfigProperties.KEY_PAIR_POOL_SIZE, "0");
+        KeyPairPool pool = new KeyPairPool(this.config, this.pki);
+
+        assertFalse(pool.isEnabled());
+        assertNotNull(pool.take());
+        assertEquals(0, pool.getDepth());
+        verify(this.pki, times(1)).generateNewKeyPair();
+    }
+}
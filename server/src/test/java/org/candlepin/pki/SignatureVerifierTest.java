@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.pki;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+
+
+
+/**
+ * Test suite for the SignatureVerifier class
+ */
+public class SignatureVerifierTest {
+
+    private static final byte[] DATA = "the signed manifest data".getBytes(StandardCharsets.UTF_8);
+
+    private static KeyPair signingKeyPair;
+    private static KeyPair otherKeyPair;
+
+    @BeforeAll
+    public static void generateKeyPairs() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+
+        signingKeyPair = generator.generateKeyPair();
+        otherKeyPair = generator.generateKeyPair();
+    }
+
+    private Certificate mockCertificate(KeyPair keyPair) {
+        Certificate certificate = mock(Certificate.class);
+        doReturn(keyPair.getPublic()).when(certificate).getPublicKey();
+
+        return certificate;
+    }
+
+    private byte[] sign(byte[] data) throws Exception {
+        Signature signature = Signature.getInstance(PKIUtility.SIGNATURE_ALGO);
+        signature.initSign(signingKeyPair.getPrivate());
+        signature.update(data);
+
+        return signature.sign();
+    }
+
+    @Test
+    public void testVerifiesDataFedInChunks() throws Exception {
+        SignatureVerifier verifier = new SignatureVerifier(
+            Collections.singletonList(this.mockCertificate(signingKeyPair)));
+
+        verifier.update(DATA, 0, 5);
+        verifier.update(DATA, 5, DATA.length - 5);
+
+        assertTrue(verifier.verify(this.sign(DATA)));
+    }
+
+    @Test
+    public void testVerifiesAgainstAnyCertificate() throws Exception {
+        SignatureVerifier verifier = new SignatureVerifier(Arrays.asList(
+            this.mockCertificate(otherKeyPair), this.mockCertificate(signingKeyPair)));
+
+        verifier.update(DATA, 0, DATA.length);
+
+        assertTrue(verifier.verify(this.sign(DATA)));
+    }
+
+    @Test
+    public void testRejectsSignatureFromUnknownKey() throws Exception {
+        SignatureVerifier verifier = new SignatureVerifier(
+            Collections.singletonList(this.mockCertificate(otherKeyPair)));
+
+        verifier.update(DATA, 0, DATA.length);
+
+        assertFalse(verifier.verify(this.sign(DATA)));
+    }
+
+    @Test
+    public void testRejectsModifiedData() throws Exception {
+        SignatureVerifier verifier = new SignatureVerifier(
+            Collections.singletonList(this.mockCertificate(signingKeyPair)));
+
+        verifier.update(DATA, 0, DATA.length - 1);
+
+        assertFalse(verifier.verify(this.sign(DATA)));
+    }
+
+    @Test
+    public void testRejectsMalformedSignature() throws Exception {
+        SignatureVerifier verifier = new SignatureVerifier(
+            Collections.singletonList(this.mockCertificate(signingKeyPair)));
+
+        verifier.update(DATA, 0, DATA.length);
+
+        assertFalse(verifier.verify("not a signature".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testRequiresCertificates() {
+        assertThrows(IllegalArgumentException.class, () -> new SignatureVerifier(null));
+    }
+}
@@ -114,7 +114,7 @@ public class AutobindRulesTest {
         doReturn(TestUtil.createDate(2010, 1, 1)).when(this.rulesCurator).getUpdated();
         doReturn(cache).when(this.cacheProvider).get();
 
-        jsRules = new JsRunnerProvider(rulesCurator, cacheProvider).get();
+        jsRules = new JsRunnerProvider(rulesCurator, cacheProvider, config).get();
         mapper =  new RulesObjectMapper();
 
         translator = new StandardTranslator(consumerTypeCurator, environmentCurator, mockOwnerCurator);
@@ -122,7 +122,7 @@ public class EnforcerTest extends DatabaseTestFixture {
         when(rulesCurator.getUpdated()).thenReturn(TestUtil.createDate(2010, 1, 1));
         when(cacheProvider.get()).thenReturn(cache);
 
-        JsRunner jsRules = new JsRunnerProvider(rulesCurator, cacheProvider).get();
+        JsRunner jsRules = new JsRunnerProvider(rulesCurator, cacheProvider, config).get();
 
         translator = new StandardTranslator(consumerTypeCurator, mockEnvironmentCurator, mockOwnerCurator);
 
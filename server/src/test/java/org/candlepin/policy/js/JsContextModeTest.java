@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.policy.js;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.dto.ModelTranslator;
+import org.candlepin.dto.StandardTranslator;
+import org.candlepin.dto.rules.v1.ConsumerDTO;
+import org.candlepin.dto.rules.v1.EntitlementDTO;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerInstalledProduct;
+import org.candlepin.model.ConsumerType;
+import org.candlepin.model.ConsumerTypeCurator;
+import org.candlepin.model.Entitlement;
+import org.candlepin.model.EnvironmentCurator;
+import org.candlepin.model.Owner;
+import org.candlepin.model.OwnerCurator;
+import org.candlepin.model.Pool;
+import org.candlepin.model.Product;
+import org.candlepin.model.Rules;
+import org.candlepin.model.RulesCurator;
+import org.candlepin.policy.js.JsContext.ContextMode;
+import org.candlepin.test.TestUtil;
+import org.candlepin.util.Util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+
+
+/**
+ * Runs the compliance rules with their context provided as a JSON string and as native
+ * javascript objects, and checks that both produce the same results.
+ */
+public class JsContextModeTest {
+    private static Logger log = LoggerFactory.getLogger(JsContextModeTest.class);
+
+    private static final String NAMESPACE = "compliance_name_space";
+
+    private RulesObjectMapper mapper;
+    private JsRunner jsonRunner;
+    private JsRunner objectRunner;
+    private ConsumerDTO consumer;
+    private List<EntitlementDTO> entitlements;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        InputStream is = this.getClass().getResourceAsStream(RulesCurator.DEFAULT_RULES_FILE);
+        RulesCurator rulesCurator = mock(RulesCurator.class);
+        when(rulesCurator.getUpdated()).thenReturn(new Date());
+        when(rulesCurator.getRules()).thenReturn(new Rules(Util.readFile(is)));
+
+        Provider<JsRunnerRequestCache> cacheProvider = mock(Provider.class);
+        when(cacheProvider.get()).thenReturn(mock(JsRunnerRequestCache.class));
+
+        CandlepinCommonTestConfig objectConfig = new CandlepinCommonTestConfig();
+        objectConfig.setProperty(ConfigProperties.RULES_OBJECT_CONTEXT_NAMESPACES, NAMESPACE);
+
+        this.jsonRunner = new JsRunnerProvider(rulesCurator, cacheProvider, new CandlepinCommonTestConfig())
+            .get();
+        this.jsonRunner.init(NAMESPACE);
+
+        this.objectRunner = new JsRunnerProvider(rulesCurator, cacheProvider, objectConfig).get();
+        this.objectRunner.init(NAMESPACE);
+
+        this.mapper = new RulesObjectMapper();
+
+        ModelTranslator translator = new StandardTranslator(mock(ConsumerTypeCurator.class),
+            mock(EnvironmentCurator.class), mock(OwnerCurator.class));
+
+        Owner owner = new Owner("test");
+        owner.setId("test-owner");
+        ConsumerType ctype = new ConsumerType(ConsumerType.ConsumerTypeEnum.SYSTEM);
+        ctype.setId("test-ctype");
+
+        Consumer consumer = new Consumer("test consumer", "test user", owner, ctype);
+        consumer.setFact("cpu.cpu_socket(s)", "8");
+        consumer.setFact("cpu.core(s)_per_socket", "4");
+        consumer.setFact("memory.memtotal", "16000000");
+        consumer.addInstalledProduct(new ConsumerInstalledProduct("unentitled", "Unentitled"));
+
+        // Ten entitlements of two sockets each, spread over three stacks: stack-0 covers the
+        // consumer's eight sockets, while stack-1 and stack-2 only partially cover them.
+        List<Entitlement> ents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Product provided = TestUtil.createProduct("provided-" + i, "Provided " + i);
+            Product product = TestUtil.createProduct("product-" + i, "Product " + i);
+            product.setAttribute("sockets", "2");
+            product.setAttribute("stacking_id", "stack-" + (i % 3));
+            product.setAttribute("multi-entitlement", "yes");
+            product.addProvidedProduct(provided);
+
+            consumer.addInstalledProduct(new ConsumerInstalledProduct(provided.getId(),
+                provided.getName()));
+
+            Pool pool = TestUtil.createPool(owner, product);
+            pool.setId("pool-" + i);
+
+            Entitlement entitlement = new Entitlement(pool, consumer, owner, 1);
+            entitlement.setId("ent-" + i);
+            ents.add(entitlement);
+        }
+
+        this.consumer = translator.translate(consumer, ConsumerDTO.class);
+        this.entitlements = new ArrayList<>();
+        for (Entitlement entitlement : ents) {
+            this.entitlements.add(translator.translate(entitlement, EntitlementDTO.class));
+        }
+    }
+
+    private JsonJsContext buildContext() {
+        JsonJsContext context = new JsonJsContext(this.mapper);
+        context.put("consumer", this.consumer);
+        context.put("entitlements", this.entitlements);
+        context.put("log", log, false);
+
+        return context;
+    }
+
+    @Test
+    public void testRunnersUseConfiguredContextModes() {
+        assertEquals(ContextMode.JSON, this.jsonRunner.getContextMode());
+        assertEquals(ContextMode.OBJECT, this.objectRunner.getContextMode());
+    }
+
+    @Test
+    public void testComplianceStatusMatchesAcrossContextModes() throws Exception {
+        Date ondate = new Date();
+
+        String[] results = new String[2];
+        JsRunner[] runners = { this.jsonRunner, this.objectRunner };
+
+        for (int i = 0; i < runners.length; i++) {
+            JsonJsContext context = this.buildContext();
+            context.put("ondate", ondate);
+            context.put("calculateCompliantUntil", true);
+            context.put("calculateProductComplianceDateRanges", true);
+
+            results[i] = runners[i].runJsFunction(String.class, "get_status", context);
+        }
+
+        ObjectMapper jsonMapper = new ObjectMapper();
+        JsonNode jsonStatus = jsonMapper.readTree(results[0]);
+        JsonNode objectStatus = jsonMapper.readTree(results[1]);
+
+        assertEquals(jsonStatus, objectStatus);
+
+        // Make sure the comparison covers more than a trivially valid status
+        assertEquals("unentitled", jsonStatus.get("nonCompliantProducts").get(0).asText());
+        assertTrue(jsonStatus.get("compliantProducts").has("provided-0"));
+        assertTrue(jsonStatus.get("partiallyCompliantProducts").has("provided-1"));
+        assertTrue(jsonStatus.get("partialStacks").has("stack-1"));
+        assertTrue(jsonStatus.get("partialStacks").has("stack-2"));
+        assertFalse(jsonStatus.get("partialStacks").has("stack-0"));
+    }
+
+    @Test
+    public void testStackComplianceMatchesAcrossContextModes() {
+        for (String stackId : new String[] { "stack-0", "stack-1", "stack-2" }) {
+            JsonJsContext jsonContext = this.buildContext();
+            jsonContext.put("stack_id", stackId);
+
+            JsonJsContext objectContext = this.buildContext();
+            objectContext.put("stack_id", stackId);
+
+            Boolean expected = "stack-0".equals(stackId);
+            assertEquals(expected,
+                this.jsonRunner.runJsFunction(Boolean.class, "is_stack_compliant", jsonContext));
+            assertEquals(expected,
+                this.objectRunner.runJsFunction(Boolean.class, "is_stack_compliant", objectContext));
+        }
+    }
+
+    @Test
+    public void testEntitlementComplianceMatchesAcrossContextModes() {
+        for (EntitlementDTO entitlement : this.entitlements) {
+            JsonJsContext jsonContext = this.buildContext();
+            jsonContext.put("entitlement", entitlement);
+
+            JsonJsContext objectContext = this.buildContext();
+            objectContext.put("entitlement", entitlement);
+
+            assertEquals(
+                this.jsonRunner.runJsFunction(Boolean.class, "is_ent_compliant", jsonContext),
+                this.objectRunner.runJsFunction(Boolean.class, "is_ent_compliant", objectContext));
+        }
+    }
+}
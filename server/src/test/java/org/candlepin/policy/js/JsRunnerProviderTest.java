@@ -19,6 +19,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import org.candlepin.config.CandlepinCommonTestConfig;
 import org.candlepin.model.Rules;
 import org.candlepin.model.Rules.RulesSourceEnum;
 import org.candlepin.model.RulesCurator;
@@ -34,6 +35,7 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
 /**
  * JsRunnerProviderTest
  */
@@ -55,7 +57,7 @@ public class JsRunnerProviderTest {
         when(rulesCurator.getRules()).thenReturn(rules);
         when(rules.getRules()).thenReturn("");
         when(rules.getRulesSource()).thenReturn(RulesSourceEnum.DATABASE);
-        provider = new JsRunnerProvider(rulesCurator, cacheProvider);
+        provider = new JsRunnerProvider(rulesCurator, cacheProvider, new CandlepinCommonTestConfig());
     }
 
     @Test
@@ -100,4 +102,79 @@ public class JsRunnerProviderTest {
         verify(rulesCurator, times(3)).getUpdated();
     }
 
+    @Test
+    public void namespaceScopesArePooledPerThread() throws Exception {
+        when(rules.getRules()).thenReturn(TEST_RULES);
+        provider.compileRules(true);
+
+        JsRunner.NamespaceScope scope = provider.getNamespaceScope("test_name_space");
+        Assert.assertSame(scope, provider.getNamespaceScope("test_name_space"));
+
+        AtomicReference<JsRunner.NamespaceScope> otherScope = new AtomicReference<>();
+        Thread thread = new Thread(() -> otherScope.set(provider.getNamespaceScope("test_name_space")));
+        thread.start();
+        thread.join();
+
+        Assert.assertNotNull(otherScope.get());
+        Assert.assertNotSame(scope, otherScope.get());
+    }
+
+    @Test
+    public void recompileInvalidatesPooledScopes() {
+        when(rules.getRules()).thenReturn(TEST_RULES);
+        provider.compileRules(true);
+
+        JsRunner.NamespaceScope scope = provider.getNamespaceScope("test_name_space");
+        provider.compileRules(true);
+
+        Assert.assertNotSame(scope, provider.getNamespaceScope("test_name_space"));
+    }
+
+    @Test
+    public void pooledRunnerInvokesNamespaceMethods() throws Exception {
+        when(cacheProvider.get()).thenReturn(new JsRunnerRequestCache());
+        when(rules.getRules()).thenReturn(TEST_RULES);
+        provider.compileRules(true);
+
+        JsRunner runner = provider.get();
+        runner.init("test_name_space");
+        Assert.assertEquals("pong", runner.invokeMethod("ping"));
+
+        // Runners for the same namespace on the same thread share the initialized scope
+        provider.get().init("test_name_space");
+        Assert.assertEquals("pong", runner.invokeMethod("ping"));
+    }
+
+    @Test
+    public void pooledScopeIsResetBetweenCalls() throws Exception {
+        when(cacheProvider.get()).thenReturn(new JsRunnerRequestCache());
+        when(rules.getRules()).thenReturn(TEST_RULES);
+        provider.compileRules(true);
+
+        JsRunner runner = provider.get();
+        runner.init("test_name_space");
+
+        ArgumentJsContext context = new ArgumentJsContext();
+        context.put("json_context", "{}");
+        context.put("log", "logger");
+        Assert.assertEquals("string,string,undefined", runner.invokeMethod("remember", context));
+
+        // Neither the context nor the global defined by the first call is left in the scope
+        Assert.assertEquals("undefined,undefined,undefined", runner.invokeMethod("recall"));
+
+        JsRunner other = provider.get();
+        other.init("test_name_space");
+        Assert.assertEquals("undefined,undefined,undefined", other.invokeMethod("recall"));
+    }
+
+    private static final String TEST_RULES =
+        "function test_name_space() { return {\n" +
+        "  ping: function() { return 'pong'; },\n" +
+        "  remember: function() {\n" +
+        "    var seen = [typeof json_context, typeof log, typeof remembered].join();\n" +
+        "    remembered = json_context;\n" +
+        "    return seen;\n" +
+        "  },\n" +
+        "  recall: function() { return [typeof json_context, typeof log, typeof remembered].join(); }\n" +
+        "}; }";
 }
@@ -37,8 +37,11 @@ import org.candlepin.util.Util;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
 
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -145,6 +148,53 @@ public class RulesObjectMapperTest {
         assertFalse(output.contains("PRODID"));
     }
 
+    @Test
+    public void toScriptableMatchesParsedJson() {
+        Product prod = TestUtil.createProduct();
+        prod.setAttribute("sockets", "2");
+        prod.setAttribute("1", "index-like");
+
+        Pool pool = TestUtil.createPool(prod);
+        pool.setId("pool_id");
+        pool.setAttribute("stacking_id", "stack");
+
+        Consumer consumer = new Consumer();
+        consumer.setTypeId("test-ctype");
+        consumer.setFact("cpu.cpu_socket(s)", "4");
+
+        Entitlement ent = new Entitlement(pool, consumer, null, 2);
+        ent.setId("ent_id");
+
+        context.put("consumer", this.translator.translate(consumer, ConsumerDTO.class));
+        context.put("pool", this.translator.translate(pool, PoolDTO.class));
+        context.put("entitlements", Arrays.asList(this.translator.translate(ent, EntitlementDTO.class)));
+        context.put("quantity", 2.5);
+        context.put("empty", null);
+
+        Context cx = Context.enter();
+        try {
+            Scriptable scope = cx.initStandardObjects();
+
+            Scriptable converted = objMapper.toScriptable(context, scope);
+            scope.put("json_context", scope, objMapper.toJsonString(context));
+            scope.put("rules_context", scope, converted);
+
+            Object expected = cx.evaluateString(scope, "JSON.stringify(JSON.parse(json_context))",
+                "test", 1, null);
+            Object actual = cx.evaluateString(scope, "JSON.stringify(rules_context)", "test", 1, null);
+            assertEquals(expected, actual);
+
+            // Numbers must keep the types JSON.parse would have given them
+            Scriptable ents = (Scriptable) converted.get("entitlements", converted);
+            Scriptable firstEnt = (Scriptable) ents.get(0, ents);
+            assertEquals(Integer.valueOf(2), firstEnt.get("quantity", firstEnt));
+            assertEquals(Double.valueOf(2.5), converted.get("quantity", converted));
+        }
+        finally {
+            Context.exit();
+        }
+    }
+
     /*
      * Tests a bug found where consumer environment content is serialized without
      * an environment (as it would be a circular dep), resulting in a null environment
@@ -27,6 +27,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.candlepin.audit.EventSink;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.CandlepinCommonTestConfig;
 import org.candlepin.dto.ModelTranslator;
 import org.candlepin.dto.StandardTranslator;
 import org.candlepin.model.CandlepinQuery;
@@ -110,6 +112,13 @@ public class ComplianceRulesTest {
 
     private Map<String, String> activeGuestAttrs;
 
+    /**
+     * Builds the configuration used to create the compliance rules under test
+     */
+    protected Configuration getConfig() {
+        return new CandlepinCommonTestConfig();
+    }
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -123,9 +132,10 @@ public class ComplianceRulesTest {
         when(rulesCuratorMock.getUpdated()).thenReturn(new Date());
         when(rulesCuratorMock.getRules()).thenReturn(rules);
         when(cacheProvider.get()).thenReturn(cache);
-        provider = new JsRunnerProvider(rulesCuratorMock, cacheProvider);
+        provider = new JsRunnerProvider(rulesCuratorMock, cacheProvider, this.getConfig());
         compliance = new ComplianceRules(provider.get(), entCurator, new StatusReasonMessageGenerator(i18n),
-            eventSink, consumerCurator, consumerTypeCurator, new RulesObjectMapper(), translator);
+            eventSink, consumerCurator, consumerTypeCurator, new RulesObjectMapper(), translator,
+            this.getConfig(), new ComplianceStatusCache(this.getConfig(), provider));
 
         owner = new Owner("test");
         owner.setId(TestUtil.randomString());
@@ -148,7 +158,8 @@ public class ComplianceRulesTest {
     public void additivePropertiesCanStillDeserialize() {
         JsRunner mockRunner = mock(JsRunner.class);
         compliance = new ComplianceRules(mockRunner, entCurator, new StatusReasonMessageGenerator(i18n),
-            eventSink, consumerCurator, consumerTypeCurator, new RulesObjectMapper(), translator);
+            eventSink, consumerCurator, consumerTypeCurator, new RulesObjectMapper(), translator,
+            this.getConfig(), new ComplianceStatusCache(this.getConfig(), provider));
 
         when(mockRunner.runJsFunction(any(Class.class), eq("get_status"),
             any(JsContext.class))).thenReturn("{\"unknown\": \"thing\"}");
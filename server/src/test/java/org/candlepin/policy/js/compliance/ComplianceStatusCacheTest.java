@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.policy.js.compliance;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.dto.rules.v1.ComplianceStatusDTO;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerInstalledProduct;
+import org.candlepin.model.Entitlement;
+import org.candlepin.model.GuestId;
+import org.candlepin.model.Owner;
+import org.candlepin.model.Pool;
+import org.candlepin.policy.js.JsRunnerProvider;
+import org.candlepin.test.TestUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+
+
+/**
+ * Test suite for the ComplianceStatusCache class
+ */
+public class ComplianceStatusCacheTest {
+
+    private CandlepinCommonTestConfig config;
+    private JsRunnerProvider rulesProvider;
+    private Consumer consumer;
+    private Date date;
+
+    @BeforeEach
+    public void setUp() {
+        this.config = new CandlepinCommonTestConfig();
+        this.rulesProvider = mock(JsRunnerProvider.class);
+        when(this.rulesProvider.getRulesVersion()).thenReturn("5.0");
+
+        Owner owner = TestUtil.createOwner();
+        this.consumer = TestUtil.createConsumer(owner);
+        this.consumer.setFact("cpu.cpu_socket(s)", "4");
+        this.consumer.addInstalledProduct(new ConsumerInstalledProduct("prod1", "Product 1"));
+
+        Pool pool = TestUtil.createPool(owner, TestUtil.createProduct());
+        pool.setId("pool1");
+        pool.setUpdated(new Date(1000L));
+
+        Entitlement entitlement = new Entitlement(pool, this.consumer, owner, 1);
+        entitlement.setId("ent1");
+        this.consumer.addEntitlement(entitlement);
+
+        this.date = new Date(1600000000000L);
+    }
+
+    private String getKey(ComplianceStatusCache cache) {
+        return cache.getKey(this.consumer, null, this.date, true, false);
+    }
+
+    @Test
+    public void testCachedStatusIsReturned() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+        ComplianceStatusDTO status = new ComplianceStatusDTO();
+
+        assertNull(cache.get(this.getKey(cache)));
+        cache.put(this.getKey(cache), status);
+        assertSame(status, cache.get(this.getKey(cache)));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testKeyIsStableWithinDateBucket() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+        String key = this.getKey(cache);
+
+        this.date = new Date(this.date.getTime() + 1);
+        assertEquals(key, this.getKey(cache));
+
+        this.date = new Date(this.date.getTime() + 60 * 1000);
+        assertNotEquals(key, this.getKey(cache));
+    }
+
+    @Test
+    public void testKeyChangesWithFacts() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+        String key = this.getKey(cache);
+
+        this.consumer.setFact("cpu.cpu_socket(s)", "8");
+        assertNotEquals(key, this.getKey(cache));
+    }
+
+    @Test
+    public void testKeyChangesWithInstalledProducts() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+        String key = this.getKey(cache);
+
+        this.consumer.addInstalledProduct(new ConsumerInstalledProduct("prod2", "Product 2"));
+        assertNotEquals(key, this.getKey(cache));
+    }
+
+    @Test
+    public void testKeyChangesWithEntitlements() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+        String key = this.getKey(cache);
+
+        Entitlement entitlement = this.consumer.getEntitlements().iterator().next();
+        entitlement.getPool().setUpdated(new Date(2000L));
+        assertNotEquals(key, this.getKey(cache));
+
+        key = this.getKey(cache);
+        entitlement.setQuantity(2);
+        assertNotEquals(key, this.getKey(cache));
+
+        key = this.getKey(cache);
+        Entitlement newEntitlement = new Entitlement(entitlement.getPool(), this.consumer, null, 1);
+        assertNotEquals(key, cache.getKey(this.consumer, Collections.singletonList(newEntitlement),
+            this.date, true, false));
+    }
+
+    @Test
+    public void testKeyChangesWithGuests() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+        String key = this.getKey(cache);
+
+        GuestId guest = new GuestId("guest1");
+        this.consumer.addGuestId(guest);
+        assertNotEquals(key, this.getKey(cache));
+
+        key = this.getKey(cache);
+        guest.getAttributes().put("active", "1");
+        assertNotEquals(key, this.getKey(cache));
+    }
+
+    @Test
+    public void testKeyChangesWithOptions() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+
+        assertNotEquals(this.getKey(cache), cache.getKey(this.consumer, null, this.date, false, false));
+        assertNotEquals(this.getKey(cache), cache.getKey(this.consumer, null, this.date, true, true));
+    }
+
+    @Test
+    public void testRulesVersionChangeClearsCache() {
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+        cache.put(this.getKey(cache), new ComplianceStatusDTO());
+        assertEquals(1, cache.size());
+
+        when(this.rulesProvider.getRulesVersion()).thenReturn("5.1");
+        assertNull(cache.get(this.getKey(cache)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        this.config.setProperty(ConfigProperties.COMPLIANCE_CACHE_MAX_ENTRIES, "2");
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+
+        cache.put("a", new ComplianceStatusDTO());
+        cache.put("b", new ComplianceStatusDTO());
+        cache.put("c", new ComplianceStatusDTO());
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testCacheCanBeDisabled() {
+        this.config.setProperty(ConfigProperties.COMPLIANCE_CACHE_MAX_ENTRIES, "0");
+        ComplianceStatusCache cache = new ComplianceStatusCache(this.config, this.rulesProvider);
+
+        assertFalse(cache.isEnabled());
+        cache.put("a", new ComplianceStatusDTO());
+        assertEquals(0, cache.size());
+    }
+}
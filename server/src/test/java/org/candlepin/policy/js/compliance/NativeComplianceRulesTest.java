@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.policy.js.compliance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+
+import org.junit.Test;
+
+
+
+/**
+ * Runs the compliance rules tests against the native compliance engine.
+ */
+public class NativeComplianceRulesTest extends ComplianceRulesTest {
+
+    @Override
+    protected Configuration getConfig() {
+        CandlepinCommonTestConfig config = new CandlepinCommonTestConfig();
+        config.setProperty(ConfigProperties.COMPLIANCE_ENGINE, "native");
+
+        return config;
+    }
+
+    @Test
+    public void testToNumber() {
+        assertEquals(0, NativeComplianceCalculator.toNumber(null), 0);
+        assertEquals(0, NativeComplianceCalculator.toNumber(" "), 0);
+        assertEquals(4, NativeComplianceCalculator.toNumber(" 4 "), 0);
+        assertEquals(2.5, NativeComplianceCalculator.toNumber("2.5"), 0);
+        assertEquals(16, NativeComplianceCalculator.toNumber("0x10"), 0);
+        assertTrue(Double.isNaN(NativeComplianceCalculator.toNumber("4 cores")));
+    }
+
+    @Test
+    public void testParseInt() {
+        assertEquals(4, NativeComplianceCalculator.parseInt("4 cores"), 0);
+        assertEquals(-3, NativeComplianceCalculator.parseInt("-3.9"), 0);
+        assertEquals(255, NativeComplianceCalculator.parseInt("0xff"), 0);
+        assertEquals(1, NativeComplianceCalculator.parseInt(1e21), 0);
+        assertTrue(Double.isNaN(NativeComplianceCalculator.parseInt(null)));
+        assertTrue(Double.isNaN(NativeComplianceCalculator.parseInt("cores")));
+    }
+
+    @Test
+    public void testToInt32() {
+        assertEquals(0, NativeComplianceCalculator.toInt32(null));
+        assertEquals(0, NativeComplianceCalculator.toInt32(Double.NaN));
+        assertEquals(7, NativeComplianceCalculator.toInt32(7.9));
+        assertEquals(-2147483648, NativeComplianceCalculator.toInt32(2147483648.0));
+    }
+
+    @Test
+    public void testNumberToString() {
+        assertEquals("4", NativeComplianceCalculator.numberToString(4));
+        assertEquals("2.5", NativeComplianceCalculator.numberToString(2.5));
+        assertEquals("-1", NativeComplianceCalculator.numberToString(-1));
+        assertEquals("1e+21", NativeComplianceCalculator.numberToString(1e21));
+        assertEquals("1.5e-7", NativeComplianceCalculator.numberToString(1.5e-7));
+    }
+}
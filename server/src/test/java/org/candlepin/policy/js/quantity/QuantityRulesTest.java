@@ -19,6 +19,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.when;
 
+import org.candlepin.config.CandlepinCommonTestConfig;
 import org.candlepin.dto.ModelTranslator;
 import org.candlepin.dto.StandardTranslator;
 import org.candlepin.dto.rules.v1.SuggestedQuantityDTO;
@@ -100,7 +101,7 @@ public class QuantityRulesTest {
         when(rulesCuratorMock.getUpdated()).thenReturn(new Date());
         when(rulesCuratorMock.getRules()).thenReturn(rules);
         when(cacheProvider.get()).thenReturn(cache);
-        provider = new JsRunnerProvider(rulesCuratorMock, cacheProvider);
+        provider = new JsRunnerProvider(rulesCuratorMock, cacheProvider, new CandlepinCommonTestConfig());
 
         translator = new StandardTranslator(consumerTypeCurator, environmentCurator, ownerCuratorMock);
         quantityRules = new QuantityRules(provider.get(), new RulesObjectMapper(), translator);
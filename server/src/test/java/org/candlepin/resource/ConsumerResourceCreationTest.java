@@ -170,7 +170,7 @@ public class ConsumerResourceCreationTest {
             this.complianceRules, this.systemPurposeComplianceRules, this.deletedConsumerCurator, null, null,
             this.config, null, null, this.consumerBindUtil, null, null,
             new FactValidator(this.config, this.i18nProvider), null, consumerEnricher, migrationProvider,
-            modelTranslator, jobManager);
+            modelTranslator, jobManager, null);
 
         this.system = this.initConsumerType();
         this.mockConsumerType(this.system);
@@ -238,7 +238,7 @@ public class ConsumerResourceTest {
             consumerEnricher,
             migrationProvider,
             translator,
-            mockJobManager);
+            mockJobManager, null);
 
         mockedConsumerResource = Mockito.spy(consumerResource);
     }
@@ -362,10 +362,68 @@ public class ConsumerResourceTest {
         when(mockEntitlementCertServiceAdapter.listEntitlementSerialIds(consumer)).thenReturn(serialIds);
         when(mockEntitlementCurator.listByConsumer(consumer)).thenReturn(new ArrayList<>());
 
-        List<CertificateSerialDTO> serials = consumerResource
-            .getEntitlementCertificateSerials(consumer.getUuid());
+        Response response = consumerResource.getEntitlementCertificateSerials(consumer.getUuid(), null);
+        assertEquals(200, response.getStatus());
+        assertNotNull(response.getEntityTag());
 
-        verifyCertificateSerialNumbers(serials);
+        verifyCertificateSerialNumbers((List<CertificateSerialDTO>) response.getEntity());
+    }
+
+    @Test
+    public void testGetCertSerialsNotModified() {
+        Consumer consumer = createConsumer(createOwner());
+        List<Long> serialIds = Arrays.asList(1L, 2L, 3L);
+
+        when(mockEntitlementCertServiceAdapter.listEntitlementSerialIds(consumer)).thenReturn(serialIds);
+        when(mockEntitlementCurator.listByConsumer(consumer)).thenReturn(new ArrayList<>());
+        when(mockContentAccessManager.isCertificateCurrent(consumer)).thenReturn(true);
+
+        Response response = consumerResource.getEntitlementCertificateSerials(consumer.getUuid(), null);
+        String etag = '"' + response.getEntityTag().getValue() + '"';
+
+        response = consumerResource.getEntitlementCertificateSerials(consumer.getUuid(),
+            "\"some-other-tag\", W/" + etag);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(etag, '"' + response.getEntityTag().getValue() + '"');
+
+        // Nothing should have been revoked or regenerated for the second request
+        verify(mockPoolManager, Mockito.times(1)).regenerateDirtyEntitlements(consumer);
+    }
+
+    @Test
+    public void testGetCertSerialsRegeneratesDirtyEntitlementsDespiteMatchingTag() {
+        Consumer consumer = createConsumer(createOwner());
+        List<Long> serialIds = Arrays.asList(1L, 2L, 3L);
+
+        when(mockEntitlementCertServiceAdapter.listEntitlementSerialIds(consumer)).thenReturn(serialIds);
+        when(mockEntitlementCurator.listByConsumer(consumer)).thenReturn(new ArrayList<>());
+        when(mockContentAccessManager.isCertificateCurrent(consumer)).thenReturn(true);
+
+        Response response = consumerResource.getEntitlementCertificateSerials(consumer.getUuid(), null);
+        String etag = '"' + response.getEntityTag().getValue() + '"';
+
+        when(mockEntitlementCurator.hasDirtyEntitlements(consumer)).thenReturn(true);
+        response = consumerResource.getEntitlementCertificateSerials(consumer.getUuid(), etag);
+
+        assertEquals(200, response.getStatus());
+        verify(mockPoolManager, Mockito.times(2)).regenerateDirtyEntitlements(consumer);
+    }
+
+    @Test
+    public void testGetCertSerialsReturnsSerialsWhenTagDoesNotMatch() {
+        Consumer consumer = createConsumer(createOwner());
+        List<Long> serialIds = Arrays.asList(1L, 2L, 3L);
+
+        when(mockEntitlementCertServiceAdapter.listEntitlementSerialIds(consumer)).thenReturn(serialIds);
+        when(mockEntitlementCurator.listByConsumer(consumer)).thenReturn(new ArrayList<>());
+        when(mockContentAccessManager.isCertificateCurrent(consumer)).thenReturn(true);
+
+        Response response = consumerResource.getEntitlementCertificateSerials(consumer.getUuid(),
+            "\"some-other-tag\"");
+
+        assertEquals(200, response.getStatus());
+        verifyCertificateSerialNumbers((List<CertificateSerialDTO>) response.getEntity());
     }
 
     @Test
@@ -393,7 +451,7 @@ public class ConsumerResourceTest {
             mockPoolManager, null, null, null, null, null, null, null, null, null,
             this.config, null, null, consumerBindUtil,
             null, null, this.factValidator, null, consumerEnricher, migrationProvider, translator,
-            this.mockJobManager);
+            this.mockJobManager, null);
 
         // Fixme throw custom exception from generator instead of generic RuntimeException
         assertThrows(RuntimeException.class, () ->
@@ -759,7 +817,7 @@ public class ConsumerResourceTest {
         when(mockConsumerCurator.verifyAndLookupConsumer(consumer.getUuid())).thenReturn(consumer);
         when(mockEntitlementCurator.listByConsumer(consumer)).thenReturn(new ArrayList<>());
 
-        mockedConsumerResource.getEntitlementCertificateSerials(consumer.getUuid());
+        mockedConsumerResource.getEntitlementCertificateSerials(consumer.getUuid(), null);
         verify(mockedConsumerResource).revokeOnGuestMigration(consumer);
     }
 
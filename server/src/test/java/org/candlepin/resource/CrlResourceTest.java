@@ -14,6 +14,7 @@
  */
 package org.candlepin.resource;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyCollection;
@@ -25,6 +26,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import org.candlepin.common.config.Configuration;
+import org.candlepin.common.exceptions.NotFoundException;
 import org.candlepin.config.ConfigProperties;
 import org.candlepin.model.CandlepinQuery;
 import org.candlepin.model.CertificateSerial;
@@ -32,6 +34,7 @@ import org.candlepin.model.CertificateSerialCurator;
 import org.candlepin.pki.PKIUtility;
 import org.candlepin.util.CrlFileUtil;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,10 +43,14 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
+import javax.ws.rs.core.Response;
+
 
 
 /**
@@ -85,6 +92,32 @@ public class CrlResourceTest {
         verify(crlFileUtil).syncCRLWithDB(any(File.class));
     }
 
+    @Test
+    public void testGetCurrentDeltaCrl() throws Exception {
+        File deltaFile = File.createTempFile("test-", "crl.delta");
+
+        try {
+            Files.write(deltaFile.toPath(), "delta".getBytes());
+            when(crlFileUtil.getDeltaCRLFile(eq(this.testFile))).thenReturn(deltaFile);
+
+            Response response = this.resource.getCurrentDeltaCrl(null);
+
+            assertEquals("delta", IOUtils.toString((InputStream) response.getEntity(), "UTF-8"));
+            verify(crlFileUtil).syncCRLWithDB(eq(this.testFile));
+        }
+        finally {
+            deltaFile.delete();
+        }
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void testGetCurrentDeltaCrlWithoutDeltaCrl() throws Exception {
+        File deltaFile = new File(this.testFile.getPath() + ".delta");
+        when(crlFileUtil.getDeltaCRLFile(eq(this.testFile))).thenReturn(deltaFile);
+
+        this.resource.getCurrentDeltaCrl(null);
+    }
+
     @Test
     public void testGetCurrentCrlWithNoFile() throws Exception {
         this.cleanup();
@@ -154,7 +154,7 @@ public class HypervisorResourceTest {
             this.deletedConsumerCurator, null, null, config,
             null, null, this.consumerBindUtil, null, null,
             new FactValidator(config, this.i18nProvider), null, consumerEnricher, migrationProvider,
-            modelTranslator, this.jobManager);
+            modelTranslator, this.jobManager, null);
 
         this.guestIdResource = new GuestIdResource(this.guestIdCurator, this.consumerCurator,
             this.consumerTypeCurator, this.consumerResource, this.i18n, this.eventFactory, this.sink,
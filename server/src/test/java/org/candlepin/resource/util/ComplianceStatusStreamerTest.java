@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.resource.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.candlepin.auth.Access;
+import org.candlepin.auth.Principal;
+import org.candlepin.auth.SubResource;
+import org.candlepin.common.config.Configuration;
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.dto.ModelTranslator;
+import org.candlepin.dto.api.v1.ComplianceStatusDTO;
+import org.candlepin.guice.CandlepinRequestScope;
+import org.candlepin.model.Consumer;
+import org.candlepin.model.ConsumerCurator;
+import org.candlepin.model.Owner;
+import org.candlepin.policy.js.compliance.ComplianceRules;
+import org.candlepin.policy.js.compliance.ComplianceStatus;
+import org.candlepin.resteasy.JsonProvider;
+import org.candlepin.test.TestUtil;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.persist.UnitOfWork;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.StreamingOutput;
+
+
+
+/**
+ * Test suite for the ComplianceStatusStreamer class
+ */
+public class ComplianceStatusStreamerTest {
+
+    private CandlepinCommonTestConfig config;
+    private ComplianceRules complianceRules;
+    private ConsumerCurator consumerCurator;
+    private ModelTranslator translator;
+    private UnitOfWork unitOfWork;
+    private Session session;
+    private EntityManager entityManager;
+    private Map<String, Consumer> consumers;
+    private Principal principal;
+
+    @BeforeEach
+    public void setUp() {
+        this.config = new CandlepinCommonTestConfig();
+        this.config.setProperty(ConfigProperties.COMPLIANCE_STREAM_CHUNK_SIZE, "3");
+        this.config.setProperty(ConfigProperties.COMPLIANCE_STREAM_THREADS, "2");
+
+        this.complianceRules = mock(ComplianceRules.class);
+        this.consumerCurator = mock(ConsumerCurator.class);
+        this.translator = mock(ModelTranslator.class);
+        this.unitOfWork = mock(UnitOfWork.class);
+        this.session = mock(Session.class);
+        this.entityManager = mock(EntityManager.class);
+        this.consumers = new ConcurrentHashMap<>();
+        this.principal = mock(Principal.class);
+
+        when(this.principal.canAccess(any(Consumer.class), eq(SubResource.NONE), eq(Access.READ_ONLY)))
+            .thenReturn(true);
+
+        when(this.entityManager.getDelegate()).thenReturn(this.session);
+
+        when(this.consumerCurator.findByUuids(anyCollection())).thenAnswer(iom -> {
+            Collection<String> uuids = iom.getArgument(0);
+
+            // Hand the consumers back in an arbitrary order, as the curator does
+            List<Consumer> found = uuids.stream()
+                .map(this.consumers::get)
+                .filter(consumer -> consumer != null)
+                .collect(Collectors.toList());
+
+            Collections.reverse(found);
+            return found;
+        });
+
+        when(this.complianceRules.getStatus(any(Consumer.class), isNull(), isNull(), eq(true), eq(false),
+            eq(false), eq(false))).thenAnswer(iom -> new ComplianceStatus());
+
+        when(this.translator.translate(any(ComplianceStatus.class), eq(ComplianceStatusDTO.class)))
+            .thenAnswer(iom -> new ComplianceStatusDTO().setStatus("valid"));
+    }
+
+    private ComplianceStatusStreamer buildStreamer() {
+        return new ComplianceStatusStreamer(this.config, () -> this.complianceRules, this.consumerCurator,
+            this.translator, this.unitOfWork, () -> this.entityManager, new CandlepinRequestScope(),
+            new JsonProvider(mock(Configuration.class)));
+    }
+
+    private List<String> createConsumers(int count) {
+        Owner owner = TestUtil.createOwner();
+        List<String> uuids = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            Consumer consumer = TestUtil.createConsumer(owner);
+            this.consumers.put(consumer.getUuid(), consumer);
+            uuids.add(consumer.getUuid());
+        }
+
+        return uuids;
+    }
+
+    private JsonNode stream(StreamingOutput output) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        output.write(stream);
+
+        return new ObjectMapper().readTree(stream.toByteArray());
+    }
+
+    @Test
+    public void testStreamsStatusesInRequestOrder() throws Exception {
+        List<String> uuids = this.createConsumers(10);
+
+        JsonNode result = this.stream(this.buildStreamer().stream(uuids, this.principal));
+
+        List<String> streamed = new ArrayList<>();
+        result.fieldNames().forEachRemaining(streamed::add);
+
+        assertEquals(uuids, streamed);
+        for (String uuid : uuids) {
+            assertEquals("valid", result.get(uuid).get("status").asText());
+        }
+    }
+
+    @Test
+    public void testProcessesEachChunkInItsOwnReadOnlyUnitOfWork() throws Exception {
+        List<String> uuids = this.createConsumers(10);
+
+        this.stream(this.buildStreamer().stream(uuids, this.principal));
+
+        verify(this.unitOfWork, times(4)).begin();
+        verify(this.unitOfWork, times(4)).end();
+        verify(this.session, times(4)).setDefaultReadOnly(true);
+        verify(this.session, times(4)).setHibernateFlushMode(FlushMode.MANUAL);
+        verify(this.consumerCurator, times(4)).findByUuids(anyCollection());
+    }
+
+    @Test
+    public void testDoesNotApplyStatuses() throws Exception {
+        List<String> uuids = this.createConsumers(2);
+
+        this.stream(this.buildStreamer().stream(uuids, this.principal));
+
+        verify(this.complianceRules, times(2)).getStatus(any(Consumer.class), isNull(), isNull(),
+            eq(true), eq(false), eq(false), eq(false));
+        verify(this.complianceRules, never()).applyStatus(any(), any(), any(Boolean.class));
+    }
+
+    @Test
+    public void testOmitsUnknownAndDuplicateConsumers() throws Exception {
+        List<String> uuids = this.createConsumers(4);
+        List<String> requested = new ArrayList<>(uuids);
+        requested.add(1, "unknown");
+        requested.add(uuids.get(0));
+
+        JsonNode result = this.stream(this.buildStreamer().stream(requested, this.principal));
+
+        List<String> streamed = new ArrayList<>();
+        result.fieldNames().forEachRemaining(streamed::add);
+
+        assertEquals(uuids, streamed);
+    }
+
+    @Test
+    public void testOmitsConsumersThePrincipalCannotAccess() throws Exception {
+        List<String> uuids = this.createConsumers(5);
+        Consumer hidden = this.consumers.get(uuids.get(3));
+
+        when(this.principal.canAccess(eq(hidden), eq(SubResource.NONE), eq(Access.READ_ONLY)))
+            .thenReturn(false);
+
+        JsonNode result = this.stream(this.buildStreamer().stream(uuids, this.principal));
+
+        List<String> streamed = new ArrayList<>();
+        result.fieldNames().forEachRemaining(streamed::add);
+
+        List<String> expected = new ArrayList<>(uuids);
+        expected.remove(hidden.getUuid());
+
+        assertEquals(expected, streamed);
+        verify(this.complianceRules, never()).getStatus(eq(hidden), any(), any(), any(Boolean.class),
+            any(Boolean.class), any(Boolean.class), any(Boolean.class));
+    }
+
+    @Test
+    public void testStreamsEmptyObjectWithoutConsumers() throws Exception {
+        ComplianceStatusStreamer streamer = this.buildStreamer();
+
+        assertEquals(0, this.stream(streamer.stream(null, this.principal)).size());
+        assertEquals(0, this.stream(streamer.stream(Collections.emptyList(), this.principal)).size());
+
+        verify(this.unitOfWork, never()).begin();
+    }
+
+    @Test
+    public void testChunkFailurePropagates() {
+        List<String> uuids = this.createConsumers(7);
+
+        when(this.consumerCurator.findByUuids(anyCollection())).thenThrow(new IllegalStateException("boom"));
+
+        assertThrows(IllegalStateException.class,
+            () -> this.stream(this.buildStreamer().stream(uuids, this.principal)));
+    }
+}
@@ -18,6 +18,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import org.candlepin.audit.EventSink;
+import org.candlepin.config.CandlepinCommonTestConfig;
 import org.candlepin.dto.ModelTranslator;
 import org.candlepin.dto.StandardTranslator;
 import org.candlepin.model.CandlepinQuery;
@@ -44,6 +45,7 @@ import org.candlepin.policy.js.JsRunnerRequestCache;
 import org.candlepin.policy.js.RulesObjectMapper;
 import org.candlepin.policy.js.compliance.ComplianceRules;
 import org.candlepin.policy.js.compliance.ComplianceStatus;
+import org.candlepin.policy.js.compliance.ComplianceStatusCache;
 import org.candlepin.policy.js.compliance.StatusReasonMessageGenerator;
 import org.candlepin.test.MockResultIterator;
 import org.candlepin.test.TestUtil;
@@ -119,14 +121,16 @@ public class InstalledProductStatusCalculatorTest {
         when(rulesCuratorMock.getRules()).thenReturn(rules);
         when(cacheProvider.get()).thenReturn(cache);
 
-        this.provider = new JsRunnerProvider(rulesCuratorMock, cacheProvider);
+        this.provider = new JsRunnerProvider(rulesCuratorMock, cacheProvider,
+            new CandlepinCommonTestConfig());
         i18n = I18nFactory.getI18n(getClass(), "org.candlepin.i18n.Messages", locale, I18nFactory.FALLBACK);
 
         RulesObjectMapper objectMapper = new RulesObjectMapper();
 
         this.complianceRules = new ComplianceRules(provider.get(), this.entCurator,
             new StatusReasonMessageGenerator(i18n), eventSink, this.consumerCurator, this.consumerTypeCurator,
-            objectMapper, translator);
+            objectMapper, translator, new CandlepinCommonTestConfig(),
+            new ComplianceStatusCache(new CandlepinCommonTestConfig(), this.provider));
 
         this.consumerEnricher = new ConsumerEnricher(this.complianceRules, this.ownerProductCurator);
     }
@@ -0,0 +1,372 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.resteasy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.candlepin.common.jackson.CheckableBeanPropertyFilter;
+import org.candlepin.common.jackson.DynamicFilterData;
+import org.candlepin.common.jackson.HateoasBeanPropertyFilter;
+import org.candlepin.common.jackson.MultiFilter;
+import org.candlepin.dto.api.v1.OwnerDTO;
+import org.candlepin.dto.api.v1.PoolDTO;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import org.jboss.resteasy.core.ResteasyContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.MediaType;
+
+
+
+/**
+ * Serializes pools through the JsonProvider's mapper with dynamic include and exclude filters
+ * applied, and checks the output against that of the previous path-list filter implementation.
+ */
+public class DynamicPropertyFilterSerializationTest {
+
+    /**
+     * The filters and path matching of the previous DynamicFilterData implementation, which
+     * matched the full path of a property against every filter
+     */
+    private static class PathListFilterData {
+        private static class Match {
+            private final int level;
+            private final boolean exact;
+
+            public Match(int level, boolean exact) {
+                this.level = level;
+                this.exact = exact;
+            }
+        }
+
+        private final Map<String, List<String>> includeFilters = new HashMap<>();
+        private final Map<String, List<String>> excludeFilters = new HashMap<>();
+        private final boolean whitelist;
+
+        public PathListFilterData(boolean whitelist) {
+            this.whitelist = whitelist;
+        }
+
+        public void includeAttribute(String path) {
+            this.includeFilters.put(path.toLowerCase(), Arrays.asList(path.split("\\.")));
+        }
+
+        public void excludeAttribute(String path) {
+            this.excludeFilters.put(path.toLowerCase(), Arrays.asList(path.split("\\.")));
+        }
+
+        public boolean isAttributeExcluded(List<String> path) {
+            Match iLevel = this.getFilterLevel(this.includeFilters, path);
+            Match eLevel = this.getFilterLevel(this.excludeFilters, path);
+
+            if (iLevel.exact && iLevel.level > eLevel.level) {
+                return false;
+            }
+
+            if (eLevel.exact && eLevel.level > iLevel.level) {
+                return true;
+            }
+
+            return this.whitelist && (iLevel.level < 1 || iLevel.level < eLevel.level);
+        }
+
+        private Match getFilterLevel(Map<String, List<String>> filters, List<String> path) {
+            int level = 0;
+            boolean exact = false;
+
+            for (List<String> fpath : filters.values()) {
+                boolean match = false;
+                int i = 0;
+
+                do {
+                    String fchunk = fpath.get(i);
+                    String pchunk = path.get(i);
+
+                    match = fchunk != null && fchunk.equalsIgnoreCase(pchunk);
+                    ++i;
+                } while (match && i < path.size() && i < fpath.size());
+
+                if (match && i > level) {
+                    level = i + 1;
+                    exact = i >= fpath.size();
+
+                    if (exact) {
+                        break;
+                    }
+                }
+            }
+
+            return new Match(level, exact);
+        }
+    }
+
+    /**
+     * The previous DynamicPropertyFilter implementation, which built the full path of every
+     * property as a list
+     */
+    private static class PathListFilter extends CheckableBeanPropertyFilter {
+        @Override
+        public boolean isSerializable(Object obj, JsonGenerator jsonGenerator,
+            SerializerProvider serializerProvider, PropertyWriter writer) {
+
+            PathListFilterData filterData = ResteasyContext.getContextData(PathListFilterData.class);
+
+            if (filterData != null) {
+                List<String> path = new ArrayList<>(10);
+                path.add(0, writer.getName());
+
+                JsonStreamContext context = jsonGenerator.getOutputContext();
+                while ((context = context.getParent()) != null) {
+                    String cname = context.getCurrentName();
+                    if (cname != null) {
+                        path.add(0, cname);
+                    }
+                }
+
+                return !filterData.isAttributeExcluded(path);
+            }
+
+            return true;
+        }
+    }
+
+    private ObjectMapper mapper;
+    private ObjectMapper listMapper;
+    private List<PoolDTO> pools;
+
+    private DynamicFilterData filterData;
+    private PathListFilterData listFilterData;
+
+    @BeforeEach
+    public void setUp() {
+        JsonProvider provider = new JsonProvider(false);
+        this.mapper = provider.locateMapper(Object.class, MediaType.APPLICATION_JSON_TYPE);
+
+        // Mirror the filters set up by the JsonProvider
+        SimpleFilterProvider filterProvider = new SimpleFilterProvider();
+        for (String filter : Arrays.asList("ConsumerFilter", "EntitlementFilter", "OwnerFilter",
+            "GuestFilter")) {
+            filterProvider.addFilter(filter,
+                new MultiFilter(new HateoasBeanPropertyFilter(), new PathListFilter()));
+        }
+
+        filterProvider.setDefaultFilter(new PathListFilter());
+        filterProvider.setFailOnUnknownId(false);
+
+        this.listMapper = this.mapper.copy();
+        this.listMapper.setFilterProvider(filterProvider);
+
+        OwnerDTO owner = new OwnerDTO()
+            .setId("owner-id")
+            .setKey("owner-key")
+            .setDisplayName("Owner");
+
+        this.pools = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("virt_only", "false");
+
+            Map<String, String> productAttributes = new HashMap<>();
+            productAttributes.put("sockets", "2");
+
+            List<PoolDTO.ProvidedProductDTO> provided = new ArrayList<>();
+            for (int p = 0; p < 2; p++) {
+                provided.add(new PoolDTO.ProvidedProductDTO("provided-" + p, "Provided Product " + p));
+            }
+
+            PoolDTO pool = new PoolDTO()
+                .setId("pool-" + i)
+                .setType("NORMAL")
+                .setOwner(owner)
+                .setProductId("product-" + i)
+                .setProductName("Product " + i)
+                .setQuantity(100L)
+                .setConsumed(10L)
+                .setStartDate(new Date())
+                .setEndDate(new Date())
+                .setAttributes(attributes)
+                .setProductAttributes(productAttributes)
+                .setProvidedProducts(provided);
+
+            this.pools.add(pool);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ResteasyContext.clearContextData();
+    }
+
+    private void setUpFilters(boolean whitelist) {
+        this.filterData = new DynamicFilterData(whitelist);
+        this.listFilterData = new PathListFilterData(whitelist);
+    }
+
+    private void include(String path) {
+        this.filterData.includeAttribute(path);
+        this.listFilterData.includeAttribute(path);
+    }
+
+    private void exclude(String path) {
+        this.filterData.excludeAttribute(path);
+        this.listFilterData.excludeAttribute(path);
+    }
+
+    private JsonNode serialize() throws Exception {
+        ResteasyContext.pushContext(DynamicFilterData.class, this.filterData);
+        ResteasyContext.pushContext(PathListFilterData.class, this.listFilterData);
+
+        String output = this.mapper.writeValueAsString(this.pools);
+        assertEquals(this.listMapper.writeValueAsString(this.pools), output);
+
+        return this.mapper.readTree(output);
+    }
+
+    private Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new HashSet<>();
+        for (Iterator<String> it = node.fieldNames(); it.hasNext();) {
+            names.add(it.next());
+        }
+
+        return names;
+    }
+
+    @Test
+    public void testExcludeFiltersRemoveTopLevelAndNestedProperties() throws Exception {
+        this.setUpFilters(false);
+        this.exclude("attributes");
+        this.exclude("owner.displayName");
+        this.exclude("providedProducts.productName");
+
+        JsonNode output = this.serialize();
+
+        assertEquals(3, output.size());
+        for (JsonNode pool : output) {
+            assertFalse(pool.has("attributes"));
+            assertTrue(pool.has("productAttributes"));
+            assertTrue(pool.has("productId"));
+
+            assertFalse(pool.get("owner").has("displayName"));
+            assertEquals("owner-key", pool.get("owner").get("key").asText());
+
+            assertEquals(2, pool.get("providedProducts").size());
+            for (JsonNode provided : pool.get("providedProducts")) {
+                assertEquals(Set.of("productId"), this.fieldNames(provided));
+            }
+        }
+    }
+
+    @Test
+    public void testIncludeFiltersKeepOnlyIncludedProperties() throws Exception {
+        this.setUpFilters(true);
+        this.include("id");
+        this.include("owner.key");
+        this.include("providedProducts.productId");
+
+        JsonNode output = this.serialize();
+
+        assertEquals(3, output.size());
+        for (JsonNode pool : output) {
+            assertEquals(Set.of("id", "owner", "providedProducts"), this.fieldNames(pool));
+            assertEquals(Set.of("key"), this.fieldNames(pool.get("owner")));
+
+            for (JsonNode provided : pool.get("providedProducts")) {
+                assertEquals(Set.of("productId"), this.fieldNames(provided));
+            }
+        }
+    }
+
+    @Test
+    public void testNestedExcludeWithinIncludedProperty() throws Exception {
+        this.setUpFilters(true);
+        this.include("productId");
+        this.include("owner");
+        this.exclude("owner.displayName");
+
+        JsonNode output = this.serialize();
+
+        for (JsonNode pool : output) {
+            assertEquals(Set.of("productId", "owner"), this.fieldNames(pool));
+
+            JsonNode owner = pool.get("owner");
+            assertFalse(owner.has("displayName"));
+            assertEquals("owner-id", owner.get("id").asText());
+            assertEquals("owner-key", owner.get("key").asText());
+        }
+    }
+
+    @Test
+    public void testNestedIncludeWithinExcludedProperty() throws Exception {
+        this.setUpFilters(false);
+        this.exclude("owner");
+        this.include("owner.key");
+
+        JsonNode output = this.serialize();
+
+        for (JsonNode pool : output) {
+            assertTrue(pool.has("productId"));
+            assertEquals(Set.of("key"), this.fieldNames(pool.get("owner")));
+        }
+    }
+
+    @Test
+    public void testFiltersIgnoreCase() throws Exception {
+        this.setUpFilters(true);
+        this.include("PRODUCTID");
+        this.include("Owner");
+        this.exclude("owner.DISPLAYNAME");
+
+        JsonNode output = this.serialize();
+
+        for (JsonNode pool : output) {
+            assertEquals(Set.of("productId", "owner"), this.fieldNames(pool));
+            assertFalse(pool.get("owner").has("displayName"));
+        }
+    }
+
+    @Test
+    public void testNoFilterDataSerializesEverything() throws Exception {
+        String output = this.mapper.writeValueAsString(this.pools);
+        assertEquals(this.listMapper.writeValueAsString(this.pools), output);
+
+        for (JsonNode pool : this.mapper.readTree(output)) {
+            assertTrue(pool.has("attributes"));
+            assertTrue(pool.get("owner").has("displayName"));
+            assertTrue(pool.get("providedProducts").get(0).has("productName"));
+        }
+    }
+}
@@ -14,9 +14,12 @@
  */
 package org.candlepin.resteasy.filter;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.*;
 
+import org.candlepin.common.paging.Page;
+import org.candlepin.common.paging.PageCursor;
 import org.candlepin.common.paging.PageRequest;
 import org.candlepin.model.Owner;
 import org.candlepin.resteasy.JsonProvider;
@@ -40,6 +43,7 @@ import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -196,6 +200,75 @@ public class CandlepinQueryInterceptorTest extends DatabaseTestFixture {
         verify(this.mockJsonGenerator, times(1)).writeEndArray();
     }
 
+    @ParameterizedTest
+    @MethodSource("paramsForCursorPaginatedContentTest")
+    public void testWriteCursorPaginatedCandlepinQueryContents(int perPage, PageRequest.Order order,
+        boolean includeTotal) throws IOException {
+
+        List<Owner> owners = this.ownerCurator.listAll()
+            .addOrder(order == PageRequest.Order.ASCENDING ? Order.asc("key") : Order.desc("key"))
+            .list();
+
+        CandlepinQueryInterceptor cqi = new CandlepinQueryInterceptor(this.mockJsonProvider, this.emProvider);
+        List<Object> written = new ArrayList<>();
+
+        doAnswer(iom -> written.add(iom.getArgument(1)))
+            .when(this.mockObjectMapper).writeValue(eq(this.mockJsonGenerator), any());
+
+        PageCursor cursor = null;
+        int pages = 0;
+
+        do {
+            PageRequest pageRequest = new PageRequest();
+            pageRequest.setCursorPaging(true);
+            pageRequest.setCursor(cursor);
+            pageRequest.setPerPage(perPage);
+            pageRequest.setSortBy("key");
+            pageRequest.setOrder(order);
+            pageRequest.setIncludeTotal(includeTotal);
+
+            ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+            ContainerResponseContext responseContext = mock(ContainerResponseContext.class);
+            doReturn(this.ownerCurator.listAll()).when(responseContext).getEntity();
+
+            ResteasyContext.pushContext(PageRequest.class, pageRequest);
+            cqi.filter(requestContext, responseContext);
+
+            ArgumentCaptor<StreamingOutput> captor = ArgumentCaptor.forClass(StreamingOutput.class);
+            verify(responseContext, times(1)).setEntity(captor.capture());
+            captor.getValue().write(this.mockOutputStream);
+
+            Page page = ResteasyContext.getContextData(Page.class);
+            if (includeTotal) {
+                assertEquals(owners.size(), page.getMaxRecords());
+            }
+
+            cursor = page.getNextCursor() != null ? PageCursor.decode(page.getNextCursor()) : null;
+            ++pages;
+        }
+        while (cursor != null && pages <= owners.size());
+
+        assertEquals(owners, written);
+        assertEquals((owners.size() + perPage - 1) / perPage, pages);
+    }
+
+    private static Stream<Object[]> paramsForCursorPaginatedContentTest() {
+        return Stream.of(
+            new Object[] { 1, PageRequest.Order.ASCENDING, true },
+            new Object[] { 1, PageRequest.Order.ASCENDING, false },
+            new Object[] { 1, PageRequest.Order.DESCENDING, true },
+            new Object[] { 1, PageRequest.Order.DESCENDING, false },
+            new Object[] { 2, PageRequest.Order.ASCENDING, true },
+            new Object[] { 2, PageRequest.Order.ASCENDING, false },
+            new Object[] { 2, PageRequest.Order.DESCENDING, true },
+            new Object[] { 2, PageRequest.Order.DESCENDING, false },
+            new Object[] { 10, PageRequest.Order.ASCENDING, true },
+            new Object[] { 10, PageRequest.Order.ASCENDING, false },
+            new Object[] { 10, PageRequest.Order.DESCENDING, true },
+            new Object[] { 10, PageRequest.Order.DESCENDING, false }
+        );
+    }
+
     // These tests can't possibly be all-inclusive, so we'll just test most our common cases
 
     @Test
@@ -28,6 +28,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.nullable;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -52,18 +53,21 @@ import org.candlepin.model.KeyPairCurator;
 import org.candlepin.model.Owner;
 import org.candlepin.model.OwnerCurator;
 import org.candlepin.model.Pool;
+import org.candlepin.model.PoolQuantity;
 import org.candlepin.model.Product;
 import org.candlepin.model.ProductContent;
 import org.candlepin.model.ProductCurator;
 import org.candlepin.model.dto.ProductContentData;
 import org.candlepin.model.dto.ProductData;
 import org.candlepin.model.dto.Subscription;
+import org.candlepin.pki.CertificateSigningExecutor;
 import org.candlepin.pki.PKIUtility;
 import org.candlepin.pki.X509ByteExtensionWrapper;
 import org.candlepin.pki.X509ExtensionWrapper;
 import org.candlepin.pki.impl.JSSProviderLoader;
 import org.candlepin.test.TestUtil;
 import org.candlepin.util.CertificateSizeException;
+import org.candlepin.util.ContentPayloadCache;
 import org.candlepin.util.Util;
 import org.candlepin.util.X509ExtensionUtil;
 import org.candlepin.util.X509V3ExtensionUtil;
@@ -216,13 +220,15 @@ public class DefaultEntitlementCertServiceAdapterTest {
         );
         injector.injectMembers(this);
 
-        v3extensionUtil = new X509V3ExtensionUtil(config, entCurator, mapper);
+        v3extensionUtil = new X509V3ExtensionUtil(config, entCurator, mapper,
+            new ContentPayloadCache(config));
         certServiceAdapter = new DefaultEntitlementCertServiceAdapter(
             mockedPKI, extensionUtil, v3extensionUtil,
             mock(EntitlementCertificateCurator.class),
             keyPairCurator, serialCurator, ownerCurator, entCurator,
             I18nFactory.getI18n(getClass(), Locale.US, I18nFactory.FALLBACK),
-            config, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator);
+            config, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator,
+            new CertificateSigningExecutor(config));
 
         product = TestUtil.createProduct("12345", "a product");
         product.setAttribute(Product.Attributes.VERSION, "version");
@@ -396,7 +402,8 @@ public class DefaultEntitlementCertServiceAdapterTest {
             mock(EntitlementCertificateCurator.class),
             keyPairCurator, serialCurator, ownerCurator, entCurator,
             I18nFactory.getI18n(getClass(), Locale.US, I18nFactory.FALLBACK),
-            config, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator);
+            config, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator,
+            new CertificateSigningExecutor(config));
 
         X509Certificate result = certServiceAdapter.createX509Certificate(consumer, owner, pool,
             entitlement, product, new HashSet<>(),
@@ -421,7 +428,8 @@ public class DefaultEntitlementCertServiceAdapterTest {
             mock(EntitlementCertificateCurator.class),
             keyPairCurator, serialCurator, ownerCurator, entCurator,
             I18nFactory.getI18n(getClass(), Locale.US, I18nFactory.FALLBACK),
-            config, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator);
+            config, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator,
+            new CertificateSigningExecutor(config));
 
         // pool start date is more than an hour ago, use it
         Calendar cal = Calendar.getInstance();
@@ -861,7 +869,8 @@ public class DefaultEntitlementCertServiceAdapterTest {
             mock(EntitlementCertificateCurator.class),
             keyPairCurator, serialCurator, ownerCurator, entCurator,
             I18nFactory.getI18n(getClass(), Locale.US, I18nFactory.FALLBACK),
-            mockConfig, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator);
+            mockConfig, productCurator, this.mockConsumerTypeCurator, this.mockEnvironmentCurator,
+            new CertificateSigningExecutor(mockConfig));
     }
 
     @Test
@@ -1685,6 +1694,65 @@ public class DefaultEntitlementCertServiceAdapterTest {
         assertTrue(!cert.getCert().contains("ENTITLEMENT DATA"));
     }
 
+    @Test
+    public void testBatchGenerationKeepsCertificatesWithTheirPools() throws Exception {
+        consumer.setFact("system.certificate_version", X509V3ExtensionUtil.CERT_VERSION);
+
+        when(keyPairCurator.getConsumerKeyPair(any(Consumer.class))).thenReturn(keyPair);
+        when(serialCurator.saveOrUpdateAll(any(), anyBoolean(), anyBoolean())).then(iom -> {
+            Iterable<CertificateSerial> certificateSerials = iom.getArgument(0);
+            certificateSerials.forEach(serial -> serial.setId(Util.generateUniqueLong()));
+            return certificateSerials;
+        });
+
+        // Encode each certificate as its serial number, so we can tell them apart
+        when(mockedPKI.createX509Certificate(any(String.class), any(Set.class), any(Set.class),
+            any(Date.class), any(Date.class), any(KeyPair.class), any(BigInteger.class),
+            nullable(String.class))).then(iom -> {
+                X509Certificate x509Cert = mock(X509Certificate.class);
+                when(x509Cert.getSerialNumber()).thenReturn(iom.getArgument(6));
+                return x509Cert;
+            });
+        when(mockedPKI.getPemEncoded(any(X509Certificate.class)))
+            .then(iom -> (((X509Certificate) iom.getArgument(0)).getSerialNumber() + "\n").getBytes());
+        when(mockedPKI.getPemEncoded(any(PrivateKey.class))).thenReturn("".getBytes());
+        when(mockedPKI.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
+
+        Map<String, Entitlement> entitlements = new HashMap<>();
+        Map<String, PoolQuantity> poolQuantities = new HashMap<>();
+        Map<String, Product> products = new HashMap<>();
+
+        for (int i = 0; i < 10; ++i) {
+            Pool batchPool = TestUtil.copyFromSub(subscription);
+            batchPool.setId("pool-" + i);
+
+            Entitlement batchEntitlement = new Entitlement(batchPool, consumer, owner, 1);
+            batchEntitlement.setId("ent-" + i);
+
+            entitlements.put(batchPool.getId(), batchEntitlement);
+            poolQuantities.put(batchPool.getId(), new PoolQuantity(batchPool, 1));
+            products.put(batchPool.getId(), product);
+        }
+
+        Map<String, EntitlementCertificate> certs = certServiceAdapter.generateEntitlementCerts(consumer,
+            poolQuantities, entitlements, products, true);
+
+        assertEquals(entitlements.keySet(), certs.keySet());
+        for (Map.Entry<String, EntitlementCertificate> entry : certs.entrySet()) {
+            EntitlementCertificate cert = entry.getValue();
+
+            assertTrue(cert.getCert().startsWith(cert.getSerial().getId() + "\n"));
+            assertTrue(cert.getCert().contains("ENTITLEMENT DATA"));
+            assertTrue(cert.getCert().contains("RSA SIGNATURE"));
+            assertTrue(entitlements.get(entry.getKey()).getCertificates().contains(cert));
+        }
+
+        // The consumer type is only needed to choose the certificate version and check for
+        // distributors, not for every certificate
+        verify(this.mockConsumerTypeCurator, times(2)).getConsumerType(eq(consumer));
+        verify(mockedPKI, times(10)).getSHA256WithRSAHash(any(InputStream.class));
+    }
+
     @Test
     public void testContentExtension() throws IOException {
         Set<Product> products = new HashSet<>();
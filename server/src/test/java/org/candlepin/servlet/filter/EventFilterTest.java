@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.servlet.filter;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.candlepin.audit.EventSink;
+
+import com.google.inject.Injector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+
+
+/**
+ * Test suite for the EventFilter class
+ */
+@ExtendWith(MockitoExtension.class)
+public class EventFilterTest {
+    @Mock private Injector injector;
+    @Mock private EventSink eventSink;
+    @Mock private HttpServletRequest request;
+    @Mock private HttpServletResponse response;
+    @Mock private FilterChain chain;
+
+    private EventFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        doReturn(this.eventSink).when(this.injector).getInstance(EventSink.class);
+        this.filter = new EventFilter(this.injector);
+    }
+
+    private void respondWith(int status) throws Exception {
+        doAnswer(invocation -> {
+            ((HttpServletResponse) invocation.getArgument(1)).setStatus(status);
+            return null;
+        }).when(this.chain).doFilter(any(ServletRequest.class), any(HttpServletResponse.class));
+    }
+
+    @Test
+    public void testEventsSentOnSuccessfulRequest() throws Exception {
+        this.respondWith(200);
+
+        this.filter.doFilter(this.request, this.response, this.chain);
+
+        verify(this.eventSink).sendEvents();
+        verify(this.eventSink, never()).rollback();
+    }
+
+    @Test
+    public void testEventsRolledBackOnFailedRequest() throws Exception {
+        this.respondWith(500);
+
+        this.filter.doFilter(this.request, this.response, this.chain);
+
+        verify(this.eventSink).rollback();
+        verify(this.eventSink, never()).sendEvents();
+    }
+
+    @Test
+    public void testEventsRolledBackWhenRequestThrows() throws Exception {
+        doThrow(new ServletException("failed")).when(this.chain)
+            .doFilter(any(ServletRequest.class), any(HttpServletResponse.class));
+
+        assertThrows(ServletException.class,
+            () -> this.filter.doFilter(this.request, this.response, this.chain));
+
+        verify(this.eventSink).rollback();
+        verify(this.eventSink, never()).sendEvents();
+    }
+}
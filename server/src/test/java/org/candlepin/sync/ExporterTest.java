@@ -22,6 +22,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.candlepin.auth.Principal;
@@ -59,6 +61,8 @@ import org.candlepin.model.ProductCertificate;
 import org.candlepin.model.Rules;
 import org.candlepin.model.RulesCurator;
 import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.SignatureGenerator;
+import org.candlepin.pki.SignatureVerifier;
 import org.candlepin.policy.js.export.ExportRules;
 import org.candlepin.service.EntitlementCertServiceAdapter;
 import org.candlepin.service.ProductServiceAdapter;
@@ -70,6 +74,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xnap.commons.i18n.I18n;
+import org.xnap.commons.i18n.I18nFactory;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -90,6 +96,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
@@ -130,9 +137,11 @@ public class ExporterTest {
     private SyncUtils su;
     private ModelTranslator translator;
     private ContentAccessManager contentAccessManager;
+    private ManifestEntrySerializer serializer;
+    private java.security.KeyPair caKeyPair;
 
     @BeforeEach
-    public void setUp() {
+    public void setUp() throws Exception {
         ctc = mock(ConsumerTypeCurator.class);
         mockEnvironmentCurator = mock(EnvironmentCurator.class);
         oc = mock(OwnerCurator.class);
@@ -158,7 +167,14 @@ public class ExporterTest {
         cdne = new CdnExporter(translator);
         su = new SyncUtils(config);
         contentAccessManager = mock(ContentAccessManager.class);
+        serializer = new ManifestEntrySerializer(config);
         when(exportRules.canExport(any(Entitlement.class))).thenReturn(Boolean.TRUE);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        caKeyPair = generator.generateKeyPair();
+        when(pki.createCAKeySignatureGenerator())
+            .thenAnswer(invocation -> new SignatureGenerator(caKeyPair.getPrivate()));
     }
 
     private KeyPair createKeyPair() {
@@ -265,7 +281,7 @@ public class ExporterTest {
         // FINALLY test this badboy
         Exporter e = new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
             pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
-            translator, contentAccessManager);
+            translator, contentAccessManager, serializer);
 
         File export = e.getFullExport(consumer, null, null, null);
 
@@ -318,7 +334,7 @@ public class ExporterTest {
 
         Exporter e = new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
             pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
-            translator, contentAccessManager);
+            translator, contentAccessManager, serializer);
 
         assertThrows(ExportCreationException.class, () ->
             e.getFullExport(consumer, null, null, null));
@@ -361,7 +377,7 @@ public class ExporterTest {
         // FINALLY test this badboy
         Exporter e = new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
             pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
-            translator, contentAccessManager);
+            translator, contentAccessManager, serializer);
         File export = e.getFullExport(consumer, null, null, null);
 
         // VERIFY
@@ -375,6 +391,99 @@ public class ExporterTest {
         assertTrue(new File("/tmp/meta.json").delete());
     }
 
+    private Exporter buildMetadataOnlyExporter(Consumer consumer) throws Exception {
+        Rules mrules = mock(Rules.class);
+        Principal principal = mock(Principal.class);
+        IdentityCertificate idcert = new IdentityCertificate();
+
+        when(mrules.getRules()).thenReturn("foobar");
+        when(pki.getSHA256WithRSAHash(any(InputStream.class))).thenReturn("signature".getBytes());
+        when(rc.getRules()).thenReturn(mrules);
+        when(pprov.get()).thenReturn(principal);
+        when(principal.getUsername()).thenReturn("testUser");
+
+        idcert.setSerial(new CertificateSerial(10L, new Date()));
+        idcert.setKey("euh0876puhapodifbvj094");
+        idcert.setCert("hpj-08ha-w4gpoknpon*)&^%#");
+        idcert.setCreated(new Date());
+        idcert.setUpdated(new Date());
+        when(consumer.getIdCert()).thenReturn(idcert);
+        when(consumer.getUuid()).thenReturn("consumer-uuid");
+
+        CandlepinQuery cqmock = mock(CandlepinQuery.class);
+        when(cqmock.iterator()).thenReturn(Arrays.asList(new ConsumerType("system")).iterator());
+        when(ctc.listAll()).thenReturn(cqmock);
+
+        CandlepinQuery emptyIteratorMock = mock(CandlepinQuery.class);
+        when(emptyIteratorMock.iterate()).thenReturn(new MockResultIterator(Arrays.asList().iterator()));
+        when(cdnc.listAll()).thenReturn(emptyIteratorMock);
+
+        return new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
+            pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
+            translator, contentAccessManager, serializer);
+    }
+
+    @Test
+    public void streamedExportIsSignedAndReadable() throws Exception {
+        config.setProperty(ConfigProperties.SYNC_EXPORT_STREAMING, "true");
+        Consumer consumer = mock(Consumer.class);
+        Exporter e = this.buildMetadataOnlyExporter(consumer);
+
+        File export = e.getFullExport(consumer, null, null, null);
+
+        try {
+            java.security.cert.Certificate caCert = mock(java.security.cert.Certificate.class);
+            when(caCert.getPublicKey()).thenReturn(caKeyPair.getPublic());
+
+            I18n i18n = I18nFactory.getI18n(getClass(), Locale.US, I18nFactory.FALLBACK);
+            ManifestStreamReader reader = new ManifestStreamReader(su.getObjectMapper(), i18n,
+                new SignatureVerifier(Collections.singletonList(caCert)));
+
+            try (InputStream in = new FileInputStream(export)) {
+                reader.read(export.getName(), in);
+            }
+
+            assertTrue(reader.verifySignature());
+
+            ManifestContents contents = reader.getContents();
+            assertNotNull(contents.getMeta().getCreated());
+            assertNotNull(contents.getConsumer());
+            assertEquals(1, contents.getUpstreamConsumerCertificates().size());
+            assertEquals(1, contents.getConsumerTypes().size());
+            assertEquals("foobar\n", contents.getRules());
+            assertTrue(verifyHasEntry(export, "export/rules/default-rules.js"));
+
+            // The legacy signing path, which reads the archive back, is never used
+            verify(pki, never()).getSHA256WithRSAHash(any(InputStream.class));
+        }
+        finally {
+            FileUtils.deleteDirectory(export.getParentFile());
+            new File("/tmp/consumer_export.zip").delete();
+        }
+    }
+
+    @Test
+    public void exportWithoutStreamingStagesFilesInWorkDir() throws Exception {
+        config.setProperty(ConfigProperties.SYNC_EXPORT_STREAMING, "false");
+        Date start = new Date();
+        Consumer consumer = mock(Consumer.class);
+        Exporter e = this.buildMetadataOnlyExporter(consumer);
+
+        File export = e.getFullExport(consumer, null, null, null);
+
+        try {
+            assertTrue(export.exists());
+            assertTrue(new File(export.getParentFile(), "export/meta.json").exists());
+            verifyContent(export, "export/meta.json", new VerifyMetadata(start));
+            verify(pki, never()).createCAKeySignatureGenerator();
+        }
+        finally {
+            FileUtils.deleteDirectory(export.getParentFile());
+            new File("/tmp/consumer_export.zip").delete();
+            new File("/tmp/meta.json").delete();
+        }
+    }
+
     @Test
     public void exportIdentityCertificate() throws Exception {
         config.setProperty(ConfigProperties.SYNC_WORK_DIR, "/tmp/");
@@ -413,7 +522,7 @@ public class ExporterTest {
         // FINALLY test this badboy
         Exporter e = new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
             pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
-            translator, contentAccessManager);
+            translator, contentAccessManager, serializer);
         File export = e.getFullExport(consumer, null, null, null);
 
         // VERIFY
@@ -471,7 +580,7 @@ public class ExporterTest {
         // FINALLY test this badboy
         Exporter e = new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
             pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
-            translator, contentAccessManager);
+            translator, contentAccessManager, serializer);
         File export = e.getFullExport(consumer, null, null, null);
 
         verifyContent(export, "export/consumer.json", new VerifyConsumer("consumer.json"));
@@ -535,7 +644,7 @@ public class ExporterTest {
         // FINALLY test this badboy
         Exporter e = new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
             pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
-            translator, contentAccessManager);
+            translator, contentAccessManager, serializer);
         File export = e.getFullExport(consumer, null, null, null);
 
         verifyContent(export, "export/distributor_version/test-dist-ver.json",
@@ -588,7 +697,7 @@ public class ExporterTest {
 
         Exporter e = new Exporter(ctc, oc, me, ce, cte, re, ecsa, pe, psa,
             pce, ec, ee, pki, config, exportRules, pprov, dvc, dve, cdnc, cdne, su,
-            translator, contentAccessManager);
+            translator, contentAccessManager, serializer);
         File export = e.getEntitlementExport(consumer, null);
 
         // Verify
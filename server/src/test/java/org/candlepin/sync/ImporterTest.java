@@ -58,6 +58,7 @@ import org.candlepin.model.ProductCurator;
 import org.candlepin.model.UpstreamConsumer;
 import org.candlepin.model.dto.Subscription;
 import org.candlepin.pki.PKIUtility;
+import org.candlepin.pki.SignatureVerifier;
 import org.candlepin.pki.impl.JSSProviderLoader;
 import org.candlepin.service.ProductServiceAdapter;
 import org.candlepin.service.SubscriptionServiceAdapter;
@@ -80,6 +81,7 @@ import org.mockito.quality.Strictness;
 import org.xnap.commons.i18n.I18n;
 import org.xnap.commons.i18n.I18nFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -89,6 +91,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -134,6 +137,7 @@ public class ImporterTest {
 
     @Mock private RulesImporter mockRulesImporter;
     @Mock private PKIUtility mockPKIUtility;
+    @Mock private SignatureVerifier mockSignatureVerifier;
     @Mock private EventSink mockEventSink;
     @Mock private DistributorVersionCurator mockDistributorVersionCurator;
     @Mock private SubscriptionReconciler mockSubscriptionReconciler;
@@ -160,6 +164,10 @@ public class ImporterTest {
         this.mockJsPath = new File(this.tmpFolder, "empty.js").getPath();
 
         this.updateReleaseVersion("0.0.3", "1");
+
+        doReturn(this.mockSignatureVerifier)
+            .when(this.mockPKIUtility)
+            .createCACertSignatureVerifier();
     }
 
     @AfterEach
@@ -509,8 +517,8 @@ public class ImporterTest {
     public void testImportBadConsumerZip() throws Exception {
         // Mock a passed signature check:
         doReturn(true)
-            .when(this.mockPKIUtility)
-            .verifySHA256WithRSAHashAgainstCACerts(any(File.class), any(byte [].class));
+            .when(this.mockSignatureVerifier)
+            .verify(any(byte[].class));
 
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
@@ -540,8 +548,8 @@ public class ImporterTest {
     public void testImportZipSigAndEmptyConsumerZip() throws Exception {
         // Mock a passed signature check:
         doReturn(true)
-            .when(this.mockPKIUtility)
-            .verifySHA256WithRSAHashAgainstCACerts(any(File.class), any(byte [].class));
+            .when(this.mockSignatureVerifier)
+            .verify(any(byte[].class));
 
         Owner owner = mock(Owner.class);
         ConflictOverrides co = mock(ConflictOverrides.class);
@@ -567,6 +575,66 @@ public class ImporterTest {
         assertThat(throwable.getMessage(), StringContains.containsString(errmsg));
     }
 
+    @Test
+    public void testImportVerifiesConsumerExportWhileReading() throws Exception {
+        ByteArrayOutputStream verified = new ByteArrayOutputStream();
+
+        doAnswer(invocation -> {
+            verified.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(this.mockSignatureVerifier).update(any(byte[].class), anyInt(), anyInt());
+
+        doReturn(true)
+            .when(this.mockSignatureVerifier)
+            .verify(any(byte[].class));
+
+        // this is the hook to stop testing once the rules have been read from the archive
+        StringBuilder rules = new StringBuilder();
+        doAnswer(invocation -> {
+            rules.append(StringFromReader.asString((Reader) invocation.getArgument(0)));
+            throw new RuntimeException("Done with the test");
+        }).when(this.mockRulesImporter).importObject(any(Reader.class));
+
+        Owner owner = mock(Owner.class);
+        ConflictOverrides co = mock(ConflictOverrides.class);
+
+        File ceArchive = new File(this.tmpFolder, "consumer_export.zip");
+        try (ZipOutputStream cezip = new ZipOutputStream(new FileOutputStream(ceArchive))) {
+            cezip.putNextEntry(new ZipEntry("export/meta.json"));
+            cezip.write(this.mapper.writeValueAsBytes(
+                new Meta("0.0.3", new Date(), "test_user", "prefix", null)));
+
+            cezip.putNextEntry(new ZipEntry("export/consumer_types/candlepin.json"));
+            cezip.write(this.mapper.writeValueAsBytes(
+                this.modelTranslator.translate(new ConsumerType(ConsumerTypeEnum.CANDLEPIN),
+                ConsumerTypeDTO.class)));
+
+            cezip.putNextEntry(new ZipEntry("export/consumer.json"));
+            cezip.write(this.mapper.writeValueAsBytes(new ConsumerDTO()));
+
+            cezip.putNextEntry(new ZipEntry("export/rules2/rules.js"));
+            cezip.write("// nothing to see here".getBytes());
+        }
+
+        byte[] signature = "This is the placeholder for the signature file".getBytes();
+        File archive = new File(this.tmpFolder, "file.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            addFileToArchive(out, ceArchive);
+
+            out.putNextEntry(new ZipEntry("signature"));
+            out.write(signature);
+        }
+
+        Importer importer = this.buildImporter();
+        Throwable throwable = assertThrows(RuntimeException.class,
+            () -> importer.loadExport(owner, archive, co, "original_file.zip"));
+
+        assertEquals("Done with the test", throwable.getMessage());
+        assertArrayEquals(Files.readAllBytes(ceArchive.toPath()), verified.toByteArray());
+        assertEquals("// nothing to see here\n", rules.toString());
+        verify(this.mockSignatureVerifier).verify(eq(signature));
+    }
+
     @Test
     public void testImportNoMeta() throws IOException, ImporterException {
         Owner owner = mock(Owner.class);
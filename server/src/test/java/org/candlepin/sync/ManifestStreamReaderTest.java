@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.dto.manifest.v1.CertificateDTO;
+import org.candlepin.dto.manifest.v1.ConsumerDTO;
+import org.candlepin.dto.manifest.v1.EntitlementDTO;
+import org.candlepin.dto.manifest.v1.ProductDTO;
+import org.candlepin.pki.SignatureVerifier;
+import org.candlepin.sync.Importer.ImportFile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xnap.commons.i18n.I18n;
+import org.xnap.commons.i18n.I18nFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+
+/**
+ * Test suite for the ManifestStreamReader class
+ */
+public class ManifestStreamReaderTest {
+
+    private static final byte[] SIGNATURE = "signature".getBytes(StandardCharsets.UTF_8);
+
+    private ObjectMapper mapper;
+    private I18n i18n;
+    private SignatureVerifier verifier;
+    private ByteArrayOutputStream verified;
+
+    @BeforeEach
+    public void init() {
+        CandlepinCommonTestConfig config = new CandlepinCommonTestConfig();
+        config.setProperty(ConfigProperties.FAIL_ON_UNKNOWN_IMPORT_PROPERTIES, "false");
+
+        this.mapper = new SyncUtils(config).getObjectMapper();
+        this.i18n = I18nFactory.getI18n(this.getClass(), Locale.US, I18nFactory.FALLBACK);
+        this.verifier = mock(SignatureVerifier.class);
+        this.verified = new ByteArrayOutputStream();
+
+        doAnswer(invocation -> {
+            this.verified.write(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2));
+            return null;
+        }).when(this.verifier).update(any(byte[].class), anyInt(), anyInt());
+    }
+
+    private byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private byte[] manifest(byte[] consumerExport) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("consumer_export.zip", consumerExport);
+        entries.put("signature", SIGNATURE);
+
+        return this.zip(entries);
+    }
+
+    private ManifestStreamReader read(byte[] manifest) throws IOException, ImporterException {
+        ManifestStreamReader reader = new ManifestStreamReader(this.mapper, this.i18n, this.verifier);
+        reader.read("manifest.zip", new ByteArrayInputStream(manifest));
+
+        return reader;
+    }
+
+    @Test
+    public void testReadsContentsOfConsumerExport() throws Exception {
+        ProductDTO product = new ProductDTO();
+        product.setId("prod-id");
+
+        EntitlementDTO entitlement = new EntitlementDTO();
+        entitlement.setId("ent-id");
+
+        CertificateDTO certificate = new CertificateDTO();
+        certificate.setId("cert-id");
+
+        ConsumerDTO consumer = new ConsumerDTO();
+        consumer.setUuid("consumer-uuid");
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("export/meta.json", this.mapper.writeValueAsBytes(
+            new Meta("1.0", null, "test_user", "prefix", "cdn")));
+        entries.put("export/consumer.json", this.mapper.writeValueAsBytes(consumer));
+        entries.put("export/rules2/rules.js", "// rules".getBytes(StandardCharsets.UTF_8));
+        entries.put("export/products/prod-id.json", this.mapper.writeValueAsBytes(product));
+        entries.put("export/products/prod-id.pem", "pem".getBytes(StandardCharsets.UTF_8));
+        entries.put("export/entitlements/ent-id.json", this.mapper.writeValueAsBytes(entitlement));
+        entries.put("export/upstream_consumer/cert-id.json", this.mapper.writeValueAsBytes(certificate));
+        entries.put("export/upstream_consumer/cert-id.pem", "pem".getBytes(StandardCharsets.UTF_8));
+
+        ManifestContents contents = this.read(this.manifest(this.zip(entries))).getContents();
+
+        assertTrue(contents.contains(ImportFile.META));
+        assertTrue(contents.contains(ImportFile.CONSUMER));
+        assertTrue(contents.contains(ImportFile.RULES_FILE));
+        assertTrue(contents.contains(ImportFile.PRODUCTS));
+        assertTrue(contents.contains(ImportFile.ENTITLEMENTS));
+        assertTrue(contents.contains(ImportFile.UPSTREAM_CONSUMER));
+        assertFalse(contents.contains(ImportFile.CONSUMER_TYPE));
+        assertFalse(contents.contains(ImportFile.DISTRIBUTOR_VERSIONS));
+
+        assertEquals("test_user", contents.getMeta().getPrincipalName());
+        assertEquals("consumer-uuid", contents.getConsumer().getUuid());
+        assertEquals("// rules\n", contents.getRules());
+        assertEquals(1, contents.getProducts().size());
+        assertEquals("prod-id", contents.getProducts().iterator().next().getId());
+        assertEquals(1, contents.getEntitlements().size());
+        assertEquals("ent-id", contents.getEntitlements().iterator().next().getId());
+        assertEquals(1, contents.getUpstreamConsumerCertificates().size());
+        assertEquals("cert-id", contents.getUpstreamConsumerCertificates().iterator().next().getId());
+        assertTrue(contents.getConsumerTypes().isEmpty());
+    }
+
+    @Test
+    public void testFeedsWholeConsumerExportToVerifier() throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("export/meta.json", this.mapper.writeValueAsBytes(
+            new Meta("1.0", null, "test_user", "prefix", "cdn")));
+        entries.put("export/products/prod-id.pem", "pem".getBytes(StandardCharsets.UTF_8));
+
+        byte[] consumerExport = this.zip(entries);
+        doReturn(true).when(this.verifier).verify(any(byte[].class));
+
+        ManifestStreamReader reader = this.read(this.manifest(consumerExport));
+
+        assertTrue(reader.containsConsumerExport());
+        assertArrayEquals(SIGNATURE, reader.getSignature());
+        assertTrue(reader.verifySignature());
+        assertArrayEquals(consumerExport, this.verified.toByteArray());
+        verify(this.verifier).verify(SIGNATURE);
+    }
+
+    @Test
+    public void testMissingSignatureFailsVerification() throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("consumer_export.zip", this.zip(Map.of("export/meta.json", new byte[0])));
+
+        ManifestStreamReader reader = this.read(this.zip(entries));
+
+        assertNull(reader.getSignature());
+        assertFalse(reader.verifySignature());
+        verify(this.verifier, never()).verify(any(byte[].class));
+    }
+
+    @Test
+    public void testMalformedContentsAreReportedAfterVerification() throws Exception {
+        byte[] consumerExport = this.zip(Map.of("export/meta.json",
+            "{ not json".getBytes(StandardCharsets.UTF_8)));
+
+        ManifestStreamReader reader = this.read(this.manifest(consumerExport));
+
+        // The whole archive is still verified, so a bad signature can be reported first
+        assertArrayEquals(consumerExport, this.verified.toByteArray());
+        assertArrayEquals(SIGNATURE, reader.getSignature());
+        assertThrows(IOException.class, reader::getContents);
+    }
+
+    @Test
+    public void testConsumerExportWithoutContents() throws Exception {
+        byte[] consumerExport = this.zip(Map.of("no_content", new byte[0]));
+
+        ManifestStreamReader reader = this.read(this.manifest(consumerExport));
+
+        ImporterException exception = assertThrows(ImportExtractionException.class, reader::getContents);
+        assertEquals("The consumer_export archive has no contents", exception.getMessage());
+    }
+
+    @Test
+    public void testNonZipManifest() {
+        byte[] manifest = "Just a flat file".getBytes(StandardCharsets.UTF_8);
+
+        ImporterException exception = assertThrows(ImportExtractionException.class,
+            () -> this.read(manifest));
+        assertEquals("The archive manifest.zip is not a properly compressed file or is empty",
+            exception.getMessage());
+    }
+}
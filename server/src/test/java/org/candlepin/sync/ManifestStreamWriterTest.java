@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.sync;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+import org.candlepin.pki.SignatureGenerator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+
+
+/**
+ * Test suite for the ManifestStreamWriter class
+ */
+public class ManifestStreamWriterTest {
+
+    private static final byte[] SIGNATURE = "signature".getBytes(StandardCharsets.UTF_8);
+
+    private ObjectMapper mapper;
+    private ManifestEntrySerializer serializer;
+    private SignatureGenerator signer;
+    private ByteArrayOutputStream signed;
+
+    @BeforeEach
+    public void init() {
+        CandlepinCommonTestConfig config = new CandlepinCommonTestConfig();
+        config.setProperty(ConfigProperties.SYNC_EXPORT_THREADS, "2");
+
+        this.mapper = new SyncUtils(config).getObjectMapper();
+        this.serializer = new ManifestEntrySerializer(config);
+        this.signer = mock(SignatureGenerator.class);
+        this.signed = new ByteArrayOutputStream();
+
+        doAnswer(invocation -> {
+            this.signed.write(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2));
+            return null;
+        }).when(this.signer).update(any(byte[].class), anyInt(), anyInt());
+
+        doReturn(SIGNATURE).when(this.signer).sign();
+    }
+
+    private Map<String, byte[]> unzip(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toByteArray(zip));
+            }
+        }
+
+        return entries;
+    }
+
+    @Test
+    public void testSignsConsumerExportAsItIsWritten() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ManifestStreamWriter writer = new ManifestStreamWriter(this.mapper, this.serializer, this.signer,
+            out, "consumer-uuid");
+
+        writer.writeJson("meta.json", new Meta("1.0", null, "test_user", "prefix", "cdn"));
+        writer.write("rules2/rules.js", "// rules".getBytes(StandardCharsets.UTF_8));
+        writer.finish();
+
+        Map<String, byte[]> manifest = this.unzip(out.toByteArray());
+
+        assertEquals(List.of("consumer_export.zip", "signature"), new ArrayList<>(manifest.keySet()));
+        assertArrayEquals(SIGNATURE, manifest.get("signature"));
+        assertArrayEquals(manifest.get("consumer_export.zip"), this.signed.toByteArray());
+
+        Map<String, byte[]> contents = this.unzip(manifest.get("consumer_export.zip"));
+        Meta meta = this.mapper.readValue(contents.get("export/meta.json"), Meta.class);
+
+        assertEquals("test_user", meta.getPrincipalName());
+        assertArrayEquals("// rules".getBytes(StandardCharsets.UTF_8),
+            contents.get("export/rules2/rules.js"));
+    }
+
+    @Test
+    public void testEntriesAreWrittenInOrder() throws Exception {
+        int count = this.serializer.getMaxInFlight() * 3;
+        List<String> expected = new ArrayList<>();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ManifestStreamWriter writer = new ManifestStreamWriter(this.mapper, this.serializer, this.signer,
+            out, "consumer-uuid");
+
+        for (int i = 0; i < count; ++i) {
+            String name = "entitlements/" + i + ".json";
+            expected.add("export/" + name);
+
+            writer.writeJson(name, Collections.singletonMap("id", String.valueOf(i)));
+        }
+
+        writer.finish();
+
+        Map<String, byte[]> contents = this.unzip(this.unzip(out.toByteArray()).get("consumer_export.zip"));
+
+        assertEquals(expected, new ArrayList<>(contents.keySet()));
+        assertEquals("{\"id\":\"7\"}", new String(contents.get("export/entitlements/7.json"),
+            StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSerializationFailureIsReported() throws Exception {
+        ManifestStreamWriter writer = new ManifestStreamWriter(this.mapper, this.serializer, this.signer,
+            new ByteArrayOutputStream(), "consumer-uuid");
+
+        // Jackson cannot serialize a plain object without properties
+        writer.writeJson("broken.json", new Object());
+
+        assertThrows(IOException.class, writer::finish);
+    }
+}
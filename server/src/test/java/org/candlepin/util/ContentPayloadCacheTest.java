@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.candlepin.config.CandlepinCommonTestConfig;
+import org.candlepin.config.ConfigProperties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Test suite for the ContentPayloadCache class
+ */
+public class ContentPayloadCacheTest {
+
+    private CandlepinCommonTestConfig config;
+
+    @BeforeEach
+    public void setUp() {
+        this.config = new CandlepinCommonTestConfig();
+        this.config.setProperty(ConfigProperties.CONTENT_PAYLOAD_CACHE_MAX_SIZE, "1");
+    }
+
+    @Test
+    public void testKeyDependsOnPathsAndOrder() {
+        ContentPayloadCache cache = new ContentPayloadCache(this.config);
+
+        String key = cache.getKey(Arrays.asList("/content/a", "/content/b"));
+
+        assertEquals(key, cache.getKey(Arrays.asList("/content/a", "/content/b")));
+        assertNotEquals(key, cache.getKey(Arrays.asList("/content/b", "/content/a")));
+        assertNotEquals(key, cache.getKey(Arrays.asList("/content/a", "/content/c")));
+        assertNotEquals(cache.getKey(Arrays.asList("/a", "/b/c")), cache.getKey(Arrays.asList("/a/b", "/c")));
+    }
+
+    @Test
+    public void testCachedPayloadIsReused() {
+        ContentPayloadCache cache = new ContentPayloadCache(this.config);
+        String key = cache.getKey(Arrays.asList("/content/a"));
+        byte[] payload = new byte[10];
+
+        assertNull(cache.get(key));
+        cache.put(key, payload);
+
+        assertSame(payload, cache.get(key));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(10, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPayloadsAreEvicted() {
+        ContentPayloadCache cache = new ContentPayloadCache(this.config);
+        byte[] first = new byte[400];
+        byte[] second = new byte[400];
+        byte[] third = new byte[400];
+
+        cache.put("first", first);
+        cache.put("second", second);
+
+        // Using the first payload makes the second one the least recently used
+        assertSame(first, cache.get("first"));
+        cache.put("third", third);
+
+        assertSame(first, cache.get("first"));
+        assertNull(cache.get("second"));
+        assertSame(third, cache.get("third"));
+        assertEquals(800, cache.getSize());
+    }
+
+    @Test
+    public void testOversizedPayloadIsNotCached() {
+        ContentPayloadCache cache = new ContentPayloadCache(this.config);
+
+        cache.put("small", new byte[10]);
+        cache.put("large", new byte[2048]);
+
+        assertNull(cache.get("large"));
+        assertEquals(10, cache.getSize());
+    }
+
+    @Test
+    public void testCacheCanBeDisabled() {
+        this.config.setProperty(ConfigProperties.CONTENT_PAYLOAD_CACHE_MAX_SIZE, "0");
+        ContentPayloadCache cache = new ContentPayloadCache(this.config);
+
+        cache.put("key", new byte[10]);
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("key"));
+    }
+}
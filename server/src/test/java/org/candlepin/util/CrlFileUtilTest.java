@@ -21,6 +21,7 @@ import static org.mockito.Mockito.*;
 
 import org.candlepin.TestingModules;
 import org.candlepin.common.config.Configuration;
+import org.candlepin.config.ConfigProperties;
 import org.candlepin.model.CertificateSerialCurator;
 import org.candlepin.pki.CertificateReader;
 import org.candlepin.pki.PKIUtility;
@@ -39,20 +40,25 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.mozilla.jss.netscape.security.util.DerValue;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CRLReason;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509CRLEntry;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -64,6 +70,10 @@ import javax.inject.Inject;
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
 public class CrlFileUtilTest {
+    private static final String CRL_NUMBER_OID = "2.5.29.20";
+    private static final String DELTA_CRL_INDICATOR_OID = "2.5.29.27";
+    private static final String FRESHEST_CRL_OID = "2.5.29.46";
+
     private CrlFileUtil cfu;
 
     @Inject private CertificateReader certificateReader;
@@ -92,6 +102,7 @@ public class CrlFileUtilTest {
     @AfterEach
     public void tearDown() {
         temp.delete();
+        this.cfu.getDeltaCRLFile(temp).delete();
     }
 
     @Test
@@ -222,6 +233,201 @@ public class CrlFileUtilTest {
         assertFalse(new ContainsSerials(temp).matchesSafely(unrevoke));
     }
 
+    private X509CRL readCRL(File file) throws Exception {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(in);
+            crl.verify(certificateReader.getCACert().getPublicKey());
+
+            return crl;
+        }
+    }
+
+    private BigInteger readNumberExtension(X509CRL crl, String oid) throws Exception {
+        byte[] value = crl.getExtensionValue(oid);
+        assertNotNull(value);
+
+        return new DerValue(new DerValue(value).getOctetString()).getInteger().toBigInteger();
+    }
+
+    private Set<BigInteger> getSerials(X509CRL crl, boolean removed) {
+        Set<BigInteger> serials = new HashSet<>();
+
+        if (crl.getRevokedCertificates() != null) {
+            for (X509CRLEntry entry : crl.getRevokedCertificates()) {
+                if (removed == (entry.getRevocationReason() == CRLReason.REMOVE_FROM_CRL)) {
+                    serials.add(entry.getSerialNumber());
+                }
+            }
+        }
+
+        return serials;
+    }
+
+    @Test
+    public void testChangesArePublishedInDeltaCRLUntilBaseRebuild() throws Exception {
+        when(config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL)).thenReturn(24);
+
+        Set<BigInteger> prime = new HashSet<>(Arrays.asList(
+            new BigInteger("1735281920"),
+            new BigInteger("6219375102")
+        ));
+
+        Set<BigInteger> revoke = new HashSet<>(Arrays.asList(
+            new BigInteger("3910582715"),
+            new BigInteger("8103749261")
+        ));
+
+        Set<BigInteger> unrevoke = new HashSet<>(Arrays.asList(
+            new BigInteger("1735281920")
+        ));
+
+        File deltaFile = this.cfu.getDeltaCRLFile(temp);
+
+        // A new base CRL is published along with an empty delta CRL
+        this.cfu.initializeCRLFile(temp, initialEntry);
+
+        BigInteger baseNumber = readNumberExtension(readCRL(temp), CRL_NUMBER_OID);
+        X509CRL delta = readCRL(deltaFile);
+        assertEquals(baseNumber, readNumberExtension(delta, DELTA_CRL_INDICATOR_OID));
+        assertTrue(getSerials(delta, false).isEmpty());
+
+        long modified = temp.lastModified();
+        this.cfu.updateCRLFile(temp, prime, null);
+        this.cfu.updateCRLFile(temp, revoke, unrevoke);
+
+        // The base CRL is left alone...
+        assertEquals(modified, temp.lastModified());
+        assertFalse(new ContainsSerials(temp).matchesSafely(prime));
+        assertFalse(new ContainsSerials(temp).matchesSafely(revoke));
+
+        // ...while the delta CRL lists the changes made since it was written
+        Set<BigInteger> expected = new HashSet<>(prime);
+        expected.addAll(revoke);
+        expected.removeAll(unrevoke);
+
+        delta = readCRL(deltaFile);
+        assertEquals(baseNumber, readNumberExtension(delta, DELTA_CRL_INDICATOR_OID));
+        assertTrue(readNumberExtension(delta, CRL_NUMBER_OID).compareTo(baseNumber) > 0);
+        assertEquals(expected, getSerials(delta, false));
+        assertEquals(unrevoke, getSerials(delta, true));
+        assertFalse(new File(temp.getParentFile(), "." + deltaFile.getName() + ".tmp").exists());
+    }
+
+    @Test
+    public void testStaleBaseCRLIsRebuiltWithDeltaCRLChanges() throws Exception {
+        when(config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL)).thenReturn(24);
+
+        Set<BigInteger> prime = new HashSet<>(Arrays.asList(
+            new BigInteger("2815930184"),
+            new BigInteger("5720184639")
+        ));
+
+        Set<BigInteger> revoke = new HashSet<>(Arrays.asList(
+            new BigInteger("9401726385")
+        ));
+
+        Set<BigInteger> unrevoke = new HashSet<>(Arrays.asList(
+            new BigInteger("2815930184")
+        ));
+
+        File deltaFile = this.cfu.getDeltaCRLFile(temp);
+
+        this.cfu.initializeCRLFile(temp, initialEntry);
+        this.cfu.updateCRLFile(temp, prime, null);
+        this.cfu.updateCRLFile(temp, null, unrevoke);
+
+        BigInteger deltaNumber = readNumberExtension(readCRL(deltaFile), CRL_NUMBER_OID);
+
+        // Age the base CRL past the rebuild interval
+        assertTrue(temp.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(25)));
+        this.cfu.updateCRLFile(temp, revoke, null);
+
+        Set<BigInteger> expected = new HashSet<>(initialEntry);
+        expected.addAll(prime);
+        expected.addAll(revoke);
+        expected.removeAll(unrevoke);
+
+        X509CRL base = readCRL(temp);
+        assertEquals(expected, getSerials(base, false));
+
+        // The new base CRL is numbered past the last delta CRL, which is reset against it
+        BigInteger baseNumber = readNumberExtension(base, CRL_NUMBER_OID);
+        assertTrue(baseNumber.compareTo(deltaNumber) > 0);
+
+        X509CRL delta = readCRL(deltaFile);
+        assertEquals(baseNumber, readNumberExtension(delta, DELTA_CRL_INDICATOR_OID));
+        assertTrue(getSerials(delta, false).isEmpty());
+        assertTrue(getSerials(delta, true).isEmpty());
+    }
+
+    @Test
+    public void testBaseCRLIsRebuiltWithoutDeltaCRL() throws Exception {
+        when(config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL)).thenReturn(24);
+
+        Set<BigInteger> revoke = new HashSet<>(Arrays.asList(
+            new BigInteger("5083917264")
+        ));
+
+        File deltaFile = this.cfu.getDeltaCRLFile(temp);
+
+        this.cfu.initializeCRLFile(temp, initialEntry);
+        assertTrue(deltaFile.delete());
+
+        // Without a delta CRL to publish changes in, the base CRL is rebuilt
+        this.cfu.updateCRLFile(temp, revoke, null);
+        assertThat(revoke, new ContainsSerials(temp));
+
+        BigInteger baseNumber = readNumberExtension(readCRL(temp), CRL_NUMBER_OID);
+        X509CRL delta = readCRL(deltaFile);
+        assertEquals(baseNumber, readNumberExtension(delta, DELTA_CRL_INDICATOR_OID));
+        assertTrue(getSerials(delta, false).isEmpty());
+    }
+
+    @Test
+    public void testRebuiltBaseCRLPointsToDeltaCRL() throws Exception {
+        String location = "https://candlepin.example.com/candlepin/crl/delta";
+
+        when(config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL)).thenReturn(24);
+        when(config.getString(ConfigProperties.CRL_DELTA_URL)).thenReturn(location);
+
+        Set<BigInteger> revoke = new HashSet<>(Arrays.asList(
+            new BigInteger("7364019285")
+        ));
+
+        // Base CRLs written before delta CRLs were published do not point to them yet
+        this.cfu.initializeCRLFile(temp, initialEntry);
+        assertNull(readCRL(temp).getExtensionValue(FRESHEST_CRL_OID));
+        assertTrue(this.cfu.getDeltaCRLFile(temp).delete());
+
+        this.cfu.updateCRLFile(temp, revoke, null);
+        assertThat(revoke, new ContainsSerials(temp));
+
+        X509CRL base = readCRL(temp);
+        byte[] freshest = base.getExtensionValue(FRESHEST_CRL_OID);
+        assertNotNull(freshest);
+        assertTrue(new String(freshest, StandardCharsets.US_ASCII).contains(location));
+        assertTrue(base.getNonCriticalExtensionOIDs().contains(FRESHEST_CRL_OID));
+
+        // Once delta CRLs are no longer published, rebuilt base CRLs stop pointing to them
+        when(config.getInt(ConfigProperties.CRL_BASE_REBUILD_INTERVAL)).thenReturn(0);
+        this.cfu.updateCRLFile(temp, null, revoke);
+
+        assertNull(readCRL(temp).getExtensionValue(FRESHEST_CRL_OID));
+    }
+
+    @Test
+    public void testDeltaCRLIsNotPublishedWithoutRebuildInterval() throws Exception {
+        Set<BigInteger> revoke = new HashSet<>(Arrays.asList(
+            new BigInteger("4192837465")
+        ));
+
+        this.cfu.initializeCRLFile(temp, initialEntry);
+        this.cfu.updateCRLFile(temp, revoke, null);
+
+        assertThat(revoke, new ContainsSerials(temp));
+        assertFalse(this.cfu.getDeltaCRLFile(temp).exists());
+    }
+
     public class ContainsSerials extends TypeSafeMatcher<Set<BigInteger>> {
         private Set<BigInteger> serials;
 
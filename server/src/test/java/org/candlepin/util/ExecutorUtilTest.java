@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+
+/**
+ * Test suite for the ExecutorUtil class
+ */
+public class ExecutorUtilTest {
+
+    @Test
+    public void testThreadsAreNamedDaemonThreadsOfTheGivenPriority() throws Exception {
+        ExecutorService executor = ExecutorUtil.newBoundedExecutor("test-pool", 1, Thread.MIN_PRIORITY);
+
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertEquals("test-pool-1", thread.getName());
+            assertTrue(thread.isDaemon());
+            assertEquals(Thread.MIN_PRIORITY, thread.getPriority());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreadsDefaultToNormalPriority() throws Exception {
+        ExecutorService executor = ExecutorUtil.newBoundedExecutor("test-pool", 1);
+
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertEquals(Thread.NORM_PRIORITY, thread.getPriority());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTasksBeyondThreadCountAreQueued() throws Exception {
+        int threads = 2;
+        ExecutorService executor = ExecutorUtil.newBoundedExecutor("test-pool", threads);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    release.await(5, TimeUnit.SECONDS);
+                    running.decrementAndGet();
+
+                    return null;
+                }));
+            }
+
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            assertTrue(maxRunning.get() <= threads);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidThreadCountIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ExecutorUtil.newBoundedExecutor("test-pool", 0));
+    }
+
+    @Test
+    public void testInvalidPriorityIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ExecutorUtil.newBoundedExecutor("test-pool", 1, Thread.MAX_PRIORITY + 1));
+    }
+}
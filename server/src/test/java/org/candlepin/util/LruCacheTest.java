@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2009 - 2021 Red Hat, Inc.
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package org.candlepin.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+
+
+/**
+ * Test suite for the LruCache class
+ */
+public class LruCacheTest {
+
+    @Test
+    public void testLookupsAreCounted() {
+        LruCache<String, String> cache = new LruCache<>("test", 2);
+
+        assertNull(cache.get("key"));
+        cache.put("key", "value");
+
+        assertEquals("value", cache.get("key"));
+        assertEquals("value", cache.get("key"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        LruCache<String, String> cache = new LruCache<>("test", 2);
+
+        cache.put("first", "1");
+        cache.put("second", "2");
+
+        // Using the first entry makes the second one the least recently used
+        assertEquals("1", cache.get("first"));
+        cache.put("third", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals("3", cache.get("third"));
+    }
+
+    @Test
+    public void testCacheIsBoundedByTotalWeight() {
+        LruCache<String, String> cache = new LruCache<>("test", 10, String::length);
+
+        cache.put("first", "aaaa");
+        cache.put("second", "bbbb");
+        cache.put("third", "cccc");
+        cache.put("oversized", "ddddddddddd");
+
+        assertNull(cache.get("first"));
+        assertNull(cache.get("oversized"));
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getWeight());
+    }
+
+    @Test
+    public void testClearKeepsLookupCounts() {
+        LruCache<String, String> cache = new LruCache<>("test", 2);
+
+        cache.put("key", "value");
+        cache.get("key");
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testCacheCanBeDisabled() {
+        LruCache<String, String> cache = new LruCache<>("test", 0);
+
+        cache.put("key", "value");
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("key"));
+    }
+}
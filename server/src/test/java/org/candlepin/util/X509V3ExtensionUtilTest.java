@@ -14,13 +14,16 @@
  */
 package org.candlepin.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import org.candlepin.TestingModules;
 import org.candlepin.common.config.Configuration;
+import org.candlepin.config.CandlepinCommonTestConfig;
 import org.candlepin.model.Branding;
 import org.candlepin.model.Consumer;
 import org.candlepin.model.Content;
@@ -31,7 +34,9 @@ import org.candlepin.model.Pool;
 import org.candlepin.model.Product;
 import org.candlepin.model.ProductContent;
 import org.candlepin.model.dto.TinySubscription;
+import org.candlepin.pki.X509ByteExtensionWrapper;
 import org.candlepin.test.TestUtil;
+import org.candlepin.util.X509V3ExtensionUtil.HuffNode;
 import org.candlepin.util.X509V3ExtensionUtil.NodePair;
 import org.candlepin.util.X509V3ExtensionUtil.PathNode;
 
@@ -42,10 +47,14 @@ import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.name.Named;
 
+import org.apache.commons.codec.binary.Hex;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -72,7 +81,7 @@ public class X509V3ExtensionUtilTest {
             new TestingModules.StandardTest()
         );
         injector.injectMembers(this);
-        util = new X509V3ExtensionUtil(config, ec, this.mapper);
+        util = new X509V3ExtensionUtil(config, ec, this.mapper, new ContentPayloadCache(config));
     }
 
     @Test
@@ -226,4 +235,132 @@ public class X509V3ExtensionUtilTest {
         assertTrue("The serialized data should contain addon!", output.contains("my_addon2"));
     }
 
+    @Test
+    public void testHuffmanTiesFavorEarlierNodes() {
+        // Decoders rebuild the trie from weights alone, so ties must always be broken the same way
+        HuffNode first = util.new HuffNode("first", 1);
+        HuffNode second = util.new HuffNode("second", 1);
+        HuffNode third = util.new HuffNode("third", 2);
+
+        HuffNode trie = util.makeTrie(new ArrayList<>(Arrays.asList(first, second, third)));
+
+        assertEquals("10", util.findHuffPath(trie, "first"));
+        assertEquals("11", util.findHuffPath(trie, "second"));
+        assertEquals("0", util.findHuffPath(trie, "third"));
+    }
+
+    @Test
+    public void testContentPathsRoundTrip() throws IOException {
+        List<String> expected = new ArrayList<>();
+        List<org.candlepin.model.dto.Content> contents = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            for (String arch : Arrays.asList("x86_64", "ppc64le", "s390x")) {
+                String path = String.format("/content/dist/rhel/server/%d/%s/product-%d/os", i % 10, arch, i);
+
+                org.candlepin.model.dto.Content content = new org.candlepin.model.dto.Content();
+                content.setPath(path);
+
+                contents.add(content);
+                expected.add(path);
+            }
+        }
+
+        org.candlepin.model.dto.Product productModel = new org.candlepin.model.dto.Product();
+        productModel.setContent(contents);
+
+        Set<X509ByteExtensionWrapper> extensions = util.getByteExtensions(null,
+            Arrays.asList(productModel), null, null);
+
+        assertEquals(1, extensions.size());
+        List<String> hydrated = util.hydrateContentPackage(extensions.iterator().next().getValue());
+
+        Collections.sort(expected);
+        Collections.sort(hydrated);
+        assertEquals(expected, hydrated);
+    }
+
+    @Test
+    public void testContentPayloadMatchesPreviousEncoder() throws IOException {
+        // Every path made of a subsequence of these segments followed by "os". Once condensed, no
+        // two nodes of the path tree have the same number of parents, so the previous encoder always
+        // wrote them in the same order. Building either Huffman trie merges a node whose weight ties
+        // with that of a leaf.
+        List<String> segments = Arrays.asList("content", "dist", "rhel", "server", "7");
+        List<String> paths = new ArrayList<>();
+
+        for (int mask = 0; mask < 1 << segments.size(); mask++) {
+            StringBuilder path = new StringBuilder();
+            for (int i = 0; i < segments.size(); i++) {
+                if ((mask & 1 << i) != 0) {
+                    path.append('/').append(segments.get(i));
+                }
+            }
+
+            paths.add(path.append("/os").toString());
+        }
+
+        // The payload built by the encoder before it was rewritten to run in linear time
+        String expected = "78da4bcecf2b49cd2b6148c92c2e6128ca48cd61284e2d2a4b2d623067c82f660000a9020a0b07" +
+            "eb73f92d8bafe4b62e92d8ba58ba5150";
+
+        assertEquals(expected, Hex.encodeHexString(this.buildContentPayload(util, paths)));
+    }
+
+    @Test
+    public void testContentPayloadDoesNotVaryBetweenRuns() throws IOException {
+        // Many nodes of this path tree have the same number of parents
+        List<String> paths = Arrays.asList(
+            "/content/dist/rhel/server/7/$releasever/$basearch/os",
+            "/content/dist/rhel/server/7/$releasever/$basearch/debug",
+            "/content/beta/rhel/server/7/$basearch/os",
+            "/content/dist/rhel8/8/$basearch/appstream/os");
+
+        byte[] expected = this.buildContentPayload(util, paths);
+
+        for (int i = 0; i < 10; i++) {
+            X509V3ExtensionUtil other = new X509V3ExtensionUtil(config, ec, this.mapper,
+                new ContentPayloadCache(config));
+
+            assertArrayEquals(expected, this.buildContentPayload(other, paths));
+        }
+    }
+
+    @Test
+    public void testContentPayloadIsSharedBetweenIdenticalContent() throws IOException {
+        CandlepinCommonTestConfig cacheConfig = new CandlepinCommonTestConfig();
+        ContentPayloadCache cache = new ContentPayloadCache(cacheConfig);
+        X509V3ExtensionUtil cachingUtil = new X509V3ExtensionUtil(config, ec, this.mapper, cache);
+
+        byte[] first = this.buildContentPayload(cachingUtil, "/content/dist/rhel/server/7/os");
+        byte[] second = this.buildContentPayload(cachingUtil, "/content/dist/rhel/server/7/os");
+        byte[] other = this.buildContentPayload(cachingUtil, "/content/dist/rhel/server/8/os");
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(Arrays.asList("/content/dist/rhel/server/8/os"),
+            cachingUtil.hydrateContentPackage(other));
+    }
+
+    private byte[] buildContentPayload(X509V3ExtensionUtil extensionUtil, String path) throws IOException {
+        return this.buildContentPayload(extensionUtil, Arrays.asList(path));
+    }
+
+    private byte[] buildContentPayload(X509V3ExtensionUtil extensionUtil, List<String> paths)
+        throws IOException {
+
+        List<org.candlepin.model.dto.Content> contents = new ArrayList<>();
+        for (String path : paths) {
+            org.candlepin.model.dto.Content content = new org.candlepin.model.dto.Content();
+            content.setPath(path);
+
+            contents.add(content);
+        }
+
+        org.candlepin.model.dto.Product productModel = new org.candlepin.model.dto.Product();
+        productModel.setContent(contents);
+
+        return extensionUtil.getByteExtensions(null, Arrays.asList(productModel), null, null)
+            .iterator().next().getValue();
+    }
 }